@@ -273,6 +273,7 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
             } catch (Exception e) {
               e.printStackTrace();
             }
+            sandbox.finishWarmUp();
           }
         });
 
@@ -1,6 +1,8 @@
 package org.robolectric.android;
 
 import android.view.View;
+import android.view.ViewGroup;
+import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheck;
 import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheckPreset;
 import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheckResult;
 import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheckResult.AccessibilityCheckResultType;
@@ -11,14 +13,21 @@ import com.google.android.apps.common.testing.accessibility.framework.TouchTarge
 import com.google.android.apps.common.testing.accessibility.framework.integrations.espresso.AccessibilityValidator;
 import com.google.auto.service.AutoService;
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.robolectric.annotation.AccessibilityChecks;
 import org.robolectric.annotation.AccessibilityChecks.ForRobolectricVersion;
 import org.robolectric.pluginapi.AccessibilityChecker;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowView;
 
 /**
  * Utility class for checking Views for accessibility.
@@ -29,6 +38,12 @@ import org.robolectric.pluginapi.AccessibilityChecker;
  * should be attached to a proper view hierarchy similar to what's checked for in:q
  * {@code ShadowView.checkedPerformClick}.
  *
+ * If incremental checking is enabled using {@link #setIncrementalChecking(Boolean)} or the system
+ * property {@code robolectric.accessibility.incrementalchecks}, results are cached per view and
+ * only views that were invalidated, had a layout requested or had their accessibility state
+ * change since they were last checked are checked again, along with their descendants. The cached
+ * results only refer to views weakly, so they don't keep views alive.
+ *
  * Will be removed after Robolectric 4.4.
  *
  * @deprecated Use Espresso for view interactions.
@@ -50,6 +65,24 @@ public class AccessibilityUtil implements AccessibilityChecker {
   /* Flag indicating if the support library's presence has been verified */
   private static boolean v4SupportPresenceVerified = false;
 
+  /* Whether checks start from the root of the hierarchy of the view being checked */
+  private static boolean runChecksFromRootView = false;
+
+  /* The preset the validator was last configured with */
+  private static AccessibilityCheckPreset checkPreset;
+
+  /* Overrides the robolectric.accessibility.incrementalchecks property when not null */
+  private static Boolean incrementalChecking;
+
+  /*
+   * Results of the most recent checks of each view, valid while the view is unchanged. The results
+   * only refer to views weakly, or else no entry would ever be collected.
+   */
+  private static final Map<View, CachedResults> cachedResults = new WeakHashMap<>();
+
+  private static int lastCheckedViewCount;
+  private static int lastSkippedViewCount;
+
   /**
    * Check a hierarchy of {@code View}s for accessibility. Only performs checks if (in decreasing
    * priority order) accessibility checking is enabled using an {@link AccessibilityChecks}
@@ -121,7 +154,7 @@ public class AccessibilityUtil implements AccessibilityChecker {
   public static void setRunChecksForRobolectricVersion(ForRobolectricVersion forVersion) {
     initializeValidator();
     if (forVersion != null) {
-      validator.setCheckPreset(convertRoboVersionToA11yTestVersion(forVersion));
+      setCheckPreset(convertRoboVersionToA11yTestVersion(forVersion));
       forVersionSet = true;
     } else {
       forVersionSet = false;
@@ -136,7 +169,7 @@ public class AccessibilityUtil implements AccessibilityChecker {
    */
   public static void setRunChecksFromRootView(boolean runChecksFromRootView) {
     initializeValidator();
-    validator.setRunChecksFromRootView(runChecksFromRootView);
+    AccessibilityUtil.runChecksFromRootView = runChecksFromRootView;
   }
   
   /**
@@ -165,6 +198,7 @@ public class AccessibilityUtil implements AccessibilityChecker {
       validator.setSuppressingResultMatcher(
           Matchers.anyOf(matcher, touchTargetResultMatcher, duplicateBoundsResultMatcher));
     }
+    cachedResults.clear();
   }
   
   /**
@@ -176,6 +210,43 @@ public class AccessibilityUtil implements AccessibilityChecker {
   public static void setThrowExceptionForErrors(boolean throwExceptionForErrors) {
     initializeValidator();
     validator.setThrowExceptionForErrors(throwExceptionForErrors);
+    cachedResults.clear();
+  }
+
+  /**
+   * Control whether results are cached per view, so that only views that changed since they were
+   * last checked, and their descendants, are checked again. Changes are detected through calls to
+   * {@code invalidate()}, {@code requestLayout()} and accessibility state change notifications;
+   * a property change that triggers none of them will not cause the view to be checked again.
+   *
+   * <p>The results of an unchanged view are reused even if one of its descendants changed, though
+   * some checks of a view depend on its descendants, e.g. whether a clickable group gets speakable
+   * text from its children. Checking the changed view's ancestors again would mean checking their
+   * whole hierarchies, so such results may be stale until the ancestor itself changes. Disable
+   * incremental checking where that matters.
+   *
+   * @param incrementalChecking {@code true} to enable incremental checking, {@code false} to
+   * disable it, or {@code null} to fall back on the system property
+   * {@code robolectric.accessibility.incrementalchecks}. Default: disabled.
+   */
+  public static void setIncrementalChecking(Boolean incrementalChecking) {
+    AccessibilityUtil.incrementalChecking = incrementalChecking;
+    cachedResults.clear();
+  }
+
+  /**
+   * @return The number of views that were checked by the most recent check.
+   */
+  public static int getLastCheckedViewCount() {
+    return lastCheckedViewCount;
+  }
+
+  /**
+   * @return The number of views whose cached results were reused instead of being checked again
+   * by the most recent check. Always zero unless incremental checking is enabled.
+   */
+  public static int getLastSkippedViewCount() {
+    return lastSkippedViewCount;
   }
 
   private static List<AccessibilityViewCheckResult> checkView(View view,
@@ -198,13 +269,122 @@ public class AccessibilityUtil implements AccessibilityChecker {
     initializeValidator();
     if (!forVersionSet) {
       if (classChecksAnnotation != null) {
-        validator.setCheckPreset(
+        setCheckPreset(
             convertRoboVersionToA11yTestVersion(classChecksAnnotation.forRobolectricVersion()));
       } else {
-        validator.setCheckPreset(AccessibilityCheckPreset.LATEST);
+        setCheckPreset(AccessibilityCheckPreset.LATEST);
+      }
+    }
+
+    View viewToCheck = runChecksFromRootView ? view.getRootView() : view;
+    lastCheckedViewCount = 0;
+    lastSkippedViewCount = 0;
+    if (!isIncrementalCheckingEnabled()) {
+      lastCheckedViewCount = countViews(viewToCheck);
+      return validator.checkAndReturnResults(viewToCheck);
+    }
+
+    List<AccessibilityViewCheckResult> results = new ArrayList<>();
+    checkViewIncrementally(viewToCheck, results);
+    return results;
+  }
+
+  /*
+   * Reuses the cached results of an unchanged view and visits its children; checks a changed view
+   * along with all of its descendants, since the checks of a view may depend on its descendants.
+   */
+  private static void checkViewIncrementally(
+      View view, List<AccessibilityViewCheckResult> results) {
+    CachedResults cached = cachedResults.get(view);
+    if (cached == null || cached.changeCount != getChangeCount(view)) {
+      List<AccessibilityViewCheckResult> subtreeResults = validator.checkAndReturnResults(view);
+      cacheResults(view, subtreeResults);
+      results.addAll(subtreeResults);
+      return;
+    }
+
+    lastSkippedViewCount++;
+    cached.addResultsTo(results);
+    if (view instanceof ViewGroup) {
+      ViewGroup viewGroup = (ViewGroup) view;
+      for (int i = 0; i < viewGroup.getChildCount(); i++) {
+        checkViewIncrementally(viewGroup.getChildAt(i), results);
       }
     }
-    return validator.checkAndReturnResults(view);
+  }
+
+  private static void cacheResults(View root, List<AccessibilityViewCheckResult> subtreeResults) {
+    Map<View, List<AccessibilityViewCheckResult>> resultsByView = new IdentityHashMap<>();
+    for (AccessibilityViewCheckResult result : subtreeResults) {
+      List<AccessibilityViewCheckResult> viewResults = resultsByView.get(result.getView());
+      if (viewResults == null) {
+        viewResults = new ArrayList<>();
+        resultsByView.put(result.getView(), viewResults);
+      }
+      viewResults.add(result);
+    }
+
+    cacheSubtreeResults(root, resultsByView);
+
+    /* Results that aren't about a view in the subtree are kept with its root */
+    if (!resultsByView.isEmpty()) {
+      List<AccessibilityViewCheckResult> rootResults = new ArrayList<>();
+      cachedResults.get(root).addResultsTo(rootResults);
+      for (List<AccessibilityViewCheckResult> viewResults : resultsByView.values()) {
+        rootResults.addAll(viewResults);
+      }
+      cachedResults.put(root, new CachedResults(getChangeCount(root), rootResults));
+    }
+  }
+
+  private static void cacheSubtreeResults(
+      View view, Map<View, List<AccessibilityViewCheckResult>> resultsByView) {
+    List<AccessibilityViewCheckResult> viewResults = resultsByView.remove(view);
+    cachedResults.put(
+        view,
+        new CachedResults(
+            getChangeCount(view),
+            viewResults == null
+                ? Collections.<AccessibilityViewCheckResult>emptyList()
+                : viewResults));
+    lastCheckedViewCount++;
+    if (view instanceof ViewGroup) {
+      ViewGroup viewGroup = (ViewGroup) view;
+      for (int i = 0; i < viewGroup.getChildCount(); i++) {
+        cacheSubtreeResults(viewGroup.getChildAt(i), resultsByView);
+      }
+    }
+  }
+
+  private static int countViews(View view) {
+    int count = 1;
+    if (view instanceof ViewGroup) {
+      ViewGroup viewGroup = (ViewGroup) view;
+      for (int i = 0; i < viewGroup.getChildCount(); i++) {
+        count += countViews(viewGroup.getChildAt(i));
+      }
+    }
+    return count;
+  }
+
+  private static int getChangeCount(View view) {
+    ShadowView shadowView = Shadow.extract(view);
+    return shadowView.getChangeCount();
+  }
+
+  private static void setCheckPreset(AccessibilityCheckPreset preset) {
+    validator.setCheckPreset(preset);
+    if (preset != checkPreset) {
+      checkPreset = preset;
+      cachedResults.clear();
+    }
+  }
+
+  private static boolean isIncrementalCheckingEnabled() {
+    if (incrementalChecking != null) {
+      return incrementalChecking;
+    }
+    return "true".equals(System.getProperty("robolectric.accessibility.incrementalchecks"));
   }
 
   private static boolean isAccessibilityCheckingEnabled(AccessibilityChecks classChecksAnnotation) {
@@ -288,4 +468,52 @@ public class AccessibilityUtil implements AccessibilityChecker {
   public void checkViewAccessibility(Object realView) {
     checkViewIfCheckingEnabled((View) realView);
   }
+
+  private static class CachedResults {
+    final int changeCount;
+    final List<CachedResult> results;
+
+    CachedResults(int changeCount, List<AccessibilityViewCheckResult> results) {
+      this.changeCount = changeCount;
+      this.results = new ArrayList<>(results.size());
+      for (AccessibilityViewCheckResult result : results) {
+        this.results.add(new CachedResult(result));
+      }
+    }
+
+    /* Adds the results whose views are still alive */
+    void addResultsTo(List<AccessibilityViewCheckResult> results) {
+      for (CachedResult cachedResult : this.results) {
+        AccessibilityViewCheckResult result = cachedResult.toResult();
+        if (result != null) {
+          results.add(result);
+        }
+      }
+    }
+  }
+
+  /* A check result that refers to its view weakly */
+  private static class CachedResult {
+    final Class<? extends AccessibilityCheck> checkClass;
+    final AccessibilityCheckResultType type;
+    final CharSequence message;
+    final WeakReference<View> view;
+
+    CachedResult(AccessibilityViewCheckResult result) {
+      checkClass = result.getSourceCheckClass();
+      type = result.getType();
+      message = result.getMessage();
+      view = result.getView() == null ? null : new WeakReference<>(result.getView());
+    }
+
+    AccessibilityViewCheckResult toResult() {
+      if (view == null) {
+        return new AccessibilityViewCheckResult(checkClass, type, message, null);
+      }
+      View resultView = view.get();
+      return resultView == null
+          ? null
+          : new AccessibilityViewCheckResult(checkClass, type, message, resultView);
+    }
+  }
 }
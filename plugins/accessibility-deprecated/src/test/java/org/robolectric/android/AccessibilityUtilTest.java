@@ -1,5 +1,8 @@
 package org.robolectric.android;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.robolectric.Shadows.shadowOf;
 
@@ -11,7 +14,11 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheckResult.AccessibilityCheckResultType;
+import com.google.android.apps.common.testing.accessibility.framework.AccessibilityCheckResultUtils;
+import com.google.android.apps.common.testing.accessibility.framework.AccessibilityViewCheckResult;
 import com.google.android.apps.common.testing.accessibility.framework.integrations.AccessibilityViewCheckException;
+import java.util.List;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,6 +49,7 @@ public class AccessibilityUtilTest {
     AccessibilityUtil.setSuppressingResultMatcher(null);
     AccessibilityUtil.setRunChecksFromRootView(false);
     AccessibilityUtil.setThrowExceptionForErrors(true);
+    AccessibilityUtil.setIncrementalChecking(null);
 
     labeledView = new View(RuntimeEnvironment.application);
     labeledView.setContentDescription("Something");
@@ -148,5 +156,55 @@ public class AccessibilityUtilTest {
     AccessibilityUtil.checkView(parentLayout);
   }
 
+  @Test
+  public void byDefault_shouldCheckEveryView() throws Exception {
+    AccessibilityUtil.checkView(parentLayout);
+    AccessibilityUtil.checkView(parentLayout);
+
+    assertEquals(2, AccessibilityUtil.getLastCheckedViewCount());
+    assertEquals(0, AccessibilityUtil.getLastSkippedViewCount());
+  }
+
+  @Test
+  public void whenCheckingIncrementally_unchangedViews_shouldBeSkipped() throws Exception {
+    AccessibilityUtil.setIncrementalChecking(true);
+    AccessibilityUtil.setThrowExceptionForErrors(false);
+    parentLayout.addView(unlabeledView);
+
+    List<AccessibilityViewCheckResult> firstResults = AccessibilityUtil.checkView(parentLayout);
+    assertEquals(3, AccessibilityUtil.getLastCheckedViewCount());
+    assertEquals(0, AccessibilityUtil.getLastSkippedViewCount());
+
+    List<AccessibilityViewCheckResult> secondResults = AccessibilityUtil.checkView(parentLayout);
+    assertEquals(0, AccessibilityUtil.getLastCheckedViewCount());
+    assertEquals(3, AccessibilityUtil.getLastSkippedViewCount());
+    assertEquals(firstResults.size(), secondResults.size());
+    List<AccessibilityViewCheckResult> errors =
+        AccessibilityCheckResultUtils.getResultsForType(
+            secondResults, AccessibilityCheckResultType.ERROR);
+    assertFalse(errors.isEmpty());
+    assertSame(unlabeledView, errors.get(0).getView());
+  }
+
+  @Test
+  public void whenCheckingIncrementally_invalidatedViews_shouldBeCheckedAgain() throws Exception {
+    AccessibilityUtil.setIncrementalChecking(true);
+    AccessibilityUtil.checkView(parentLayout);
+
+    labeledView.invalidate();
+    AccessibilityUtil.checkView(parentLayout);
+
+    assertEquals(1, AccessibilityUtil.getLastCheckedViewCount());
+    assertEquals(1, AccessibilityUtil.getLastSkippedViewCount());
+  }
+
+  @Test(expected = AccessibilityViewCheckException.class)
+  public void whenCheckingIncrementally_addedViewWithIssue_shouldThrow() throws Exception {
+    AccessibilityUtil.setIncrementalChecking(true);
+    AccessibilityUtil.checkView(parentLayout);
+
+    parentLayout.addView(unlabeledView);
+    AccessibilityUtil.checkView(parentLayout);
+  }
 }
 
@@ -13,8 +13,21 @@ import java.net.URL;
 import java.util.Date;
 import java.util.zip.CRC32;
 
+/**
+ * Remembers where another resolver found each dependency.
+ *
+ * <p>By default the locations are kept in a single index file in the cache directory, which each
+ * JVM reads once. Before a remembered artifact is used, its size and modification time are checked
+ * against those it had when its SHA-1 last matched the checksum file next to it, so that its
+ * checksum only needs to be computed again when the file has changed. Set the {@code
+ * robolectric.dependency.validateChecksums} system property to {@code false} to only check that the
+ * artifact exists.
+ */
 public class CachedDependencyResolver implements DependencyResolver {
   private final static String CACHE_PREFIX = "localArtifactUrl";
+  private static final String INDEX_FILE_NAME = "localArtifactUrls.idx";
+  private static final boolean VALIDATE_CHECKSUMS =
+      Boolean.valueOf(System.getProperty("robolectric.dependency.validateChecksums", "true"));
 
   private final DependencyResolver dependencyResolver;
   private final CacheNamingStrategy cacheNamingStrategy;
@@ -22,7 +35,12 @@ public class CachedDependencyResolver implements DependencyResolver {
   private final Cache cache;
 
   public CachedDependencyResolver(DependencyResolver dependencyResolver, File cacheDir, long cacheValidTime) {
-    this(dependencyResolver, new FileCache(cacheDir, cacheValidTime), new DefaultCacheNamingStrategy(), new DefaultCacheValidationStrategy());
+    this(dependencyResolver, new IndexFileCache(new File(cacheDir, INDEX_FILE_NAME), cacheValidTime));
+  }
+
+  private CachedDependencyResolver(DependencyResolver dependencyResolver, Cache cache) {
+    this(dependencyResolver, cache, new DefaultCacheNamingStrategy(),
+        VALIDATE_CHECKSUMS ? new ChecksumCacheValidationStrategy(cache) : new DefaultCacheValidationStrategy());
   }
 
   public CachedDependencyResolver(DependencyResolver dependencyResolver, Cache cache, CacheNamingStrategy cacheNamingStrategy, CacheValidationStrategy cacheValidationStrategy) {
@@ -73,6 +91,54 @@ public class CachedDependencyResolver implements DependencyResolver {
     }
   }
 
+  /**
+   * Checks that artifacts exist and match the SHA-1 checksum files next to them, if there are any.
+   * The size and modification time of each artifact that matched are kept in the cache, and the
+   * checksum is only computed again once one of them changes.
+   */
+  static class ChecksumCacheValidationStrategy implements CacheValidationStrategy {
+    private static final String CHECKSUM_PREFIX = "validatedArtifact#";
+
+    private final Cache cache;
+
+    ChecksumCacheValidationStrategy(Cache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public boolean isValid(URL url) {
+      File file = new File(url.getPath());
+      if (!file.isFile()) {
+        return false;
+      }
+      String id = CHECKSUM_PREFIX + file.getAbsolutePath();
+      String fileStamp = file.length() + ":" + file.lastModified();
+      if (fileStamp.equals(cache.load(id, String.class))) {
+        return true;
+      }
+      try {
+        String expectedSha1 = Checksums.expectedSha1(file);
+        if (expectedSha1 != null && !expectedSha1.equalsIgnoreCase(Checksums.sha1(file))) {
+          return false;
+        }
+      } catch (IOException e) {
+        return false;
+      }
+      cache.write(id, fileStamp);
+      return true;
+    }
+
+    @Override
+    public boolean isValid(URL[] urls) {
+      for (URL url : urls) {
+        if (!isValid(url)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   static class DefaultCacheNamingStrategy implements CacheNamingStrategy {
     @Override public String getName(String prefix, DependencyJar... dependencies) {
       StringBuilder sb = new StringBuilder();
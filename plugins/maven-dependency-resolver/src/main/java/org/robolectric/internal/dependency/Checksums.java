@@ -0,0 +1,51 @@
+package org.robolectric.internal.dependency;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** Checks artifacts against the SHA-1 checksum files Maven stores next to them. */
+final class Checksums {
+
+  private Checksums() {}
+
+  /**
+   * Returns the SHA-1 recorded in the {@code .sha1} file next to the given artifact, or null if
+   * there isn't one.
+   */
+  static String expectedSha1(File artifactFile) throws IOException {
+    File sha1File = new File(artifactFile.getPath() + ".sha1");
+    if (!sha1File.isFile()) {
+      return null;
+    }
+    // Some repositories follow the checksum with the file name.
+    return new String(Files.readAllBytes(sha1File.toPath()), UTF_8).trim().split("\\s+", 2)[0];
+  }
+
+  static String sha1(File file) throws IOException {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = new FileInputStream(file)) {
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, count);
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : messageDigest.digest()) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,223 @@
+package org.robolectric.internal.dependency;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.robolectric.internal.dependency.CachedDependencyResolver.Cache;
+
+/**
+ * A {@link Cache} of {@link URL}s and {@link String}s kept in a single index file.
+ *
+ * <p>The index is read in one go the first time a JVM asks for it, and lookups are answered from
+ * memory after that. It isn't memory-mapped, since Windows won't let a file be replaced while a
+ * mapping of it is still alive. Each write merges the entries other JVMs added in the meantime
+ * and replaces the file in one step, holding a lock on it so that they don't drop each other's
+ * entries.
+ */
+class IndexFileCache implements Cache {
+  private static final int MAGIC = 0x52444349; // "RDCI"
+  private static final int VERSION = 1;
+  private static final byte TYPE_STRING = 'S';
+  private static final byte TYPE_URL = 'U';
+
+  private static final Map<File, Index> indexes = new ConcurrentHashMap<>();
+
+  private final File indexFile;
+  private final long validTime;
+
+  IndexFileCache(File indexFile, long validTime) {
+    this.indexFile = indexFile.getAbsoluteFile();
+    this.validTime = validTime;
+  }
+
+  @Override
+  public <T extends Serializable> T load(String id, Class<T> type) {
+    Entry entry = getIndex().entries.get(id);
+    if (entry == null
+        || (validTime > 0 && entry.writtenAt < System.currentTimeMillis() - validTime)) {
+      return null;
+    }
+    if (type == String.class && entry.type == TYPE_STRING) {
+      return type.cast(entry.value);
+    }
+    if (type == URL.class && entry.type == TYPE_URL) {
+      try {
+        return type.cast(new URL(entry.value));
+      } catch (MalformedURLException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public <T extends Serializable> boolean write(String id, T object) {
+    byte type;
+    if (object instanceof String) {
+      type = TYPE_STRING;
+    } else if (object instanceof URL) {
+      type = TYPE_URL;
+    } else {
+      return false;
+    }
+    Entry entry = new Entry(type, object.toString(), System.currentTimeMillis());
+
+    Index index = getIndex();
+    synchronized (index) {
+      index.entries.put(id, entry);
+      try {
+        Files.createDirectories(indexFile.getParentFile().toPath());
+        File lockFile = new File(indexFile.getPath() + ".lock");
+        try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+            FileChannel channel = raf.getChannel();
+            FileLock ignored = channel.lock()) {
+          if (index.lastModified != indexFile.lastModified() || index.length != indexFile.length()) {
+            merge(index);
+          }
+          writeIndex(index);
+        }
+        return true;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
+
+  private void merge(Index index) {
+    Map<String, Entry> onDisk;
+    try {
+      onDisk = read(indexFile);
+    } catch (IOException e) {
+      // A corrupt index is replaced.
+      return;
+    }
+    for (Map.Entry<String, Entry> entry : onDisk.entrySet()) {
+      index.entries.merge(
+          entry.getKey(),
+          entry.getValue(),
+          (mine, theirs) -> mine.writtenAt >= theirs.writtenAt ? mine : theirs);
+    }
+  }
+
+  private Index getIndex() {
+    return indexes.computeIfAbsent(
+        indexFile,
+        file -> {
+          Index index = new Index();
+          try {
+            index.entries.putAll(read(file));
+            index.lastModified = file.lastModified();
+            index.length = file.length();
+          } catch (IOException e) {
+            // A missing or corrupt index is replaced by the next write.
+          }
+          return index;
+        });
+  }
+
+  private void writeIndex(Index index) throws IOException {
+    File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+    try {
+      try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(index.entries.size());
+        for (Map.Entry<String, Entry> mapEntry : index.entries.entrySet()) {
+          Entry entry = mapEntry.getValue();
+          writeString(out, mapEntry.getKey());
+          out.writeByte(entry.type);
+          writeString(out, entry.value);
+          out.writeLong(entry.writtenAt);
+        }
+      }
+      try {
+        Files.move(
+            tempFile.toPath(),
+            indexFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      index.lastModified = indexFile.lastModified();
+      index.length = indexFile.length();
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  private static Map<String, Entry> read(File file) throws IOException {
+    Map<String, Entry> entries = new HashMap<>();
+    if (!file.isFile()) {
+      return entries;
+    }
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("not a dependency cache index: " + file);
+      }
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        String id = readString(buffer);
+        byte type = buffer.get();
+        String value = readString(buffer);
+        long writtenAt = buffer.getLong();
+        entries.put(id, new Entry(type, value, writtenAt));
+      }
+      return entries;
+    } catch (BufferUnderflowException | NegativeArraySizeException e) {
+      throw new IOException("corrupt dependency cache index: " + file, e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static class Index {
+    final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    long lastModified;
+    long length;
+  }
+
+  private static class Entry {
+    final byte type;
+    final String value;
+    final long writtenAt;
+
+    Entry(byte type, String value, long writtenAt) {
+      this.type = type;
+      this.value = value;
+      this.writtenAt = writtenAt;
+    }
+  }
+}
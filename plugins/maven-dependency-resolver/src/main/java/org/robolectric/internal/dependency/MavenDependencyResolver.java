@@ -7,20 +7,46 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import org.apache.maven.artifact.ant.Authentication;
 import org.apache.maven.artifact.ant.DependenciesTask;
+import org.apache.maven.artifact.ant.LocalRepository;
 import org.apache.maven.artifact.ant.RemoteRepository;
 import org.apache.maven.model.Dependency;
 import org.apache.tools.ant.Project;
 import org.robolectric.MavenRoboSettings;
 
+/**
+ * Resolves dependencies from a Maven repository.
+ *
+ * <p>Artifacts already in the local repository whose SHA-1 matches the checksum file next to them
+ * are used as they are. Anything else is fetched using the Maven Ant tasks, holding a lock on the
+ * artifact so that only one JVM on the machine fetches it at a time, while other JVMs and threads
+ * are free to fetch other artifacts. When several artifacts are missing, they are fetched in
+ * parallel.
+ */
 public class MavenDependencyResolver implements DependencyResolver {
+  private static final int MAX_PARALLEL_FETCHES = 4;
+  private static final File LOCK_DIR =
+      new File(System.getProperty("user.home"), ".robolectric-download-locks");
+  private static final ConcurrentMap<String, Object> artifactLocks = new ConcurrentHashMap<>();
+
   private final String repositoryUrl;
   private final String repositoryId;
   private final String repositoryUserName;
   private final String repositoryPassword;
+  private final File localRepositoryDir;
 
   public MavenDependencyResolver() {
     this(MavenRoboSettings.getMavenRepositoryUrl(), MavenRoboSettings.getMavenRepositoryId(), MavenRoboSettings
@@ -28,10 +54,21 @@ public class MavenDependencyResolver implements DependencyResolver {
   }
 
   public MavenDependencyResolver(String repositoryUrl, String repositoryId, String repositoryUserName, String repositoryPassword) {
+    this(repositoryUrl, repositoryId, repositoryUserName, repositoryPassword, null);
+  }
+
+  /**
+   * @param localRepositoryDir the local repository to look for artifacts in and fetch them into,
+   *     or null for the one named by the {@code maven.repo.local} system property, or {@code
+   *     ~/.m2/repository}.
+   */
+  public MavenDependencyResolver(String repositoryUrl, String repositoryId, String repositoryUserName, String repositoryPassword,
+      File localRepositoryDir) {
     this.repositoryUrl = repositoryUrl;
     this.repositoryId = repositoryId;
     this.repositoryUserName = repositoryUserName;
     this.repositoryPassword = repositoryPassword;
+    this.localRepositoryDir = localRepositoryDir;
   }
 
   @Override
@@ -43,8 +80,67 @@ public class MavenDependencyResolver implements DependencyResolver {
    * Get an array of local artifact URLs for the given dependencies. The order of the URLs is guaranteed to be the
    * same as the input order of dependencies, i.e., urls[i] is the local artifact URL for dependencies[i].
    */
-  @SuppressWarnings("NewApi")
   public URL[] getLocalArtifactUrls(DependencyJar... dependencies) {
+    URL[] urls = new URL[dependencies.length];
+    List<Integer> missing = new ArrayList<>();
+    for (int i = 0; i < dependencies.length; i++) {
+      urls[i] = findInLocalRepository(dependencies[i]);
+      if (urls[i] == null) {
+        missing.add(i);
+      }
+    }
+
+    if (missing.size() == 1) {
+      int i = missing.get(0);
+      urls[i] = fetch(dependencies[i]);
+    } else if (missing.size() > 1) {
+      fetchInParallel(dependencies, missing, urls);
+    }
+    return urls;
+  }
+
+  private void fetchInParallel(DependencyJar[] dependencies, List<Integer> missing, URL[] urls) {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(missing.size(), MAX_PARALLEL_FETCHES),
+            r -> {
+              Thread thread = new Thread(r, "Robolectric dependency fetcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<Future<URL>> futures = new ArrayList<>();
+      for (int i : missing) {
+        futures.add(executor.submit(() -> fetch(dependencies[i])));
+      }
+      for (int j = 0; j < futures.size(); j++) {
+        urls[missing.get(j)] = futures.get(j).get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private URL fetch(DependencyJar dependency) {
+    return whileLocked(
+        dependency,
+        () -> {
+          // Another JVM may have fetched it while we were waiting for the lock.
+          URL url = findInLocalRepository(dependency);
+          return url != null ? url : fetchWithMaven(dependency);
+        });
+  }
+
+  @SuppressWarnings("NewApi")
+  private URL fetchWithMaven(DependencyJar dependencyJar) {
     DependenciesTask dependenciesTask = createDependenciesTask();
     configureMaven(dependenciesTask);
     RemoteRepository remoteRepository = new RemoteRepository();
@@ -57,47 +153,109 @@ public class MavenDependencyResolver implements DependencyResolver {
       remoteRepository.addAuthentication(authentication);
     }
     dependenciesTask.addConfiguredRemoteRepository(remoteRepository);
+    if (localRepositoryDir != null) {
+      LocalRepository localRepository = new LocalRepository();
+      localRepository.setPath(localRepositoryDir);
+      dependenciesTask.addLocalRepository(localRepository);
+    }
     final Project project = new Project();
     dependenciesTask.setProject(project);
-    for (DependencyJar dependencyJar : dependencies) {
-      Dependency dependency = new Dependency();
-      dependency.setArtifactId(dependencyJar.getArtifactId());
-      dependency.setGroupId(dependencyJar.getGroupId());
-      dependency.setType(dependencyJar.getType());
-      dependency.setVersion(dependencyJar.getVersion());
-      if (dependencyJar.getClassifier() != null) {
-        dependency.setClassifier(dependencyJar.getClassifier());
-      }
-      dependenciesTask.addDependency(dependency);
+    Dependency dependency = new Dependency();
+    dependency.setArtifactId(dependencyJar.getArtifactId());
+    dependency.setGroupId(dependencyJar.getGroupId());
+    dependency.setType(dependencyJar.getType());
+    dependency.setVersion(dependencyJar.getVersion());
+    if (dependencyJar.getClassifier() != null) {
+      dependency.setClassifier(dependencyJar.getClassifier());
     }
+    dependenciesTask.addDependency(dependency);
 
-    whileLocked(dependenciesTask::execute);
+    dependenciesTask.execute();
 
     @SuppressWarnings("unchecked")
     Hashtable<String, String> artifacts = project.getProperties();
-    URL[] urls = new URL[dependencies.length];
-    for (int i = 0; i < urls.length; i++) {
-      try {
-        urls[i] = Paths.get(artifacts.get(key(dependencies[i]))).toUri().toURL();
-      } catch (MalformedURLException e) {
-        throw new RuntimeException(e);
+    try {
+      return Paths.get(artifacts.get(key(dependencyJar))).toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the URL of the given dependency in the local repository, or null if it isn't there, or
+   * its SHA-1 checksum is missing or doesn't match. Snapshots and version ranges are never found
+   * here, since Maven may have to look for a newer version.
+   */
+  private URL findInLocalRepository(DependencyJar dependency) {
+    String version = dependency.getVersion();
+    if (!"jar".equals(dependency.getType())
+        || version.isEmpty()
+        || version.endsWith("-SNAPSHOT")
+        || version.equals("LATEST")
+        || version.equals("RELEASE")
+        || version.startsWith("[")
+        || version.startsWith("(")) {
+      return null;
+    }
+
+    File artifactFile = getLocalArtifactFile(dependency);
+    if (!artifactFile.isFile()) {
+      return null;
+    }
+    try {
+      String expectedSha1 = Checksums.expectedSha1(artifactFile);
+      if (expectedSha1 == null || !expectedSha1.equalsIgnoreCase(Checksums.sha1(artifactFile))) {
+        return null;
       }
+      return artifactFile.toPath().toUri().toURL();
+    } catch (IOException e) {
+      return null;
     }
-    return urls;
   }
 
-  private void whileLocked(Runnable runnable) {
-    File lockFile = new File(System.getProperty("user.home"), ".robolectric-download-lock");
-    try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw")) {
-      try (FileChannel channel = raf.getChannel()) {
-        try (FileLock ignored = channel.lock()) {
-          runnable.run();
+  private File getLocalArtifactFile(DependencyJar dependency) {
+    File localRepositoryDir = this.localRepositoryDir;
+    if (localRepositoryDir == null) {
+      String mavenRepoLocal = System.getProperty("maven.repo.local");
+      localRepositoryDir =
+          mavenRepoLocal != null
+              ? new File(mavenRepoLocal)
+              : new File(System.getProperty("user.home"), ".m2/repository");
+    }
+    String fileName = dependency.getArtifactId() + "-" + dependency.getVersion();
+    if (dependency.getClassifier() != null) {
+      fileName += "-" + dependency.getClassifier();
+    }
+    File versionDir =
+        new File(
+            new File(
+                new File(localRepositoryDir, dependency.getGroupId().replace('.', '/')),
+                dependency.getArtifactId()),
+            dependency.getVersion());
+    return new File(versionDir, fileName + "." + dependency.getType());
+  }
+
+  /**
+   * Runs the given action holding a lock on the given dependency, shared with other threads in this
+   * JVM and with other JVMs on this machine.
+   */
+  private <T> T whileLocked(DependencyJar dependency, Supplier<T> action) {
+    String lockName = key(dependency).replace(':', '-') + "-" + dependency.getVersion();
+    File lockFile = new File(LOCK_DIR, lockName.replaceAll("[^A-Za-z0-9._-]", "_") + ".lock");
+    // A JVM can't hold two locks on the same file, so threads take turns to hold it.
+    synchronized (artifactLocks.computeIfAbsent(lockName, k -> new Object())) {
+      try {
+        Files.createDirectories(LOCK_DIR.toPath());
+        // The lock file is left in place: deleting it would let a JVM that is waiting on it and
+        // one that creates it afresh fetch the artifact at the same time.
+        try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+            FileChannel channel = raf.getChannel();
+            FileLock ignored = channel.lock()) {
+          return action.get();
         }
+      } catch (IOException e) {
+        throw new IllegalStateException("Couldn't create lock file " + lockFile, e);
       }
-    } catch (IOException e) {
-      throw new IllegalStateException("Couldn't create lock file " + lockFile, e);
-    } finally {
-      lockFile.delete();
     }
   }
 
@@ -1,15 +1,20 @@
 package org.robolectric.internal.dependency;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Before;
@@ -22,6 +27,7 @@ import org.junit.runners.model.InitializationError;
 import org.robolectric.internal.dependency.CachedDependencyResolver.Cache;
 import org.robolectric.internal.dependency.CachedDependencyResolver.CacheNamingStrategy;
 import org.robolectric.internal.dependency.CachedDependencyResolver.CacheValidationStrategy;
+import org.robolectric.internal.dependency.CachedDependencyResolver.ChecksumCacheValidationStrategy;
 
 @RunWith(JUnit4.class)
 public class CachedDependencyResolverTest {
@@ -96,6 +102,42 @@ public class CachedDependencyResolverTest {
     verify(internalResolver).getLocalArtifactUrl(dependency);
   }
 
+  @Test
+  public void checksumValidation_shouldRejectArtifactsNotMatchingTheirChecksumFile() throws Exception {
+    File artifactFile = temporaryFolder.newFile("artifact.jar");
+    Files.write(artifactFile.toPath(), "partial downlo".getBytes(UTF_8));
+    Files.write(new File(artifactFile.getPath() + ".sha1").toPath(),
+        Checksums.sha1(temporaryFolder.newFile("empty")).getBytes(UTF_8));
+    CacheValidationStrategy strategy = new ChecksumCacheValidationStrategy(cache);
+
+    assertFalse(strategy.isValid(artifactFile.toURI().toURL()));
+  }
+
+  @Test
+  public void checksumValidation_shouldOnlyComputeChecksumsAgainWhenArtifactChanges() throws Exception {
+    File artifactFile = temporaryFolder.newFile("artifact.jar");
+    Files.write(artifactFile.toPath(), "contents".getBytes(UTF_8));
+    File sha1File = new File(artifactFile.getPath() + ".sha1");
+    Files.write(sha1File.toPath(), (Checksums.sha1(artifactFile) + "  artifact.jar").getBytes(UTF_8));
+    CacheValidationStrategy strategy = new ChecksumCacheValidationStrategy(cache);
+    URL artifactUrl = artifactFile.toURI().toURL();
+
+    assertTrue(strategy.isValid(artifactUrl));
+    Files.write(sha1File.toPath(), "0000".getBytes(UTF_8));
+    assertTrue(strategy.isValid(artifactUrl));
+
+    Files.write(artifactFile.toPath(), "changed contents".getBytes(UTF_8));
+    assertFalse(strategy.isValid(artifactUrl));
+  }
+
+  @Test
+  public void checksumValidation_shouldAcceptArtifactsWithoutChecksumFile() throws Exception {
+    CacheValidationStrategy strategy = new ChecksumCacheValidationStrategy(cache);
+
+    assertTrue(strategy.isValid(temporaryFolder.newFile("artifact.jar").toURI().toURL()));
+    assertFalse(strategy.isValid(new File(temporaryFolder.getRoot(), "missing.jar").toURI().toURL()));
+  }
+
   private void assertCacheContents(URL url) {
     assertEquals(url, cache.load(CACHE_NAME, URL.class));
   }
@@ -0,0 +1,110 @@
+package org.robolectric.internal.dependency;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.dependency.CachedDependencyResolver.Cache;
+
+@RunWith(JUnit4.class)
+public class IndexFileCacheTest {
+
+  private static final int VALID_TIME = 10000;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldLoadNullWhenCacheIsEmpty() throws Exception {
+    Cache cache = new IndexFileCache(indexFile("empty"), VALID_TIME);
+
+    assertNull(cache.load("id", URL.class));
+  }
+
+  @Test
+  public void shouldLoadWrittenValues() throws Exception {
+    Cache cache = new IndexFileCache(indexFile("index"), VALID_TIME);
+    URL url = new URL("file:/path/to/android-all.jar");
+
+    assertTrue(cache.write("url", url));
+    assertTrue(cache.write("string", "some string"));
+
+    assertEquals(url, cache.load("url", URL.class));
+    assertEquals("some string", cache.load("string", String.class));
+    assertNull(cache.load("url", String.class));
+  }
+
+  @Test
+  public void shouldNotWriteOtherTypes() throws Exception {
+    Cache cache = new IndexFileCache(indexFile("index"), VALID_TIME);
+
+    assertFalse(cache.write("id", 123L));
+  }
+
+  @Test
+  public void shouldReadValuesWrittenByAnotherJvm() throws Exception {
+    File indexFile = indexFile("index");
+    URL url = new URL("file:/path/to/android-all.jar");
+    new IndexFileCache(indexFile, VALID_TIME).write("url", url);
+
+    assertEquals(url, new IndexFileCache(copyOf(indexFile), VALID_TIME).load("url", URL.class));
+  }
+
+  @Test
+  public void shouldKeepValuesWrittenByAnotherJvmWhenWriting() throws Exception {
+    File indexFile = indexFile("index");
+    Cache cache = new IndexFileCache(indexFile, VALID_TIME);
+    cache.write("mine", "a");
+    File otherIndexFile = indexFile("other");
+    new IndexFileCache(otherIndexFile, VALID_TIME).write("theirs", "b");
+    Files.copy(otherIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    cache.write("another", "c");
+
+    Cache reread = new IndexFileCache(copyOf(indexFile), VALID_TIME);
+    assertEquals("a", reread.load("mine", String.class));
+    assertEquals("b", reread.load("theirs", String.class));
+    assertEquals("c", reread.load("another", String.class));
+  }
+
+  @Test
+  public void shouldReplaceCorruptIndex() throws Exception {
+    File indexFile = indexFile("index");
+    Files.write(indexFile.toPath(), "garbage".getBytes(UTF_8));
+    Cache cache = new IndexFileCache(indexFile, VALID_TIME);
+
+    assertNull(cache.load("id", String.class));
+    assertTrue(cache.write("id", "value"));
+
+    assertEquals("value", new IndexFileCache(copyOf(indexFile), VALID_TIME).load("id", String.class));
+  }
+
+  @Test
+  public void shouldNotLoadExpiredValues() throws Exception {
+    Cache cache = new IndexFileCache(indexFile("index"), 1);
+    cache.write("id", "value");
+    Thread.sleep(10);
+
+    assertNull(cache.load("id", String.class));
+  }
+
+  private File indexFile(String name) {
+    return new File(temporaryFolder.getRoot(), name + ".idx");
+  }
+
+  private File copyOf(File file) throws Exception {
+    File copy = File.createTempFile("copy", ".idx", temporaryFolder.getRoot());
+    Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    return copy;
+  }
+}
@@ -1,22 +1,34 @@
 package org.robolectric.internal.dependency;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import java.io.File;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.maven.artifact.ant.DependenciesTask;
+import org.apache.maven.artifact.ant.LocalRepository;
 import org.apache.maven.artifact.ant.RemoteRepository;
 import org.apache.maven.model.Dependency;
 import org.apache.tools.ant.Project;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.invocation.InvocationOnMock;
@@ -33,6 +45,8 @@ public class MavenDependencyResolverTest {
 
   private static final String REPOSITORY_PASSWORD = "password";
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private DependenciesTask dependenciesTask;
 
   private Project project;
@@ -121,6 +135,143 @@ public class MavenDependencyResolverTest {
         url.toExternalForm());
   }
 
+  @Test
+  public void getLocalArtifactUrl_whenArtifactIsInLocalRepository_shouldNotExecuteDependenciesTask()
+      throws Exception {
+    File localRepositoryDir = temporaryFolder.newFolder("local");
+    File artifactFile =
+        writeArtifact(localRepositoryDir, "org/robolectric/android-all/9/android-all-9.jar", true);
+    DependencyResolver dependencyResolver = createResolver(localRepositoryDir);
+    DependencyJar dependencyJar = new DependencyJar("org.robolectric", "android-all", "9", null);
+
+    URL url = dependencyResolver.getLocalArtifactUrl(dependencyJar);
+
+    assertEquals(artifactFile.toPath().toUri().toURL(), url);
+    verify(dependenciesTask, never()).execute();
+  }
+
+  @Test
+  public void getLocalArtifactUrl_whenLocalChecksumDoesNotMatch_shouldExecuteDependenciesTask()
+      throws Exception {
+    File localRepositoryDir = temporaryFolder.newFolder("local");
+    writeArtifact(localRepositoryDir, "group1/artifact1/3/artifact1-3.jar", false);
+    DependencyResolver dependencyResolver = createResolver(localRepositoryDir);
+    DependencyJar dependencyJar = new DependencyJar("group1", "artifact1", "3", null);
+
+    URL url = dependencyResolver.getLocalArtifactUrl(dependencyJar);
+
+    verify(dependenciesTask).execute();
+    assertEquals(Paths.get("path1").toUri().toURL(), url);
+  }
+
+  @Test
+  public void getLocalArtifactUrls_shouldFetchMissingArtifactsInParallel() throws Exception {
+    File remoteRepositoryDir = temporaryFolder.newFolder("remote");
+    File localRepositoryDir = temporaryFolder.newFolder("local");
+    writeArtifact(remoteRepositoryDir, "org/robolectric/android-all/9/android-all-9.jar", true);
+    writeArtifact(remoteRepositoryDir, "org/robolectric/android-all/10/android-all-10.jar", true);
+    File presentFile =
+        writeArtifact(localRepositoryDir, "org/robolectric/android-all/8/android-all-8.jar", true);
+    CountDownLatch fetching = new CountDownLatch(2);
+    MavenDependencyResolver dependencyResolver =
+        new MavenDependencyResolver(
+            remoteRepositoryDir.toURI().toString(), REPOSITORY_ID, null, null, localRepositoryDir) {
+          @Override
+          protected DependenciesTask createDependenciesTask() {
+            return new FileRepositoryDependenciesTask(fetching);
+          }
+        };
+
+    URL[] urls =
+        dependencyResolver.getLocalArtifactUrls(
+            new DependencyJar("org.robolectric", "android-all", "9", null),
+            new DependencyJar("org.robolectric", "android-all", "8", null),
+            new DependencyJar("org.robolectric", "android-all", "10", null));
+
+    assertEquals(
+        new File(localRepositoryDir, "org/robolectric/android-all/9/android-all-9.jar")
+            .toPath().toUri().toURL(),
+        urls[0]);
+    assertEquals(presentFile.toPath().toUri().toURL(), urls[1]);
+    assertEquals(
+        new File(localRepositoryDir, "org/robolectric/android-all/10/android-all-10.jar")
+            .toPath().toUri().toURL(),
+        urls[2]);
+  }
+
+  private DependencyResolver createResolver(File localRepositoryDir) {
+    return new MavenDependencyResolver(REPOSITORY_URL, REPOSITORY_ID, REPOSITORY_USERNAME,
+        REPOSITORY_PASSWORD, localRepositoryDir) {
+      @Override
+      protected DependenciesTask createDependenciesTask() {
+        return dependenciesTask;
+      }
+    };
+  }
+
+  private static File writeArtifact(File repositoryDir, String path, boolean withValidChecksum)
+      throws Exception {
+    File artifactFile = new File(repositoryDir, path);
+    artifactFile.getParentFile().mkdirs();
+    byte[] contents = path.getBytes(UTF_8);
+    Files.write(artifactFile.toPath(), contents);
+    String sha1 = withValidChecksum ? sha1(contents) : sha1(new byte[0]);
+    Files.write(new File(artifactFile.getPath() + ".sha1").toPath(), sha1.getBytes(UTF_8));
+    return artifactFile;
+  }
+
+  private static String sha1(byte[] contents) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : MessageDigest.getInstance("SHA-1").digest(contents)) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Copies its single dependency from a {@code file:} remote repository to the local one, once the
+   * given number of fetches are under way at the same time.
+   */
+  private static class FileRepositoryDependenciesTask extends DependenciesTask {
+    private final CountDownLatch fetching;
+    private File localRepositoryDir;
+
+    FileRepositoryDependenciesTask(CountDownLatch fetching) {
+      this.fetching = fetching;
+    }
+
+    @Override
+    public void addLocalRepository(LocalRepository localRepository) {
+      super.addLocalRepository(localRepository);
+      localRepositoryDir = localRepository.getPath();
+    }
+
+    @Override
+    public void execute() {
+      fetching.countDown();
+      try {
+        assertTrue(fetching.await(10, TimeUnit.SECONDS));
+        Dependency dependency = getDependencies().get(0);
+        String path =
+            dependency.getGroupId().replace('.', '/')
+                + "/" + dependency.getArtifactId()
+                + "/" + dependency.getVersion()
+                + "/" + dependency.getArtifactId() + "-" + dependency.getVersion() + ".jar";
+        File localFile = new File(localRepositoryDir, path);
+        localFile.getParentFile().mkdirs();
+        URL remoteUrl = new URL(getRemoteRepositories().get(0).getUrl() + path);
+        try (InputStream in = remoteUrl.openStream()) {
+          Files.copy(in, localFile.toPath());
+        }
+        getProject().setProperty(
+            dependency.getGroupId() + ":" + dependency.getArtifactId() + ":jar",
+            localFile.getPath());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
   private DependencyResolver createResolver() {
     return new MavenDependencyResolver(REPOSITORY_URL, REPOSITORY_ID, REPOSITORY_USERNAME,
         REPOSITORY_PASSWORD) {
@@ -7,6 +7,7 @@ import static com.google.common.collect.Sets.newTreeSet;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimaps;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -21,12 +22,16 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVisitor;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.SimpleElementVisitor6;
 import javax.lang.model.util.SimpleTypeVisitor6;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
 import org.robolectric.shadow.api.ShadowPicker;
 
 /**
@@ -341,6 +346,7 @@ public class RobolectricModel {
     private String shadowBinaryName;
     private String shadowPickerBinaryName;
     private String shadowBaseName;
+    private List<String> realObjectFields;
 
     ShadowInfo(TypeElement shadowType, TypeElement actualType, TypeElement shadowPickerType,
         TypeElement shadowBaseClass) {
@@ -388,6 +394,28 @@ public class RobolectricModel {
       shadowBinaryName = helpers.getBinaryName(shadowType);
       shadowPickerBinaryName = helpers.getBinaryName(shadowPickerType);
       shadowBaseName = referentResolver.getReferentFor(shadowBaseClass);
+      realObjectFields = findRealObjectFields(helpers);
+    }
+
+    private List<String> findRealObjectFields(Helpers helpers) {
+      List<String> fields = new ArrayList<>();
+      TypeElement type = shadowType;
+      while (type != null) {
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+          if (field.getAnnotation(RealObject.class) != null) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+              // leave it to the runtime to report
+              return null;
+            }
+            fields.add(helpers.getBinaryName(type) + '#' + field.getSimpleName());
+          }
+        }
+        TypeMirror superclass = type.getSuperclass();
+        type = superclass.getKind() == TypeKind.DECLARED
+            ? (TypeElement) ((DeclaredType) superclass).asElement()
+            : null;
+      }
+      return fields;
     }
 
     public String getActualBinaryName() {
@@ -402,6 +430,36 @@ public class RobolectricModel {
       return shadowType.getAnnotation(Implements.class).isInAndroidSdk();
     }
 
+    /** The name of the shadowed class, as the runtime would read it from the annotation. */
+    public String getShadowedClassName() {
+      String className = shadowType.getAnnotation(Implements.class).className();
+      return className.isEmpty() ? actualBinaryName : className;
+    }
+
+    public boolean isCallThroughByDefault() {
+      return shadowType.getAnnotation(Implements.class).callThroughByDefault();
+    }
+
+    public boolean isLooseSignatures() {
+      return shadowType.getAnnotation(Implements.class).looseSignatures();
+    }
+
+    /**
+     * The {@code @RealObject} fields of the shadow and its superclasses, as {@code
+     * declaringBinaryName#fieldName}, or null if they can't be recorded.
+     */
+    public List<String> getRealObjectFields() {
+      return realObjectFields;
+    }
+
+    public int getMinSdk() {
+      return shadowType.getAnnotation(Implements.class).minSdk();
+    }
+
+    public int getMaxSdk() {
+      return shadowType.getAnnotation(Implements.class).maxSdk();
+    }
+
     public String getParamDefStr() {
       return paramDefStr;
     }
@@ -19,6 +19,7 @@ import org.robolectric.annotation.processing.RobolectricModel.Builder;
 import org.robolectric.annotation.processing.generator.Generator;
 import org.robolectric.annotation.processing.generator.JavadocJsonGenerator;
 import org.robolectric.annotation.processing.generator.ServiceLoaderGenerator;
+import org.robolectric.annotation.processing.generator.ShadowIndexGenerator;
 import org.robolectric.annotation.processing.generator.ShadowProviderGenerator;
 import org.robolectric.annotation.processing.validator.ImplementationValidator;
 import org.robolectric.annotation.processing.validator.ImplementsValidator;
@@ -106,6 +107,7 @@ public class RobolectricProcessor extends AbstractProcessor {
       generators.add(
           new ShadowProviderGenerator(
               model, processingEnv, shadowPackage, shouldInstrumentPackages, priority));
+      generators.add(new ShadowIndexGenerator(model, processingEnv, shadowPackage));
       generators.add(new ServiceLoaderGenerator(processingEnv, shadowPackage));
       generators.add(new JavadocJsonGenerator(model, processingEnv, jsonDocsDir));
 
@@ -0,0 +1,104 @@
+package org.robolectric.annotation.processing.generator;
+
+import com.google.common.base.Joiner;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import org.robolectric.annotation.processing.RobolectricModel;
+import org.robolectric.annotation.processing.RobolectricModel.ShadowInfo;
+import org.robolectric.internal.ShadowIndex;
+
+/**
+ * Generator that creates the sorted {@link ShadowIndex} resource for a shadow package, so that
+ * shadows can be looked up at runtime without building a map of all of them or reading their
+ * annotations.
+ */
+public class ShadowIndexGenerator extends Generator {
+  private final Filer filer;
+  private final Messager messager;
+  private final RobolectricModel model;
+  private final String shadowPackage;
+
+  public ShadowIndexGenerator(
+      RobolectricModel model, ProcessingEnvironment environment, String shadowPackage) {
+    this.filer = environment.getFiler();
+    this.messager = environment.getMessager();
+    this.model = model;
+    this.shadowPackage = shadowPackage;
+  }
+
+  @Override
+  public void generate() {
+    if (shadowPackage == null) {
+      return;
+    }
+
+    try {
+      FileObject file =
+          filer.createResource(
+              StandardLocation.CLASS_OUTPUT,
+              shadowPackage,
+              GEN_CLASS + ShadowIndex.RESOURCE_SUFFIX);
+      try (PrintWriter writer =
+          new PrintWriter(new OutputStreamWriter(file.openOutputStream(), "UTF-8"))) {
+        generate(writer);
+      }
+    } catch (IOException e) {
+      messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write shadow index: " + e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  void generate(PrintWriter writer) {
+    // keyed the same way as the generated SHADOW_MAP and SHADOW_PICKER_MAP, then by shadow; the
+    // tab separator sorts before any class name character, so this is the order ShadowIndex reads
+    TreeMap<String, String> lines = new TreeMap<>();
+    for (ShadowInfo shadowInfo : model.getAllShadowTypes()) {
+      String shadowPickerClassName = shadowInfo.getShadowPickerBinaryName();
+      String className =
+          shadowPickerClassName == null
+              ? shadowInfo.getActualName()
+              : shadowInfo.getActualBinaryName();
+      List<String> realObjectFields = shadowInfo.getRealObjectFields();
+      String metadata =
+          realObjectFields == null
+              // the runtime will read this shadow's annotations itself
+              ? "-\t-\t-\t-"
+              : shadowInfo.getShadowedClassName()
+                  + '\t' + shadowInfo.isCallThroughByDefault()
+                  + '\t' + shadowInfo.isLooseSignatures()
+                  + '\t'
+                  + (realObjectFields.isEmpty() ? "-" : Joiner.on(',').join(realObjectFields));
+      lines.put(
+          className + '\t' + shadowInfo.getShadowBinaryName(),
+          orAbsent(shadowPickerClassName)
+              + '\t' + shadowInfo.getMinSdk()
+              + '\t' + shadowInfo.getMaxSdk()
+              + '\t' + metadata);
+    }
+
+    for (Map.Entry<String, String> extraShadowType : model.getExtraShadowTypes().entrySet()) {
+      lines.put(
+          extraShadowType.getValue() + '\t' + extraShadowType.getKey(),
+          "-\t-1\t-1\t-\t-\t-\t-");
+    }
+
+    writer.print(ShadowIndex.HEADER + "\n");
+    for (Map.Entry<String, String> line : lines.entrySet()) {
+      writer.print(line.getKey() + '\t' + line.getValue() + '\n');
+    }
+  }
+
+  private static String orAbsent(String name) {
+    return name == null ? "-" : name;
+  }
+}
@@ -80,25 +80,29 @@ public class ShadowProviderGenerator extends Generator {
     writer.println("@SuppressWarnings({\"unchecked\",\"deprecation\"})");
     writer.println("public class " + GEN_CLASS + " implements ShadowProvider {");
 
-    writer.println("  private static final Map<String, String> SHADOW_MAP = new HashMap<>(" + (
+    // The maps are built in holder classes on first use rather than when the provider is loaded,
+    // since shadows are normally looked up in the index generated alongside the provider.
+    writer.println("  private static final class ShadowMapHolder {");
+    writer.println("    static final Map<String, String> SHADOW_MAP = new HashMap<>(" + (
         model.getAllShadowTypes().size() + model.getExtraShadowTypes().size()) + ");");
     writer.println();
 
-    writer.println("  static {");
+    writer.println("    static {");
     for (ShadowInfo shadowInfo : model.getAllShadowTypes()) {
       final String shadow = shadowInfo.getShadowBinaryName();
       final String actual = shadowInfo.getActualName();
       if (shadowInfo.getShadowPickerBinaryName() == null) {
-        writer.println("    SHADOW_MAP.put(\"" + actual + "\", \"" + shadow + "\");");
+        writer.println("      SHADOW_MAP.put(\"" + actual + "\", \"" + shadow + "\");");
       }
     }
 
     for (Map.Entry<String, String> entry : model.getExtraShadowTypes().entrySet()) {
       final String shadow = entry.getKey();
       final String actual = entry.getValue();
-      writer.println("    SHADOW_MAP.put(\"" + actual + "\", \"" + shadow + "\");");
+      writer.println("      SHADOW_MAP.put(\"" + actual + "\", \"" + shadow + "\");");
     }
 
+    writer.println("    }");
     writer.println("  }");
     writer.println();
 
@@ -166,7 +170,7 @@ public class ShadowProviderGenerator extends Generator {
 
     writer.println("  @Override");
     writer.println("  public Map<String, String> getShadowMap() {");
-    writer.println("    return SHADOW_MAP;");
+    writer.println("    return ShadowMapHolder.SHADOW_MAP;");
     writer.println("  }");
     writer.println();
 
@@ -182,24 +186,26 @@ public class ShadowProviderGenerator extends Generator {
 
     TreeMap<String, ShadowInfo> shadowPickers = model.getShadowPickers();
     if (!shadowPickers.isEmpty()) {
-      writer.println("  private static final Map<String, String> SHADOW_PICKER_MAP = " +
+      writer.println("  private static final class ShadowPickerMapHolder {");
+      writer.println("    static final Map<String, String> SHADOW_PICKER_MAP = " +
           "new HashMap<>(" + shadowPickers.size() + ");");
       writer.println();
 
-      writer.println("  static {");
+      writer.println("    static {");
       for (Entry<String, ShadowInfo> entry : shadowPickers.entrySet()) {
         ShadowInfo shadowInfo = entry.getValue();
         final String actualBinaryName = shadowInfo.getActualBinaryName();
         final String shadowPickerClassName = shadowInfo.getShadowPickerBinaryName();
-        writer.println("    SHADOW_PICKER_MAP.put(\"" + actualBinaryName + "\", " +
+        writer.println("      SHADOW_PICKER_MAP.put(\"" + actualBinaryName + "\", " +
             "\"" + shadowPickerClassName + "\");");
       }
+      writer.println("    }");
       writer.println("  }");
       writer.println();
 
       writer.println("  @Override");
       writer.println("  public Map<String, String> getShadowPickerMap() {");
-      writer.println("    return SHADOW_PICKER_MAP;");
+      writer.println("    return ShadowPickerMapHolder.SHADOW_PICKER_MAP;");
       writer.println("  }");
     }
 
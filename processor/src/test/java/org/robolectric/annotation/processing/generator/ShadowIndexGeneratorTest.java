@@ -0,0 +1,98 @@
+package org.robolectric.annotation.processing.generator;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.annotation.processing.RobolectricModel;
+import org.robolectric.annotation.processing.RobolectricModel.ShadowInfo;
+
+/** Tests for {@link ShadowIndexGenerator} */
+@RunWith(JUnit4.class)
+public class ShadowIndexGeneratorTest {
+
+  private RobolectricModel model;
+  private ShadowIndexGenerator generator;
+  private StringWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    model = mock(RobolectricModel.class);
+    generator = new ShadowIndexGenerator(model, mock(ProcessingEnvironment.class), "the.package");
+    writer = new StringWriter();
+  }
+
+  @Test
+  public void entriesAreSortedByClassNameAndShadowClassName() throws Exception {
+    ShadowInfo thing = shadowInfo("a.Thing", "a.Thing", "s.ShadowThing", null, 19, -1, "a.Thing",
+        true, false, Collections.singletonList("s.ShadowThing#realThing"));
+    ShadowInfo inner = shadowInfo("a.Outer.Inner", "a.Outer$Inner", "s.ShadowOuter$ShadowInner",
+        null, -1, 21, "a.Outer$Inner", true, false, Collections.emptyList());
+    ShadowInfo picked = shadowInfo("a.Picked", "a.Picked", "s.ShadowPicked", "s.PickedPicker",
+        -1, -1, "a.Picked", false, true,
+        Arrays.asList("s.ShadowPicked#realPicked", "s.ShadowBase#real"));
+    ShadowInfo otherPicked = shadowInfo("a.Picked", "a.Picked", "s.ShadowOtherPicked",
+        "s.PickedPicker", 28, -1, "a.Picked", true, false, Collections.emptyList());
+    when(model.getAllShadowTypes()).thenReturn(Arrays.asList(thing, inner, picked, otherPicked));
+    when(model.getExtraShadowTypes()).thenReturn(ImmutableMap.of("s.ShadowExtra", "a.Extra"));
+
+    generator.generate(new PrintWriter(writer));
+
+    assertThat(writer.toString())
+        .isEqualTo(
+            "# robolectric shadow index v2\n"
+                + "a.Extra\ts.ShadowExtra\t-\t-1\t-1\t-\t-\t-\t-\n"
+                + "a.Outer.Inner\ts.ShadowOuter$ShadowInner\t-\t-1\t21"
+                + "\ta.Outer$Inner\ttrue\tfalse\t-\n"
+                + "a.Picked\ts.ShadowOtherPicked\ts.PickedPicker\t28\t-1"
+                + "\ta.Picked\ttrue\tfalse\t-\n"
+                + "a.Picked\ts.ShadowPicked\ts.PickedPicker\t-1\t-1"
+                + "\ta.Picked\tfalse\ttrue\ts.ShadowPicked#realPicked,s.ShadowBase#real\n"
+                + "a.Thing\ts.ShadowThing\t-\t19\t-1"
+                + "\ta.Thing\ttrue\tfalse\ts.ShadowThing#realThing\n");
+  }
+
+  @Test
+  public void metadataIsLeftOutForShadowsWithUnrecordableRealObjectFields() throws Exception {
+    ShadowInfo thing = shadowInfo("a.Thing", "a.Thing", "s.ShadowThing", null, 19, -1, "a.Thing",
+        true, false, null);
+    when(model.getAllShadowTypes()).thenReturn(Collections.singletonList(thing));
+    when(model.getExtraShadowTypes()).thenReturn(ImmutableMap.of());
+
+    generator.generate(new PrintWriter(writer));
+
+    assertThat(writer.toString())
+        .isEqualTo(
+            "# robolectric shadow index v2\n"
+                + "a.Thing\ts.ShadowThing\t-\t19\t-1\t-\t-\t-\t-\n");
+  }
+
+  private ShadowInfo shadowInfo(String actualName, String actualBinaryName,
+      String shadowBinaryName, String shadowPickerBinaryName, int minSdk, int maxSdk,
+      String shadowedClassName, boolean callThroughByDefault, boolean looseSignatures,
+      List<String> realObjectFields) {
+    ShadowInfo shadowInfo = mock(ShadowInfo.class);
+    when(shadowInfo.getActualName()).thenReturn(actualName);
+    when(shadowInfo.getActualBinaryName()).thenReturn(actualBinaryName);
+    when(shadowInfo.getShadowBinaryName()).thenReturn(shadowBinaryName);
+    when(shadowInfo.getShadowPickerBinaryName()).thenReturn(shadowPickerBinaryName);
+    when(shadowInfo.getMinSdk()).thenReturn(minSdk);
+    when(shadowInfo.getMaxSdk()).thenReturn(maxSdk);
+    when(shadowInfo.getShadowedClassName()).thenReturn(shadowedClassName);
+    when(shadowInfo.isCallThroughByDefault()).thenReturn(callThroughByDefault);
+    when(shadowInfo.isLooseSignatures()).thenReturn(looseSignatures);
+    when(shadowInfo.getRealObjectFields()).thenReturn(realObjectFields);
+    return shadowInfo;
+  }
+}
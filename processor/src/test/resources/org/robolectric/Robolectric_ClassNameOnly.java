@@ -13,11 +13,13 @@ import org.robolectric.shadow.api.Shadow;
 @Generated("org.robolectric.annotation.processing.RobolectricProcessor")
 @SuppressWarnings({"unchecked","deprecation"})
 public class Shadows implements ShadowProvider {
-  private static final Map<String, String> SHADOW_MAP = new HashMap<>(2);
+  private static final class ShadowMapHolder {
+    static final Map<String, String> SHADOW_MAP = new HashMap<>(2);
 
-  static {
-    SHADOW_MAP.put("com.example.objects.AnyObject", "org.robolectric.annotation.processing.shadows.ShadowClassNameOnly");
-    SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
+    static {
+      SHADOW_MAP.put("com.example.objects.AnyObject", "org.robolectric.annotation.processing.shadows.ShadowClassNameOnly");
+      SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
+    }
   }
 
   public static ShadowClassNameOnly shadowOf(AnyObject actual) {
@@ -36,7 +38,7 @@ public class Shadows implements ShadowProvider {
 
   @Override
   public Map<String, String> getShadowMap() {
-    return SHADOW_MAP;
+    return ShadowMapHolder.SHADOW_MAP;
   }
 
   @Override
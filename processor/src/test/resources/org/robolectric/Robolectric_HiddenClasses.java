@@ -16,15 +16,17 @@ import org.robolectric.shadow.api.Shadow;
 @Generated("org.robolectric.annotation.processing.RobolectricProcessor")
 @SuppressWarnings({"unchecked","deprecation"})
 public class Shadows implements ShadowProvider {
-  private static final Map<String, String> SHADOW_MAP = new HashMap<>(6);
+  private static final class ShadowMapHolder {
+    static final Map<String, String> SHADOW_MAP = new HashMap<>(6);
 
-  static {
-    SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
-    SHADOW_MAP.put("com.example.objects.OuterDummy2", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2");
-    SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerPackage", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerPackage");
-    SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerProtected", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerProtected");
-    SHADOW_MAP.put("com.example.objects.Private", "org.robolectric.annotation.processing.shadows.ShadowPrivate");
-    SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerPrivate", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerPrivate");
+    static {
+      SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
+      SHADOW_MAP.put("com.example.objects.OuterDummy2", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2");
+      SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerPackage", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerPackage");
+      SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerProtected", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerProtected");
+      SHADOW_MAP.put("com.example.objects.Private", "org.robolectric.annotation.processing.shadows.ShadowPrivate");
+      SHADOW_MAP.put("com.example.objects.OuterDummy2.InnerPrivate", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy2$ShadowInnerPrivate");
+    }
   }
 
   public static ShadowDummy shadowOf(Dummy actual) {
@@ -43,7 +45,7 @@ public class Shadows implements ShadowProvider {
 
   @Override
   public Map<String, String> getShadowMap() {
-    return SHADOW_MAP;
+    return ShadowMapHolder.SHADOW_MAP;
   }
 
   @Override
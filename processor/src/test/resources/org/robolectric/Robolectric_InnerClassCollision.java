@@ -17,15 +17,17 @@ import org.robolectric.shadow.api.Shadow;
 @Generated("org.robolectric.annotation.processing.RobolectricProcessor")
 @SuppressWarnings({"unchecked","deprecation"})
 public class Shadows implements ShadowProvider {
-  private static final Map<String, String> SHADOW_MAP = new HashMap<>(6);
+  private static final class ShadowMapHolder {
+    static final Map<String, String> SHADOW_MAP = new HashMap<>(6);
 
-  static {
-    SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
-    SHADOW_MAP.put("com.example.objects.OuterDummy", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy");
-    SHADOW_MAP.put("com.example.objects.OuterDummy.InnerDummy", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy$ShadowInnerDummy");
-    SHADOW_MAP.put("com.example.objects.UniqueDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy");
-    SHADOW_MAP.put("com.example.objects.UniqueDummy.InnerDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy$ShadowInnerDummy");
-    SHADOW_MAP.put("com.example.objects.UniqueDummy.UniqueInnerDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy$ShadowUniqueInnerDummy");
+    static {
+      SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowDummy");
+      SHADOW_MAP.put("com.example.objects.OuterDummy", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy");
+      SHADOW_MAP.put("com.example.objects.OuterDummy.InnerDummy", "org.robolectric.annotation.processing.shadows.ShadowOuterDummy$ShadowInnerDummy");
+      SHADOW_MAP.put("com.example.objects.UniqueDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy");
+      SHADOW_MAP.put("com.example.objects.UniqueDummy.InnerDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy$ShadowInnerDummy");
+      SHADOW_MAP.put("com.example.objects.UniqueDummy.UniqueInnerDummy", "org.robolectric.annotation.processing.shadows.ShadowUniqueDummy$ShadowUniqueInnerDummy");
+    }
   }
 
   public static ShadowDummy shadowOf(Dummy actual) {
@@ -59,7 +61,7 @@ public class Shadows implements ShadowProvider {
 
   @Override
   public Map<String, String> getShadowMap() {
-    return SHADOW_MAP;
+    return ShadowMapHolder.SHADOW_MAP;
   }
 
   @Override
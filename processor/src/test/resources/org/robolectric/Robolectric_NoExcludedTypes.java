@@ -12,10 +12,12 @@ import org.robolectric.shadow.api.Shadow;
 @Generated("org.robolectric.annotation.processing.RobolectricProcessor")
 @SuppressWarnings({"unchecked","deprecation"})
 public class Shadows implements ShadowProvider {
-  private static final Map<String, String> SHADOW_MAP = new HashMap<>(1);
+  private static final class ShadowMapHolder {
+    static final Map<String, String> SHADOW_MAP = new HashMap<>(1);
 
-  static {
-    SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowExcludedFromAndroidSdk");
+    static {
+      SHADOW_MAP.put("com.example.objects.Dummy", "org.robolectric.annotation.processing.shadows.ShadowExcludedFromAndroidSdk");
+    }
   }
 
   @Override
@@ -24,7 +26,7 @@ public class Shadows implements ShadowProvider {
 
   @Override
   public Map<String, String> getShadowMap() {
-    return SHADOW_MAP;
+    return ShadowMapHolder.SHADOW_MAP;
   }
 
   @Override
@@ -12,6 +12,7 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -36,6 +37,7 @@ import org.robolectric.internal.ManifestIdentifier;
 import org.robolectric.internal.MavenManifestFactory;
 import org.robolectric.internal.ResourcesMode;
 import org.robolectric.internal.SandboxManager;
+import org.robolectric.internal.SandboxManager.SandboxKey;
 import org.robolectric.internal.SandboxTestRunner;
 import org.robolectric.internal.TestEnvironment;
 import org.robolectric.internal.bytecode.ClassHandler;
@@ -86,6 +88,8 @@ public class RobolectricTestRunner extends SandboxTestRunner {
   private boolean alwaysIncludeVariantMarkersInName =
       Boolean.parseBoolean(
           System.getProperty("robolectric.alwaysIncludeVariantMarkersInTestName", "false"));
+  private final boolean groupTestsBySandbox =
+      Boolean.parseBoolean(System.getProperty("robolectric.groupTestsBySandbox", "true"));
 
   /**
    * Creates a runner to run {@code testClass}. Use the {@link Config} annotation to configure.
@@ -245,7 +249,43 @@ public class RobolectricTestRunner extends SandboxTestRunner {
             ": " + e.getMessage(), e);
       }
     }
-    return children;
+    return groupTestsBySandbox ? groupBySandbox(children) : children;
+  }
+
+  /**
+   * Reorders tests so that those which run in the same sandbox run one after another, in the order
+   * their sandboxes are first needed. The relative order of tests sharing a sandbox is kept.
+   *
+   * <p>Running each method on every SDK in turn would otherwise switch sandboxes between every
+   * test, and evict them from {@link SandboxManager}'s cache once a class runs on more
+   * configurations than it holds. Set the {@code robolectric.groupTestsBySandbox} system property
+   * to {@code false} to run tests in declaration order instead.
+   */
+  private List<FrameworkMethod> groupBySandbox(List<FrameworkMethod> children) {
+    Map<Object, List<FrameworkMethod>> childrenBySandbox = new LinkedHashMap<>();
+    for (FrameworkMethod child : children) {
+      RobolectricFrameworkMethod roboMethod = (RobolectricFrameworkMethod) child;
+      Object key;
+      try {
+        key =
+            new SandboxKey(
+                getClassLoaderConfig(roboMethod),
+                roboMethod.getSdk(),
+                roboMethod.getResourcesMode(),
+                getLooperMode(roboMethod));
+      } catch (RuntimeException e) {
+        // The test reports the failure when it runs, as getSandbox() tries again; until then it
+        // keeps its place.
+        key = child;
+      }
+      childrenBySandbox.computeIfAbsent(key, k -> new ArrayList<>()).add(child);
+    }
+
+    List<FrameworkMethod> grouped = new ArrayList<>(children.size());
+    for (List<FrameworkMethod> group : childrenBySandbox.values()) {
+      grouped.addAll(group);
+    }
+    return grouped;
   }
 
   @Override
@@ -254,19 +294,36 @@ public class RobolectricTestRunner extends SandboxTestRunner {
     RobolectricFrameworkMethod roboMethod = (RobolectricFrameworkMethod) method;
     Sdk sdk = roboMethod.getSdk();
 
-    InstrumentationConfiguration classLoaderConfig = createClassLoaderConfig(method);
+    InstrumentationConfiguration classLoaderConfig = getClassLoaderConfig(roboMethod);
     ResourcesMode resourcesMode = roboMethod.getResourcesMode();
 
     if (resourcesMode == ResourcesMode.LEGACY && sdk.getApiLevel() > Build.VERSION_CODES.P) {
       throw new AssumptionViolatedException("Robolectric doesn't support legacy mode after P");
     }
-    LooperMode.Mode looperMode = roboMethod.configuration == null ? Mode.LEGACY
-        : roboMethod.configuration.get(LooperMode.Mode.class);
+    LooperMode.Mode looperMode = getLooperMode(roboMethod);
 
     sdk.verifySupportedSdk(method.getDeclaringClass().getName());
     return sandboxManager.getAndroidSandbox(classLoaderConfig, sdk, resourcesMode, looperMode);
   }
 
+  /**
+   * Returns the instrumentation configuration of the given test, which is only created once with
+   * {@link #createClassLoaderConfig} even though both grouping tests and running them need it.
+   */
+  private InstrumentationConfiguration getClassLoaderConfig(
+      RobolectricFrameworkMethod roboMethod) {
+    if (roboMethod.classLoaderConfig == null) {
+      roboMethod.classLoaderConfig = createClassLoaderConfig(roboMethod);
+    }
+    return roboMethod.classLoaderConfig;
+  }
+
+  private static LooperMode.Mode getLooperMode(RobolectricFrameworkMethod roboMethod) {
+    return roboMethod.configuration == null
+        ? Mode.LEGACY
+        : roboMethod.configuration.get(LooperMode.Mode.class);
+  }
+
   @Override
   protected void beforeTest(Sandbox sandbox, FrameworkMethod method, Method bootstrappedMethod) throws Throwable {
     AndroidSandbox androidSandbox = (AndroidSandbox) sandbox;
@@ -570,6 +627,7 @@ public class RobolectricTestRunner extends SandboxTestRunner {
     private final boolean alwaysIncludeVariantMarkersInName;
 
     private boolean includeVariantMarkersInTestName = true;
+    private InstrumentationConfiguration classLoaderConfig;
     TestLifecycle testLifecycle;
 
     protected RobolectricFrameworkMethod(RobolectricFrameworkMethod other) {
@@ -581,6 +639,7 @@ public class RobolectricTestRunner extends SandboxTestRunner {
           other.defaultResModeStrategy,
           other.alwaysIncludeVariantMarkersInName);
 
+      classLoaderConfig = other.classLoaderConfig;
       includeVariantMarkersInTestName = other.includeVariantMarkersInTestName;
       testLifecycle = other.testLifecycle;
     }
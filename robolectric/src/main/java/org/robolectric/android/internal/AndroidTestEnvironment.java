@@ -60,6 +60,7 @@ import org.robolectric.res.ResourceTableFactory;
 import org.robolectric.res.RoutingResourceTable;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ClassNameResolver;
+import org.robolectric.shadows.Java2DRendering;
 import org.robolectric.shadows.LegacyManifestParser;
 import org.robolectric.shadows.ShadowActivityThread;
 import org.robolectric.shadows.ShadowActivityThread._ActivityThread_;
@@ -499,6 +500,7 @@ public class AndroidTestEnvironment implements TestEnvironment {
     for (ShadowProvider provider : shadowProviders) {
       provider.reset();
     }
+    Java2DRendering.reset();
   }
 
   // TODO(christianw): reconcile with ShadowPackageManager.setUpPackageStorage
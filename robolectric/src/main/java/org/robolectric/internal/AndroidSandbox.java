@@ -16,6 +16,7 @@ import org.robolectric.internal.bytecode.SandboxClassLoader;
 import org.robolectric.internal.bytecode.ShadowProviders;
 import org.robolectric.internal.bytecode.UrlResourceProvider;
 import org.robolectric.pluginapi.Sdk;
+import org.robolectric.util.VirtualThreads;
 import org.robolectric.util.inject.Injector;
 
 /** Sandbox simulating an Android device. */
@@ -53,6 +54,11 @@ public class AndroidSandbox extends Sandbox {
 
   @Override
   protected ThreadFactory mainThreadFactory() {
+    if (VirtualThreads.isEnabled()) {
+      return r ->
+          VirtualThreads.newThreadFactory("SDK " + sdk.getApiLevel() + " Main Thread")
+              .newThread(r);
+    }
     return r -> {
       String name = "SDK " + sdk.getApiLevel();
       return new Thread(new ThreadGroup(name), r, name + " Main Thread");
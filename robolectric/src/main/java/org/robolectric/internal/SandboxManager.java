@@ -4,15 +4,24 @@ import android.annotation.SuppressLint;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.pluginapi.Sdk;
 import org.robolectric.plugins.SdkCollection;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.inject.AutoFactory;
 
-/** Manager of sandboxes. */
+/**
+ * Manager of sandboxes.
+ *
+ * <p>Building a sandbox is reported as "build sandbox", and dropping one from the cache to make
+ * room for another as "evict sandbox", so test suites that switch between more configurations
+ * than the cache holds show up in perf stats.
+ */
 @SuppressLint("NewApi")
 public class SandboxManager {
 
@@ -26,6 +35,8 @@ public class SandboxManager {
 
   // Simple LRU Cache. AndroidSandboxes are unique across InstrumentationConfiguration and Sdk
   private final LinkedHashMap<SandboxKey, AndroidSandbox> sandboxesByKey;
+  private final AtomicInteger sandboxBuildCount = new AtomicInteger();
+  private final AtomicInteger sandboxEvictionCount = new AtomicInteger();
 
   @Inject
   public SandboxManager(SandboxBuilder sandboxBuilder, SdkCollection sdkCollection) {
@@ -38,7 +49,14 @@ public class SandboxManager {
     sandboxesByKey = new LinkedHashMap<SandboxKey, AndroidSandbox>() {
       @Override
       protected boolean removeEldestEntry(Map.Entry<SandboxKey, AndroidSandbox> eldest) {
-        return size() > cacheSize;
+        if (size() <= cacheSize) {
+          return false;
+        }
+        sandboxEvictionCount.incrementAndGet();
+        PerfStatsCollector.getInstance().startEvent("evict sandbox").finished();
+        Logger.debug("evicting sandbox for %s", eldest.getKey());
+        eldest.getValue().finishWarmUp();
+        return true;
       }
     };
   }
@@ -54,13 +72,28 @@ public class SandboxManager {
     if (androidSandbox == null) {
       Sdk compileSdk = sdkCollection.getMaxSupportedSdk();
       androidSandbox =
-          sandboxBuilder.build(
-              instrumentationConfig, sdk, compileSdk, resourcesMode, looperMode);
+          PerfStatsCollector.getInstance()
+              .measure(
+                  "build sandbox",
+                  () ->
+                      sandboxBuilder.build(
+                          instrumentationConfig, sdk, compileSdk, resourcesMode, looperMode));
+      sandboxBuildCount.incrementAndGet();
       sandboxesByKey.put(key, androidSandbox);
     }
     return androidSandbox;
   }
 
+  /** Returns the number of sandboxes this manager has built. */
+  public int getSandboxBuildCount() {
+    return sandboxBuildCount.get();
+  }
+
+  /** Returns the number of sandboxes this manager has dropped from its cache. */
+  public int getSandboxEvictionCount() {
+    return sandboxEvictionCount.get();
+  }
+
   /** Factory interface for AndroidSandbox. */
   @AutoFactory
   public interface SandboxBuilder {
@@ -72,7 +105,8 @@ public class SandboxManager {
         LooperMode.Mode looperMode);
   }
 
-  static class SandboxKey {
+  /** The configuration that tells sandboxes apart; tests with equal keys share a sandbox. */
+  public static class SandboxKey {
     private final Sdk sdk;
     private final InstrumentationConfiguration instrumentationConfiguration;
     private final ResourcesMode resourcesMode;
@@ -108,5 +142,12 @@ public class SandboxManager {
     public int hashCode() {
       return Objects.hash(sdk, instrumentationConfiguration, resourcesMode, looperMode);
     }
+
+    @Override
+    public String toString() {
+      return "SandboxKey{sdk=" + sdk.getApiLevel()
+          + ", resourcesMode=" + resourcesMode
+          + ", looperMode=" + looperMode + "}";
+    }
   }
 }
@@ -3,10 +3,9 @@ package org.robolectric.plugins;
 import com.google.auto.service.AutoService;
 import java.lang.reflect.Method;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Priority;
 import org.robolectric.pluginapi.config.ConfigurationStrategy;
 import org.robolectric.pluginapi.config.Configurer;
@@ -21,18 +20,50 @@ import org.robolectric.pluginapi.config.Configurer;
 @Priority(Integer.MIN_VALUE)
 public class HierarchicalConfigurationStrategy implements ConfigurationStrategy {
 
-  /** The cache is sized to avoid repeated resolutions for any node. */
-  private int highWaterMark = 0;
-  private final Map<String, Object[]> cache =
-      new LinkedHashMap<String, Object[]>() {
+  private final Configurer<?>[] configurers;
+  private final Object[] defaultConfigs;
+
+  /*
+   * Resolved configs are cached package by package, class by class, and method by method, each
+   * level merged onto the one above it. A level that doesn't configure anything shares the array of
+   * the level above it, and configs that aren't overridden are shared between the arrays.
+   * The per-class caches are ClassValues, so they don't keep test classes from being unloaded.
+   */
+  private final Map<String, Object[]> packageConfigs = new ConcurrentHashMap<>();
+
+  private final ClassValue<Object[]> classConfigs =
+      new ClassValue<Object[]>() {
         @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Object[]> eldest) {
-          return size() > highWaterMark + 1;
+        protected Object[] computeValue(Class<?> testClass) {
+          Object[] configs = getConfigs(configurer -> configurer.getConfigFor(testClass));
+
+          Class<?> superclass = testClass.getSuperclass();
+          if (superclass != null && superclass != Object.class) {
+            return merge(get(superclass), configs);
+          }
+          return configs;
         }
       };
 
-  private final Configurer<?>[] configurers;
-  private final Object[] defaultConfigs;
+  private final ClassValue<Object[]> firstClassConfigs =
+      new ClassValue<Object[]>() {
+        @Override
+        protected Object[] computeValue(Class<?> testClass) {
+          // todo: should parent class configs have lower precedence than package configs?
+          Object[] configsForClass = classConfigs.get(testClass);
+          Package pkg = testClass.getPackage();
+          Object[] configsForPackage = getPackageConfig(pkg == null ? "" : pkg.getName());
+          return merge(configsForPackage, configsForClass);
+        }
+      };
+
+  private final ClassValue<Map<Method, Object[]>> methodConfigs =
+      new ClassValue<Map<Method, Object[]>>() {
+        @Override
+        protected Map<Method, Object[]> computeValue(Class<?> testClass) {
+          return new ConcurrentHashMap<>();
+        }
+      };
 
   public HierarchicalConfigurationStrategy(Configurer<?>... configurers) {
     this.configurers = configurers;
@@ -46,13 +77,16 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
 
   @Override
   public ConfigurationImpl getConfig(Class<?> testClass, Method method) {
-    final Counter counter = new Counter();
-    Object[] configs = cache(testClass.getName() + "/" + method.getName(), counter, s -> {
-      counter.incr();
-      Object[] methodConfigs = getConfigs(counter,
-          configurer -> configurer.getConfigFor(method));
-      return merge(getFirstClassConfig(testClass, counter), methodConfigs);
-    });
+    Map<Method, Object[]> configsByMethod = methodConfigs.get(testClass);
+    Object[] configs = configsByMethod.get(method);
+    if (configs == null) {
+      Object[] configsForMethod = getConfigs(configurer -> configurer.getConfigFor(method));
+      configs = merge(firstClassConfigs.get(testClass), configsForMethod);
+      Object[] raced = configsByMethod.putIfAbsent(method, configs);
+      if (raced != null) {
+        configs = raced;
+      }
+    }
 
     ConfigurationImpl testConfig = new ConfigurationImpl();
     for (int i = 0; i < configurers.length; i++) {
@@ -62,29 +96,23 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
     return testConfig;
   }
 
-  private Object[] getFirstClassConfig(Class<?> testClass, Counter counter) {
-    // todo: should parent class configs have lower precedence than package configs?
-    return cache("first:" + testClass, counter, s -> {
-          Object[] configsForClass = getClassConfig(testClass, counter);
-      Package pkg = testClass.getPackage();
-      Object[] configsForPackage = getPackageConfig(pkg == null ? "" : pkg.getName(), counter);
-          return merge(configsForPackage, configsForClass);
-        }
-    );
-  }
-
-  private Object[] getPackageConfig(String packageName, Counter counter) {
-    return cache(packageName, counter, s -> {
-          Object[] packageConfigs = getConfigs(counter,
-              configurer -> configurer.getConfigFor(packageName));
-          String parentPackage = parentPackage(packageName);
-          if (parentPackage == null) {
-            return merge(defaultConfigs, packageConfigs);
-          } else {
-            Object[] packageConfig = getPackageConfig(parentPackage, counter);
-            return merge(packageConfig, packageConfigs);
-          }
-        });
+  private Object[] getPackageConfig(String packageName) {
+    // Not computeIfAbsent(), which mustn't be called again for the parent package.
+    Object[] configs = packageConfigs.get(packageName);
+    if (configs == null) {
+      Object[] configsForPackage =
+          getConfigs(configurer -> configurer.getConfigFor(packageName));
+      String parentPackage = parentPackage(packageName);
+      configs =
+          parentPackage == null
+              ? merge(defaultConfigs, configsForPackage)
+              : merge(getPackageConfig(parentPackage), configsForPackage);
+      Object[] raced = packageConfigs.putIfAbsent(packageName, configs);
+      if (raced != null) {
+        configs = raced;
+      }
+    }
+    return configs;
   }
 
   private String parentPackage(String name) {
@@ -95,40 +123,11 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
     return lastDot > -1 ? name.substring(0, lastDot) : "";
   }
 
-  private Object[] getClassConfig(Class<?> testClass, Counter counter) {
-    return cache(testClass.getName(), counter, s -> {
-      Object[] classConfigs = getConfigs(counter, configurer -> configurer.getConfigFor(testClass));
-
-      Class<?> superclass = testClass.getSuperclass();
-      if (superclass != Object.class) {
-        Object[] superclassConfigs = getClassConfig(superclass, counter);
-        return merge(superclassConfigs, classConfigs);
-      }
-      return classConfigs;
-    });
-  }
-
-  private Object[] cache(String name, Counter counter, Function<String, Object[]> fn) {
-    // make sure the cache is optimally sized this test suite
-    if (counter.depth > highWaterMark) {
-      highWaterMark = counter.depth;
-    }
-
-    Object[] configs = cache.get(name);
-    if (configs == null) {
-      configs = fn.apply(name);
-      cache.put(name, configs);
-    }
-    return configs;
-  }
-
   interface GetConfig {
     Object getConfig(Configurer<?> configurer);
   }
 
-  private Object[] getConfigs(Counter counter, GetConfig getConfig) {
-    counter.incr();
-
+  private Object[] getConfigs(GetConfig getConfig) {
     Object[] objects = new Object[configurers.length];
     for (int i = 0; i < configurers.length; i++) {
       objects[i] = getConfig.getConfig(configurers[i]);
@@ -140,7 +139,14 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
     testConfig.put((Class) configClass, config);
   }
 
+  /**
+   * Merges child configs onto their parents, returning the parent array itself if there are no
+   * child configs.
+   */
   private Object[] merge(Object[] parentConfigs, Object[] childConfigs) {
+    if (allNull(childConfigs)) {
+      return parentConfigs;
+    }
     Object[] objects = new Object[configurers.length];
     for (int i = 0; i < configurers.length; i++) {
       Configurer configurer = configurers[i];
@@ -155,6 +161,15 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
     return objects;
   }
 
+  private static boolean allNull(Object[] configs) {
+    for (Object config : configs) {
+      if (config != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static class ConfigurationImpl implements Configuration {
 
     private final Map<Class<?>, Object> configs = new HashMap<>();
@@ -178,12 +193,4 @@ public class HierarchicalConfigurationStrategy implements ConfigurationStrategy
       return configs;
     }
   }
-
-  private static class Counter {
-    private int depth = 0;
-
-    void incr() {
-      depth++;
-    }
-  }
 }
@@ -36,7 +36,7 @@ public class PackagePropertiesLoader {
    *
    * @since 3.2
    */
-  public Properties getConfigProperties(@Nonnull String packageName) {
+  public synchronized Properties getConfigProperties(@Nonnull String packageName) {
     return cache.computeIfAbsent(packageName, s -> {
       StringBuilder buf = new StringBuilder();
       if (!packageName.isEmpty()) {
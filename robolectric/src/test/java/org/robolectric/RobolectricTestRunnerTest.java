@@ -50,6 +50,7 @@ import org.robolectric.annotation.Config.Implementation;
 import org.robolectric.internal.AndroidSandbox.TestEnvironmentSpec;
 import org.robolectric.internal.ResourcesMode;
 import org.robolectric.internal.ShadowProvider;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.pluginapi.Sdk;
 import org.robolectric.pluginapi.SdkProvider;
@@ -123,16 +124,56 @@ public class RobolectricTestRunnerTest {
     runner.run(notifier);
     assertThat(events).containsExactly(
         "started: first[17]", "finished: first[17]",
+        "started: second[17]", "finished: second[17]",
         "started: first",
         "ignored: first: Failed to create a Robolectric sandbox: unsupported",
         "finished: first",
-        "started: second[17]", "finished: second[17]",
         "started: second",
         "ignored: second: Failed to create a Robolectric sandbox: unsupported",
         "finished: second"
     ).inOrder();
   }
 
+  @Test
+  public void testsShouldBeGroupedBySandbox() throws Exception {
+    RobolectricTestRunner runner = new RobolectricTestRunner(
+        TestWithTwoMethods.class,
+        defaultInjector()
+            .bind(SdkProvider.class, () ->
+                Arrays.asList(TestUtil.getSdkCollection().getSdk(17),
+                    TestUtil.getSdkCollection().getSdk(18)))
+            .build());
+
+    List<String> names = new ArrayList<>();
+    for (FrameworkMethod child : runner.getChildren()) {
+      names.add(child.getName());
+    }
+
+    assertThat(names).containsExactly("first[17]", "second[17]", "first", "second").inOrder();
+  }
+
+  @Test
+  public void classLoaderConfigShouldBeCreatedOncePerTest() throws Exception {
+    List<String> configuredTests = new ArrayList<>();
+    RobolectricTestRunner runner =
+        new SingleSdkRobolectricTestRunner(TestWithTwoMethods.class) {
+          @Override
+          @Nonnull
+          protected InstrumentationConfiguration createClassLoaderConfig(FrameworkMethod method) {
+            configuredTests.add(method.getName());
+            return super.createClassLoaderConfig(method);
+          }
+        };
+
+    runner.run(notifier);
+
+    assertThat(configuredTests).containsExactly("first", "second");
+    assertThat(events)
+        .containsExactly(
+            "started: first", "finished: first", "started: second", "finished: second")
+        .inOrder();
+  }
+
   @Test
   public void supportsOldGetConfigUntil4dot3() throws Exception {
     Implementation overriddenConfig = Config.Builder.defaults().build();
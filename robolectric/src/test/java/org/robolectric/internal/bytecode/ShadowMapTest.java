@@ -9,6 +9,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.robolectric.Shadows;
+import org.robolectric.internal.ShadowIndex;
 import org.robolectric.internal.ShadowProvider;
 import org.robolectric.sandbox.ShadowMatcher;
 import org.robolectric.shadows.ShadowActivity;
@@ -62,6 +64,34 @@ public class ShadowMapTest {
         .isEqualTo(ShadowActivity.class.getName());
   }
 
+  @Test public void shouldLookUpDefaultShadowsInGeneratedIndex() throws Exception {
+    ShadowProvider shadows = new Shadows();
+    ShadowIndex shadowIndex = shadows.getShadowIndex();
+    assertThat(shadowIndex.getDefaultShadowClassName(android.app.Activity.class.getName()))
+        .isEqualTo(ShadowActivity.class.getName());
+
+    ShadowMap map = ShadowMap.createFromShadowProviders(Collections.singletonList(shadows));
+    assertThat(map.getShadowInfo(android.app.Activity.class, ShadowMatcher.MATCH_ALL).shadowClassName)
+        .isEqualTo(ShadowActivity.class.getName());
+    assertThat(map.getShadowInfo(Activity.class, ShadowMatcher.MATCH_ALL)).isNull();
+  }
+
+  @Test public void generatedShadowInfo_shouldMatchAnnotation() throws Exception {
+    ShadowProvider shadows = new Shadows();
+    ShadowIndex shadowIndex = shadows.getShadowIndex();
+    int index = shadowIndex.indexOfShadow(ShadowActivity.class.getName());
+    assertThat(index).isAtLeast(0);
+    assertThat(shadowIndex.hasMetadata(index)).isTrue();
+
+    ShadowMap map = ShadowMap.createFromShadowProviders(Collections.singletonList(shadows));
+    assertThat(map.findShadowInfo(ShadowActivity.class))
+        .isEqualTo(ShadowMap.obtainShadowInfo(ShadowActivity.class));
+    assertThat(map.getRealObjectFields(ShadowActivity.class.getName()))
+        .asList()
+        .contains(ShadowActivity.class.getName() + "#realActivity");
+    assertThat(map.findShadowInfo(ShadowMapTest.class)).isNull();
+  }
+
   @Test public void getInvalidatedClasses_disjoin() {
     ShadowMap current = baseShadowMap.newBuilder().addShadowClass(A1, A2, true, false).build();
     ShadowMap previous = baseShadowMap.newBuilder().addShadowClass(B1, B2, true, false).build();
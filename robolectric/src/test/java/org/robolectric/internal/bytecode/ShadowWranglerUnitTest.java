@@ -2,6 +2,8 @@ package org.robolectric.internal.bytecode;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.junit.Before;
@@ -157,6 +159,38 @@ public class ShadowWranglerUnitTest {
         .contains("ShadowChildOfDummyClass.methodWithoutRange()");
   }
 
+  @Test
+  public void shadowMethodOnShadowSuperclass_shouldBeFound() throws Exception {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowLooseClass.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, sdk23, interceptors);
+    String className = internalName(LooseClass.class);
+    assertThat(wrangler.methodInvoked(className + "/inherited()V", false, LooseClass.class).describe())
+        .contains("ShadowBaseOfLooseClass.inherited()");
+    assertThat(wrangler.methodInvoked(className + "/overridden()V", false, LooseClass.class).describe())
+        .contains("ShadowLooseClass.overridden()");
+  }
+
+  @Test
+  public void looseSignature_shouldBeFound() throws Exception {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowLooseClass.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, sdk23, interceptors);
+    String methodName = internalName(LooseClass.class) + "/withLoose(Ljava/lang/String;)V";
+    assertThat(wrangler.methodInvoked(methodName, false, LooseClass.class).describe())
+        .contains("ShadowLooseClass.withLoose(java.lang.Object)");
+  }
+
+  @Test
+  public void findShadowMethodHandle_shouldReuseHandles() throws Exception {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowLooseClass.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, sdk23, interceptors);
+    MethodType methodType = MethodType.methodType(void.class, LooseClass.class);
+    MethodHandle first =
+        wrangler.findShadowMethodHandle(LooseClass.class, "inherited", methodType, false);
+    MethodHandle second =
+        wrangler.findShadowMethodHandle(LooseClass.class, "inherited", methodType, false);
+    assertThat(first).isSameInstanceAs(second);
+  }
+
   public static class DummyClass {
   }
 
@@ -193,6 +227,33 @@ public class ShadowWranglerUnitTest {
     }
   }
 
+  public static class LooseClass {
+  }
+
+  @Implements(LooseClass.class)
+  public static class ShadowBaseOfLooseClass {
+    @Implementation
+    protected void inherited() {
+    }
+
+    @Implementation
+    protected void overridden() {
+    }
+  }
+
+  @Implements(value = LooseClass.class, looseSignatures = true)
+  public static class ShadowLooseClass extends ShadowBaseOfLooseClass {
+    @Implementation
+    protected Object withLoose(Object arg) {
+      return arg;
+    }
+
+    @Implementation
+    @Override
+    protected void overridden() {
+    }
+  }
+
   ///////////////////////
 
   private String internalName(Class clazz) {
@@ -10,9 +10,13 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nonnull;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -460,6 +464,54 @@ public class HierarchicalConfigurationStrategyTest {
     ).inOrder();
   }
 
+  @Test
+  public void configsAreSharedBetweenTestsThatDontOverrideThem() throws Exception {
+    ConfigurationStrategy configStrategy = newConfigStrategy(new HashMap<>(), null);
+
+    Config config = configStrategy
+        .getConfig(Test2.class, getMethod(Test2.class, "withoutAnnotation"))
+        .get(Config.class);
+    Config otherConfig = configStrategy.getConfig(getClass(),
+        getMethod(getClass(), "configsAreSharedBetweenTestsThatDontOverrideThem"))
+        .get(Config.class);
+
+    assertThat(otherConfig).isSameInstanceAs(config);
+  }
+
+  @Test
+  public void getConfig_shouldBeThreadSafe() throws Exception {
+    ConfigurationStrategy configStrategy = newConfigStrategy(new HashMap<>(), null);
+    List<Class<?>> testClasses =
+        Arrays.asList(Test1.class, Test2.class, Test1A.class, Test2A.class, Test1B.class,
+            Test1C.class);
+    List<String> methodNames =
+        Arrays.asList("withoutAnnotation", "withDefaultsAnnotation", "withOverrideAnnotation");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Config>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        for (Class<?> testClass : testClasses) {
+          for (String methodName : methodNames) {
+            futures.add(executor.submit(() ->
+                configStrategy.getConfig(testClass, getMethod(testClass, methodName))
+                    .get(Config.class)));
+          }
+        }
+      }
+
+      int i = 0;
+      for (Future<Config> future : futures) {
+        Class<?> testClass = testClasses.get(i / methodNames.size() % testClasses.size());
+        String methodName = methodNames.get(i % methodNames.size());
+        assertThat(future.get().qualifiers())
+            .isEqualTo(configFor(testClass, methodName).qualifiers());
+        i++;
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   /////////////////////////////
 
 
@@ -490,6 +542,13 @@ public class HierarchicalConfigurationStrategyTest {
   private Config configFor(Class<?> testClass, String methodName,
       final Map<String, String> configProperties, Config.Implementation globalConfig) {
     Method info = getMethod(testClass, methodName);
+    Configuration config =
+        newConfigStrategy(configProperties, globalConfig).getConfig(testClass, info);
+    return config.get(Config.class);
+  }
+
+  private ConfigurationStrategy newConfigStrategy(
+      final Map<String, String> configProperties, Config.Implementation globalConfig) {
     PackagePropertiesLoader packagePropertiesLoader = new PackagePropertiesLoader() {
       @Override
       InputStream getResourceAsStream(String resourceName) {
@@ -497,12 +556,9 @@ public class HierarchicalConfigurationStrategyTest {
         return properties == null ? null : new ByteArrayInputStream(properties.getBytes(UTF_8));
       }
     };
-    ConfigurationStrategy defaultConfigStrategy =
-        new HierarchicalConfigurationStrategy(
-            new ConfigConfigurer(packagePropertiesLoader, () ->
-                globalConfig == null ? Config.Builder.defaults().build() : globalConfig));
-    Configuration config = defaultConfigStrategy.getConfig(testClass, info);
-    return config.get(Config.class);
+    return new HierarchicalConfigurationStrategy(
+        new ConfigConfigurer(packagePropertiesLoader, () ->
+            globalConfig == null ? Config.Builder.defaults().build() : globalConfig));
   }
 
   private static Method getMethod(Class<?> testClass, String methodName) {
@@ -0,0 +1,186 @@
+package org.robolectric.shadows;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.widget.LinearLayout;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadow.api.Shadow;
+
+@RunWith(AndroidJUnit4.class)
+public class Java2DRenderingTest {
+  private Bitmap bitmap;
+  private Canvas canvas;
+  private Paint paint;
+
+  @Before
+  public void setUp() {
+    bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    canvas = new Canvas(bitmap);
+    paint = new Paint();
+    paint.setColor(Color.RED);
+    paint.setStyle(Paint.Style.FILL);
+  }
+
+  @Test
+  public void drawRect_shouldNotRenderPixelsByDefault() {
+    canvas.drawRect(10, 10, 20, 20, paint);
+
+    assertThat(bitmap.getPixel(15, 15)).isEqualTo(0);
+    assertThat(Shadow.<ShadowCanvas>extract(canvas).getRectPaintHistoryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void drawRect_shouldRenderPixelsWhenEnabled() {
+    Java2DRendering.setEnabled(true);
+
+    canvas.drawRect(10, 10, 20, 20, paint);
+
+    assertThat(bitmap.getPixel(15, 15)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(25, 25)).isEqualTo(0);
+    assertThat(Shadow.<ShadowCanvas>extract(canvas).getRectPaintHistoryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void drawColor_shouldFillBitmap() {
+    Java2DRendering.setEnabled(true);
+
+    canvas.translate(50, 50);
+    canvas.drawColor(Color.BLUE);
+
+    assertThat(bitmap.getPixel(0, 0)).isEqualTo(Color.BLUE);
+    assertThat(bitmap.getPixel(99, 99)).isEqualTo(Color.BLUE);
+  }
+
+  @Test
+  public void translate_shouldBeUndoneByRestore() {
+    Java2DRendering.setEnabled(true);
+
+    int saveCount = canvas.save();
+    canvas.translate(50, 50);
+    canvas.drawRect(0, 0, 10, 10, paint);
+    canvas.restoreToCount(saveCount);
+    paint.setColor(Color.GREEN);
+    canvas.drawRect(0, 0, 10, 10, paint);
+
+    assertThat(bitmap.getPixel(55, 55)).isEqualTo(Color.RED);
+    assertThat(bitmap.getPixel(5, 5)).isEqualTo(Color.GREEN);
+  }
+
+  @Test
+  public void drawBitmap_shouldCopyPixels() {
+    Java2DRendering.setEnabled(true);
+    Bitmap source = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    source.eraseColor(Color.YELLOW);
+
+    canvas.drawBitmap(source, 30, 40, null);
+    canvas.drawBitmap(source, new Rect(0, 0, 10, 10), new Rect(60, 60, 80, 80), null);
+
+    assertThat(bitmap.getPixel(35, 45)).isEqualTo(Color.YELLOW);
+    assertThat(bitmap.getPixel(29, 45)).isEqualTo(0);
+    assertThat(bitmap.getPixel(75, 75)).isEqualTo(Color.YELLOW);
+  }
+
+  @Test
+  public void decodeStream_shouldDecodeRealPixelsWhenEnabled() throws Exception {
+    Java2DRendering.setEnabled(true);
+    BufferedImage expected;
+    try (InputStream is = openResource("res/drawable/an_image.png")) {
+      expected = ImageIO.read(is);
+    }
+
+    Bitmap decoded = BitmapFactory.decodeStream(openResource("res/drawable/an_image.png"));
+
+    assertThat(decoded.getWidth()).isEqualTo(expected.getWidth());
+    assertThat(decoded.getHeight()).isEqualTo(expected.getHeight());
+    for (int y = 0; y < expected.getHeight(); y += 7) {
+      for (int x = 0; x < expected.getWidth(); x += 7) {
+        assertThat(decoded.getPixel(x, y)).isEqualTo(expected.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void drawViewHierarchy_shouldRenderEachChildAtItsPosition() {
+    Java2DRendering.setEnabled(true);
+    View root = createViewHierarchy(ApplicationProvider.getApplicationContext());
+    Bitmap frame = Bitmap.createBitmap(200, 300, Bitmap.Config.ARGB_8888);
+
+    root.draw(new Canvas(frame));
+
+    assertThat(frame.getPixel(100, 50)).isEqualTo(Color.RED);
+    assertThat(frame.getPixel(100, 150)).isEqualTo(Color.GREEN);
+    assertThat(frame.getPixel(100, 250)).isEqualTo(Color.BLUE);
+  }
+
+  @Test
+  public void drawViewHierarchy_shouldRenderTheSameFrameWhenRedrawn() {
+    Java2DRendering.setEnabled(true);
+    View root = createViewHierarchy(ApplicationProvider.getApplicationContext());
+    Bitmap frame = Bitmap.createBitmap(200, 300, Bitmap.Config.ARGB_8888);
+    Canvas frameCanvas = new Canvas(frame);
+
+    root.draw(frameCanvas);
+    root.draw(frameCanvas);
+
+    assertThat(frameCanvas.getSaveCount()).isEqualTo(1);
+    assertThat(frame.getPixel(100, 50)).isEqualTo(Color.RED);
+    assertThat(frame.getPixel(100, 250)).isEqualTo(Color.BLUE);
+  }
+
+  private static View createViewHierarchy(Context context) {
+    LinearLayout root = new LinearLayout(context);
+    root.setOrientation(LinearLayout.VERTICAL);
+    for (int color : new int[] {Color.RED, Color.GREEN, Color.BLUE}) {
+      root.addView(new SwatchView(context, color), new LinearLayout.LayoutParams(200, 100));
+    }
+    root.measure(
+        MeasureSpec.makeMeasureSpec(200, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(300, MeasureSpec.EXACTLY));
+    root.layout(0, 0, 200, 300);
+    return root;
+  }
+
+  private InputStream openResource(String name) {
+    return getClass().getClassLoader().getResourceAsStream(name);
+  }
+
+  /** A view that fills itself with a color and draws a label and an outline. */
+  private static class SwatchView extends View {
+    private final Paint fill = new Paint();
+    private final Paint outline = new Paint();
+    private final Paint text = new Paint();
+
+    SwatchView(Context context, int color) {
+      super(context);
+      fill.setColor(color);
+      fill.setStyle(Paint.Style.FILL);
+      outline.setColor(Color.BLACK);
+      outline.setStyle(Paint.Style.STROKE);
+      text.setColor(Color.WHITE);
+      text.setTextSize(12);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+      canvas.drawRect(0, 0, getWidth(), getHeight(), fill);
+      canvas.drawRect(0, 0, getWidth() - 1, getHeight() - 1, outline);
+      canvas.drawText("swatch", 4, 16, text);
+    }
+  }
+}
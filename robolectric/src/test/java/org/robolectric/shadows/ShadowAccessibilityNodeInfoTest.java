@@ -3,22 +3,29 @@ package org.robolectric.shadows;
 import static android.os.Build.VERSION_CODES.KITKAT;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 import static org.robolectric.Shadows.shadowOf;
 
+import android.content.Context;
 import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityNodeInfo.AccessibilityAction;
 import android.view.accessibility.AccessibilityWindowInfo;
+import android.widget.LinearLayout;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
+import org.robolectric.util.PerfStatsCollector;
 
 @RunWith(AndroidJUnit4.class)
 public class ShadowAccessibilityNodeInfoTest {
@@ -67,6 +74,30 @@ public class ShadowAccessibilityNodeInfoTest {
     node.setContentDescription(null);
   }
 
+  @Test
+  public void shouldReadFromParcelAfterWrittenNodeIsNoLongerReferenced() {
+    Parcel p = Parcel.obtain();
+    AccessibilityNodeInfo written = AccessibilityNodeInfo.obtain();
+    written.setContentDescription("parceled");
+    written.writeToParcel(p, 0);
+    written = null;
+    System.gc();
+
+    p.setDataPosition(0);
+    AccessibilityNodeInfo readNode = AccessibilityNodeInfo.CREATOR.createFromParcel(p);
+    assertThat(readNode.getContentDescription().toString()).isEqualTo("parceled");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotReadRecycledNodeFromParcel() {
+    Parcel p = Parcel.obtain();
+    node.writeToParcel(p, 0);
+    node.recycle();
+
+    p.setDataPosition(0);
+    AccessibilityNodeInfo.CREATOR.createFromParcel(p);
+  }
+
   @Test
   public void shouldNotHaveInfiniteLoopWithSameLoopedChildren() {
     node = AccessibilityNodeInfo.obtain();
@@ -210,6 +241,76 @@ public class ShadowAccessibilityNodeInfoTest {
     assertThat(nodeCopy.getExtras().getString("key")).isEqualTo("value");
   }
 
+  @Test
+  public void recycle_shouldThrowWhenRecycledTwice() {
+    node.recycle();
+    assertThat(ShadowAccessibilityNodeInfo.areThereUnrecycledNodes(false)).isFalse();
+
+    try {
+      node.recycle();
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void recycle_shouldStopTrackingSampledNodes() {
+    ShadowAccessibilityNodeInfo.setObtainStackTraceSampleRate(1);
+    AccessibilityNodeInfo sampledNode = AccessibilityNodeInfo.obtain(node);
+    assertThat(ShadowAccessibilityNodeInfo.areThereUnrecycledNodes(true)).isTrue();
+
+    sampledNode.recycle();
+    node.recycle();
+    assertThat(ShadowAccessibilityNodeInfo.areThereUnrecycledNodes(false)).isFalse();
+  }
+
+  /**
+   * Obtains and recycles a node for every view of a 2,000 view hierarchy; the "obtain and recycle
+   * nodes" metric reported by {@link PerfStatsCollector} gives the cost of leak tracking.
+   */
+  @Test
+  public void obtainAndRecycle_largeHierarchy() {
+    node.recycle();
+    Context context = ApplicationProvider.getApplicationContext();
+    ViewGroup root = new LinearLayout(context);
+    for (int i = 0; i < 40; i++) {
+      ViewGroup group = new LinearLayout(context);
+      for (int j = 0; j < 49; j++) {
+        group.addView(new View(context));
+      }
+      root.addView(group);
+    }
+    List<View> views = new ArrayList<>();
+    collectViews(root, views);
+    assertThat(views.size()).isAtLeast(2000);
+
+    PerfStatsCollector.getInstance()
+        .measure(
+            "obtain and recycle nodes",
+            () -> {
+              List<AccessibilityNodeInfo> nodes = new ArrayList<>(views.size());
+              for (View view : views) {
+                nodes.add(AccessibilityNodeInfo.obtain(view));
+              }
+              for (AccessibilityNodeInfo obtained : nodes) {
+                obtained.recycle();
+              }
+            });
+
+    assertThat(ShadowAccessibilityNodeInfo.areThereUnrecycledNodes(false)).isFalse();
+  }
+
+  private static void collectViews(View view, List<View> views) {
+    views.add(view);
+    if (view instanceof ViewGroup) {
+      ViewGroup group = (ViewGroup) view;
+      for (int i = 0; i < group.getChildCount(); i++) {
+        collectViews(group.getChildAt(i), views);
+      }
+    }
+  }
+
   @After
   public void tearDown() {
     ShadowAccessibilityNodeInfo.resetObtainedInstances();
@@ -243,6 +243,76 @@ public class ShadowBitmapFactoryTest {
     assertEquals(107, bitmap.getHeight());
   }
 
+  @Test
+  public void decodeStream_shouldGetWidthAndHeightFromActualPngAndGifImages() {
+    Bitmap png =
+        BitmapFactory.decodeStream(
+            getClass().getClassLoader().getResourceAsStream("res/drawable/an_image.png"));
+    assertEquals(64, png.getWidth());
+    assertEquals(53, png.getHeight());
+
+    Bitmap gif =
+        BitmapFactory.decodeStream(
+            getClass().getClassLoader().getResourceAsStream("res/drawable/an_other_image.gif"));
+    assertEquals(32, gif.getWidth());
+    assertEquals(18, gif.getHeight());
+  }
+
+  @Test
+  public void decodeByteArray_shouldGetWidthAndHeightFromLossyWebpHeader() {
+    byte[] data =
+        bytes(
+            'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', ' ', 0, 0, 0, 0,
+            0, 0, 0, 0x9D, 0x01, 0x2A, 0x2C, 0x01, 0xC8, 0x00);
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    assertEquals(300, bitmap.getWidth());
+    assertEquals(200, bitmap.getHeight());
+  }
+
+  @Test
+  public void decodeByteArray_shouldGetWidthAndHeightFromLosslessWebpHeader() {
+    // 14-bit (width - 1) = 299 followed by 14-bit (height - 1) = 199.
+    int bits = 299 | (199 << 14);
+    byte[] data =
+        bytes(
+            'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', 'L', 0, 0, 0, 0,
+            0x2F, bits & 0xFF, (bits >> 8) & 0xFF, (bits >> 16) & 0xFF, (bits >> 24) & 0xFF, 0, 0,
+            0, 0, 0);
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    assertEquals(300, bitmap.getWidth());
+    assertEquals(200, bitmap.getHeight());
+  }
+
+  @Test
+  public void decodeByteArray_shouldGetWidthAndHeightFromExtendedWebpHeader() {
+    byte[] data =
+        bytes(
+            'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', 'X', 0, 0, 0, 0,
+            0, 0, 0, 0, 0x2B, 0x01, 0x00, 0xC7, 0x00, 0x00);
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    assertEquals(300, bitmap.getWidth());
+    assertEquals(200, bitmap.getHeight());
+  }
+
+  @Test
+  public void decodeByteArray_shouldGetWidthAndHeightFromBmpHeader() {
+    byte[] data =
+        bytes(
+            'B', 'M', 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 40, 0, 0, 0, 0x2C, 0x01, 0, 0, 0x38, 0xFF,
+            0xFF, 0xFF);
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+    assertEquals(300, bitmap.getWidth());
+    assertEquals(200, bitmap.getHeight());
+  }
+
+  @Test
+  public void decodeResource_shouldReturnSameSizeWhenDecodedRepeatedly() {
+    Bitmap first = BitmapFactory.decodeResource(context.getResources(), R.drawable.an_image);
+    Bitmap second = BitmapFactory.decodeResource(context.getResources(), R.drawable.an_image);
+    assertEquals(first.getWidth(), second.getWidth());
+    assertEquals(first.getHeight(), second.getHeight());
+  }
+
   @Test
   public void decodeStream_shouldGetCorrectMimeTypeFromJpegImage() throws Exception {
     InputStream inputStream =
@@ -322,4 +392,12 @@ public class ShadowBitmapFactoryTest {
     assertThat(bitmap.getWidth()).isEqualTo(100);
     assertThat(bitmap.getHeight()).isEqualTo(100);
   }
+
+  private static byte[] bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
 }
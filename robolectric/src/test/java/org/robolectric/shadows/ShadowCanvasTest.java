@@ -496,4 +496,19 @@ public class ShadowCanvasTest {
     assertThat(roundRectPaintHistoryEvent.rect).isEqualTo(rect0);
     assertThat(roundRectPaintHistoryEvent.paint.getColor()).isEqualTo(Color.WHITE);
   }
+
+  @Test
+  public void getSaveCount_shouldCountSaves() {
+    Canvas canvas = new Canvas(targetBitmap);
+    assertThat(canvas.getSaveCount()).isEqualTo(1);
+
+    assertThat(canvas.save()).isEqualTo(1);
+    assertThat(canvas.save()).isEqualTo(2);
+    assertThat(canvas.getSaveCount()).isEqualTo(3);
+
+    canvas.restore();
+    assertThat(canvas.getSaveCount()).isEqualTo(2);
+    canvas.restoreToCount(1);
+    assertThat(canvas.getSaveCount()).isEqualTo(1);
+  }
 }
@@ -800,6 +800,24 @@ public class ShadowContentResolverTest {
     assertThat(scr.getContentObservers(EXTERNAL_CONTENT_URI)).isEmpty();
   }
 
+  @Test
+  public void shouldMatchContentObserversRegisteredAfterOthersWereUnregistered() {
+    TestContentObserver co1 = new TestContentObserver(null);
+    TestContentObserver co2 = new TestContentObserver(null);
+    ShadowContentResolver scr = shadowOf(contentResolver);
+    Uri parent = Uri.parse("content://" + AUTHORITY + "/a");
+    Uri child = Uri.parse("content://" + AUTHORITY + "/a/b/c");
+    contentResolver.registerContentObserver(child, false, co1);
+    contentResolver.unregisterContentObserver(co1);
+
+    contentResolver.registerContentObserver(parent, true, co2);
+
+    assertThat(scr.getContentObservers(child)).containsExactly(co2);
+    assertThat(scr.getContentObservers(parent)).containsExactly(co2);
+    contentResolver.unregisterContentObserver(co2);
+    assertThat(scr.getContentObservers(child)).isEmpty();
+  }
+
   @Test
   public void shouldUnregisterContentObservers() {
     TestContentObserver co = new TestContentObserver(null);
@@ -841,6 +859,56 @@ public class ShadowContentResolverTest {
     assertThat(co2.changed).isFalse();
   }
 
+  @Test
+  public void shouldNotNotifySiblingContentObservers() {
+    TestContentObserver co1 = new TestContentObserver(null);
+    TestContentObserver co2 = new TestContentObserver(null);
+    Uri parentUri = Uri.parse("content://" + AUTHORITY + "/parent");
+
+    contentResolver.registerContentObserver(
+        parentUri.buildUpon().appendPath("a").build(), true, co1);
+    contentResolver.registerContentObserver(
+        Uri.parse("content://other.authority/parent/b"), true, co2);
+
+    contentResolver.notifyChange(parentUri.buildUpon().appendPath("b").build(), null);
+    assertThat(co1.changed).isFalse();
+    assertThat(co2.changed).isFalse();
+  }
+
+  @Test
+  public void getContentObservers_shouldReturnMatchingObserversInRegistrationOrder() {
+    TestContentObserver co1 = new TestContentObserver(null);
+    TestContentObserver co2 = new TestContentObserver(null);
+    TestContentObserver co3 = new TestContentObserver(null);
+    Uri childUri = EXTERNAL_CONTENT_URI.buildUpon().appendPath("path").build();
+
+    contentResolver.registerContentObserver(childUri, false, co1);
+    contentResolver.registerContentObserver(EXTERNAL_CONTENT_URI, true, co2);
+    contentResolver.registerContentObserver(childUri, true, co3);
+
+    assertThat(shadowContentResolver.getContentObservers(childUri))
+        .containsExactly(co1, co2, co3)
+        .inOrder();
+
+    contentResolver.unregisterContentObserver(co2);
+    assertThat(shadowContentResolver.getContentObservers(childUri))
+        .containsExactly(co1, co3)
+        .inOrder();
+  }
+
+  @Test
+  public void getNotifyChangeCount_shouldCountNotificationsPerAuthority() {
+    assertThat(shadowContentResolver.getNotifyChangeCount(AUTHORITY)).isEqualTo(0);
+
+    contentResolver.notifyChange(Uri.parse("content://" + AUTHORITY + "/a"), null);
+    contentResolver.notifyChange(Uri.parse("content://" + AUTHORITY + "/b"), null);
+    contentResolver.notifyChange(EXTERNAL_CONTENT_URI, null);
+
+    assertThat(shadowContentResolver.getNotifyChangeCount(AUTHORITY)).isEqualTo(2);
+    assertThat(shadowContentResolver.getNotifyChangeCount(EXTERNAL_CONTENT_URI.getAuthority()))
+        .isEqualTo(1);
+  }
+
   @Test
   public void getProvider_shouldCreateProviderFromManifest() throws Exception {
     Uri uri = Uri.parse("content://org.robolectric.authority1/shadows");
@@ -856,6 +924,14 @@ public class ShadowContentResolverTest {
     provider.getIContentProvider().getType(uri); // should not throw
   }
 
+  @Test
+  public void getProvider_shouldNotCreateProviderFromManifestWhenNullProviderRegistered() {
+    ShadowContentResolver.registerProviderInternal("org.robolectric.authority1", null);
+
+    Uri uri = Uri.parse("content://org.robolectric.authority1/shadows");
+    assertThat(ShadowContentResolver.getProvider(uri)).isNull();
+  }
+
   @Test
   @Config(manifest = NONE)
   public void getProvider_shouldNotReturnAnyProviderWhenManifestIsNull() {
@@ -594,6 +594,59 @@ public class ShadowContextWrapperTest {
     assertThat(sticker).isNotNull();
   }
 
+  @Test
+  public void registerReceiver_shouldDeliverStickyIntentsInTheOrderTheyWereSent() {
+    contextWrapper.sendStickyBroadcast(new Intent("foo"));
+    contextWrapper.sendStickyBroadcast(new Intent("bar"));
+    contextWrapper.sendStickyBroadcast(new Intent("baz"));
+
+    BroadcastReceiver receiver = broadcastReceiver("Larry");
+    Intent sticker = contextWrapper.registerReceiver(receiver, intentFilter("baz", "foo"));
+
+    asyncAssertThat(transcript).containsExactly("Larry notified of foo", "Larry notified of baz");
+    assertThat(sticker.getAction()).isEqualTo("foo");
+  }
+
+  @Test
+  public void sendBroadcast_shouldOnlyDeliverToReceiversForTheAction_inRegistrationOrder() {
+    contextWrapper.registerReceiver(broadcastReceiver("Larry"), intentFilter("foo"));
+    IntentFilter filterWithoutActions = new IntentFilter();
+    contextWrapper.registerReceiver(broadcastReceiver("Curly"), filterWithoutActions);
+    contextWrapper.registerReceiver(broadcastReceiver("Moe"), intentFilter("foo", "baz"));
+    for (int i = 0; i < 100; i++) {
+      contextWrapper.registerReceiver(broadcastReceiver("Other" + i), intentFilter("other" + i));
+    }
+    filterWithoutActions.addAction("foo");
+
+    contextWrapper.sendBroadcast(new Intent("foo"));
+
+    asyncAssertThat(transcript)
+        .containsExactly("Larry notified of foo", "Curly notified of foo", "Moe notified of foo")
+        .inOrder();
+  }
+
+  @Test
+  public void getBroadcastDispatchCount_shouldCountDeliveriesPerAction() {
+    BroadcastReceiver larry = broadcastReceiver("Larry");
+    contextWrapper.registerReceiver(larry, intentFilter("foo", "baz"));
+    contextWrapper.registerReceiver(broadcastReceiver("Curly"), intentFilter("foo"));
+
+    contextWrapper.sendBroadcast(new Intent("foo"));
+    contextWrapper.sendBroadcast(new Intent("baz"));
+    contextWrapper.unregisterReceiver(larry);
+    contextWrapper.sendBroadcast(new Intent("foo"));
+    contextWrapper.sendBroadcast(new Intent("baz"));
+
+    ShadowContextWrapper shadow = shadowOf(contextWrapper);
+    assertThat(shadow.getBroadcastDispatchCount("foo")).isEqualTo(3);
+    assertThat(shadow.getBroadcastDispatchCount("baz")).isEqualTo(1);
+    assertThat(shadow.getBroadcastDispatchCount("womp")).isEqualTo(0);
+
+    shadow.clearBroadcastIntents();
+
+    assertThat(shadow.getBroadcastDispatchCount("foo")).isEqualTo(0);
+  }
+
   @Test
   public void shouldReturnSameApplicationEveryTime() throws Exception {
     Activity activity = new Activity();
@@ -13,6 +13,7 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.google.common.collect.Iterables;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 import org.junit.Test;
@@ -206,6 +207,90 @@ public class ShadowLogTest {
     assertUniformLogsForTag("tag3", 1);
   }
 
+  @Test
+  public void ringBufferCaptureMode_shouldKeepMostRecentEntriesPerTag() {
+    ShadowLog.setCaptureMode(ShadowLog.CaptureMode.RING_BUFFER, 2);
+    Log.d("tag1", "1");
+    Log.i("tag2", "2");
+    Log.e("tag1", "3");
+    Log.w("tag1", "4");
+    Log.i("tag2", "5");
+    Log.d("tag2", "6");
+
+    assertThat(messages(ShadowLog.getLogsForTag("tag1"))).containsExactly("3", "4").inOrder();
+    assertThat(messages(ShadowLog.getLogsForTag("tag2"))).containsExactly("5", "6").inOrder();
+    assertThat(messages(ShadowLog.getLogs())).containsExactly("3", "4", "5", "6").inOrder();
+  }
+
+  @Test
+  public void offCaptureMode_shouldNotRetainEntries() {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.stream = new PrintStream(bos);
+      ShadowLog.setCaptureMode(ShadowLog.CaptureMode.OFF);
+
+      Log.d("tag", "msg");
+
+      assertThat(ShadowLog.getLogs()).isEmpty();
+      assertThat(ShadowLog.getLogsForTag("tag")).isEmpty();
+      assertThat(new String(bos.toByteArray(), UTF_8))
+          .isEqualTo("D/tag: msg" + System.getProperty("line.separator"));
+    } finally {
+      ShadowLog.stream = old;
+    }
+  }
+
+  @Test
+  public void asyncStreamWriting_shouldWriteEntriesInOrderWhenFlushed() {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.stream = new PrintStream(bos);
+      ShadowLog.setAsyncStreamWriting(true);
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 5000; i++) {
+        Log.i("tag", "msg " + i);
+        expected.append("I/tag: msg ").append(i).append(System.getProperty("line.separator"));
+      }
+
+      ShadowLog.flushStream();
+
+      assertThat(new String(bos.toByteArray(), UTF_8)).isEqualTo(expected.toString());
+      assertThat(ShadowLog.getLogsForTag("tag")).hasSize(5000);
+    } finally {
+      ShadowLog.setAsyncStreamWriting(false);
+      ShadowLog.stream = old;
+    }
+  }
+
+  @Test
+  public void reset_shouldRestoreSynchronousStreamWriting() {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.stream = new PrintStream(bos);
+      ShadowLog.setAsyncStreamWriting(true);
+
+      ShadowLog.reset();
+      Log.i("tag", "msg");
+
+      assertThat(new String(bos.toByteArray(), UTF_8))
+          .isEqualTo("I/tag: msg" + System.getProperty("line.separator"));
+    } finally {
+      ShadowLog.setAsyncStreamWriting(false);
+      ShadowLog.stream = old;
+    }
+  }
+
+  private static List<String> messages(List<LogItem> items) {
+    List<String> messages = new ArrayList<>();
+    for (LogItem item : items) {
+      messages.add(item.msg);
+    }
+    return messages;
+  }
+
   private static void assertUniformLogsForTag(String tag, int count) {
     List<LogItem> tag1Items = ShadowLog.getLogsForTag(tag);
     assertThat(tag1Items.size()).isEqualTo(count);
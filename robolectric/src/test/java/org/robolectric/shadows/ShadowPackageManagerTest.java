@@ -1051,6 +1051,80 @@ public class ShadowPackageManagerTest {
     assertThat(intent.resolveActivity(packageManager)).isNull();
   }
 
+  @Test
+  public void clearIntentFilterForComponent_shouldStopResolvingComponent() throws Exception {
+    ComponentName testComponent = new ComponentName("package", "name");
+    IntentFilter intentFilter = new IntentFilter("ACTION");
+    intentFilter.addCategory(Intent.CATEGORY_DEFAULT);
+    shadowOf(packageManager).addActivityIfNotPresent(testComponent);
+    shadowOf(packageManager).addIntentFilterForActivity(testComponent, intentFilter);
+    Intent intent = new Intent("ACTION");
+    assertThat(intent.resolveActivity(packageManager)).isEqualTo(testComponent);
+
+    shadowOf(packageManager).clearIntentFilterForActivity(testComponent);
+
+    assertThat(intent.resolveActivity(packageManager)).isNull();
+  }
+
+  @Test
+  public void removeActivity_shouldStopResolvingComponent() throws Exception {
+    ComponentName testComponent = new ComponentName("package", "name");
+    shadowOf(packageManager).addActivityIfNotPresent(testComponent);
+    shadowOf(packageManager).addIntentFilterForActivity(testComponent, new IntentFilter("ACTION"));
+    Intent intent = new Intent("ACTION");
+    assertThat(packageManager.queryIntentActivities(intent, 0)).hasSize(1);
+
+    shadowOf(packageManager).removeActivity(testComponent);
+
+    assertThat(packageManager.queryIntentActivities(intent, 0)).isEmpty();
+  }
+
+  @Test
+  public void deletePackage_shouldStopResolvingItsComponents() throws Exception {
+    ComponentName testComponent = new ComponentName("package", "name");
+    shadowOf(packageManager).addActivityIfNotPresent(testComponent);
+    shadowOf(packageManager).addIntentFilterForActivity(testComponent, new IntentFilter("ACTION"));
+
+    shadowOf(packageManager).deletePackage("package");
+
+    assertThat(packageManager.queryIntentActivities(new Intent("ACTION"), 0)).isEmpty();
+  }
+
+  @Test
+  public void queryIntentActivities_shouldOnlyReturnComponentsMatchingAction() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      ComponentName component = new ComponentName("package", "name" + i);
+      shadowOf(packageManager).addActivityIfNotPresent(component);
+      shadowOf(packageManager)
+          .addIntentFilterForActivity(component, new IntentFilter("ACTION" + (i % 10)));
+    }
+
+    List<ResolveInfo> resolveInfos =
+        packageManager.queryIntentActivities(new Intent("ACTION3").setPackage("package"), 0);
+
+    assertThat(resolveInfos).hasSize(10);
+    for (ResolveInfo resolveInfo : resolveInfos) {
+      assertThat(Integer.parseInt(resolveInfo.activityInfo.name.substring("name".length())) % 10)
+          .isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void addIntentFilterForActivity_shouldNotSeeChangesToFilterAfterRegistration()
+      throws Exception {
+    ComponentName testComponent = new ComponentName("package", "name");
+    IntentFilter intentFilter = new IntentFilter("ACTION");
+    shadowOf(packageManager).addActivityIfNotPresent(testComponent);
+    shadowOf(packageManager).addIntentFilterForActivity(testComponent, intentFilter);
+
+    intentFilter.addAction("OTHER_ACTION");
+    shadowOf(packageManager).getIntentFiltersForActivity(testComponent).get(0).addAction("THIRD");
+
+    assertThat(packageManager.queryIntentActivities(new Intent("ACTION"), 0)).hasSize(1);
+    assertThat(packageManager.queryIntentActivities(new Intent("OTHER_ACTION"), 0)).isEmpty();
+    assertThat(packageManager.queryIntentActivities(new Intent("THIRD"), 0)).isEmpty();
+  }
+
   @Test
   public void resolveActivity_NoMatch() throws Exception {
     Intent i = new Intent();
@@ -0,0 +1,126 @@
+package org.robolectric.internal.bytecode;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A bounded, JVM-wide index of the access flags, superclass and interfaces of classes read from
+ * jars, which is all {@link InstrumentingClassWriter} needs to know about a class to compute stack
+ * map frames.
+ *
+ * <p>Entries are keyed by jar and class name, so sandboxes loading classes from the same jar (e.g.
+ * the same android-all jar) share them rather than each reading and parsing the classes again.
+ * Jars are assumed not to change while the JVM is running.
+ *
+ * <p>Class and interface names are interned, so an entry costs around 100 bytes, where the
+ * {@link org.objectweb.asm.tree.ClassNode} previously retained per sandbox for the same purpose
+ * cost several kilobytes for a typical Android framework class.
+ */
+final class ClassHierarchyIndex {
+  private static final int MAX_SIZE = 100_000;
+  private static final ClassHierarchyIndex INSTANCE = new ClassHierarchyIndex(MAX_SIZE);
+
+  private final Map<Key, TypeInfo> typeInfos;
+
+  ClassHierarchyIndex(int maxSize) {
+    typeInfos =
+        Collections.synchronizedMap(
+            new LinkedHashMap<Key, TypeInfo>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<Key, TypeInfo> eldest) {
+                return size() > maxSize;
+              }
+            });
+  }
+
+  static ClassHierarchyIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the jar containing the resource at the given URL, or null if the resource isn't in a
+   * jar.
+   */
+  static String jarOf(URL url) {
+    if (url == null || !"jar".equals(url.getProtocol())) {
+      return null;
+    }
+    String file = url.getFile();
+    int separator = file.indexOf("!/");
+    return separator == -1 ? null : file.substring(0, separator);
+  }
+
+  TypeInfo get(String jar, String internalClassName) {
+    return typeInfos.get(new Key(jar, internalClassName));
+  }
+
+  void put(String jar, String internalClassName, TypeInfo typeInfo) {
+    typeInfos.put(new Key(jar.intern(), internalClassName.intern()), typeInfo);
+  }
+
+  int size() {
+    return typeInfos.size();
+  }
+
+  /** The access flags, superclass and interfaces of a class. */
+  static final class TypeInfo {
+    final int access;
+    final String superName;
+    final String[] interfaces;
+
+    private TypeInfo(int access, String superName, String[] interfaces) {
+      this.access = access;
+      this.superName = superName;
+      this.interfaces = interfaces;
+    }
+
+    /** Reads the header of the given class file, without parsing the rest of it. */
+    static TypeInfo read(byte[] classBytes) {
+      ClassReader classReader = new ClassReader(classBytes);
+      String superName = classReader.getSuperName();
+      String[] interfaces = classReader.getInterfaces();
+      for (int i = 0; i < interfaces.length; i++) {
+        interfaces[i] = interfaces[i].intern();
+      }
+      return new TypeInfo(
+          classReader.getAccess(),
+          superName == null ? null : superName.intern(),
+          interfaces);
+    }
+
+    boolean isInterface() {
+      return (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+  }
+
+  private static final class Key {
+    private final String jar;
+    private final String internalClassName;
+
+    Key(String jar, String internalClassName) {
+      this.jar = jar;
+      this.internalClassName = internalClassName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return jar.equals(key.jar) && internalClassName.equals(key.internalClassName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * jar.hashCode() + internalClassName.hashCode();
+    }
+  }
+}
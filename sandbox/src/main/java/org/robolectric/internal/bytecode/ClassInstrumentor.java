@@ -2,9 +2,15 @@ package org.robolectric.internal.bytecode;
 
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
@@ -22,8 +28,13 @@ import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.tree.VarInsnNode;
 
@@ -64,11 +75,18 @@ public abstract class ClassInstrumentor {
     return new MutableClass(classNode, config, classNodeProvider);
   }
 
+  /**
+   * Instruments the class and writes it out.
+   *
+   * Stack map frames are only computed for methods whose frames are missing or were invalidated
+   * during instrumentation. Other methods keep the frames they were compiled with, and generated
+   * methods the frames emitted along with their code, which saves most of the cost of writing the
+   * class.
+   */
   byte[] instrumentToBytes(MutableClass mutableClass) {
     instrument(mutableClass);
 
     ClassNode classNode = mutableClass.classNode;
-    ClassWriter writer = new InstrumentingClassWriter(mutableClass.classNodeProvider, classNode);
     Remapper remapper =
         new Remapper() {
           @Override
@@ -76,11 +94,153 @@ public abstract class ClassInstrumentor {
             return mutableClass.config.mappedTypeName(internalName);
           }
         };
-    ClassRemapper visitor = new ClassRemapper(writer, remapper);
-    classNode.accept(visitor);
+
+    // V50 and earlier bytecode has no stack map frames to preserve, and ASM's frame computation
+    // doesn't support the JSR and RET instructions found in legacy bytecode
+    Map<String, MethodNode> framedMethods =
+        classNode.version >= Opcodes.V1_7
+            ? computeFrames(mutableClass, remapper)
+            : Collections.emptyMap();
+
+    ClassWriter writer =
+        new InstrumentingClassWriter(mutableClass.classNodeProvider, ClassWriter.COMPUTE_MAXS);
+    ClassVisitor framedMethodsReplacer =
+        new ClassVisitor(Opcodes.ASM7, writer) {
+          @Override
+          public MethodVisitor visitMethod(
+              int access, String name, String desc, String signature, String[] exceptions) {
+            MethodNode framedMethod = framedMethods.get(name + desc);
+            if (framedMethod != null) {
+              framedMethod.accept(cv);
+              return null;
+            }
+            return super.visitMethod(access, name, desc, signature, exceptions);
+          }
+        };
+    classNode.accept(new ClassRemapper(framedMethodsReplacer, remapper));
     return writer.toByteArray();
   }
 
+  /**
+   * Computes stack map frames for the methods of the class whose frames are missing or stale.
+   *
+   * @return the remapped methods with computed frames, keyed by name and descriptor
+   */
+  private Map<String, MethodNode> computeFrames(MutableClass mutableClass, Remapper remapper) {
+    ClassNode classNode = mutableClass.classNode;
+    ClassNode needingFrames = new ClassNode(Opcodes.ASM7);
+    needingFrames.version = classNode.version;
+    needingFrames.access = classNode.access;
+    needingFrames.name = classNode.name;
+    needingFrames.superName = classNode.superName;
+    needingFrames.interfaces = classNode.interfaces;
+    for (MethodNode method : classNode.methods) {
+      if ((mutableClass.hasStaleFrames(method) && requiresFrames(method))
+          || !hasFramesWhereRequired(method)) {
+        needingFrames.methods.add(method);
+      }
+    }
+    if (needingFrames.methods.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    ClassWriter frameWriter =
+        new InstrumentingClassWriter(mutableClass.classNodeProvider, ClassWriter.COMPUTE_FRAMES);
+    needingFrames.accept(new ClassRemapper(frameWriter, remapper));
+
+    ClassNode framed = new ClassNode(Opcodes.ASM7);
+    new ClassReader(frameWriter.toByteArray()).accept(framed, 0);
+    Map<String, MethodNode> framedMethods = new HashMap<>();
+    for (MethodNode method : framed.methods) {
+      framedMethods.put(method.name + method.desc, method);
+    }
+    return framedMethods;
+  }
+
+  /**
+   * Returns true if the method contains branches, exception handlers or unreachable code, for which
+   * the verifier expects stack map frames.
+   */
+  private static boolean requiresFrames(MethodNode method) {
+    if (!method.tryCatchBlocks.isEmpty()) {
+      return true;
+    }
+    boolean afterUnconditionalExit = false;
+    for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null;
+        insn = insn.getNext()) {
+      int opcode = insn.getOpcode();
+      if (opcode < 0) {
+        continue;
+      }
+      if (afterUnconditionalExit) {
+        return true;
+      }
+      switch (insn.getType()) {
+        case AbstractInsnNode.JUMP_INSN:
+        case AbstractInsnNode.TABLESWITCH_INSN:
+        case AbstractInsnNode.LOOKUPSWITCH_INSN:
+          return true;
+        default:
+          afterUnconditionalExit =
+              opcode == Opcodes.ATHROW || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if the method has a stack map frame at every branch target, exception handler and
+   * instruction following an unconditional jump, as is the case for methods read from class files
+   * with frames and for methods generated with {@link RobolectricGeneratorAdapter#frame}.
+   */
+  private static boolean hasFramesWhereRequired(MethodNode method) {
+    Set<LabelNode> targets = new HashSet<>();
+    for (TryCatchBlockNode tryCatchBlock : method.tryCatchBlocks) {
+      targets.add(tryCatchBlock.handler);
+    }
+    for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null;
+        insn = insn.getNext()) {
+      if (insn instanceof JumpInsnNode) {
+        targets.add(((JumpInsnNode) insn).label);
+      } else if (insn instanceof TableSwitchInsnNode) {
+        targets.add(((TableSwitchInsnNode) insn).dflt);
+        targets.addAll(((TableSwitchInsnNode) insn).labels);
+      } else if (insn instanceof LookupSwitchInsnNode) {
+        targets.add(((LookupSwitchInsnNode) insn).dflt);
+        targets.addAll(((LookupSwitchInsnNode) insn).labels);
+      }
+    }
+
+    boolean frameRequired = false;
+    boolean frameFound = false;
+    for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null;
+        insn = insn.getNext()) {
+      switch (insn.getType()) {
+        case AbstractInsnNode.LABEL:
+          frameRequired |= targets.contains(insn);
+          break;
+        case AbstractInsnNode.FRAME:
+          frameFound = true;
+          break;
+        case AbstractInsnNode.LINE:
+          break;
+        default:
+          if (frameRequired && !frameFound) {
+            return false;
+          }
+          int opcode = insn.getOpcode();
+          frameRequired =
+              opcode == Opcodes.GOTO
+                  || opcode == Opcodes.TABLESWITCH
+                  || opcode == Opcodes.LOOKUPSWITCH
+                  || opcode == Opcodes.ATHROW
+                  || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN);
+          frameFound = false;
+      }
+    }
+    return true;
+  }
+
   public byte[] instrument(byte[] origBytes, InstrumentationConfiguration config,
       ClassNodeProvider classNodeProvider) {
     MutableClass mutableClass = analyzeClass(origBytes, config, classNodeProvider);
@@ -184,6 +344,7 @@ public abstract class ClassInstrumentor {
     // this, __robo_data__
     generator.putField(mutableClass.classType, ShadowConstants.CLASS_HANDLER_DATA_FIELD_NAME, OBJECT_TYPE);
     generator.mark(alreadyInitialized);
+    generator.frame(mutableClass.classType);
     generator.returnValue();
     mutableClass.addMethod(initMethodNode);
   }
@@ -255,6 +416,8 @@ public abstract class ClassInstrumentor {
    */
   private void instrumentConstructor(MutableClass mutableClass, MethodNode method) {
     makeMethodPrivate(method);
+    // `this` is no longer uninitialized once the call to super() has been extracted
+    mutableClass.invalidateFrames(method);
 
     if (mutableClass.containsStubs) {
       // method.instructions just throws a `stub!` exception, replace it with something anodyne...
@@ -269,6 +432,10 @@ public abstract class ClassInstrumentor {
     }
 
     InsnList callSuper = extractCallToSuperConstructor(mutableClass, method);
+    boolean callSuperHasFrames = false;
+    for (AbstractInsnNode insn = callSuper.getFirst(); insn != null; insn = insn.getNext()) {
+      callSuperHasFrames |= insn.getType() == AbstractInsnNode.FRAME;
+    }
     method.name = directMethodName(mutableClass, ShadowConstants.CONSTRUCTOR_METHOD_NAME);
     mutableClass.addMethod(redirectorMethod(mutableClass, method, ShadowConstants.CONSTRUCTOR_METHOD_NAME));
 
@@ -286,6 +453,10 @@ public abstract class ClassInstrumentor {
 
     generator.endMethod();
     mutableClass.addMethod(initMethodNode);
+    if (callSuperHasFrames) {
+      // the frames were written for the original constructor
+      mutableClass.invalidateFrames(initMethodNode);
+    }
   }
 
   private InsnList extractCallToSuperConstructor(MutableClass mutableClass, MethodNode ctor) {
@@ -372,6 +543,7 @@ public abstract class ClassInstrumentor {
    */
   protected void instrumentNativeMethod(MutableClass mutableClass, MethodNode method) {
     method.access = method.access & ~Opcodes.ACC_NATIVE;
+    mutableClass.invalidateFrames(method);
 
     RobolectricGeneratorAdapter generator = new RobolectricGeneratorAdapter(method);
     Type returnType = generator.getReturnType();
@@ -0,0 +1,229 @@
+package org.robolectric.internal.bytecode;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hashing;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.robolectric.util.Logger;
+
+/**
+ * The classes a {@link SandboxClassLoader} acquired, in the order it acquired them, whether each was
+ * instrumented or passed through, and the time spent loading, analyzing and instrumenting it.
+ *
+ * <p>Traces are recorded when the {@code robolectric.classLoadingTrace.dir} system property names
+ * a directory, or when class prefetching is on, and are written when the JVM exits, one file per
+ * SDK and instrumentation configuration. The file for a sandbox is replaced by each run. A trace
+ * left by a previous run tells {@link ClassPrefetcher} which classes to instrument ahead of demand
+ * when a sandbox is created.
+ *
+ * <p>Each line of a trace file after the header holds the flags, the load, analysis and
+ * instrumentation times in microseconds, and the name of one class, separated by tabs. The flags
+ * are {@code I} for instrumented or {@code P} for passed through, followed by {@code +} if the
+ * class was prefetched (whose analysis and instrumentation times were spent on another thread) or
+ * {@code -} if it wasn't.
+ */
+public final class ClassLoadingTrace {
+  private static final String TRACE_DIR_PROPERTY = "robolectric.classLoadingTrace.dir";
+  static final boolean ENABLED = System.getProperty(TRACE_DIR_PROPERTY) != null;
+
+  private static final File TRACE_DIR =
+      ENABLED
+          ? new File(System.getProperty(TRACE_DIR_PROPERTY))
+          : new File(new File(System.getProperty("java.io.tmpdir")), "robolectric-traces");
+  private static final String HEADER = "# robolectric class loading trace v1";
+  private static final int MAX_SIZE = 50_000;
+
+  private static final Map<File, ClassLoadingTrace> tracesToWrite = new ConcurrentHashMap<>();
+  private static final AtomicBoolean shutdownHookAdded = new AtomicBoolean();
+
+  private final String description;
+  private final List<Entry> entries = new ArrayList<>();
+
+  public ClassLoadingTrace(String description) {
+    this.description = description;
+  }
+
+  /**
+   * Starts a trace for the sandbox with the given key, which will be written when the JVM exits.
+   */
+  static ClassLoadingTrace startRecording(String sandboxKey) {
+    ClassLoadingTrace trace = new ClassLoadingTrace(sandboxKey.replace('\n', ' '));
+    tracesToWrite.put(traceFile(sandboxKey), trace);
+    if (shutdownHookAdded.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(ClassLoadingTrace::writeTraces));
+    }
+    return trace;
+  }
+
+  /**
+   * Returns the trace a previous run recorded for the sandbox with the given key, or null if there
+   * isn't one.
+   */
+  static ClassLoadingTrace readPrevious(String sandboxKey) {
+    File file = traceFile(sandboxKey);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return read(file);
+    } catch (IOException | RuntimeException e) {
+      Logger.debug("couldn't read class loading trace from %s: %s", file, e);
+      return null;
+    }
+  }
+
+  private static File traceFile(String sandboxKey) {
+    return new File(TRACE_DIR, Hashing.sha256().hashString(sandboxKey, UTF_8) + ".trace");
+  }
+
+  private static void writeTraces() {
+    for (Map.Entry<File, ClassLoadingTrace> entry : tracesToWrite.entrySet()) {
+      ClassLoadingTrace trace = entry.getValue();
+      if (trace.size() == 0) {
+        continue;
+      }
+      try {
+        trace.write(entry.getKey());
+      } catch (IOException e) {
+        Logger.debug("couldn't write class loading trace to %s: %s", entry.getKey(), e);
+      }
+    }
+  }
+
+  void record(
+      String className,
+      boolean instrumented,
+      boolean prefetched,
+      long loadNs,
+      long analyzeNs,
+      long instrumentNs) {
+    synchronized (entries) {
+      if (entries.size() < MAX_SIZE) {
+        entries.add(
+            new Entry(className, instrumented, prefetched, loadNs, analyzeNs, instrumentNs));
+      }
+    }
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /** Returns the traced classes in the order they were loaded. */
+  public List<Entry> getEntries() {
+    synchronized (entries) {
+      return new ArrayList<>(entries);
+    }
+  }
+
+  /** Returns the names of the traced classes in the order they were loaded. */
+  public List<String> getClassNames() {
+    List<String> classNames = new ArrayList<>();
+    for (Entry entry : getEntries()) {
+      classNames.add(entry.className);
+    }
+    return classNames;
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** Writes this trace to the given file, replacing it in one step. */
+  public void write(File file) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    Files.createDirectories(directory.toPath());
+    File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+    try {
+      try (Writer out = Files.newBufferedWriter(tempFile.toPath(), UTF_8)) {
+        out.write(HEADER + "\n");
+        out.write("# " + description + "\n");
+        for (Entry entry : getEntries()) {
+          out.write(entry.instrumented ? 'I' : 'P');
+          out.write(entry.prefetched ? '+' : '-');
+          out.write('\t' + Long.toString(TimeUnit.NANOSECONDS.toMicros(entry.loadNs)));
+          out.write('\t' + Long.toString(TimeUnit.NANOSECONDS.toMicros(entry.analyzeNs)));
+          out.write('\t' + Long.toString(TimeUnit.NANOSECONDS.toMicros(entry.instrumentNs)));
+          out.write('\t' + entry.className + '\n');
+        }
+      }
+      try {
+        Files.move(
+            tempFile.toPath(),
+            file.toPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  /** Reads a trace written by {@link #write(File)}. */
+  public static ClassLoadingTrace read(File file) throws IOException {
+    try (BufferedReader in = Files.newBufferedReader(file.toPath(), UTF_8)) {
+      if (!HEADER.equals(in.readLine())) {
+        throw new IOException("not a class loading trace: " + file);
+      }
+      String description = in.readLine();
+      ClassLoadingTrace trace =
+          new ClassLoadingTrace(description == null ? "" : description.substring(2));
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split("\t", 5);
+        if (fields.length != 5 || fields[0].length() != 2) {
+          throw new IOException("malformed class loading trace line in " + file + ": " + line);
+        }
+        trace.record(
+            fields[4],
+            fields[0].charAt(0) == 'I',
+            fields[0].charAt(1) == '+',
+            TimeUnit.MICROSECONDS.toNanos(Long.parseLong(fields[1])),
+            TimeUnit.MICROSECONDS.toNanos(Long.parseLong(fields[2])),
+            TimeUnit.MICROSECONDS.toNanos(Long.parseLong(fields[3])));
+      }
+      return trace;
+    }
+  }
+
+  /** A class acquired by a {@link SandboxClassLoader}. */
+  public static final class Entry {
+    public final String className;
+    public final boolean instrumented;
+    public final boolean prefetched;
+    public final long loadNs;
+    public final long analyzeNs;
+    public final long instrumentNs;
+
+    Entry(
+        String className,
+        boolean instrumented,
+        boolean prefetched,
+        long loadNs,
+        long analyzeNs,
+        long instrumentNs) {
+      this.className = className;
+      this.instrumented = instrumented;
+      this.prefetched = prefetched;
+      this.loadNs = loadNs;
+      this.analyzeNs = analyzeNs;
+      this.instrumentNs = instrumentNs;
+    }
+  }
+}
@@ -2,30 +2,51 @@ package org.robolectric.internal.bytecode;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
+import org.robolectric.internal.bytecode.ClassHierarchyIndex.TypeInfo;
 
+/**
+ * Provides the access flags, superclass and interfaces of classes, so that {@link
+ * InstrumentingClassWriter} can compute stack map frames without loading them.
+ *
+ * <p>Classes read from jars are looked up in the JVM-wide {@link ClassHierarchyIndex}, which is
+ * bounded and shared with every other provider reading the same jar. Only the classes read from
+ * elsewhere, e.g. directories, are kept by the provider itself.
+ */
 public abstract class ClassNodeProvider {
-  private final Map<String, ClassNode> classNodes = new ConcurrentHashMap<>();
+  private final Map<String, TypeInfo> typeInfos = new ConcurrentHashMap<>();
 
   protected abstract byte[] getClassBytes(String className) throws ClassNotFoundException;
 
-  ClassNode getClassNode(String internalClassName) throws ClassNotFoundException {
-    ClassNode classNode = classNodes.get(internalClassName);
-    if (classNode == null) {
-      classNode = createClassNode(internalClassName);
-      classNodes.put(internalClassName, classNode);
-    }
-    return classNode;
+  /**
+   * Returns the jar the bytes of the given class would be read from, named the way {@link
+   * ClassHierarchyIndex#jarOf} names it, or null if the class isn't read from a jar or that can't be
+   * told without scanning the class path.
+   *
+   * <p>Hierarchy information is only shared with other providers for classes read from jars.
+   */
+  protected String getClassJar(String internalClassName) {
+    return null;
   }
 
-  private ClassNode createClassNode(String internalClassName) throws ClassNotFoundException {
-    byte[] byteCode = getClassBytes(internalClassName);
-    ClassReader classReader = new ClassReader(byteCode);
-    ClassNode classNode = new ClassNode();
-    classReader.accept(classNode,
-        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-    return classNode;
-  }
+  TypeInfo getTypeInfo(String internalClassName) throws ClassNotFoundException {
+    TypeInfo typeInfo = typeInfos.get(internalClassName);
+    if (typeInfo != null) {
+      return typeInfo;
+    }
 
+    String jar = getClassJar(internalClassName);
+    if (jar == null) {
+      typeInfo = TypeInfo.read(getClassBytes(internalClassName));
+      typeInfos.put(internalClassName, typeInfo);
+      return typeInfo;
+    }
+
+    ClassHierarchyIndex index = ClassHierarchyIndex.getInstance();
+    typeInfo = index.get(jar, internalClassName);
+    if (typeInfo == null) {
+      typeInfo = TypeInfo.read(getClassBytes(internalClassName));
+      index.put(jar, internalClassName, typeInfo);
+    }
+    return typeInfo;
+  }
 }
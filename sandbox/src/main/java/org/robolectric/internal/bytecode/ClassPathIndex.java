@@ -0,0 +1,787 @@
+package org.robolectric.internal.bytecode;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
+import org.robolectric.util.Util;
+
+/**
+ * An index of the class files on a class path, which maps each class file name to the jar entry a
+ * {@link java.net.URLClassLoader} over the same class path would read it from, so that the bytes of
+ * a class can be read straight out of a memory-mapped jar rather than by scanning the class path
+ * jar by jar.
+ *
+ * <p>The index is built from the central directory of each jar, following manifest {@code
+ * Class-Path} attributes and, on Java 9 and later, the versioned entries of multi-release jars the
+ * way {@link java.net.URLClassLoader} does. It is cached on disk, keyed by the class path, and
+ * rebuilt whenever the length or modification time of one of its jars changes. Directories aren't
+ * indexed, but are still looked in when they come before the jar a class file is indexed in.
+ *
+ * <p>Class paths the index can't describe (e.g. ones with non-file URLs or zip64 jars) aren't
+ * indexed at all. Indexing can be turned off by setting the {@code
+ * robolectric.classpathindex.enable} system property to {@code false}.
+ *
+ * <p>Indexes are shared by every sandbox with the same class path, so they are kept for the life
+ * of the JVM, and so are the mappings of their jars: Java offers no way to unmap a {@link
+ * MappedByteBuffer} short of it being garbage collected. A mapped jar can't be deleted or replaced
+ * on Windows, so jars read through an index stay locked until the JVM exits. Turn indexing off if
+ * the JVM needs to rewrite jars on its own class path.
+ */
+final class ClassPathIndex {
+  private static final String ENABLE_CLASS_PATH_INDEX = "robolectric.classpathindex.enable";
+  private static final boolean ENABLED =
+      Boolean.valueOf(System.getProperty(ENABLE_CLASS_PATH_INDEX, "true"));
+
+  private static final File CACHE_DIR =
+      new File(new File(System.getProperty("java.io.tmpdir")), "robolectric-classpath-index");
+  private static final int CACHE_MAGIC = 0x52435049;
+  private static final int CACHE_FORMAT_VERSION = 1;
+
+  private static final Map<List<String>, Optional<ClassPathIndex>> INDEXES =
+      new ConcurrentHashMap<>();
+
+  private static final byte JAR = 0;
+  private static final byte DIRECTORY = 1;
+  private static final byte MISSING = 2;
+
+  private static final byte STORED = 0;
+  private static final byte DEFLATED = 8;
+  private static final byte UNREADABLE = -1;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+  private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+  private final File[] files;
+  private final byte[] kinds;
+  private final long[] lengths;
+  private final long[] lastModifieds;
+
+  // Class file entries, sorted by the hash of their name.
+  private final long[] hashes;
+  private final int[] elements;
+  private final int[] offsets;
+  private final int[] compressedSizes;
+  private final int[] sizes;
+  private final byte[] methods;
+
+  private final MappedByteBuffer[] mappedJars;
+  private final String[] jarNames;
+  private final Deque<Inflater> inflaters = new ArrayDeque<>();
+
+  private ClassPathIndex(
+      File[] files,
+      byte[] kinds,
+      long[] lengths,
+      long[] lastModifieds,
+      long[] hashes,
+      int[] elements,
+      int[] offsets,
+      int[] compressedSizes,
+      int[] sizes,
+      byte[] methods,
+      MappedByteBuffer[] mappedJars) {
+    this.files = files;
+    this.kinds = kinds;
+    this.lengths = lengths;
+    this.lastModifieds = lastModifieds;
+    this.hashes = hashes;
+    this.elements = elements;
+    this.offsets = offsets;
+    this.compressedSizes = compressedSizes;
+    this.sizes = sizes;
+    this.methods = methods;
+    this.mappedJars = mappedJars;
+    this.jarNames = new String[files.length];
+  }
+
+  /**
+   * Returns the JVM-wide index of the given class path, loading or building it if necessary, or
+   * null if the class path can't be indexed. The index, and the jars it maps, are never released.
+   */
+  static ClassPathIndex forClassPath(URL[] urls) {
+    if (!ENABLED) {
+      return null;
+    }
+    List<String> key = new ArrayList<>(urls.length);
+    for (URL url : urls) {
+      key.add(url.toExternalForm());
+    }
+    return INDEXES
+        .computeIfAbsent(
+            key,
+            k ->
+                Optional.ofNullable(
+                    PerfStatsCollector.getInstance()
+                        .measure("index class path", () -> load(urls, CACHE_DIR))))
+        .orElse(null);
+  }
+
+  /**
+   * Loads the index of the given class path from the cache directory, or builds and caches it if
+   * it isn't there or is stale. Returns null if the class path can't be indexed.
+   */
+  static ClassPathIndex load(URL[] urls, File cacheDir) {
+    File cacheFile = new File(cacheDir, cacheKey(urls) + ".idx");
+    ClassPathIndex index = readCache(cacheFile);
+    if (index != null && index.isUpToDate()) {
+      return index;
+    }
+
+    try {
+      index = new Builder().build(urls);
+    } catch (IOException e) {
+      Logger.debug("couldn't index class path: %s", e);
+      return null;
+    }
+    if (index != null) {
+      index.writeCache(cacheFile);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the bytes of the given class file, or null if it isn't in any of the indexed jars or
+   * the index can't read it, in which case it should be looked for on the class path as usual.
+   */
+  byte[] getClassBytes(String classFileName) throws IOException {
+    byte[] name = classFileName.getBytes(UTF_8);
+    int i = indexOf(name);
+    if (i == -1) {
+      return null;
+    }
+
+    File inDirectory = findInDirectoriesBefore(elements[i], classFileName);
+    if (inDirectory != null) {
+      return Files.readAllBytes(inDirectory.toPath());
+    }
+    if (methods[i] == UNREADABLE) {
+      return null;
+    }
+    MappedByteBuffer jar = mappedJar(elements[i]);
+    return read(
+        jar, dataOffset(jar, offsets[i], name), methods[i], compressedSizes[i], sizes[i], inflaters);
+  }
+
+  /**
+   * Returns the jar the given class file would be read from, named the way {@link
+   * ClassHierarchyIndex#jarOf} names it, or null if it isn't in any of the indexed jars or would be
+   * read from a directory.
+   */
+  String getJar(String classFileName) throws IOException {
+    int i = indexOf(classFileName.getBytes(UTF_8));
+    if (i == -1 || findInDirectoriesBefore(elements[i], classFileName) != null) {
+      return null;
+    }
+    return jarName(elements[i]);
+  }
+
+  /** Returns the position of the entry for the given class file name, or -1 if there is none. */
+  private int indexOf(byte[] name) throws IOException {
+    long hash = hash(name, 0, name.length);
+    int i = Arrays.binarySearch(hashes, hash);
+    if (i < 0) {
+      return -1;
+    }
+    while (i > 0 && hashes[i - 1] == hash) {
+      i--;
+    }
+
+    for (; i < hashes.length && hashes[i] == hash; i++) {
+      // skip different class files with the same hash
+      if (dataOffset(mappedJar(elements[i]), offsets[i], name) != -1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private File findInDirectoriesBefore(int element, String classFileName) {
+    for (int i = 0; i < element; i++) {
+      if (kinds[i] == DIRECTORY) {
+        File file = new File(files[i], classFileName);
+        if (file.isFile()) {
+          return file;
+        }
+      }
+    }
+    return null;
+  }
+
+  private synchronized String jarName(int element) {
+    if (jarNames[element] == null) {
+      jarNames[element] = files[element].toURI().toString().intern();
+    }
+    return jarNames[element];
+  }
+
+  private synchronized MappedByteBuffer mappedJar(int element) throws IOException {
+    if (mappedJars[element] == null) {
+      mappedJars[element] = map(files[element]);
+    }
+    return mappedJars[element];
+  }
+
+  private static byte[] read(
+      ByteBuffer jar,
+      int dataOffset,
+      byte method,
+      int compressedSize,
+      int size,
+      Deque<Inflater> inflaters)
+      throws IOException {
+    if (method == STORED) {
+      byte[] bytes = new byte[size];
+      ByteBuffer data = jar.duplicate();
+      data.position(dataOffset);
+      data.get(bytes);
+      return bytes;
+    }
+
+    // The extra byte works around the zlib "nowrap" mode sometimes needing a dummy byte of input.
+    byte[] compressed = new byte[compressedSize + 1];
+    ByteBuffer data = jar.duplicate();
+    data.position(dataOffset);
+    data.get(compressed, 0, compressedSize);
+
+    byte[] bytes = new byte[size];
+    Inflater inflater = acquireInflater(inflaters);
+    try {
+      inflater.setInput(compressed);
+      int length = 0;
+      while (length < size) {
+        int inflated = inflater.inflate(bytes, length, size - length);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new ZipException("truncated entry at " + dataOffset);
+        }
+        length += inflated;
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    } finally {
+      releaseInflater(inflaters, inflater);
+    }
+  }
+
+  private static Inflater acquireInflater(Deque<Inflater> inflaters) {
+    synchronized (inflaters) {
+      Inflater inflater = inflaters.poll();
+      return inflater == null ? new Inflater(true) : inflater;
+    }
+  }
+
+  private static void releaseInflater(Deque<Inflater> inflaters, Inflater inflater) {
+    inflater.reset();
+    synchronized (inflaters) {
+      inflaters.push(inflater);
+    }
+  }
+
+  private boolean isUpToDate() {
+    for (int i = 0; i < files.length; i++) {
+      if (kinds[i] != DIRECTORY
+          && (files[i].length() != lengths[i] || files[i].lastModified() != lastModifieds[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String cacheKey(URL[] urls) {
+    StringBuilder key = new StringBuilder().append(Util.getJavaVersion());
+    for (URL url : urls) {
+      key.append('\n').append(url.toExternalForm());
+    }
+    return Hashing.sha256().hashString(key, UTF_8).toString();
+  }
+
+  private static ClassPathIndex readCache(File cacheFile) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != CACHE_MAGIC
+          || in.readInt() != CACHE_FORMAT_VERSION
+          || in.readInt() != Util.getJavaVersion()) {
+        return null;
+      }
+
+      int elementCount = in.readInt();
+      File[] files = new File[elementCount];
+      byte[] kinds = new byte[elementCount];
+      long[] lengths = new long[elementCount];
+      long[] lastModifieds = new long[elementCount];
+      for (int i = 0; i < elementCount; i++) {
+        files[i] = new File(in.readUTF());
+        kinds[i] = in.readByte();
+        lengths[i] = in.readLong();
+        lastModifieds[i] = in.readLong();
+      }
+
+      int entryCount = in.readInt();
+      long[] hashes = new long[entryCount];
+      int[] elements = new int[entryCount];
+      int[] offsets = new int[entryCount];
+      int[] compressedSizes = new int[entryCount];
+      int[] sizes = new int[entryCount];
+      byte[] methods = new byte[entryCount];
+      for (int i = 0; i < entryCount; i++) {
+        hashes[i] = in.readLong();
+        elements[i] = in.readInt();
+        offsets[i] = in.readInt();
+        compressedSizes[i] = in.readInt();
+        sizes[i] = in.readInt();
+        methods[i] = in.readByte();
+      }
+      return new ClassPathIndex(
+          files,
+          kinds,
+          lengths,
+          lastModifieds,
+          hashes,
+          elements,
+          offsets,
+          compressedSizes,
+          sizes,
+          methods,
+          new MappedByteBuffer[elementCount]);
+    } catch (IOException e) {
+      Logger.debug("couldn't read class path index from %s: %s", cacheFile, e);
+      return null;
+    }
+  }
+
+  private void writeCache(File cacheFile) {
+    File tempFile = null;
+    try {
+      Files.createDirectories(cacheFile.getParentFile().toPath());
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(CACHE_MAGIC);
+        out.writeInt(CACHE_FORMAT_VERSION);
+        out.writeInt(Util.getJavaVersion());
+
+        out.writeInt(files.length);
+        for (int i = 0; i < files.length; i++) {
+          out.writeUTF(files[i].getPath());
+          out.writeByte(kinds[i]);
+          out.writeLong(lengths[i]);
+          out.writeLong(lastModifieds[i]);
+        }
+
+        out.writeInt(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+          out.writeLong(hashes[i]);
+          out.writeInt(elements[i]);
+          out.writeInt(offsets[i]);
+          out.writeInt(compressedSizes[i]);
+          out.writeInt(sizes[i]);
+          out.writeByte(methods[i]);
+        }
+      }
+
+      // Other JVMs may be reading or writing the same index, so replace it in one step.
+      try {
+        Files.move(
+            tempFile.toPath(),
+            cacheFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      Logger.debug("couldn't write class path index to %s: %s", cacheFile, e);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /** Maps the given jar into memory, or returns null if it's too large to be indexed. */
+  private static MappedByteBuffer map(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        FileChannel channel = randomAccessFile.getChannel()) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        return null;
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+      return mapped;
+    }
+  }
+
+  /**
+   * Returns the offset of the data of the entry whose local header is at the given offset, or -1
+   * if the entry isn't named {@code name} (or a versioned variant of it).
+   */
+  private static int dataOffset(ByteBuffer jar, int localHeaderOffset, byte[] name) {
+    if (jar.getInt(localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+      return -1;
+    }
+    int nameLength = jar.getShort(localHeaderOffset + 26) & 0xffff;
+    int extraLength = jar.getShort(localHeaderOffset + 28) & 0xffff;
+    int nameOffset = localHeaderOffset + 30;
+    if (nameLength < name.length
+        || (nameLength > name.length && !startsWith(jar, nameOffset, VERSIONS_PREFIX))) {
+      return -1;
+    }
+    int suffixOffset = nameOffset + nameLength - name.length;
+    for (int i = 0; i < name.length; i++) {
+      if (jar.get(suffixOffset + i) != name[i]) {
+        return -1;
+      }
+    }
+    return nameOffset + nameLength + extraLength;
+  }
+
+  private static boolean startsWith(ByteBuffer jar, int offset, String prefix) {
+    for (int i = 0; i < prefix.length(); i++) {
+      if (jar.get(offset + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the 64-bit FNV-1a hash of the given bytes. */
+  private static long hash(byte[] bytes, int offset, int length) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = offset; i < offset + length; i++) {
+      hash ^= bytes[i] & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /** A class file entry in a jar. */
+  private static final class JarEntry {
+    final int localHeaderOffset;
+    final int compressedSize;
+    final int size;
+    final byte method;
+
+    JarEntry(int localHeaderOffset, int compressedSize, int size, byte method) {
+      this.localHeaderOffset = localHeaderOffset;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.method = method;
+    }
+  }
+
+  /** Reads the central directories of the jars on a class path, in class path order. */
+  private static final class Builder {
+    private final int javaVersion = Util.getJavaVersion();
+    private final Set<String> openedUrls = new HashSet<>();
+    private final Set<String> indexedNames = new HashSet<>();
+    private final Deque<Inflater> inflaters = new ArrayDeque<>();
+
+    private final List<File> files = new ArrayList<>();
+    private final List<Byte> kinds = new ArrayList<>();
+    private final List<Long> lengths = new ArrayList<>();
+    private final List<Long> lastModifieds = new ArrayList<>();
+    private final List<MappedByteBuffer> mappedJars = new ArrayList<>();
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> elements = new ArrayList<>();
+    private final List<JarEntry> entries = new ArrayList<>();
+
+    ClassPathIndex build(URL[] urls) throws IOException {
+      for (URL url : urls) {
+        if (!add(url)) {
+          return null;
+        }
+      }
+
+      int count = names.size();
+      long[] unsortedHashes = new long[count];
+      Integer[] order = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        byte[] name = names.get(i).getBytes(UTF_8);
+        unsortedHashes[i] = hash(name, 0, name.length);
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(unsortedHashes[a], unsortedHashes[b]));
+
+      long[] hashes = new long[count];
+      int[] elements = new int[count];
+      int[] offsets = new int[count];
+      int[] compressedSizes = new int[count];
+      int[] sizes = new int[count];
+      byte[] methods = new byte[count];
+      for (int i = 0; i < count; i++) {
+        int j = order[i];
+        JarEntry entry = entries.get(j);
+        hashes[i] = unsortedHashes[j];
+        elements[i] = this.elements.get(j);
+        offsets[i] = entry.localHeaderOffset;
+        compressedSizes[i] = entry.compressedSize;
+        sizes[i] = entry.size;
+        methods[i] = entry.method;
+      }
+
+      long[] lengths = new long[files.size()];
+      long[] lastModifieds = new long[files.size()];
+      byte[] kinds = new byte[files.size()];
+      for (int i = 0; i < files.size(); i++) {
+        lengths[i] = this.lengths.get(i);
+        lastModifieds[i] = this.lastModifieds.get(i);
+        kinds[i] = this.kinds.get(i);
+      }
+      return new ClassPathIndex(
+          files.toArray(new File[0]),
+          kinds,
+          lengths,
+          lastModifieds,
+          hashes,
+          elements,
+          offsets,
+          compressedSizes,
+          sizes,
+          methods,
+          // reuse the mappings the central directories were read from rather than mapping again
+          mappedJars.toArray(new MappedByteBuffer[0]));
+    }
+
+    /** Adds the given class path element, or returns false if it can't be indexed. */
+    private boolean add(URL url) throws IOException {
+      if (!"file".equals(url.getProtocol())) {
+        return false;
+      }
+      if (!openedUrls.add(url.toExternalForm())) {
+        return true;
+      }
+
+      File file;
+      try {
+        file = new File(url.toURI());
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        return false;
+      }
+
+      // Like URLClassLoader, treat URLs ending with a slash as directories and anything else as a
+      // jar.
+      int element = files.size();
+      files.add(file);
+      lengths.add(file.length());
+      lastModifieds.add(file.lastModified());
+      mappedJars.add(null);
+      if (url.getFile().endsWith("/")) {
+        kinds.add(DIRECTORY);
+        return true;
+      } else if (!file.isFile()) {
+        kinds.add(MISSING);
+        return true;
+      }
+      kinds.add(JAR);
+
+      MappedByteBuffer jar = map(file);
+      mappedJars.set(element, jar);
+      return jar != null && addJar(url, element, jar);
+    }
+
+    private boolean addJar(URL url, int element, ByteBuffer jar) throws IOException {
+      int end = findEnd(jar);
+      if (end == -1
+          || (end >= 20 && jar.getInt(end - 20) == ZIP64_END_LOCATOR_SIGNATURE)
+          || jar.getShort(end + 10) == (short) 0xffff
+          || jar.getInt(end + 16) == 0xffffffff) {
+        return false;
+      }
+
+      Map<String, JarEntry> classes = new LinkedHashMap<>();
+      Map<String, JarEntry> versionedClasses = new LinkedHashMap<>();
+      Map<String, Integer> versions = new LinkedHashMap<>();
+      JarEntry manifestEntry = null;
+
+      int entryCount = jar.getShort(end + 10) & 0xffff;
+      int offset = jar.getInt(end + 16);
+      for (int i = 0; i < entryCount; i++) {
+        if (jar.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+          return false;
+        }
+        int flags = jar.getShort(offset + 8) & 0xffff;
+        int method = jar.getShort(offset + 10) & 0xffff;
+        int compressedSize = jar.getInt(offset + 20);
+        int size = jar.getInt(offset + 24);
+        int nameLength = jar.getShort(offset + 28) & 0xffff;
+        int extraLength = jar.getShort(offset + 30) & 0xffff;
+        int commentLength = jar.getShort(offset + 32) & 0xffff;
+        int localHeaderOffset = jar.getInt(offset + 42);
+        byte[] nameBytes = new byte[nameLength];
+        ByteBuffer nameBuffer = jar.duplicate();
+        nameBuffer.position(offset + 46);
+        nameBuffer.get(nameBytes);
+        offset += 46 + nameLength + extraLength + commentLength;
+
+        String name = new String(nameBytes, UTF_8);
+        boolean isClass = name.endsWith(".class");
+        if (!isClass && !name.equals(MANIFEST_NAME)) {
+          continue;
+        }
+        if (compressedSize < 0 || size < 0 || localHeaderOffset < 0) {
+          return false; // zip64, or too large for an array
+        }
+        if ((flags & 0x800) == 0 && !isAscii(nameBytes)) {
+          return false; // not UTF-8, so lookups couldn't match it
+        }
+        // Module descriptors are resolved differently in multi-release jars, so leave them be.
+        boolean readable =
+            (flags & 1) == 0
+                && (method == STORED || method == DEFLATED)
+                && !name.endsWith("module-info.class");
+        JarEntry entry =
+            new JarEntry(
+                localHeaderOffset, compressedSize, size, readable ? (byte) method : UNREADABLE);
+
+        if (!isClass) {
+          manifestEntry = entry;
+        } else if (name.startsWith(VERSIONS_PREFIX)) {
+          int slash = name.indexOf('/', VERSIONS_PREFIX.length());
+          int version =
+              slash == -1 ? -1 : parseVersion(name.substring(VERSIONS_PREFIX.length(), slash));
+          if (version >= 9 && version <= javaVersion) {
+            String unversionedName = name.substring(slash + 1);
+            Integer previousVersion = versions.get(unversionedName);
+            if (previousVersion == null || previousVersion < version) {
+              versions.put(unversionedName, version);
+              versionedClasses.put(unversionedName, entry);
+            }
+          }
+        } else {
+          classes.put(name, entry);
+        }
+      }
+
+      Manifest manifest = null;
+      if (manifestEntry != null) {
+        if (manifestEntry.method == UNREADABLE) {
+          return false;
+        }
+        int dataOffset =
+            dataOffset(jar, manifestEntry.localHeaderOffset, MANIFEST_NAME.getBytes(UTF_8));
+        if (dataOffset == -1) {
+          return false;
+        }
+        byte[] manifestBytes =
+            read(
+                jar,
+                dataOffset,
+                manifestEntry.method,
+                manifestEntry.compressedSize,
+                manifestEntry.size,
+                inflaters);
+        manifest = new Manifest(new ByteArrayInputStream(manifestBytes));
+      }
+
+      if (manifest != null
+          && javaVersion >= 9
+          && "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"))) {
+        classes.putAll(versionedClasses);
+      }
+      for (Map.Entry<String, JarEntry> entry : classes.entrySet()) {
+        if (indexedNames.add(entry.getKey())) {
+          names.add(entry.getKey());
+          elements.add(element);
+          entries.add(entry.getValue());
+        }
+      }
+
+      // Like URLClassLoader, look in the jars on the manifest class path right after this one.
+      String classPath =
+          manifest == null
+              ? null
+              : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+      if (classPath != null) {
+        for (String path : classPath.trim().split("\\s+")) {
+          if (path.isEmpty()) {
+            continue;
+          }
+          URL classPathUrl;
+          try {
+            classPathUrl = new URL(url, path);
+          } catch (MalformedURLException e) {
+            continue;
+          }
+          if (!add(classPathUrl)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /** Returns the offset of the end of central directory record, or -1 if there isn't one. */
+    private static int findEnd(ByteBuffer jar) {
+      int limit = Math.max(0, jar.limit() - 22 - 0xffff);
+      for (int offset = jar.limit() - 22; offset >= limit; offset--) {
+        if (jar.getInt(offset) == END_SIGNATURE) {
+          return offset;
+        }
+      }
+      return -1;
+    }
+
+    private static boolean isAscii(byte[] bytes) {
+      for (byte b : bytes) {
+        if (b < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int parseVersion(String version) {
+      try {
+        return Integer.parseInt(version);
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+  }
+}
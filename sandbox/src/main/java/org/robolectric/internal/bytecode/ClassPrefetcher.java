@@ -0,0 +1,210 @@
+package org.robolectric.internal.bytecode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * Speculatively instruments the classes a {@link SandboxClassLoader} loaded in previous runs on a
+ * pool of worker threads, so their bytes are ready by the time the class loader asks for them.
+ *
+ * <p>The classes come from the {@link ClassLoadingTrace} the previous run recorded for the same SDK
+ * and instrumentation configuration. When the sandbox is created, the classes in the trace are
+ * queued for instrumentation, in the order they were loaded last time, and a few tasks are added to
+ * a JVM-wide pool to work through the queue. A class the loader asks for before its instrumentation
+ * has started is instrumented on the loading thread as usual.
+ *
+ * <p>Prefetching stops, and prefetched classes that weren't loaded are dropped, when the sandbox's
+ * first test finishes or the sandbox is evicted; see {@link #cancel()}. The prefetcher only
+ * reaches its class loader through the {@link Instrumenter}, which shouldn't hold it strongly, so
+ * queued work doesn't keep an evicted sandbox alive.
+ *
+ * <p>Time spent instrumenting classes ahead of demand is reported as "prefetch class", and time
+ * spent waiting for a prefetched class as "prefetch hit", so the work wasted on classes that
+ * weren't needed is the difference between the two counts. The classes never asked for are only
+ * known when the JVM exits, so they are logged then.
+ *
+ * <p>Prefetching is off by default; set the {@code robolectric.prefetch.enable} system property
+ * to {@code true} to turn it on.
+ */
+final class ClassPrefetcher {
+  private static final String ENABLE_PREFETCH = "robolectric.prefetch.enable";
+  static final boolean ENABLED = Boolean.valueOf(System.getProperty(ENABLE_PREFETCH));
+
+  private static final Set<Map<String, Long>> unclaimedPrefetches =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private static final AtomicBoolean shutdownHookAdded = new AtomicBoolean();
+
+  private final List<String> classNames;
+  private final Instrumenter instrumenter;
+  private final Executor executor;
+  private final int workerCount;
+  private final Map<String, FutureTask<InstrumentedClass>> prefetches = new ConcurrentHashMap<>();
+  private final Queue<FutureTask<InstrumentedClass>> queue = new ConcurrentLinkedQueue<>();
+  private final Map<String, Long> unclaimedPrefetchNs = new ConcurrentHashMap<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile boolean cancelled;
+
+  /**
+   * Reads and instruments a class the way {@link SandboxClassLoader} would, or throws {@link
+   * CancellationException} if the class loader is gone.
+   */
+  interface Instrumenter {
+    InstrumentedClass instrument(String className) throws Exception;
+  }
+
+  ClassPrefetcher(
+      List<String> classNames, Instrumenter instrumenter, Executor executor, int workerCount) {
+    this.classNames = classNames;
+    this.instrumenter = instrumenter;
+    this.executor = executor;
+    this.workerCount = workerCount;
+  }
+
+  /**
+   * Returns a prefetcher for the classes a previous run loaded into the sandbox with the given
+   * key, or null if prefetching is off or there was no previous run.
+   */
+  static ClassPrefetcher forSandbox(String sandboxKey, Instrumenter instrumenter) {
+    if (!ENABLED) {
+      return null;
+    }
+    ClassLoadingTrace previousTrace = ClassLoadingTrace.readPrevious(sandboxKey);
+    if (previousTrace == null) {
+      return null;
+    }
+    ClassPrefetcher classPrefetcher =
+        new ClassPrefetcher(
+            previousTrace.getClassNames(), instrumenter, WorkerPool.EXECUTOR, WorkerPool.SIZE);
+    unclaimedPrefetches.add(classPrefetcher.unclaimedPrefetchNs);
+    if (shutdownHookAdded.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(ClassPrefetcher::logUnclaimedPrefetches));
+    }
+    return classPrefetcher;
+  }
+
+  /** Queues the classes for instrumentation, unless that has already happened. */
+  void start() {
+    if (!started.compareAndSet(false, true) || cancelled) {
+      return;
+    }
+    for (String className : classNames) {
+      FutureTask<InstrumentedClass> task = new FutureTask<>(() -> prefetch(className));
+      prefetches.put(className, task);
+      queue.add(task);
+    }
+    for (int i = 0; i < workerCount; i++) {
+      executor.execute(this::work);
+    }
+  }
+
+  private void work() {
+    FutureTask<InstrumentedClass> task;
+    while (!cancelled && (task = queue.poll()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Stops prefetching, and drops the prefetched classes that haven't been taken. Classes are
+   * instrumented on the loading thread from then on.
+   */
+  void cancel() {
+    cancelled = true;
+    queue.clear();
+    for (FutureTask<InstrumentedClass> prefetch : prefetches.values()) {
+      prefetch.cancel(false);
+    }
+    prefetches.clear();
+  }
+
+  /**
+   * Returns the prefetched bytes of the given class, or null if it should be instrumented on the
+   * calling thread.
+   */
+  InstrumentedClass take(String className) {
+    start();
+
+    FutureTask<InstrumentedClass> prefetch = prefetches.remove(className);
+    if (prefetch == null || prefetch.cancel(false)) {
+      return null;
+    }
+
+    PerfStatsCollector.Event event = PerfStatsCollector.getInstance().startEvent("prefetch hit");
+    try {
+      InstrumentedClass instrumentedClass = prefetch.get();
+      unclaimedPrefetchNs.remove(className);
+      event.finished();
+      return instrumentedClass;
+    } catch (ExecutionException e) {
+      // Instrumenting the class again on this thread will report the failure.
+      event.finished(false);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      event.finished(false);
+      return null;
+    }
+  }
+
+  private InstrumentedClass prefetch(String className) throws Exception {
+    long startNs = System.nanoTime();
+    InstrumentedClass instrumentedClass;
+    try {
+      instrumentedClass =
+          PerfStatsCollector.getInstance()
+              .measure("prefetch class", () -> instrumenter.instrument(className));
+    } catch (CancellationException e) {
+      cancel();
+      throw e;
+    }
+    unclaimedPrefetchNs.put(className, System.nanoTime() - startNs);
+    return instrumentedClass;
+  }
+
+  private static void logUnclaimedPrefetches() {
+    int count = 0;
+    long wastedNs = 0;
+    for (Map<String, Long> unclaimedPrefetchNs : unclaimedPrefetches) {
+      count += unclaimedPrefetchNs.size();
+      for (long elapsedNs : unclaimedPrefetchNs.values()) {
+        wastedNs += elapsedNs;
+      }
+    }
+    if (count > 0) {
+      Logger.info(
+          "%d prefetched classes weren't loaded, wasting %d ms", count, wastedNs / 1_000_000);
+    }
+  }
+
+  /** Lazily creates the JVM-wide pool of prefetching threads. */
+  private static final class WorkerPool {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    static final int SIZE = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    static final ExecutorService EXECUTOR =
+        Executors.newFixedThreadPool(
+            SIZE,
+            r -> {
+              Thread thread =
+                  new Thread(r, "Robolectric class prefetcher " + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+}
@@ -0,0 +1,16 @@
+package org.robolectric.internal.bytecode;
+
+/** The bytes {@link SandboxClassLoader} defines for a class, and how long it took to make them. */
+final class InstrumentedClass {
+  final byte[] bytes;
+  final boolean instrumented;
+  final long analyzeNs;
+  final long instrumentNs;
+
+  InstrumentedClass(byte[] bytes, boolean instrumented, long analyzeNs, long instrumentNs) {
+    this.bytes = bytes;
+    this.instrumented = instrumented;
+    this.analyzeNs = analyzeNs;
+    this.instrumentNs = instrumentNs;
+  }
+}
@@ -1,9 +1,7 @@
 package org.robolectric.internal.bytecode;
 
-import java.util.List;
 import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.ClassNode;
+import org.robolectric.internal.bytecode.ClassHierarchyIndex.TypeInfo;
 
 /**
  * ClassWriter implementation that verifies classes by comparing type information obtained
@@ -13,16 +11,8 @@ public class InstrumentingClassWriter extends ClassWriter {
 
   private final ClassNodeProvider classNodeProvider;
 
-  /**
-   * Preserve stack map frames for V51 and newer bytecode. This fixes class verification errors for
-   * JDK7 and JDK8. The option to disable bytecode verification was removed in JDK8.
-   *
-   * <p>Don't bother for V50 and earlier bytecode, because it doesn't contain stack map frames, and
-   * also because ASM's stack map frame handling doesn't support the JSR and RET instructions
-   * present in legacy bytecode.
-   */
-  public InstrumentingClassWriter(ClassNodeProvider classNodeProvider, ClassNode classNode) {
-    super(classNode.version >= 51 ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS);
+  public InstrumentingClassWriter(ClassNodeProvider classNodeProvider, int flags) {
+    super(flags);
     this.classNodeProvider = classNodeProvider;
   }
 
@@ -33,20 +23,20 @@ public class InstrumentingClassWriter extends ClassWriter {
   @Override
   protected String getCommonSuperClass(final String type1, final String type2) {
     try {
-      ClassNode info1 = typeInfo(type1);
-      ClassNode info2 = typeInfo(type2);
-      if ((info1.access & Opcodes.ACC_INTERFACE) != 0) {
+      TypeInfo info1 = typeInfo(type1);
+      TypeInfo info2 = typeInfo(type2);
+      if (info1.isInterface()) {
         if (typeImplements(type2, info2, type1)) {
           return type1;
         }
-        if ((info2.access & Opcodes.ACC_INTERFACE) != 0) {
+        if (info2.isInterface()) {
           if (typeImplements(type1, info1, type2)) {
             return type2;
           }
         }
         return "java/lang/Object";
       }
-      if ((info2.access & Opcodes.ACC_INTERFACE) != 0) {
+      if (info2.isInterface()) {
         if (typeImplements(type1, info1, type2)) {
           return type2;
         } else {
@@ -81,7 +71,7 @@ public class InstrumentingClassWriter extends ClassWriter {
     }
   }
 
-  private String typeAncestors(String type, ClassNode info) throws ClassNotFoundException {
+  private String typeAncestors(String type, TypeInfo info) throws ClassNotFoundException {
     StringBuilder b = new StringBuilder();
     while (!"java/lang/Object".equals(type)) {
       b.append(';').append(type);
@@ -91,10 +81,10 @@ public class InstrumentingClassWriter extends ClassWriter {
     return b.toString();
   }
 
-  private boolean typeImplements(String type, ClassNode info, String itf)
+  private boolean typeImplements(String type, TypeInfo info, String itf)
       throws ClassNotFoundException {
     while (!"java/lang/Object".equals(type)) {
-      List<String> itfs = info.interfaces;
+      String[] itfs = info.interfaces;
       for (String itf2 : itfs) {
         if (itf2.equals(itf)) {
           return true;
@@ -111,7 +101,7 @@ public class InstrumentingClassWriter extends ClassWriter {
     return false;
   }
 
-  private ClassNode typeInfo(final String type) throws ClassNotFoundException {
-    return classNodeProvider.getClassNode(type);
+  private TypeInfo typeInfo(final String type) throws ClassNotFoundException {
+    return classNodeProvider.getTypeInfo(type);
   }
 }
@@ -6,6 +6,7 @@ import static java.lang.invoke.MethodHandles.dropArguments;
 import static java.lang.invoke.MethodHandles.exactInvoker;
 import static java.lang.invoke.MethodHandles.filterArguments;
 import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
 import static java.lang.invoke.MethodHandles.throwException;
 import static java.lang.invoke.MethodType.methodType;
 import static org.robolectric.internal.bytecode.MethodCallSite.Kind.REGULAR;
@@ -18,6 +19,8 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
 import java.lang.invoke.WrongMethodTypeException;
+import java.util.Map;
+import org.robolectric.internal.bytecode.ShadowInvalidator.ShadowVersion;
 import org.robolectric.util.ReflectionHelpers;
 
 public class InvokeDynamicSupport {
@@ -112,11 +115,27 @@ public class InvokeDynamicSupport {
   }
 
   private static MethodHandle bindInitCallSite(RoboCallSite site) {
+    ShadowVersion shadowVersion = getShadowVersion(site.getTheClass());
+    if (shadowVersion != null) {
+      MethodHandle target = site.getVersionedTarget(shadowVersion.getCurrent());
+      if (target != null) {
+        return bindWithFallback(site, target, BIND_INIT_CALL_SITE, shadowVersion);
+      }
+    }
+
     MethodHandle mh = RobolectricInternals.getShadowCreator(site.getTheClass());
-    return bindWithFallback(site, mh, BIND_INIT_CALL_SITE);
+    return bindWithFallback(site, mh, BIND_INIT_CALL_SITE, shadowVersion);
   }
 
   private static MethodHandle bindCallSite(MethodCallSite site) throws IllegalAccessException {
+    ShadowVersion shadowVersion = getShadowVersion(site.getTheClass());
+    if (shadowVersion != null) {
+      MethodHandle target = site.getVersionedTarget(shadowVersion.getCurrent());
+      if (target != null) {
+        return bindWithFallback(site, target, BIND_CALL_SITE, shadowVersion);
+      }
+    }
+
     MethodHandle mh =
         RobolectricInternals.findShadowMethodHandle(site.getTheClass(), site.getName(), site.type(),
             site.isStatic());
@@ -134,7 +153,7 @@ public class InvokeDynamicSupport {
     }
 
     try {
-      return bindWithFallback(site, cleanStackTraces(mh), BIND_CALL_SITE);
+      return bindWithFallback(site, cleanStackTraces(mh), BIND_CALL_SITE, shadowVersion);
     } catch (Throwable t) {
       // The error that bubbles up is currently not very helpful so we print any error messages
       // here
@@ -144,14 +163,30 @@ public class InvokeDynamicSupport {
     }
   }
 
+  /**
+   * Binds the call site to the given target, guarded by the switch point of its class. If the
+   * class has a shadow version, the targets bound for its other recent shadows are kept as well,
+   * each guarded by a test for its version, so switching back to them doesn't cause a rebind.
+   */
   private static MethodHandle bindWithFallback(RoboCallSite site, MethodHandle mh,
-      MethodHandle fallback) {
+      MethodHandle fallback, ShadowVersion shadowVersion) {
     SwitchPoint switchPoint = getInvalidator(site.getTheClass());
     MethodType type = site.type();
 
     MethodHandle boundFallback = foldArguments(exactInvoker(type), fallback.bindTo(site));
     try {
-      mh = switchPoint.guardWithTest(mh.asType(type), boundFallback);
+      mh = mh.asType(type);
+      if (shadowVersion != null) {
+        Map<Object, MethodHandle> versionedTargets =
+            site.addVersionedTarget(shadowVersion.getCurrent(), mh);
+        mh = boundFallback;
+        for (Map.Entry<Object, MethodHandle> entry : versionedTargets.entrySet()) {
+          MethodHandle test = dropArguments(shadowVersion.isCurrentTest(entry.getKey()), 0,
+              type.parameterList());
+          mh = guardWithTest(test, entry.getValue(), mh);
+        }
+      }
+      mh = switchPoint.guardWithTest(mh, boundFallback);
     } catch (WrongMethodTypeException e) {
       if (site instanceof MethodCallSite) {
         MethodCallSite methodCallSite = (MethodCallSite) site;
@@ -170,6 +205,10 @@ public class InvokeDynamicSupport {
     return RobolectricInternals.getShadowInvalidator().getSwitchPoint(cl);
   }
 
+  private static ShadowVersion getShadowVersion(Class<?> cl) {
+    return RobolectricInternals.getShadowInvalidator().getShadowVersion(cl);
+  }
+
   private static MethodHandle cleanStackTraces(MethodHandle mh) {
     MethodType type = EXCEPTION_HANDLER.type().changeReturnType(mh.type().returnType());
     return catchException(mh, Throwable.class, EXCEPTION_HANDLER.asType(type));
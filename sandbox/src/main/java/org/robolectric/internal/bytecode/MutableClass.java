@@ -3,7 +3,10 @@ package org.robolectric.internal.bytecode;
 import com.google.common.collect.ImmutableSet;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AnnotationNode;
@@ -22,6 +25,10 @@ public class MutableClass {
   final Type classType;
   final ImmutableSet<String> foundMethods;
 
+  /** Methods whose bodies were restructured, so that their stack map frames must be computed. */
+  private final Set<MethodNode> methodsWithStaleFrames =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+
   MutableClass(ClassNode classNode, InstrumentationConfiguration config,
       ClassNodeProvider classNodeProvider) {
     this.classNode = classNode;
@@ -78,6 +85,18 @@ public class MutableClass {
     return classNode.fields;
   }
 
+  /**
+   * Records that the given method's body has been restructured in a way that invalidates its stack
+   * map frames, so that they must be computed when the class is written.
+   */
+  public void invalidateFrames(MethodNode methodNode) {
+    methodsWithStaleFrames.add(methodNode);
+  }
+
+  boolean hasStaleFrames(MethodNode methodNode) {
+    return methodsWithStaleFrames.contains(methodNode);
+  }
+
   public void addField(int index, FieldNode fieldNode) {
     classNode.fields.add(index, fieldNode);
   }
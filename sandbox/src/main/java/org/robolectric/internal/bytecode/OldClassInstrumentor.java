@@ -138,9 +138,11 @@ public class OldClassInstrumentor extends ClassInstrumentor {
         generator.goTo(afterward);
 
         generator.mark(notNull);
+        generator.frame(mutableClass.classType, new int[] {unboxLocalVar});
         generator.loadLocal(unboxLocalVar);
         generator.unbox(returnType);
         generator.mark(afterward);
+        generator.frame(mutableClass.classType, returnType);
         break;
     }
     tryCatchForHandler.end();
@@ -148,6 +150,7 @@ public class OldClassInstrumentor extends ClassInstrumentor {
 
     // catch(Throwable)
     tryCatchForHandler.handler();
+    generator.frame(mutableClass.classType, THROWABLE_TYPE);
     generator.storeLocal(exceptionLocalVar);
     generator.loadLocal(exceptionLocalVar);
     generator.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, HANDLE_EXCEPTION_METHOD);
@@ -156,6 +159,7 @@ public class OldClassInstrumentor extends ClassInstrumentor {
 
     if (!originalMethod.name.equals("<init>")) {
       generator.mark(directCall);
+      generator.frame(mutableClass.classType);
       TryCatch tryCatchForDirect = generator.tryStart(THROWABLE_TYPE);
       generator.invokeMethod(mutableClass.classType.getInternalName(), originalMethod.name, originalMethod.desc);
       tryCatchForDirect.end();
@@ -163,6 +167,7 @@ public class OldClassInstrumentor extends ClassInstrumentor {
 
       // catch(Throwable)
       tryCatchForDirect.handler();
+      generator.frame(mutableClass.classType, THROWABLE_TYPE);
       generator.storeLocal(exceptionLocalVar);
       generator.loadLocal(exceptionLocalVar);
       generator.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, HANDLE_EXCEPTION_METHOD);
@@ -170,6 +175,11 @@ public class OldClassInstrumentor extends ClassInstrumentor {
     }
 
     generator.mark(doReturn);
+    if (returnType.getSort() == VOID) {
+      generator.frame(mutableClass.classType);
+    } else {
+      generator.frame(mutableClass.classType, returnType);
+    }
     generator.returnValue();
   }
 
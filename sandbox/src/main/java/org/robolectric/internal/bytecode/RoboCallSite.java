@@ -1,10 +1,23 @@
 package org.robolectric.internal.bytecode;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class RoboCallSite extends MutableCallSite {
+  /** Beyond this many shadows, the targets bound for the least recently bound ones are dropped. */
+  private static final int MAX_VERSIONED_TARGETS = 4;
+
   private final Class<?> theClass;
+  private final Map<Object, MethodHandle> versionedTargets =
+      new LinkedHashMap<Object, MethodHandle>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, MethodHandle> eldest) {
+          return size() > MAX_VERSIONED_TARGETS;
+        }
+      };
 
   public RoboCallSite(MethodType type, Class<?> theClass) {
     super(type);
@@ -14,4 +27,26 @@ public class RoboCallSite extends MutableCallSite {
   public Class<?> getTheClass() {
     return theClass;
   }
+
+  /**
+   * Returns the target this call site bound while the given shadow version was current, or null
+   * if there isn't one.
+   */
+  MethodHandle getVersionedTarget(Object shadowVersion) {
+    synchronized (versionedTargets) {
+      return versionedTargets.get(shadowVersion);
+    }
+  }
+
+  /**
+   * Remembers the target bound for the given shadow version, and returns the targets for all the
+   * remembered versions, the least recently bound first.
+   */
+  Map<Object, MethodHandle> addVersionedTarget(Object shadowVersion, MethodHandle target) {
+    synchronized (versionedTargets) {
+      versionedTargets.remove(shadowVersion);
+      versionedTargets.put(shadowVersion, target);
+      return new LinkedHashMap<>(versionedTargets);
+    }
+  }
 }
@@ -4,6 +4,8 @@ import static org.objectweb.asm.Type.ARRAY;
 import static org.objectweb.asm.Type.OBJECT;
 
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.GeneratorAdapter;
@@ -79,6 +81,73 @@ public class RobolectricGeneratorAdapter extends GeneratorAdapter {
     }
   }
 
+  /**
+   * Adds a stack map frame at the current position, holding the method's arguments as locals and
+   * the given types on the stack.
+   *
+   * Generated methods which have a frame at each branch target and exception handler needn't have
+   * their frames computed when their class is written.
+   *
+   * @param thisType The type of `this`, ignored for static methods
+   */
+  public void frame(Type thisType, Type... stack) {
+    frame(thisType, new int[0], stack);
+  }
+
+  /**
+   * Adds a stack map frame at the current position, holding the method's arguments and the given
+   * locals as locals and the given types on the stack.
+   *
+   * @param thisType The type of `this`, ignored for static methods
+   * @param liveLocals Locals created by {@link #newLocal(Type)} which are read after this point,
+   *     in ascending order
+   */
+  public void frame(Type thisType, int[] liveLocals, Type... stack) {
+    List<Object> frameLocals = new ArrayList<>();
+    if (!isStatic) {
+      frameLocals.add(thisType.getInternalName());
+    }
+    for (Type argumentType : Type.getArgumentTypes(desc)) {
+      frameLocals.add(frameType(argumentType));
+    }
+    int nextLocal = (Type.getArgumentsAndReturnSizes(desc) >> 2) - (isStatic ? 1 : 0);
+    for (int local : liveLocals) {
+      for (; nextLocal < local; nextLocal++) {
+        frameLocals.add(Opcodes.TOP);
+      }
+      Type localType = getLocalType(local);
+      frameLocals.add(frameType(localType));
+      nextLocal += localType.getSize();
+    }
+
+    Object[] frameStack = new Object[stack.length];
+    for (int i = 0; i < stack.length; i++) {
+      frameStack[i] = frameType(stack[i]);
+    }
+    // bypass LocalVariablesSorter, which would also declare locals not yet stored to
+    mv.visitFrame(
+        Opcodes.F_NEW, frameLocals.size(), frameLocals.toArray(), frameStack.length, frameStack);
+  }
+
+  private static Object frameType(Type type) {
+    switch (type.getSort()) {
+      case Type.BOOLEAN:
+      case Type.CHAR:
+      case Type.BYTE:
+      case Type.SHORT:
+      case Type.INT:
+        return Opcodes.INTEGER;
+      case Type.FLOAT:
+        return Opcodes.FLOAT;
+      case Type.LONG:
+        return Opcodes.LONG;
+      case Type.DOUBLE:
+        return Opcodes.DOUBLE;
+      default:
+        return type.getInternalName();
+    }
+  }
+
   public TryCatch tryStart(Type exceptionType) {
     return new TryCatch(this, exceptionType);
   }
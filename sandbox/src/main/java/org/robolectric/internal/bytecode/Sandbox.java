@@ -3,6 +3,8 @@ package org.robolectric.internal.bytecode;
 import static org.robolectric.util.ReflectionHelpers.newInstance;
 import static org.robolectric.util.ReflectionHelpers.setStaticField;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -13,6 +15,7 @@ import java.util.concurrent.ThreadFactory;
 import javax.inject.Inject;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.util.Util;
+import org.robolectric.util.VirtualThreads;
 
 public class Sandbox {
   private final SandboxClassLoader sandboxClassLoader;
@@ -29,10 +32,14 @@ public class Sandbox {
   @Inject
   public Sandbox(SandboxClassLoader sandboxClassLoader) {
     this.sandboxClassLoader = sandboxClassLoader;
+    sandboxClassLoader.warmUp();
     executorService = Executors.newSingleThreadExecutor(mainThreadFactory());
   }
 
   protected ThreadFactory mainThreadFactory() {
+    if (VirtualThreads.isEnabled()) {
+      return VirtualThreads.newThreadFactory("Main Thread");
+    }
     return Thread::new;
   }
 
@@ -48,6 +55,14 @@ public class Sandbox {
     return sandboxClassLoader;
   }
 
+  /**
+   * Called once a test has run in this sandbox, or when it is dropped, to stop instrumenting the
+   * classes of previous runs ahead of demand.
+   */
+  public void finishWarmUp() {
+    sandboxClassLoader.finishWarmUp();
+  }
+
   private ShadowInvalidator getShadowInvalidator() {
     if (shadowInvalidator == null) {
       this.shadowInvalidator = new ShadowInvalidator();
@@ -60,7 +75,11 @@ public class Sandbox {
       ShadowMap oldShadowMap = this.shadowMap;
       this.shadowMap = shadowMap;
       Set<String> invalidatedClasses = shadowMap.getInvalidatedClasses(oldShadowMap);
-      getShadowInvalidator().invalidateClasses(invalidatedClasses);
+      Map<String, ShadowInfo> shadowsByClassName = new HashMap<>();
+      for (String className : invalidatedClasses) {
+        shadowsByClassName.put(className, shadowMap.getOverriddenShadowInfo(className));
+      }
+      getShadowInvalidator().replaceShadows(shadowsByClassName);
     }
   }
 
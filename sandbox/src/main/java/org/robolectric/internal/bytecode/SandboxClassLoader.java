@@ -9,12 +9,15 @@ import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.concurrent.CancellationException;
 import javax.inject.Inject;
 import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
+import org.robolectric.util.PerfStatsCollector.ThrowingSupplier;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.Util;
 
@@ -28,6 +31,9 @@ public class SandboxClassLoader extends URLClassLoader {
   private final ResourceProvider resourceProvider;
   private final ClassInstrumentor classInstrumentor;
   private final ClassNodeProvider classNodeProvider;
+  private final ClassPathIndex classPathIndex;
+  private final ClassPrefetcher classPrefetcher;
+  private final ClassLoadingTrace classLoadingTrace;
 
   /** Constructor for use by tests. */
   SandboxClassLoader(InstrumentationConfiguration config) {
@@ -58,7 +64,46 @@ public class SandboxClassLoader extends URLClassLoader {
       protected byte[] getClassBytes(String internalClassName) throws ClassNotFoundException {
         return getByteCode(internalClassName);
       }
+
+      @Override
+      protected String getClassJar(String internalClassName) {
+        return getClassJarPreferringLocalUrls(internalClassName + ".class");
+      }
     };
+
+    classPathIndex =
+        canUseClassPathIndex(erstwhileClassLoader) ? ClassPathIndex.forClassPath(getURLs()) : null;
+
+    String traceKey = getClassLoadingTraceKey();
+    classPrefetcher = ClassPrefetcher.forSandbox(traceKey, new PrefetchInstrumenter(this));
+    classLoadingTrace =
+        ClassLoadingTrace.ENABLED || ClassPrefetcher.ENABLED
+            ? ClassLoadingTrace.startRecording(traceKey)
+            : null;
+  }
+
+  /** Identifies the SDK and instrumentation configuration whose classes this loader loads. */
+  private String getClassLoadingTraceKey() {
+    StringBuilder key = new StringBuilder().append(config.hashCode());
+    if (resourceProvider instanceof URLClassLoader) {
+      for (URL url : ((URLClassLoader) resourceProvider).getURLs()) {
+        key.append('\n').append(url.toExternalForm());
+      }
+    } else {
+      key.append('\n').append(resourceProvider.getClass().getName());
+    }
+    return key.toString();
+  }
+
+  /**
+   * The class path index only knows where a plain {@link URLClassLoader} over the same URLs would
+   * find a class, so it's used only when the erstwhile class loader is one.
+   */
+  private static boolean canUseClassPathIndex(ClassLoader erstwhileClassLoader) {
+    return erstwhileClassLoader != null
+        && erstwhileClassLoader.getParent() != null
+        && (erstwhileClassLoader.getClass() == URLClassLoader.class
+            || erstwhileClassLoader == ClassLoader.getSystemClassLoader());
   }
 
   private static URL[] getClassPathUrls(ClassLoader classloader) {
@@ -97,12 +142,54 @@ public class SandboxClassLoader extends URLClassLoader {
     return resourceProvider.getResource(name);
   }
 
-  private InputStream getClassBytesAsStreamPreferringLocalUrls(String resName) {
-    InputStream fromUrlsClassLoader = resourceProvider.getResourceAsStream(resName);
+  private byte[] getClassBytesPreferringLocalUrls(String resName) throws IOException {
+    try (InputStream fromUrlsClassLoader = resourceProvider.getResourceAsStream(resName)) {
+      if (fromUrlsClassLoader != null) {
+        return Util.readBytes(fromUrlsClassLoader);
+      }
+    }
+
+    byte[] fromClassPathIndex = getClassBytesFromClassPathIndex(resName);
+    if (fromClassPathIndex != null) {
+      return fromClassPathIndex;
+    }
+
+    try (InputStream fromClassPath = super.getResourceAsStream(resName)) {
+      return fromClassPath == null ? null : Util.readBytes(fromClassPath);
+    }
+  }
+
+  /**
+   * Reads the given class file from the jar the erstwhile class loader would find it in, without
+   * scanning the class path. Returns null if it should be looked for on the class path as usual.
+   */
+  private byte[] getClassBytesFromClassPathIndex(String resName) throws IOException {
+    return shouldReadFromClassPathIndex(resName) ? classPathIndex.getClassBytes(resName) : null;
+  }
+
+  private boolean shouldReadFromClassPathIndex(String resName) {
+    return classPathIndex != null
+        && !config.shouldAcquireResource(resName)
+        && erstwhileClassLoader.getParent().getResource(resName) == null;
+  }
+
+  /**
+   * Returns the jar {@link #getClassBytesPreferringLocalUrls} would read the given class file from,
+   * or null if it wouldn't read it from a jar or that can't be told without scanning the class path.
+   */
+  private String getClassJarPreferringLocalUrls(String resName) {
+    URL fromUrlsClassLoader = resourceProvider.getResource(resName);
     if (fromUrlsClassLoader != null) {
-      return fromUrlsClassLoader;
+      return ClassHierarchyIndex.jarOf(fromUrlsClassLoader);
+    }
+    if (!shouldReadFromClassPathIndex(resName)) {
+      return null;
+    }
+    try {
+      return classPathIndex.getJar(resName);
+    } catch (IOException e) {
+      return null;
     }
-    return super.getResourceAsStream(resName);
   }
 
   @Override
@@ -130,23 +217,61 @@ public class SandboxClassLoader extends URLClassLoader {
   }
 
   protected Class<?> maybeInstrumentClass(String className) throws ClassNotFoundException {
+    long startNs = System.nanoTime();
+    InstrumentedClass prefetchedClass =
+        classPrefetcher == null ? null : classPrefetcher.take(className);
+    InstrumentedClass instrumentedClass =
+        prefetchedClass != null ? prefetchedClass : instrumentClass(className, true);
+
+    Class<?> loadedClass;
+    try {
+      ensurePackage(className);
+      loadedClass =
+          defineClass(className, instrumentedClass.bytes, 0, instrumentedClass.bytes.length);
+    } catch (Exception e) {
+      throw new ClassNotFoundException("couldn't load " + className, e);
+    } catch (OutOfMemoryError e) {
+      System.err.println("[ERROR] couldn't load " + className + " in " + this);
+      throw e;
+    }
+
+    if (classLoadingTrace != null) {
+      classLoadingTrace.record(
+          className,
+          instrumentedClass.instrumented,
+          prefetchedClass != null,
+          System.nanoTime() - startNs,
+          instrumentedClass.analyzeNs,
+          instrumentedClass.instrumentNs);
+    }
+    return loadedClass;
+  }
+
+  /**
+   * Reads and analyzes the given class and instruments it if it should be, without defining it.
+   * Phases are only reported to {@link PerfStatsCollector} when run on the loading thread.
+   */
+  private InstrumentedClass instrumentClass(String className, boolean onLoadingThread)
+      throws ClassNotFoundException {
     final byte[] origClassBytes = getByteCode(className);
 
-    MutableClass mutableClass = PerfStatsCollector.getInstance().measure("analyze class",
+    long analyzeStartNs = System.nanoTime();
+    MutableClass mutableClass = measure("analyze class", onLoadingThread,
         () -> classInstrumentor.analyzeClass(origClassBytes, config, classNodeProvider)
     );
+    long instrumentStartNs = System.nanoTime();
+    long analyzeNs = instrumentStartNs - analyzeStartNs;
 
     try {
-      final byte[] bytes;
       if (config.shouldInstrument(mutableClass)) {
-        bytes = PerfStatsCollector.getInstance().measure("instrument class",
+        byte[] bytes = measure("instrument class", onLoadingThread,
             () -> classInstrumentor.instrumentToBytes(mutableClass)
         );
+        return new InstrumentedClass(bytes, true, analyzeNs, System.nanoTime() - instrumentStartNs);
       } else {
-        bytes = postProcessUninstrumentedClass(mutableClass, origClassBytes);
+        return new InstrumentedClass(
+            postProcessUninstrumentedClass(mutableClass, origClassBytes), false, analyzeNs, 0);
       }
-      ensurePackage(className);
-      return defineClass(className, bytes, 0, bytes.length);
     } catch (Exception e) {
       throw new ClassNotFoundException("couldn't load " + className, e);
     } catch (OutOfMemoryError e) {
@@ -155,6 +280,39 @@ public class SandboxClassLoader extends URLClassLoader {
     }
   }
 
+  private static <T, E extends Exception> T measure(
+      String eventName, boolean report, ThrowingSupplier<T, E> supplier) throws E {
+    return report ? PerfStatsCollector.getInstance().measure(eventName, supplier) : supplier.get();
+  }
+
+  /**
+   * Starts instrumenting the classes a previous run loaded into a sandbox like this one, if class
+   * prefetching is on, so they are ready by the time they are needed.
+   */
+  public void warmUp() {
+    if (classPrefetcher != null) {
+      classPrefetcher.start();
+    }
+  }
+
+  /**
+   * Stops instrumenting classes ahead of demand, and drops the prefetched classes that haven't been
+   * loaded.
+   */
+  public void finishWarmUp() {
+    if (classPrefetcher != null) {
+      classPrefetcher.cancel();
+    }
+  }
+
+  /**
+   * Returns the classes this class loader has acquired so far, or null if class loading isn't
+   * being traced.
+   */
+  public ClassLoadingTrace getClassLoadingTrace() {
+    return classLoadingTrace;
+  }
+
   protected byte[] postProcessUninstrumentedClass(
       MutableClass mutableClass, byte[] origClassBytes) {
     return origClassBytes;
@@ -184,12 +342,13 @@ public class SandboxClassLoader extends URLClassLoader {
             ? "raw"
             : "class";
     String classFilename = className.replace('.', '/') + "." + extension;
-    try (InputStream classBytesStream = getClassBytesAsStreamPreferringLocalUrls(classFilename)) {
-      if (classBytesStream == null) {
+    try {
+      byte[] classBytes = getClassBytesPreferringLocalUrls(classFilename);
+      if (classBytes == null) {
         throw new ClassNotFoundException(className);
       }
 
-      return Util.readBytes(classBytesStream);
+      return classBytes;
     } catch (IOException e) {
       throw new ClassNotFoundException("couldn't load " + className, e);
     }
@@ -206,4 +365,21 @@ public class SandboxClassLoader extends URLClassLoader {
     }
   }
 
+  /** Instruments classes for a {@link ClassPrefetcher} without keeping the class loader alive. */
+  private static final class PrefetchInstrumenter implements ClassPrefetcher.Instrumenter {
+    private final WeakReference<SandboxClassLoader> classLoader;
+
+    PrefetchInstrumenter(SandboxClassLoader classLoader) {
+      this.classLoader = new WeakReference<>(classLoader);
+    }
+
+    @Override
+    public InstrumentedClass instrument(String className) throws Exception {
+      SandboxClassLoader sandboxClassLoader = classLoader.get();
+      if (sandboxClassLoader == null) {
+        throw new CancellationException("class loader was collected");
+      }
+      return sandboxClassLoader.instrumentClass(className, false);
+    }
+  }
 }
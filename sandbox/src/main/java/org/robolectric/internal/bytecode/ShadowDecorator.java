@@ -79,6 +79,7 @@ public class ShadowDecorator implements ClassInstrumentor.Decorator {
 
       // catch(Throwable)
       tryCatchForProxyCall.handler();
+      generator.frame(mutableClass.classType, THROWABLE_TYPE);
       generator.storeLocal(exceptionLocalVar);
       generator.loadLocal(exceptionLocalVar);
       generator.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, HANDLE_EXCEPTION_METHOD);
@@ -86,6 +87,7 @@ public class ShadowDecorator implements ClassInstrumentor.Decorator {
 
       // callClassHandler...
       generator.mark(notInstanceOfThis);
+      generator.frame(mutableClass.classType);
     }
   }
 
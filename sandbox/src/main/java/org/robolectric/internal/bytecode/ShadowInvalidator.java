@@ -1,18 +1,43 @@
 package org.robolectric.internal.bytecode;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Tracks which invokedynamic call sites of a sandbox must be bound again when the shadows of the
+ * classes they are in change.
+ *
+ * <p>Call sites are bound behind a {@link SwitchPoint} per class. The first time a test replaces
+ * the shadow of a class, its switch point is invalidated, and from then on the class has a
+ * {@link ShadowVersion}: its call sites keep the target they bound for each shadow the class has
+ * had, and pick the one for its current shadow, so switching back and forth between shadows doesn't
+ * cause them to be bound again.
+ */
 public class ShadowInvalidator {
   private static final SwitchPoint DUMMY = new SwitchPoint();
+  private static final Object DEFAULT_SHADOW = new Object();
+  private static final MethodHandle IS_CURRENT;
 
   static {
     SwitchPoint.invalidateAll(new SwitchPoint[] { DUMMY });
+
+    try {
+      IS_CURRENT = MethodHandles.lookup().findVirtual(ShadowVersion.class, "isCurrent",
+          MethodType.methodType(boolean.class, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
   }
 
   private Map<String, SwitchPoint> switchPoints;
+  private final Map<String, ShadowVersion> shadowVersions = new HashMap<>();
 
   public ShadowInvalidator() {
     this.switchPoints = new HashMap<>();
@@ -28,6 +53,14 @@ public class ShadowInvalidator {
     return switchPoint;
   }
 
+  /**
+   * Returns the version of the shadow of the given class, or null if its shadow has never been
+   * replaced, so its call sites need only be guarded by its {@link SwitchPoint}.
+   */
+  public synchronized ShadowVersion getShadowVersion(Class<?> caller) {
+    return shadowVersions.get(caller.getName());
+  }
+
   public synchronized void invalidateClasses(Collection<String> classNames) {
     if (classNames.isEmpty()) return;
     SwitchPoint[] points = new SwitchPoint[classNames.size()];
@@ -40,4 +73,59 @@ public class ShadowInvalidator {
 
     SwitchPoint.invalidateAll(points);
   }
+
+  /**
+   * Replaces the shadows of the given classes. The values are the shadows that are now in effect,
+   * compared by {@link Object#equals(Object)}, or null where the default shadow is.
+   */
+  public synchronized void replaceShadows(Map<String, ?> shadowsByClassName) {
+    List<String> newlyVersionedClasses = new ArrayList<>();
+    for (Map.Entry<String, ?> entry : shadowsByClassName.entrySet()) {
+      String className = entry.getKey();
+      ShadowVersion shadowVersion = shadowVersions.get(className);
+      if (shadowVersion == null) {
+        shadowVersion = new ShadowVersion();
+        shadowVersions.put(className, shadowVersion);
+        newlyVersionedClasses.add(className);
+      }
+      shadowVersion.setCurrent(entry.getValue() == null ? DEFAULT_SHADOW : entry.getValue());
+    }
+    invalidateClasses(newlyVersionedClasses);
+  }
+
+  /** The shadow currently in effect for a class whose shadow has been replaced. */
+  public static class ShadowVersion {
+    private final List<Object> shadows = new ArrayList<>();
+    private volatile Object current = DEFAULT_SHADOW;
+
+    ShadowVersion() {
+      shadows.add(DEFAULT_SHADOW);
+    }
+
+    /** Returns a token for the current shadow, equal by identity to earlier tokens for it. */
+    public Object getCurrent() {
+      return current;
+    }
+
+    /** Returns a handle that takes no arguments and tests whether the given token is current. */
+    public MethodHandle isCurrentTest(Object token) {
+      return MethodHandles.insertArguments(IS_CURRENT, 0, this, token);
+    }
+
+    @SuppressWarnings("unused")
+    boolean isCurrent(Object token) {
+      return current == token;
+    }
+
+    private void setCurrent(Object shadow) {
+      for (Object knownShadow : shadows) {
+        if (knownShadow.equals(shadow)) {
+          current = knownShadow;
+          return;
+        }
+      }
+      shadows.add(shadow);
+      current = shadow;
+    }
+  }
 }
@@ -1,5 +1,6 @@
 package org.robolectric.internal.bytecode;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
@@ -8,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.robolectric.annotation.Implements;
+import org.robolectric.internal.ShadowIndex;
 import org.robolectric.internal.ShadowProvider;
 import org.robolectric.sandbox.ShadowMatcher;
 import org.robolectric.shadow.api.ShadowPicker;
@@ -19,40 +21,40 @@ import org.robolectric.shadow.api.ShadowPicker;
  * any sandboxes, but instrumented and shadowed classes must be loaded through a
  * {@link SandboxClassLoader}. We don't want to try to resolve those classes outside of a sandbox.
  *
+ * Default shadows are looked up in the sorted {@link ShadowIndex} of each provider rather than
+ * copied into a single map, so building a ShadowMap doesn't depend on the number of shadows. Where
+ * the index records the metadata of a shadow, its {@link ShadowInfo} is built from the index
+ * instead of from its {@link Implements} annotation.
+ *
  * Once constructed, instances are immutable.
  */
 @SuppressWarnings("NewApi")
 public class ShadowMap {
 
-  static final ShadowMap EMPTY = new ShadowMap(ImmutableMap.of(), ImmutableMap.of());
+  static final ShadowMap EMPTY =
+      new ShadowMap(ImmutableList.of(), ImmutableMap.of());
 
-  private final ImmutableMap<String, String> defaultShadows;
+  /** In provider order; where providers shadow the same class, the last one wins. */
+  private final ImmutableList<ShadowIndex> shadowIndexes;
   private final ImmutableMap<String, ShadowInfo> overriddenShadows;
   private final ImmutableMap<String, String> shadowPickers;
 
-  @SuppressWarnings("AndroidJdkLibsChecker")
   public static ShadowMap createFromShadowProviders(List<ShadowProvider> sortedProviders) {
-    final Map<String, String> shadowMap = new HashMap<>();
-    final Map<String, String> shadowPickerMap = new HashMap<>();
-
+    ImmutableList.Builder<ShadowIndex> shadowIndexes = ImmutableList.builder();
     for (ShadowProvider provider : sortedProviders) {
-       shadowMap.putAll(provider.getShadowMap());
-       shadowPickerMap.putAll(provider.getShadowPickerMap());
+      shadowIndexes.add(provider.getShadowIndex());
     }
-    return new ShadowMap(ImmutableMap.copyOf(shadowMap), Collections.emptyMap(),
-        ImmutableMap.copyOf(shadowPickerMap));
+    return new ShadowMap(shadowIndexes.build(), Collections.emptyMap());
   }
 
-  ShadowMap(
-      ImmutableMap<String, String> defaultShadows,
-      Map<String, ShadowInfo> overriddenShadows) {
-    this(defaultShadows, overriddenShadows, Collections.emptyMap());
+  ShadowMap(ImmutableList<ShadowIndex> shadowIndexes, Map<String, ShadowInfo> overriddenShadows) {
+    this(shadowIndexes, overriddenShadows, Collections.emptyMap());
   }
 
-  private ShadowMap(ImmutableMap<String, String> defaultShadows,
+  private ShadowMap(ImmutableList<ShadowIndex> shadowIndexes,
       Map<String, ShadowInfo> overriddenShadows,
       Map<String, String> shadowPickers) {
-    this.defaultShadows = defaultShadows;
+    this.shadowIndexes = shadowIndexes;
     this.overriddenShadows = ImmutableMap.copyOf(overriddenShadows);
     this.shadowPickers = ImmutableMap.copyOf(shadowPickers);
   }
@@ -69,10 +71,13 @@ public class ShadowMap {
 
     if (shadowInfo == null && clazz.getClassLoader() != null) {
       try {
-        final String shadowName = defaultShadows.get(clazz.getCanonicalName());
+        final String shadowName = findDefaultShadow(clazz.getCanonicalName());
         if (shadowName != null) {
-          Class<?> shadowClass = clazz.getClassLoader().loadClass(shadowName);
-          shadowInfo = obtainShadowInfo(shadowClass);
+          shadowInfo = findGeneratedShadowInfo(shadowName, clazz.getClassLoader());
+          if (shadowInfo == null) {
+            Class<?> shadowClass = clazz.getClassLoader().loadClass(shadowName);
+            shadowInfo = obtainShadowInfo(shadowClass);
+          }
           if (!shadowInfo.shadowedClassName.equals(instrumentedClassName)) {
             // somehow we got the wrong shadow class?
             shadowInfo = null;
@@ -90,9 +95,33 @@ public class ShadowMap {
     return shadowInfo;
   }
 
+  private String findDefaultShadow(String canonicalName) {
+    for (int i = shadowIndexes.size() - 1; i >= 0; i--) {
+      String shadowClassName = shadowIndexes.get(i).getDefaultShadowClassName(canonicalName);
+      if (shadowClassName != null) {
+        return shadowClassName;
+      }
+    }
+    return null;
+  }
+
+  private String findShadowPicker(String instrumentedClassName) {
+    String shadowPickerClassName = shadowPickers.get(instrumentedClassName);
+    if (shadowPickerClassName != null) {
+      return shadowPickerClassName;
+    }
+    for (int i = shadowIndexes.size() - 1; i >= 0; i--) {
+      shadowPickerClassName = shadowIndexes.get(i).getShadowPickerClassName(instrumentedClassName);
+      if (shadowPickerClassName != null) {
+        return shadowPickerClassName;
+      }
+    }
+    return null;
+  }
+
   // todo: some caching would probably be nice here...
   private ShadowInfo checkShadowPickers(String instrumentedClassName, Class<?> clazz) {
-    String shadowPickerClassName = shadowPickers.get(instrumentedClassName);
+    String shadowPickerClassName = findShadowPicker(instrumentedClassName);
     if (shadowPickerClassName == null) {
       return null;
     }
@@ -111,7 +140,10 @@ public class ShadowMap {
       if (selectedShadowClass == null) {
         return obtainShadowInfo(Object.class, true);
       }
-      ShadowInfo shadowInfo = obtainShadowInfo(selectedShadowClass);
+      ShadowInfo shadowInfo = findGeneratedShadowInfo(selectedShadowClass);
+      if (shadowInfo == null) {
+        shadowInfo = obtainShadowInfo(selectedShadowClass);
+      }
 
       if (!shadowInfo.shadowedClassName.equals(instrumentedClassName)) {
         throw new IllegalArgumentException("Implemented class for "
@@ -132,6 +164,66 @@ public class ShadowMap {
     return pickShadow(instrumentedClassName, clazz, shadowInfo.getShadowPickerClass().getName());
   }
 
+  /**
+   * Returns the {@link ShadowInfo} for the given class if it is a shadow, or null if it isn't. The
+   * generated metadata of the shadow providers is used where available.
+   */
+  public ShadowInfo findShadowInfo(Class<?> shadowClass) {
+    try {
+      ShadowInfo shadowInfo = findGeneratedShadowInfo(shadowClass);
+      return shadowInfo == null ? obtainShadowInfo(shadowClass, true) : shadowInfo;
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Failed to resolve shadow picker for " + shadowClass, e);
+    }
+  }
+
+  /**
+   * Returns the {@code @RealObject} fields of the given shadow class and its superclasses as
+   * recorded in the generated metadata, or null if the class has none.
+   */
+  String[] getRealObjectFields(String shadowClassName) {
+    for (int i = shadowIndexes.size() - 1; i >= 0; i--) {
+      ShadowIndex shadowIndex = shadowIndexes.get(i);
+      int index = shadowIndex.indexOfShadow(shadowClassName);
+      if (index >= 0 && shadowIndex.hasMetadata(index)) {
+        return shadowIndex.getRealObjectFields(index);
+      }
+    }
+    return null;
+  }
+
+  private ShadowInfo findGeneratedShadowInfo(Class<?> shadowClass)
+      throws ClassNotFoundException {
+    return findGeneratedShadowInfo(shadowClass.getName(), shadowClass.getClassLoader());
+  }
+
+  @SuppressWarnings("unchecked")
+  private ShadowInfo findGeneratedShadowInfo(String shadowClassName, ClassLoader classLoader)
+      throws ClassNotFoundException {
+    for (int i = shadowIndexes.size() - 1; i >= 0; i--) {
+      ShadowIndex shadowIndex = shadowIndexes.get(i);
+      int index = shadowIndex.indexOfShadow(shadowClassName);
+      if (index < 0 || !shadowIndex.hasMetadata(index)) {
+        continue;
+      }
+
+      String shadowPickerClassName = shadowIndex.getShadowPickerClassName(index);
+      Class<? extends ShadowPicker<?>> shadowPickerClass =
+          shadowPickerClassName == null || classLoader == null
+              ? null
+              : (Class<? extends ShadowPicker<?>>) classLoader.loadClass(shadowPickerClassName);
+      return new ShadowInfo(
+          shadowIndex.getShadowedClassName(index),
+          shadowClassName,
+          shadowIndex.isCallThroughByDefault(index),
+          shadowIndex.isLooseSignatures(index),
+          shadowIndex.getMinSdk(index),
+          shadowIndex.getMaxSdk(index),
+          shadowPickerClass);
+    }
+    return null;
+  }
+
   public static ShadowInfo obtainShadowInfo(Class<?> clazz) {
     return obtainShadowInfo(clazz, false);
   }
@@ -153,6 +245,14 @@ public class ShadowMap {
     return new ShadowInfo(className, clazz.getName(), annotation);
   }
 
+  /**
+   * Returns the shadow added for the given class in place of its default one, or null if there
+   * isn't one.
+   */
+  ShadowInfo getOverriddenShadowInfo(String className) {
+    return overriddenShadows.get(className);
+  }
+
   @SuppressWarnings("ReferenceEquality")
   public Set<String> getInvalidatedClasses(ShadowMap previous) {
     if (this == previous && shadowPickers.isEmpty()) return Collections.emptySet();
@@ -206,18 +306,18 @@ public class ShadowMap {
   }
 
   public static class Builder {
-    private final ImmutableMap<String, String> defaultShadows;
+    private final ImmutableList<ShadowIndex> shadowIndexes;
     private final Map<String, ShadowInfo> overriddenShadows;
     private final Map<String, String> shadowPickers;
 
     public Builder () {
-      defaultShadows = ImmutableMap.of();
+      shadowIndexes = ImmutableList.of();
       overriddenShadows = new HashMap<>();
       shadowPickers = new HashMap<>();
     }
 
     public Builder(ShadowMap shadowMap) {
-      this.defaultShadows = shadowMap.defaultShadows;
+      this.shadowIndexes = shadowMap.shadowIndexes;
       this.overriddenShadows = new HashMap<>(shadowMap.overriddenShadows);
       this.shadowPickers = new HashMap<>(shadowMap.shadowPickers);
     }
@@ -254,7 +354,7 @@ public class ShadowMap {
     }
 
     public ShadowMap build() {
-      return new ShadowMap(defaultShadows, overriddenShadows, shadowPickers);
+      return new ShadowMap(shadowIndexes, overriddenShadows, shadowPickers);
     }
   }
 }
@@ -16,7 +16,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -98,12 +100,22 @@ public class ShadowWrangler implements ClassHandler {
     }
   };
 
+  /** key is instrumented class */
+  private final ClassValueMap<DispatchTable> cachedDispatchTables =
+      new ClassValueMap<DispatchTable>() {
+        @Override
+        protected DispatchTable computeValue(Class<?> type) {
+          return PerfStatsCollector.getInstance()
+              .measure("build shadow dispatch table", () -> buildDispatchTable(type));
+        }
+      };
+
   /** key is shadow class */
   private final ClassValueMap<ShadowMetadata> cachedShadowMetadata = new ClassValueMap<ShadowMetadata>() {
     @Nonnull
     @Override
     protected ShadowMetadata computeValue(Class<?> type) {
-      return new ShadowMetadata(type);
+      return new ShadowMetadata(type, shadowMap.getRealObjectFields(type.getName()));
     }
   };
 
@@ -221,8 +233,7 @@ public class ShadowWrangler implements ClassHandler {
         return DO_NOTHING;
       }
 
-      shadowMethod.setAccessible(true);
-      MethodHandle mh = LOOKUP.unreflect(shadowMethod);
+      MethodHandle mh = cachedDispatchTables.get(definingClass).getHandle(shadowMethod);
 
       // Robolectric doesn't actually look for static, this for example happens
       // in MessageQueue.nativeInit() which used to be void non-static in 4.2.
@@ -235,94 +246,89 @@ public class ShadowWrangler implements ClassHandler {
   }
 
   protected Method pickShadowMethod(Class<?> definingClass, String name, Class<?>[] paramTypes) {
-    ShadowInfo shadowInfo = getExactShadowInfo(definingClass);
-    if (shadowInfo == null) {
+    DispatchTable dispatchTable = cachedDispatchTables.get(definingClass);
+    if (dispatchTable == NO_DISPATCH_TABLE) {
       return CALL_REAL_CODE;
-    } else {
-      ClassLoader classLoader = definingClass.getClassLoader();
-      Class<?> shadowClass;
-      try {
-        shadowClass = Class.forName(shadowInfo.shadowClassName, false, classLoader);
-      } catch (ClassNotFoundException e) {
-        throw new IllegalStateException(e);
-      }
+    }
 
-      Method method = findShadowMethod(definingClass, name, paramTypes, shadowInfo, shadowClass);
-      if (method == null) {
-        return shadowInfo.callThroughByDefault ? CALL_REAL_CODE : DO_NOTHING_METHOD;
-      } else {
-        return method;
-      }
+    Method method = dispatchTable.find(name, paramTypes);
+    if (method == null) {
+      return dispatchTable.callThroughByDefault ? CALL_REAL_CODE : DO_NOTHING_METHOD;
+    } else {
+      return method;
     }
   }
 
   /**
-   * Searches for an `@Implementation` method on a given shadow class.
+   * Collects the `@Implementation` methods that apply to a given shadowed class.
    *
-   * If the shadow class allows loose signatures, search for them.
-   *
-   * If the shadow class doesn't have such a method, but does have a superclass which implements
-   * the same class as it, call ourself recursively with the shadow superclass.
+   * If the shadow class doesn't have a method, but does have a superclass which implements the
+   * same class as it, the superclass is searched next, so the table has a level for each such
+   * shadow superclass.
    */
-  private Method findShadowMethod(
-      Class<?> definingClass,
-      String name,
-      Class<?>[] types,
-      ShadowInfo shadowInfo,
-      Class<?> shadowClass) {
-    Method method = findShadowMethodDeclaredOnClass(shadowClass, name, types);
+  private DispatchTable buildDispatchTable(Class<?> definingClass) {
+    ShadowInfo shadowInfo = getExactShadowInfo(definingClass);
+    if (shadowInfo == null) {
+      return NO_DISPATCH_TABLE;
+    }
 
-    if (method == null && shadowInfo.looseSignatures) {
-      Class<?>[] genericTypes = MethodType.genericMethodType(types.length).parameterArray();
-      method = findShadowMethodDeclaredOnClass(shadowClass, name, genericTypes);
+    Class<?> shadowClass;
+    try {
+      shadowClass = Class.forName(shadowInfo.shadowClassName, false, definingClass.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
     }
 
-    if (method != null) {
-      return method;
-    } else {
-      // if the shadow's superclass shadows the same class as this shadow, then recurse.
+    boolean callThroughByDefault = shadowInfo.callThroughByDefault;
+    List<DispatchLevel> levels = new ArrayList<>();
+    while (shadowInfo != null) {
+      levels.add(new DispatchLevel(findShadowMethodsDeclaredOnClass(shadowClass),
+          shadowInfo.looseSignatures));
+
+      // if the shadow's superclass shadows the same class as this shadow, then search it too.
       // Buffalo buffalo buffalo buffalo buffalo buffalo buffalo.
       Class<?> shadowSuperclass = shadowClass.getSuperclass();
+      ShadowInfo shadowSuperclassInfo = null;
       if (shadowSuperclass != null && !shadowSuperclass.equals(Object.class)) {
-        ShadowInfo shadowSuperclassInfo = ShadowMap.obtainShadowInfo(shadowSuperclass, true);
+        shadowSuperclassInfo = shadowMap.findShadowInfo(shadowSuperclass);
         if (shadowSuperclassInfo != null
-            && shadowSuperclassInfo.isShadowOf(definingClass)
-            && shadowMatcher.matches(shadowSuperclassInfo)) {
-
-          method =
-              findShadowMethod(definingClass, name, types, shadowSuperclassInfo, shadowSuperclass);
+            && (!shadowSuperclassInfo.isShadowOf(definingClass)
+                || !shadowMatcher.matches(shadowSuperclassInfo))) {
+          shadowSuperclassInfo = null;
         }
       }
+      shadowInfo = shadowSuperclassInfo;
+      shadowClass = shadowSuperclass;
     }
 
-    return method;
+    return new DispatchTable(levels, callThroughByDefault);
   }
 
-  private Method findShadowMethodDeclaredOnClass(
-      Class<?> shadowClass, String methodName, Class<?>[] paramClasses) {
-    try {
-      Method method = shadowClass.getDeclaredMethod(methodName, paramClasses);
-
-      // todo: allow per-version overloading
-      // if (method == null) {
-      //   String methodPrefix = name + "$$";
-      //   for (Method candidateMethod : shadowClass.getDeclaredMethods()) {
-      //     if (candidateMethod.getName().startsWith(methodPrefix)) {
-      //
-      //     }
-      //   }
-      // }
+  /**
+   * Returns the valid shadow methods declared on a shadow class. Where several methods have the
+   * same name and parameters, the one with the most specific return type is used, as by {@link
+   * Class#getDeclaredMethod(String, Class[])}.
+   */
+  private Map<MethodKey, Method> findShadowMethodsDeclaredOnClass(Class<?> shadowClass) {
+    Map<MethodKey, Method> declaredMethods = new HashMap<>();
+    for (Method method : shadowClass.getDeclaredMethods()) {
+      MethodKey key = new MethodKey(method.getName(), method.getParameterTypes());
+      Method other = declaredMethods.get(key);
+      if (other == null || other.getReturnType().isAssignableFrom(method.getReturnType())) {
+        declaredMethods.put(key, method);
+      }
+    }
 
+    // todo: allow per-version overloading
+    Map<MethodKey, Method> shadowMethods = new HashMap<>();
+    for (Map.Entry<MethodKey, Method> entry : declaredMethods.entrySet()) {
+      Method method = entry.getValue();
       if (isValidShadowMethod(method)) {
         method.setAccessible(true);
-        return method;
-      } else {
-        return null;
+        shadowMethods.put(entry.getKey(), method);
       }
-
-    } catch (NoSuchMethodException e) {
-      return null;
     }
+    return shadowMethods;
   }
 
   private boolean isValidShadowMethod(Method method) {
@@ -466,6 +472,91 @@ public class ShadowWrangler implements ClassHandler {
     }
   }
 
+  private static final DispatchTable NO_DISPATCH_TABLE =
+      new DispatchTable(Collections.emptyList(), true);
+
+  /** The shadow methods for a shadowed class, and the {@link MethodHandle}s made from them. */
+  private static class DispatchTable {
+    private final List<DispatchLevel> levels;
+    final boolean callThroughByDefault;
+    private final Map<Method, MethodHandle> handles =
+        Collections.synchronizedMap(new HashMap<>());
+
+    DispatchTable(List<DispatchLevel> levels, boolean callThroughByDefault) {
+      this.levels = levels;
+      this.callThroughByDefault = callThroughByDefault;
+    }
+
+    /**
+     * Searches for an `@Implementation` method. If a shadow class allows loose signatures, search
+     * for them too before moving on to its superclass.
+     */
+    Method find(String name, Class<?>[] paramTypes) {
+      MethodKey key = new MethodKey(name, paramTypes);
+      MethodKey looseKey = null;
+      for (DispatchLevel level : levels) {
+        Method method = level.methods.get(key);
+        if (method == null && level.looseSignatures) {
+          if (looseKey == null) {
+            looseKey = new MethodKey(name,
+                MethodType.genericMethodType(paramTypes.length).parameterArray());
+          }
+          method = level.methods.get(looseKey);
+        }
+        if (method != null) {
+          return method;
+        }
+      }
+      return null;
+    }
+
+    MethodHandle getHandle(Method shadowMethod) throws IllegalAccessException {
+      MethodHandle handle = handles.get(shadowMethod);
+      if (handle == null) {
+        handle = LOOKUP.unreflect(shadowMethod);
+        handles.put(shadowMethod, handle);
+      }
+      return handle;
+    }
+  }
+
+  private static class DispatchLevel {
+    final Map<MethodKey, Method> methods;
+    final boolean looseSignatures;
+
+    DispatchLevel(Map<MethodKey, Method> methods, boolean looseSignatures) {
+      this.methods = methods;
+      this.looseSignatures = looseSignatures;
+    }
+  }
+
+  private static class MethodKey {
+    private final String name;
+    private final Class<?>[] paramTypes;
+
+    MethodKey(String name, Class<?>[] paramTypes) {
+      this.name = name;
+      this.paramTypes = paramTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MethodKey)) {
+        return false;
+      }
+      MethodKey that = (MethodKey) o;
+      return name.equals(that.name) && Arrays.equals(paramTypes, that.paramTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * name.hashCode() + Arrays.hashCode(paramTypes);
+    }
+  }
+
   private static class ShadowMethodPlan implements Plan {
     private final Method shadowMethod;
 
@@ -509,13 +600,26 @@ public class ShadowWrangler implements ClassHandler {
     final Constructor<?> constructor;
     final List<Field> realObjectFields = new ArrayList<>();
 
-    public ShadowMetadata(Class<?> shadowClass) {
+    /**
+     * @param generatedRealObjectFields the {@code @RealObject} fields recorded by the annotation
+     *     processor, or null to look for annotated fields reflectively
+     */
+    public ShadowMetadata(Class<?> shadowClass, String[] generatedRealObjectFields) {
       try {
         this.constructor = shadowClass.getConstructor();
       } catch (NoSuchMethodException e) {
         throw new RuntimeException("Missing public empty constructor on " + shadowClass, e);
       }
 
+      if (generatedRealObjectFields != null) {
+        for (String realObjectField : generatedRealObjectFields) {
+          Field field = findDeclaredField(shadowClass, realObjectField);
+          field.setAccessible(true);
+          realObjectFields.add(field);
+        }
+        return;
+      }
+
       while (shadowClass != null) {
         for (Field field : shadowClass.getDeclaredFields()) {
           if (field.isAnnotationPresent(RealObject.class)) {
@@ -531,6 +635,23 @@ public class ShadowWrangler implements ClassHandler {
         shadowClass = shadowClass.getSuperclass();
       }
     }
+
+    private static Field findDeclaredField(Class<?> shadowClass, String realObjectField) {
+      int separator = realObjectField.indexOf('#');
+      String declaringClassName = realObjectField.substring(0, separator);
+      String fieldName = realObjectField.substring(separator + 1);
+      for (Class<?> c = shadowClass; c != null; c = c.getSuperclass()) {
+        if (c.getName().equals(declaringClassName)) {
+          try {
+            return c.getDeclaredField(fieldName);
+          } catch (NoSuchFieldException e) {
+            break;
+          }
+        }
+      }
+      throw new IllegalArgumentException(
+          "@RealObject field " + realObjectField + " not found on " + shadowClass);
+    }
   }
 
   @SuppressWarnings("unused")
@@ -0,0 +1,113 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.ClassHierarchyIndex.TypeInfo;
+import org.robolectric.util.Util;
+
+@RunWith(JUnit4.class)
+public class ClassHierarchyIndexTest {
+
+  @Test
+  public void typeInfo_shouldHoldSupertypesAndAccess() throws Exception {
+    TypeInfo typeInfo = TypeInfo.read(classBytes("java/util/ArrayList"));
+
+    assertThat(typeInfo.superName).isEqualTo("java/util/AbstractList");
+    assertThat(typeInfo.interfaces).asList().contains("java/util/List");
+    assertThat(typeInfo.isInterface()).isFalse();
+    assertThat(TypeInfo.read(classBytes("java/util/List")).isInterface()).isTrue();
+  }
+
+  @Test
+  public void jarOf_shouldOnlyReturnJars() throws Exception {
+    assertThat(
+            ClassHierarchyIndex.jarOf(
+                new URL("jar:file:/repo/android-all-9.jar!/android/view/View.class")))
+        .isEqualTo("file:/repo/android-all-9.jar");
+    assertThat(ClassHierarchyIndex.jarOf(new URL("file:/build/classes/android/view/View.class")))
+        .isNull();
+    assertThat(ClassHierarchyIndex.jarOf(null)).isNull();
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntries() throws Exception {
+    ClassHierarchyIndex index = new ClassHierarchyIndex(2);
+    TypeInfo typeInfo = TypeInfo.read(classBytes("java/util/ArrayList"));
+    index.put("file:/a.jar", "a/A", typeInfo);
+    index.put("file:/a.jar", "a/B", typeInfo);
+    index.get("file:/a.jar", "a/A");
+    index.put("file:/b.jar", "a/A", typeInfo);
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.get("file:/a.jar", "a/A")).isSameInstanceAs(typeInfo);
+    assertThat(index.get("file:/a.jar", "a/B")).isNull();
+    assertThat(index.get("file:/b.jar", "a/A")).isSameInstanceAs(typeInfo);
+  }
+
+  @Test
+  public void providersReadingTheSameJar_shouldShareTypeInfo() throws Exception {
+    List<String> transcript = new ArrayList<>();
+    ClassNodeProvider provider1 = new JarClassNodeProvider("file:/shared-1.jar", transcript);
+    ClassNodeProvider provider2 = new JarClassNodeProvider("file:/shared-1.jar", transcript);
+    ClassNodeProvider provider3 = new JarClassNodeProvider("file:/shared-2.jar", transcript);
+
+    TypeInfo typeInfo = provider1.getTypeInfo("java/util/ArrayList");
+    assertThat(provider2.getTypeInfo("java/util/ArrayList")).isSameInstanceAs(typeInfo);
+    assertThat(provider3.getTypeInfo("java/util/ArrayList")).isNotSameInstanceAs(typeInfo);
+    assertThat(transcript)
+        .containsExactly(
+            "file:/shared-1.jar: java/util/ArrayList", "file:/shared-2.jar: java/util/ArrayList");
+  }
+
+  @Test
+  public void classesNotReadFromJars_shouldOnlyBeReadOncePerProvider() throws Exception {
+    List<String> transcript = new ArrayList<>();
+    ClassNodeProvider provider1 = new JarClassNodeProvider(null, transcript);
+    ClassNodeProvider provider2 = new JarClassNodeProvider(null, transcript);
+
+    TypeInfo typeInfo = provider1.getTypeInfo("java/util/ArrayList");
+    assertThat(provider1.getTypeInfo("java/util/ArrayList")).isSameInstanceAs(typeInfo);
+    assertThat(provider2.getTypeInfo("java/util/ArrayList")).isNotSameInstanceAs(typeInfo);
+    assertThat(transcript)
+        .containsExactly("null: java/util/ArrayList", "null: java/util/ArrayList");
+  }
+
+  private static byte[] classBytes(String internalClassName) throws IOException {
+    try (InputStream in = ClassLoader.getSystemResourceAsStream(internalClassName + ".class")) {
+      return Util.readBytes(in);
+    }
+  }
+
+  private static class JarClassNodeProvider extends ClassNodeProvider {
+    private final String jar;
+    private final List<String> transcript;
+
+    JarClassNodeProvider(String jar, List<String> transcript) {
+      this.jar = jar;
+      this.transcript = transcript;
+    }
+
+    @Override
+    protected byte[] getClassBytes(String className) throws ClassNotFoundException {
+      transcript.add(jar + ": " + className);
+      try {
+        return classBytes(className);
+      } catch (IOException e) {
+        throw new ClassNotFoundException(className, e);
+      }
+    }
+
+    @Override
+    protected String getClassJar(String internalClassName) {
+      return jar;
+    }
+  }
+}
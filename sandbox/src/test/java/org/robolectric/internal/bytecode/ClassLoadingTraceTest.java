@@ -0,0 +1,54 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.ClassLoadingTrace.Entry;
+
+@RunWith(JUnit4.class)
+public class ClassLoadingTraceTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteAndReadTraces() throws Exception {
+    ClassLoadingTrace trace = new ClassLoadingTrace("SDK 28");
+    trace.record("a.A", true, false, 5_000_000, 2_000_000, 1_000_000);
+    trace.record("a.B", false, true, 7_000, 3_000, 0);
+    File file = new File(temporaryFolder.getRoot(), "traces/sdk28.trace");
+
+    trace.write(file);
+    ClassLoadingTrace readTrace = ClassLoadingTrace.read(file);
+
+    assertThat(readTrace.getDescription()).isEqualTo("SDK 28");
+    assertThat(readTrace.getClassNames()).containsExactly("a.A", "a.B").inOrder();
+    List<Entry> entries = readTrace.getEntries();
+    assertThat(entries.get(0).instrumented).isTrue();
+    assertThat(entries.get(0).prefetched).isFalse();
+    assertThat(entries.get(0).loadNs).isEqualTo(5_000_000L);
+    assertThat(entries.get(0).analyzeNs).isEqualTo(2_000_000L);
+    assertThat(entries.get(0).instrumentNs).isEqualTo(1_000_000L);
+    assertThat(entries.get(1).instrumented).isFalse();
+    assertThat(entries.get(1).prefetched).isTrue();
+    assertThat(entries.get(1).loadNs).isEqualTo(7_000L);
+  }
+
+  @Test
+  public void shouldReplaceExistingTraces() throws Exception {
+    File file = new File(temporaryFolder.getRoot(), "sdk28.trace");
+    ClassLoadingTrace trace = new ClassLoadingTrace("SDK 28");
+    trace.record("a.A", true, false, 0, 0, 0);
+    trace.write(file);
+
+    trace.record("a.B", true, false, 0, 0, 0);
+    trace.write(file);
+
+    assertThat(ClassLoadingTrace.read(file).getClassNames()).containsExactly("a.A", "a.B");
+    assertThat(temporaryFolder.getRoot().list()).hasLength(1);
+  }
+}
@@ -0,0 +1,145 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassPathIndexTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldReadStoredAndDeflatedEntries() throws Exception {
+    File jar = temporaryFolder.newFile("a.jar");
+    writeJar(jar, null, "a/Stored.class", "stored", "a/Deflated.class", "deflated");
+
+    ClassPathIndex index = load(jar);
+
+    assertThat(read(index, "a/Stored.class")).isEqualTo("stored");
+    assertThat(read(index, "a/Deflated.class")).isEqualTo("deflated");
+    assertThat(index.getClassBytes("a/Missing.class")).isNull();
+  }
+
+  @Test
+  public void shouldPreferEarlierClassPathEntries() throws Exception {
+    File jar1 = temporaryFolder.newFile("1.jar");
+    File jar2 = temporaryFolder.newFile("2.jar");
+    File directory = temporaryFolder.newFolder("classes");
+    writeJar(jar1, null, "a/A.class", "from 1");
+    writeJar(jar2, null, "a/A.class", "from 2", "a/B.class", "from 2");
+    Files.createDirectories(new File(directory, "a").toPath());
+    Files.write(new File(directory, "a/B.class").toPath(), "from classes".getBytes(UTF_8));
+
+    ClassPathIndex index = load(jar1, directory, jar2);
+
+    assertThat(read(index, "a/A.class")).isEqualTo("from 1");
+    assertThat(read(index, "a/B.class")).isEqualTo("from classes");
+  }
+
+  @Test
+  public void getJar_shouldNameTheJarClassFilesAreReadFrom() throws Exception {
+    File jar1 = temporaryFolder.newFile("1.jar");
+    File jar2 = temporaryFolder.newFile("2.jar");
+    File directory = temporaryFolder.newFolder("classes");
+    writeJar(jar1, null, "a/A.class", "from 1");
+    writeJar(jar2, null, "a/A.class", "from 2", "a/B.class", "from 2");
+    Files.createDirectories(new File(directory, "a").toPath());
+    Files.write(new File(directory, "a/B.class").toPath(), "from classes".getBytes(UTF_8));
+
+    ClassPathIndex index = load(jar1, directory, jar2);
+
+    assertThat(index.getJar("a/A.class"))
+        .isEqualTo(
+            ClassHierarchyIndex.jarOf(new URL("jar:" + jar1.toURI().toURL() + "!/a/A.class")));
+    assertThat(index.getJar("a/B.class")).isNull();
+    assertThat(index.getJar("a/Missing.class")).isNull();
+  }
+
+  @Test
+  public void shouldFollowManifestClassPath() throws Exception {
+    File jar1 = temporaryFolder.newFile("1.jar");
+    File jar2 = temporaryFolder.newFile("2.jar");
+    File jar3 = temporaryFolder.newFile("3.jar");
+    writeJar(jar1, "3.jar", "a/A.class", "from 1");
+    writeJar(jar2, null, "a/B.class", "from 2");
+    writeJar(jar3, null, "a/B.class", "from 3", "a/C.class", "from 3");
+
+    ClassPathIndex index = load(jar1, jar2);
+
+    assertThat(read(index, "a/B.class")).isEqualTo("from 3");
+    assertThat(read(index, "a/C.class")).isEqualTo("from 3");
+  }
+
+  @Test
+  public void shouldRebuildCachedIndexWhenJarChanges() throws Exception {
+    File jar = temporaryFolder.newFile("a.jar");
+    writeJar(jar, null, "a/A.class", "before");
+    assertThat(read(load(jar), "a/A.class")).isEqualTo("before");
+    assertThat(temporaryFolder.getRoot().toPath().resolve("cache").toFile().list()).hasLength(1);
+
+    writeJar(jar, null, "a/Other.class", "whatever", "a/A.class", "after");
+    assertThat(jar.setLastModified(jar.lastModified() + 10_000)).isTrue();
+
+    assertThat(read(load(jar), "a/A.class")).isEqualTo("after");
+  }
+
+  @Test
+  public void shouldNotIndexNonFileUrls() throws Exception {
+    URL[] urls = {new URL("http://example.com/a.jar")};
+
+    assertThat(ClassPathIndex.load(urls, new File(temporaryFolder.getRoot(), "cache"))).isNull();
+  }
+
+  private ClassPathIndex load(File... classPath) throws IOException {
+    URL[] urls = new URL[classPath.length];
+    for (int i = 0; i < classPath.length; i++) {
+      urls[i] = classPath[i].toURI().toURL();
+    }
+    return ClassPathIndex.load(urls, new File(temporaryFolder.getRoot(), "cache"));
+  }
+
+  private static String read(ClassPathIndex index, String classFileName) throws IOException {
+    return new String(index.getClassBytes(classFileName), UTF_8);
+  }
+
+  /** Writes a jar with the given names and contents, storing the first entry uncompressed. */
+  private static void writeJar(File jar, String classPath, String... namesAndContents)
+      throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        byte[] content = namesAndContents[i + 1].getBytes(UTF_8);
+        ZipEntry entry = new ZipEntry(namesAndContents[i]);
+        if (i == 0) {
+          CRC32 crc = new CRC32();
+          crc.update(content);
+          entry.setMethod(ZipEntry.STORED);
+          entry.setSize(content.length);
+          entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+      }
+    }
+  }
+}
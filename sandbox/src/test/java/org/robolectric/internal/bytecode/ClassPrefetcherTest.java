@@ -0,0 +1,115 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassPrefetcherTest {
+  private final List<String> instrumented = new ArrayList<>();
+  private final List<Runnable> queued = new ArrayList<>();
+
+  @Test
+  public void shouldPrefetchClassesInOrderWhenStarted() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.A", "a.B");
+    assertThat(queued).isEmpty();
+
+    classPrefetcher.start();
+    classPrefetcher.start();
+    runQueued();
+
+    assertThat(instrumented).containsExactly("a.A", "a.B").inOrder();
+  }
+
+  @Test
+  public void shouldHandPrefetchedClassesToLoader() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.A", "a.B", "a.C");
+
+    assertThat(classPrefetcher.take("a.A")).isNull(); // not prefetched yet
+    assertThat(queued).hasSize(1);
+    runQueued();
+
+    InstrumentedClass instrumentedClass = classPrefetcher.take("a.B");
+    assertThat(new String(instrumentedClass.bytes, UTF_8)).isEqualTo("instrumented a.B");
+    assertThat(instrumentedClass.instrumented).isTrue();
+    assertThat(classPrefetcher.take("a.B")).isNull();
+    assertThat(classPrefetcher.take("a.D")).isNull();
+    assertThat(instrumented).containsExactly("a.B", "a.C");
+  }
+
+  @Test
+  public void whenPrefetchingFails_shouldInstrumentOnLoadingThread() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.Broken");
+
+    classPrefetcher.start();
+    runQueued();
+
+    assertThat(classPrefetcher.take("a.Broken")).isNull();
+  }
+
+  @Test
+  public void whenCancelled_shouldStopPrefetchingAndDropPrefetchedClasses() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.A", "a.B");
+    classPrefetcher.start();
+    runQueued();
+
+    classPrefetcher.cancel();
+
+    assertThat(classPrefetcher.take("a.A")).isNull();
+    assertThat(classPrefetcher.take("a.B")).isNull();
+  }
+
+  @Test
+  public void whenCancelledBeforeStarting_shouldNotPrefetch() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.A", "a.B");
+
+    classPrefetcher.cancel();
+    classPrefetcher.start();
+    runQueued();
+
+    assertThat(instrumented).isEmpty();
+    assertThat(classPrefetcher.take("a.A")).isNull();
+  }
+
+  @Test
+  public void whenClassLoaderIsGone_shouldStopPrefetching() throws Exception {
+    ClassPrefetcher classPrefetcher = newClassPrefetcher("a.A", "a.Gone", "a.C");
+
+    classPrefetcher.start();
+    runQueued();
+
+    assertThat(instrumented).containsExactly("a.A");
+    assertThat(classPrefetcher.take("a.A")).isNull();
+    assertThat(classPrefetcher.take("a.C")).isNull();
+  }
+
+  private ClassPrefetcher newClassPrefetcher(String... classNames) {
+    return new ClassPrefetcher(
+        Arrays.asList(classNames),
+        className -> {
+          if (className.equals("a.Broken")) {
+            throw new ClassNotFoundException(className);
+          }
+          if (className.equals("a.Gone")) {
+            throw new CancellationException(className);
+          }
+          instrumented.add(className);
+          return new InstrumentedClass(("instrumented " + className).getBytes(UTF_8), true, 0, 0);
+        },
+        queued::add,
+        1);
+  }
+
+  private void runQueued() {
+    for (Runnable runnable : queued) {
+      runnable.run();
+    }
+  }
+}
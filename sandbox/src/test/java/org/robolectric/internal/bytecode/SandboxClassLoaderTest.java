@@ -47,6 +47,7 @@ import org.robolectric.testing.AClassThatRefersToAForgettableClassInMethodCalls;
 import org.robolectric.testing.AClassThatRefersToAForgettableClassInMethodCallsReturningPrimitive;
 import org.robolectric.testing.AClassToForget;
 import org.robolectric.testing.AClassToRemember;
+import org.robolectric.testing.AClassWithBranches;
 import org.robolectric.testing.AClassWithEqualsHashCodeToString;
 import org.robolectric.testing.AClassWithFunnyConstructors;
 import org.robolectric.testing.AClassWithMethodReturningArray;
@@ -376,6 +377,35 @@ public class SandboxClassLoaderTest {
     return directMethod;
   }
 
+  @Test
+  public void shouldKeepOrComputeFramesForMethodsWithBranches() throws Exception {
+    Class<?> aClass = loadClass(AClassWithBranches.class);
+    Object instance = aClass.getConstructor(String.class, boolean.class).newInstance("foo", true);
+
+    Method constructorBody =
+        aClass.getDeclaredMethod(
+            shadow.directMethodName(aClass.getName(), ShadowConstants.CONSTRUCTOR_METHOD_NAME),
+            String.class,
+            boolean.class);
+    constructorBody.setAccessible(true);
+    constructorBody.invoke(instance, "foo", true);
+    Method directSum =
+        aClass.getDeclaredMethod(shadow.directMethodName(aClass.getName(), "sum"), int[].class);
+    directSum.setAccessible(true);
+    assertEquals(9L, directSum.invoke(instance, new int[] {0, 1, 3}));
+    Method directDescribe =
+        aClass.getDeclaredMethod(
+            shadow.directMethodName(aClass.getName(), "describe"), Object.class);
+    directDescribe.setAccessible(true);
+    assertEquals("null", directDescribe.invoke(null, (Object) null));
+
+    Method sum = aClass.getMethod("sum", int[].class);
+    classHandler.valueToReturn = 7L;
+    assertEquals(7L, sum.invoke(instance, new int[0]));
+    classHandler.valueToReturn = null;
+    assertEquals(0L, sum.invoke(instance, new int[0]));
+  }
+
   @Test
   public void shouldNotInstrumentFinalEqualsHashcode() throws ClassNotFoundException {
     loadClass(AClassThatExtendsAClassWithFinalEqualsHashCode.class);
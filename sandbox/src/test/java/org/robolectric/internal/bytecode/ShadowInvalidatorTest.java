@@ -0,0 +1,57 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Collections.singletonMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.SwitchPoint;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.ShadowInvalidator.ShadowVersion;
+
+@RunWith(JUnit4.class)
+public class ShadowInvalidatorTest {
+  private final ShadowInvalidator shadowInvalidator = new ShadowInvalidator();
+
+  @Test
+  public void replacingShadowsForTheFirstTime_shouldInvalidateCallSites() throws Exception {
+    SwitchPoint switchPoint = shadowInvalidator.getSwitchPoint(Shadowed.class);
+    assertThat(shadowInvalidator.getShadowVersion(Shadowed.class)).isNull();
+
+    shadowInvalidator.replaceShadows(singletonMap(Shadowed.class.getName(), "CustomShadow"));
+
+    assertThat(switchPoint.hasBeenInvalidated()).isTrue();
+    assertThat(shadowInvalidator.getShadowVersion(Shadowed.class)).isNotNull();
+  }
+
+  @Test
+  public void switchingBetweenShadows_shouldNotInvalidateCallSitesAgain() throws Exception {
+    shadowInvalidator.replaceShadows(singletonMap(Shadowed.class.getName(), "CustomShadow"));
+    ShadowVersion shadowVersion = shadowInvalidator.getShadowVersion(Shadowed.class);
+    Object customShadow = shadowVersion.getCurrent();
+    SwitchPoint switchPoint = shadowInvalidator.getSwitchPoint(Shadowed.class);
+
+    shadowInvalidator.replaceShadows(singletonMap(Shadowed.class.getName(), null));
+    Object defaultShadow = shadowVersion.getCurrent();
+    shadowInvalidator.replaceShadows(
+        singletonMap(Shadowed.class.getName(), new String("CustomShadow")));
+
+    assertThat(switchPoint.hasBeenInvalidated()).isFalse();
+    assertThat(shadowVersion.getCurrent()).isSameInstanceAs(customShadow);
+    assertThat(defaultShadow).isNotSameInstanceAs(customShadow);
+  }
+
+  @Test
+  public void isCurrentTest_shouldFollowTheCurrentShadow() throws Throwable {
+    shadowInvalidator.replaceShadows(singletonMap(Shadowed.class.getName(), "CustomShadow"));
+    ShadowVersion shadowVersion = shadowInvalidator.getShadowVersion(Shadowed.class);
+    MethodHandle isCustomShadow = shadowVersion.isCurrentTest(shadowVersion.getCurrent());
+
+    assertThat((boolean) isCustomShadow.invokeExact()).isTrue();
+    shadowInvalidator.replaceShadows(singletonMap(Shadowed.class.getName(), null));
+    assertThat((boolean) isCustomShadow.invokeExact()).isFalse();
+  }
+
+  private static class Shadowed {}
+}
@@ -0,0 +1,45 @@
+package org.robolectric.testing;
+
+import org.robolectric.annotation.internal.Instrument;
+
+@SuppressWarnings("UnusedDeclaration")
+@Instrument
+public class AClassWithBranches {
+  private final String name;
+  private long total;
+
+  public AClassWithBranches(String name, boolean shout) {
+    this(shout ? name.toUpperCase() : name);
+    for (int i = 0; i < name.length(); i++) {
+      total += name.charAt(i) == 'o' ? 2 : 1;
+    }
+  }
+
+  public AClassWithBranches(String name) {
+    this.name = name;
+  }
+
+  public long sum(int[] values) {
+    long sum = total;
+    for (int value : values) {
+      switch (value) {
+        case 0:
+          continue;
+        case 1:
+          sum++;
+          break;
+        default:
+          sum += value;
+      }
+    }
+    return sum;
+  }
+
+  public static String describe(Object value) {
+    try {
+      return value == null ? "null" : value.toString();
+    } catch (RuntimeException e) {
+      return "failed";
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package org.robolectric.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shadows provided by a {@link ShadowProvider}, sorted by the name of the shadowed class so
+ * that they can be looked up with a binary search rather than copied into a map, along with the
+ * {@code @Implements} and {@code @RealObject} metadata of each shadow, so that shadows can be set
+ * up without reading their annotations at runtime.
+ *
+ * <p>The Robolectric annotation processor writes the index of a shadow package to a resource next
+ * to the generated provider, named after it with the suffix {@value #RESOURCE_SUFFIX}. The
+ * resource is UTF-8 text: the line {@value #HEADER}, then one line per shadow class, sorted by
+ * class name and then by shadow class name, with these tab-separated fields:
+ *
+ * <ol>
+ *   <li>the name the shadowed class is looked up by: its binary name if the shadow has a shadow
+ *       picker, like {@link ShadowProvider#getShadowPickerMap()}, or else its canonical name, like
+ *       {@link ShadowProvider#getShadowMap()};
+ *   <li>the shadow class name;
+ *   <li>the shadow picker class name;
+ *   <li>the min SDK and
+ *   <li>the max SDK of the shadow, or -1 if unbounded or unknown;
+ *   <li>the shadowed class name as given by {@code @Implements};
+ *   <li>callThroughByDefault;
+ *   <li>looseSignatures; and
+ *   <li>the comma-separated {@code @RealObject} fields of the shadow and its superclasses, each
+ *       written as {@code declaringClassName#fieldName}.
+ * </ol>
+ *
+ * <p>Absent values are written as {@code -}. The last four fields are all absent for shadows
+ * whose metadata wasn't recorded, whose annotations are read at runtime instead.
+ */
+public final class ShadowIndex {
+  public static final String RESOURCE_SUFFIX = ".shadowindex";
+  public static final String HEADER = "# robolectric shadow index v2";
+
+  private static final String ABSENT = "-";
+  private static final int FIELD_COUNT = 9;
+  private static final String[] NO_FIELDS = new String[0];
+
+  private static final ShadowIndex NO_RESOURCE = new ShadowIndex(new ArrayList<>());
+
+  private static final ClassValue<ShadowIndex> RESOURCE_INDEXES =
+      new ClassValue<ShadowIndex>() {
+        @Override
+        protected ShadowIndex computeValue(Class<?> providerClass) {
+          String resourceName = providerClass.getSimpleName() + RESOURCE_SUFFIX;
+          try (InputStream in = providerClass.getResourceAsStream(resourceName)) {
+            return in == null ? NO_RESOURCE : read(in);
+          } catch (IOException e) {
+            throw new UncheckedIOException("failed to read " + resourceName, e);
+          }
+        }
+      };
+
+  private final String[] classNames;
+  private final String[] shadowClassNames;
+  private final String[] shadowPickerClassNames;
+  private final int[] minSdks;
+  private final int[] maxSdks;
+  private final String[] shadowedClassNames;
+  private final boolean[] callThroughByDefaults;
+  private final boolean[] looseSignatures;
+  private final String[][] realObjectFields;
+
+  /** Positions of the entries with a shadow class, sorted by shadow class name; built on demand. */
+  private volatile int[] shadowClassOrder;
+
+  private ShadowIndex(List<String[]> lines) {
+    int size = lines.size();
+    classNames = new String[size];
+    shadowClassNames = new String[size];
+    shadowPickerClassNames = new String[size];
+    minSdks = new int[size];
+    maxSdks = new int[size];
+    shadowedClassNames = new String[size];
+    callThroughByDefaults = new boolean[size];
+    looseSignatures = new boolean[size];
+    realObjectFields = new String[size][];
+    for (int i = 0; i < size; i++) {
+      String[] fields = lines.get(i);
+      classNames[i] = fields[0];
+      shadowClassNames[i] = orNull(fields[1]);
+      shadowPickerClassNames[i] = orNull(fields[2]);
+      minSdks[i] = Integer.parseInt(fields[3]);
+      maxSdks[i] = Integer.parseInt(fields[4]);
+      shadowedClassNames[i] = orNull(fields[5]);
+      if (shadowedClassNames[i] != null) {
+        callThroughByDefaults[i] = Boolean.parseBoolean(fields[6]);
+        looseSignatures[i] = Boolean.parseBoolean(fields[7]);
+        realObjectFields[i] = ABSENT.equals(fields[8]) ? NO_FIELDS : fields[8].split(",");
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the given provider: the one generated alongside it if there is one, or
+   * else one built from its {@link ShadowProvider#getShadowMap()} and {@link
+   * ShadowProvider#getShadowPickerMap()}, without metadata.
+   */
+  public static ShadowIndex forProvider(ShadowProvider provider) {
+    ShadowIndex index = RESOURCE_INDEXES.get(provider.getClass());
+    if (index == NO_RESOURCE) {
+      index = fromMaps(provider.getShadowMap(), provider.getShadowPickerMap());
+    }
+    return index;
+  }
+
+  static ShadowIndex fromMaps(Map<String, String> shadowMap, Map<String, String> pickerMap) {
+    List<String[]> lines = new ArrayList<>();
+    for (Map.Entry<String, String> entry : shadowMap.entrySet()) {
+      lines.add(line(entry.getKey(), entry.getValue(), null));
+    }
+    for (Map.Entry<String, String> entry : pickerMap.entrySet()) {
+      lines.add(line(entry.getKey(), null, entry.getValue()));
+    }
+    lines.sort(ShadowIndex::compareLines);
+    return new ShadowIndex(lines);
+  }
+
+  private static String[] line(String className, String shadowClassName, String pickerClassName) {
+    String[] fields = new String[FIELD_COUNT];
+    Arrays.fill(fields, ABSENT);
+    fields[0] = className;
+    fields[1] = shadowClassName == null ? ABSENT : shadowClassName;
+    fields[2] = pickerClassName == null ? ABSENT : pickerClassName;
+    fields[3] = "-1";
+    fields[4] = "-1";
+    return fields;
+  }
+
+  /** Orders index lines by class name and then by shadow class name. */
+  public static int compareLines(String[] a, String[] b) {
+    int result = a[0].compareTo(b[0]);
+    return result != 0 ? result : a[1].compareTo(b[1]);
+  }
+
+  static ShadowIndex read(InputStream in) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    String header = reader.readLine();
+    if (!HEADER.equals(header)) {
+      throw new IOException("unsupported shadow index header: " + header);
+    }
+
+    List<String[]> lines = new ArrayList<>();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      if (fields.length != FIELD_COUNT) {
+        throw new IOException("malformed shadow index line: " + line);
+      }
+      if (!lines.isEmpty() && compareLines(lines.get(lines.size() - 1), fields) > 0) {
+        throw new IOException("shadow index is not sorted at: " + fields[0]);
+      }
+      lines.add(fields);
+    }
+    return new ShadowIndex(lines);
+  }
+
+  private static String orNull(String field) {
+    return ABSENT.equals(field) ? null : field;
+  }
+
+  /** Returns the number of entries in this index. */
+  public int size() {
+    return classNames.length;
+  }
+
+  /**
+   * Returns the name of the shadow class for the given class, looked up by canonical name, or null
+   * if it has none or is only shadowed through a picker.
+   */
+  public String getDefaultShadowClassName(String className) {
+    for (int i = firstIndexOf(className); i >= 0 && i < size() && classNames[i].equals(className);
+        i++) {
+      if (shadowPickerClassNames[i] == null && shadowClassNames[i] != null) {
+        return shadowClassNames[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the name of the shadow picker class for the given class, looked up by binary name, or
+   * null if it has none.
+   */
+  public String getShadowPickerClassName(String className) {
+    for (int i = firstIndexOf(className); i >= 0 && i < size() && classNames[i].equals(className);
+        i++) {
+      if (shadowPickerClassNames[i] != null) {
+        return shadowPickerClassNames[i];
+      }
+    }
+    return null;
+  }
+
+  private int firstIndexOf(String className) {
+    if (className == null) {
+      return -1;
+    }
+    int low = 0;
+    int high = classNames.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (classNames[mid].compareTo(className) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < classNames.length && classNames[low].equals(className) ? low : -1;
+  }
+
+  /**
+   * Returns the position of the entry for the given shadow class in this index, or a negative
+   * number if it has none.
+   */
+  public int indexOfShadow(String shadowClassName) {
+    if (shadowClassName == null) {
+      return -1;
+    }
+    int[] order = getShadowClassOrder();
+    int low = 0;
+    int high = order.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int result = shadowClassNames[order[mid]].compareTo(shadowClassName);
+      if (result < 0) {
+        low = mid + 1;
+      } else if (result > 0) {
+        high = mid - 1;
+      } else {
+        return order[mid];
+      }
+    }
+    return -1;
+  }
+
+  private int[] getShadowClassOrder() {
+    int[] order = shadowClassOrder;
+    if (order == null) {
+      List<Integer> positions = new ArrayList<>();
+      for (int i = 0; i < size(); i++) {
+        if (shadowClassNames[i] != null) {
+          positions.add(i);
+        }
+      }
+      positions.sort((a, b) -> shadowClassNames[a].compareTo(shadowClassNames[b]));
+      order = new int[positions.size()];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = positions.get(i);
+      }
+      shadowClassOrder = order;
+    }
+    return order;
+  }
+
+  public String getClassName(int index) {
+    return classNames[index];
+  }
+
+  /** Returns the name of the shadow class, or null if the class is only shadowed by a picker. */
+  public String getShadowClassName(int index) {
+    return shadowClassNames[index];
+  }
+
+  /** Returns the name of the shadow picker class, or null if the class has no picker. */
+  public String getShadowPickerClassName(int index) {
+    return shadowPickerClassNames[index];
+  }
+
+  /** Returns the min SDK of the shadow class, or -1 if it is unbounded or unknown. */
+  public int getMinSdk(int index) {
+    return minSdks[index];
+  }
+
+  /** Returns the max SDK of the shadow class, or -1 if it is unbounded or unknown. */
+  public int getMaxSdk(int index) {
+    return maxSdks[index];
+  }
+
+  /** Returns whether the annotation metadata of the shadow class was recorded. */
+  public boolean hasMetadata(int index) {
+    return shadowedClassNames[index] != null;
+  }
+
+  /**
+   * Returns the name of the class shadowed by the shadow class, as given by its annotation, or null
+   * if its metadata wasn't recorded.
+   */
+  public String getShadowedClassName(int index) {
+    return shadowedClassNames[index];
+  }
+
+  public boolean isCallThroughByDefault(int index) {
+    return callThroughByDefaults[index];
+  }
+
+  public boolean isLooseSignatures(int index) {
+    return looseSignatures[index];
+  }
+
+  /**
+   * Returns the {@code @RealObject} fields of the shadow class and its superclasses, each as
+   * {@code declaringClassName#fieldName}, or null if its metadata wasn't recorded.
+   */
+  public String[] getRealObjectFields(int index) {
+    return realObjectFields[index] == null ? null : realObjectFields[index].clone();
+  }
+}
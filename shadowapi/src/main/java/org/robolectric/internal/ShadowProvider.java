@@ -38,4 +38,14 @@ public interface ShadowProvider {
   default Map<String, String> getShadowPickerMap() {
     return Collections.emptyMap();
   }
+
+  /**
+   * Sorted index of the shadows in {@link #getShadowMap()} and {@link #getShadowPickerMap()},
+   * along with their annotation metadata.
+   *
+   * @return The index generated for this provider, or one built from its maps without metadata.
+   */
+  default ShadowIndex getShadowIndex() {
+    return ShadowIndex.forProvider(this);
+  }
 }
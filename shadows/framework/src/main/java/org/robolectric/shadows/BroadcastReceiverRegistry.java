@@ -0,0 +1,185 @@
+package org.robolectric.shadows;
+
+import android.content.BroadcastReceiver;
+import android.content.Intent;
+import android.content.IntentFilter;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.GuardedBy;
+import org.robolectric.shadows.ShadowApplication.Wrapper;
+
+/**
+ * The receivers registered with {@link ShadowInstrumentation}, indexed by the actions of their
+ * intent filters so that dispatching a broadcast only has to match the receivers that could accept
+ * its action.
+ *
+ * <p>Mutations are serialized and invalidate immutable snapshots of the affected receiver lists,
+ * which are rebuilt on the next dispatch. Broadcasts can therefore be dispatched, including
+ * re-sorted for ordered delivery, without holding a lock or copying the receiver list.
+ */
+class BroadcastReceiverRegistry {
+
+  @GuardedBy("this")
+  private final List<Registration> registrations = new ArrayList<>();
+
+  @GuardedBy("this")
+  private final Map<String, List<Registration>> registrationsByAction = new HashMap<>();
+
+  /**
+   * Receivers whose filter declared no actions when it was registered. Such filters only match
+   * intents without an action, but are always considered in case actions are added to them later.
+   */
+  @GuardedBy("this")
+  private final List<Registration> registrationsWithoutActions = new ArrayList<>();
+
+  @GuardedBy("this")
+  private long nextSequence;
+
+  private volatile ImmutableList<Wrapper> snapshot = ImmutableList.of();
+
+  /** Snapshots of the candidate receivers for each action that has been dispatched. */
+  private final Map<String, ImmutableList<Wrapper>> candidatesByAction = new ConcurrentHashMap<>();
+
+  synchronized void add(Wrapper wrapper) {
+    Registration registration = new Registration(nextSequence++, wrapper);
+    registrations.add(registration);
+    if (registration.actions.isEmpty()) {
+      registrationsWithoutActions.add(registration);
+      candidatesByAction.clear();
+    } else {
+      for (String action : registration.actions) {
+        registrationsByAction.computeIfAbsent(action, k -> new ArrayList<>()).add(registration);
+        candidatesByAction.remove(action);
+      }
+    }
+    snapshot = null;
+  }
+
+  /**
+   * Removes every registration of {@code receiver}.
+   *
+   * @return true if the receiver was registered
+   */
+  synchronized boolean remove(BroadcastReceiver receiver) {
+    boolean found = false;
+    Iterator<Registration> iterator = registrations.iterator();
+    while (iterator.hasNext()) {
+      Registration registration = iterator.next();
+      if (registration.wrapper.broadcastReceiver != receiver) {
+        continue;
+      }
+      iterator.remove();
+      found = true;
+      if (registration.actions.isEmpty()) {
+        registrationsWithoutActions.remove(registration);
+        candidatesByAction.clear();
+      }
+      for (String action : registration.actions) {
+        List<Registration> forAction = registrationsByAction.get(action);
+        forAction.remove(registration);
+        if (forAction.isEmpty()) {
+          registrationsByAction.remove(action);
+        }
+        candidatesByAction.remove(action);
+      }
+    }
+    if (found) {
+      snapshot = null;
+    }
+    return found;
+  }
+
+  synchronized void clear() {
+    registrations.clear();
+    registrationsByAction.clear();
+    registrationsWithoutActions.clear();
+    candidatesByAction.clear();
+    snapshot = null;
+  }
+
+  /** Returns the registered receivers in registration order. */
+  ImmutableList<Wrapper> getAll() {
+    ImmutableList<Wrapper> result = snapshot;
+    if (result != null) {
+      return result;
+    }
+    synchronized (this) {
+      if (snapshot == null) {
+        ImmutableList.Builder<Wrapper> builder = ImmutableList.builder();
+        for (Registration registration : registrations) {
+          builder.add(registration.wrapper);
+        }
+        snapshot = builder.build();
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Returns the receivers, in registration order, that could match {@code intent}. Explicit intents
+   * and intents without an action are matched against every receiver.
+   */
+  ImmutableList<Wrapper> getCandidates(Intent intent) {
+    String action = intent.getAction();
+    if (action == null || intent.getComponent() != null) {
+      return getAll();
+    }
+    ImmutableList<Wrapper> result = candidatesByAction.get(action);
+    if (result != null) {
+      return result;
+    }
+    synchronized (this) {
+      result = candidatesByAction.get(action);
+      if (result == null) {
+        result = mergeCandidates(action);
+        candidatesByAction.put(action, result);
+      }
+      return result;
+    }
+  }
+
+  @GuardedBy("this")
+  private ImmutableList<Wrapper> mergeCandidates(String action) {
+    List<Registration> forAction = registrationsByAction.get(action);
+    if (forAction == null) {
+      forAction = ImmutableList.of();
+    }
+    List<Registration> withoutActions = registrationsWithoutActions;
+    ImmutableList.Builder<Wrapper> builder = ImmutableList.builder();
+    int i = 0;
+    int j = 0;
+    while (i < forAction.size() || j < withoutActions.size()) {
+      if (j == withoutActions.size()
+          || (i < forAction.size() && forAction.get(i).sequence < withoutActions.get(j).sequence)) {
+        builder.add(forAction.get(i++).wrapper);
+      } else {
+        builder.add(withoutActions.get(j++).wrapper);
+      }
+    }
+    return builder.build();
+  }
+
+  private static final class Registration {
+    private final long sequence;
+    private final Wrapper wrapper;
+
+    /** The filter's actions at registration time, so the receiver can be unindexed later. */
+    private final Set<String> actions = new LinkedHashSet<>();
+
+    private Registration(long sequence, Wrapper wrapper) {
+      this.sequence = sequence;
+      this.wrapper = wrapper;
+      IntentFilter filter = wrapper.intentFilter;
+      for (int i = 0; i < filter.countActions(); i++) {
+        actions.add(filter.getAction(i));
+      }
+    }
+  }
+}
@@ -4,9 +4,12 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.CompressFormat;
 import android.graphics.Point;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.util.Iterator;
 import java.util.Locale;
 import javax.imageio.IIOImage;
@@ -19,15 +22,59 @@ import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 
 public class ImageUtil {
+  /** Upper bound on the number of bytes consumed while scanning JPEG segments for a frame header. */
+  private static final int MAX_HEADER_BYTES = 1024 * 1024;
+
   private static boolean initialized;
 
+  /**
+   * Returns the dimensions of the image in the given stream, or null if the format isn't
+   * recognized.
+   *
+   * <p>PNG, JPEG, GIF, WebP and BMP dimensions are read directly from the image header; other
+   * formats fall back to ImageIO's reader lookup.
+   */
   public static Point getImageSizeFromStream(InputStream is) {
+    if (is == null) {
+      return getImageSizeFromImageIO(is);
+    }
+
+    HeaderReader header = new HeaderReader(is);
+    try {
+      Point size = sniffImageSize(header);
+      if (size != null) {
+        return size;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return getImageSizeFromImageIO(header.replay());
+  }
+
+  /**
+   * Decodes the pixels of the image in the given bytes, or returns null if ImageIO doesn't support
+   * its format.
+   */
+  static BufferedImage decodeImage(byte[] data, int offset, int length) {
+    initialize();
+    try {
+      return ImageIO.read(new ByteArrayInputStream(data, offset, length));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void initialize() {
     if (!initialized) {
       // Stops ImageIO from creating temp files when reading images
       // from input stream.
       ImageIO.setUseCache(false);
       initialized = true;
     }
+  }
+
+  private static Point getImageSizeFromImageIO(InputStream is) {
+    initialize();
 
     try {
       ImageInputStream imageStream = ImageIO.createImageInputStream(is);
@@ -46,6 +93,211 @@ public class ImageUtil {
     }
   }
 
+  private static Point sniffImageSize(HeaderReader header) throws IOException {
+    if (!header.fill(2)) {
+      return null;
+    }
+    int b0 = header.u8(0);
+    int b1 = header.u8(1);
+
+    if (b0 == 0x89 && b1 == 'P') {
+      return sniffPng(header);
+    } else if (b0 == 0xFF && b1 == 0xD8) {
+      return sniffJpeg(header);
+    } else if (b0 == 'G' && b1 == 'I') {
+      return sniffGif(header);
+    } else if (b0 == 'R' && b1 == 'I') {
+      return sniffWebp(header);
+    } else if (b0 == 'B' && b1 == 'M') {
+      return sniffBmp(header);
+    }
+    return null;
+  }
+
+  private static Point sniffPng(HeaderReader header) throws IOException {
+    // 8-byte signature, then the IHDR chunk: length, type, width, height.
+    if (!header.fill(24)
+        || !header.matches(0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)
+        || !header.matches(12, 'I', 'H', 'D', 'R')) {
+      return null;
+    }
+    return validSize(header.int32BE(16), header.int32BE(20));
+  }
+
+  private static Point sniffGif(HeaderReader header) throws IOException {
+    if (!header.fill(10)
+        || !(header.matches(0, 'G', 'I', 'F', '8', '7', 'a')
+            || header.matches(0, 'G', 'I', 'F', '8', '9', 'a'))) {
+      return null;
+    }
+    return validSize(header.u16LE(6), header.u16LE(8));
+  }
+
+  private static Point sniffBmp(HeaderReader header) throws IOException {
+    if (!header.fill(26)) {
+      return null;
+    }
+    int dibHeaderSize = header.int32LE(14);
+    if (dibHeaderSize == 12) {
+      // BITMAPCOREHEADER stores unsigned 16-bit dimensions.
+      return validSize(header.u16LE(18), header.u16LE(20));
+    }
+    // Negative heights denote top-down bitmaps.
+    return validSize(header.int32LE(18), Math.abs(header.int32LE(22)));
+  }
+
+  private static Point sniffWebp(HeaderReader header) throws IOException {
+    if (!header.fill(30)
+        || !header.matches(0, 'R', 'I', 'F', 'F')
+        || !header.matches(8, 'W', 'E', 'B', 'P')) {
+      return null;
+    }
+
+    if (header.matches(12, 'V', 'P', '8', ' ')) {
+      // Lossy: 3-byte frame tag, 3-byte start code, then 14-bit dimensions.
+      if (!header.matches(23, 0x9D, 0x01, 0x2A)) {
+        return null;
+      }
+      return validSize(header.u16LE(26) & 0x3FFF, header.u16LE(28) & 0x3FFF);
+    } else if (header.matches(12, 'V', 'P', '8', 'L')) {
+      // Lossless: signature byte, then 14-bit (width - 1) and (height - 1).
+      if (header.u8(20) != 0x2F) {
+        return null;
+      }
+      int bits = header.int32LE(21);
+      return validSize((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+    } else if (header.matches(12, 'V', 'P', '8', 'X')) {
+      // Extended: flags and reserved bytes, then 24-bit (width - 1) and (height - 1).
+      return validSize(header.u24LE(24) + 1, header.u24LE(27) + 1);
+    }
+    return null;
+  }
+
+  private static Point sniffJpeg(HeaderReader header) throws IOException {
+    int pos = 2;
+    while (header.fill(pos + 4)) {
+      if (header.u8(pos) != 0xFF) {
+        return null;
+      }
+      int marker = header.u8(pos + 1);
+      if (marker == 0xFF) {
+        // Fill byte.
+        pos++;
+        continue;
+      }
+      if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+        // Standalone markers without a length.
+        pos += 2;
+        continue;
+      }
+      if (marker == 0xD9 || marker == 0xDA) {
+        // End of image or start of scan before any frame header.
+        return null;
+      }
+
+      int length = header.u16BE(pos + 2);
+      if (length < 2) {
+        return null;
+      }
+      if (isStartOfFrame(marker)) {
+        if (!header.fill(pos + 9)) {
+          return null;
+        }
+        return validSize(header.u16BE(pos + 7), header.u16BE(pos + 5));
+      }
+      pos += 2 + length;
+    }
+    return null;
+  }
+
+  private static boolean isStartOfFrame(int marker) {
+    return marker >= 0xC0
+        && marker <= 0xCF
+        && marker != 0xC4 // DHT
+        && marker != 0xC8 // JPG extension
+        && marker != 0xCC; // DAC
+  }
+
+  private static Point validSize(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    return new Point(width, height);
+  }
+
+  /**
+   * Buffers the leading bytes of a stream so that they can be inspected by offset, and replayed in
+   * front of the remaining stream if the header isn't recognized.
+   */
+  private static class HeaderReader {
+    private final InputStream is;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    private byte[] buf = new byte[0];
+    private boolean eof;
+
+    HeaderReader(InputStream is) {
+      this.is = is;
+    }
+
+    /** Ensures at least {@code count} bytes are buffered; returns false if they're unavailable. */
+    boolean fill(int count) throws IOException {
+      if (buf.length >= count) {
+        return true;
+      }
+      if (eof || count > MAX_HEADER_BYTES) {
+        return false;
+      }
+      byte[] chunk = new byte[Math.max(count - buf.length, 64)];
+      while (out.size() < count) {
+        int read = is.read(chunk, 0, Math.min(chunk.length, MAX_HEADER_BYTES - out.size()));
+        if (read <= 0) {
+          eof = true;
+          break;
+        }
+        out.write(chunk, 0, read);
+      }
+      buf = out.toByteArray();
+      return buf.length >= count;
+    }
+
+    InputStream replay() {
+      return new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), is);
+    }
+
+    boolean matches(int offset, int... expected) {
+      for (int i = 0; i < expected.length; i++) {
+        if (u8(offset + i) != expected[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    int u8(int offset) {
+      return buf[offset] & 0xFF;
+    }
+
+    int u16BE(int offset) {
+      return (u8(offset) << 8) | u8(offset + 1);
+    }
+
+    int u16LE(int offset) {
+      return u8(offset) | (u8(offset + 1) << 8);
+    }
+
+    int u24LE(int offset) {
+      return u16LE(offset) | (u8(offset + 2) << 16);
+    }
+
+    int int32BE(int offset) {
+      return (u16BE(offset) << 16) | u16BE(offset + 2);
+    }
+
+    int int32LE(int offset) {
+      return u16LE(offset) | (u16LE(offset + 2) << 16);
+    }
+  }
+
   public static boolean writeToStream(
       Bitmap realBitmap, CompressFormat format, int quality, OutputStream stream) {
     if ((quality < 0) || (quality > 100)) {
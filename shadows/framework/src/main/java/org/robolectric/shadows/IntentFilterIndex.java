@@ -0,0 +1,143 @@
+package org.robolectric.shadows;
+
+import android.content.ComponentName;
+import android.content.IntentFilter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Indexes the components in a component-to-filters map by the actions of their intent filters,
+ * similar to the framework's {@code IntentResolver}, so that resolving an intent only has to match
+ * the filters of components that could accept its action.
+ *
+ * <p>The index is kept up to date incrementally by {@link ShadowPackageManager}, which must route
+ * every change to the underlying map through this class, and must register copies of the filters
+ * it is given so that they can't change once indexed. Looking up candidates never rescans the
+ * registered filters.
+ */
+class IntentFilterIndex {
+  private final SortedMap<ComponentName, List<IntentFilter>> filters;
+  private final Map<String, NavigableSet<ComponentName>> componentsByAction = new HashMap<>();
+  private final Map<ComponentName, Set<String>> actionsByComponent = new HashMap<>();
+
+  /**
+   * Components with a filter that has no actions. Such filters are always candidates, leaving it to
+   * {@link IntentFilter#match} to decide whether they accept an intent's action.
+   */
+  private final NavigableSet<ComponentName> componentsWithoutActions = new TreeSet<>();
+
+  IntentFilterIndex(SortedMap<ComponentName, List<IntentFilter>> filters) {
+    this.filters = filters;
+  }
+
+  /** Adds {@code filter} to the filters of {@code componentName}, which must be registered. */
+  void addFilter(ComponentName componentName, IntentFilter filter) {
+    List<IntentFilter> registeredFilters = filters.get(componentName);
+    if (registeredFilters == null) {
+      throw new IllegalStateException(componentName + " is not registered");
+    }
+    registeredFilters.add(filter);
+    index(componentName, filter);
+  }
+
+  /** Re-indexes {@code componentName} after its filter list was replaced or modified in place. */
+  void reindex(ComponentName componentName) {
+    unindex(componentName);
+    List<IntentFilter> registeredFilters = filters.get(componentName);
+    if (registeredFilters != null) {
+      for (IntentFilter filter : registeredFilters) {
+        index(componentName, filter);
+      }
+    }
+  }
+
+  /** Removes all of {@code componentName}'s filters from the index. */
+  void unindex(ComponentName componentName) {
+    componentsWithoutActions.remove(componentName);
+    Set<String> actions = actionsByComponent.remove(componentName);
+    if (actions == null) {
+      return;
+    }
+    for (String action : actions) {
+      NavigableSet<ComponentName> components = componentsByAction.get(action);
+      components.remove(componentName);
+      if (components.isEmpty()) {
+        componentsByAction.remove(action);
+      }
+    }
+  }
+
+  /** Removes all components of {@code packageName} from the index. */
+  void unindexPackage(String packageName) {
+    Collection<ComponentName> components =
+        new ArrayList<>(ShadowPackageManager.mapForPackage(filters, packageName).keySet());
+    for (ComponentName componentName : components) {
+      unindex(componentName);
+    }
+  }
+
+  void clear() {
+    componentsByAction.clear();
+    actionsByComponent.clear();
+    componentsWithoutActions.clear();
+  }
+
+  /**
+   * Returns the components, in component name order, whose filters could match an intent with the
+   * given action, optionally restricted to a single package.
+   */
+  Collection<ComponentName> getCandidates(@Nullable String action, @Nullable String packageName) {
+    if (action == null) {
+      // Intents without an action pass the action test of every filter.
+      return ShadowPackageManager.mapForPackage(filters, packageName).keySet();
+    }
+    NavigableSet<ComponentName> candidates = new TreeSet<>();
+    NavigableSet<ComponentName> forAction = componentsByAction.get(action);
+    if (forAction != null) {
+      candidates.addAll(forPackage(forAction, packageName));
+    }
+    candidates.addAll(forPackage(componentsWithoutActions, packageName));
+    return candidates;
+  }
+
+  private void index(ComponentName componentName, IntentFilter filter) {
+    int actionCount = filter.countActions();
+    if (actionCount == 0) {
+      componentsWithoutActions.add(componentName);
+      return;
+    }
+    Set<String> actions = actionsByComponent.get(componentName);
+    if (actions == null) {
+      actions = new HashSet<>();
+      actionsByComponent.put(componentName, actions);
+    }
+    for (int i = 0; i < actionCount; i++) {
+      String action = filter.getAction(i);
+      NavigableSet<ComponentName> components = componentsByAction.get(action);
+      if (components == null) {
+        components = new TreeSet<>();
+        componentsByAction.put(action, components);
+      }
+      components.add(componentName);
+      actions.add(action);
+    }
+  }
+
+  private static NavigableSet<ComponentName> forPackage(
+      NavigableSet<ComponentName> components, @Nullable String packageName) {
+    if (packageName == null) {
+      return components;
+    }
+    return components.subSet(
+        new ComponentName(packageName, ""), true, new ComponentName(packageName + " ", ""), false);
+  }
+}
@@ -0,0 +1,121 @@
+package org.robolectric.shadows;
+
+import android.graphics.Paint;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Opt-in pixel rendering for {@link ShadowBitmapFactory} and {@link ShadowCanvas}.
+ *
+ * <p>When enabled, decoded images carry their real pixels and canvas draw calls are rasterized
+ * into the target bitmap using Java2D, in addition to being recorded as draw history. Rendering is
+ * enabled by setting the system property {@code robolectric.graphics.rendering=java2d}, or per
+ * test by calling {@link #setEnabled(boolean)}.
+ */
+public final class Java2DRendering {
+  static final String RENDERING_PROPERTY = "robolectric.graphics.rendering";
+
+  private static final ColorModel ARGB_COLOR_MODEL =
+      new DirectColorModel(32, 0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000);
+  private static final int[] ARGB_MASKS = {0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000};
+  private static final Font BASE_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 1);
+
+  private static final boolean ENABLED_BY_DEFAULT =
+      "java2d".equalsIgnoreCase(System.getProperty(RENDERING_PROPERTY));
+
+  private static boolean enabled = ENABLED_BY_DEFAULT;
+
+  private Java2DRendering() {}
+
+  /** Returns true if draw calls should be rasterized into bitmap pixels. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables rendering for the current test, overriding the {@code
+   * robolectric.graphics.rendering} system property. The override is cleared between tests.
+   */
+  public static void setEnabled(boolean enabled) {
+    Java2DRendering.enabled = enabled;
+  }
+
+  /** Clears the override set by {@link #setEnabled(boolean)}. Called between tests. */
+  public static void reset() {
+    enabled = ENABLED_BY_DEFAULT;
+  }
+
+  /**
+   * Returns a non-premultiplied ARGB image that uses {@code colors} as its backing store, so that
+   * drawing into the image updates the array in place.
+   */
+  static BufferedImage wrap(int[] colors, int width, int height) {
+    DataBufferInt buffer = new DataBufferInt(colors, width * height);
+    WritableRaster raster =
+        Raster.createWritableRaster(
+            new SinglePixelPackedSampleModel(
+                DataBufferInt.TYPE_INT, width, height, width, ARGB_MASKS),
+            buffer,
+            new Point(0, 0));
+    return new BufferedImage(ARGB_COLOR_MODEL, raster, false, null);
+  }
+
+  /** Creates a graphics context for drawing into an image previously returned by {@link #wrap}. */
+  static Graphics2D createGraphics(BufferedImage image) {
+    Graphics2D graphics = image.createGraphics();
+    graphics.setComposite(AlphaComposite.SrcOver);
+    graphics.setRenderingHint(
+        RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    return graphics;
+  }
+
+  /** Applies the color, stroke and anti-aliasing settings of {@code paint} to {@code graphics}. */
+  static void applyPaint(Graphics2D graphics, Paint paint) {
+    graphics.setColor(new Color(paint.getColor(), true));
+    graphics.setRenderingHint(
+        RenderingHints.KEY_ANTIALIASING,
+        paint.isAntiAlias()
+            ? RenderingHints.VALUE_ANTIALIAS_ON
+            : RenderingHints.VALUE_ANTIALIAS_OFF);
+    graphics.setStroke(
+        new BasicStroke(
+            Math.max(paint.getStrokeWidth(), 1f), toAwtCap(paint.getStrokeCap()),
+            toAwtJoin(paint.getStrokeJoin())));
+  }
+
+  /** Returns a font matching the text size of {@code paint}. */
+  static Font getFont(Paint paint) {
+    float textSize = paint.getTextSize();
+    return BASE_FONT.deriveFont(textSize > 0 ? textSize : 12f);
+  }
+
+  private static int toAwtCap(Paint.Cap cap) {
+    if (cap == Paint.Cap.ROUND) {
+      return BasicStroke.CAP_ROUND;
+    } else if (cap == Paint.Cap.SQUARE) {
+      return BasicStroke.CAP_SQUARE;
+    }
+    return BasicStroke.CAP_BUTT;
+  }
+
+  private static int toAwtJoin(Paint.Join join) {
+    if (join == Paint.Join.ROUND) {
+      return BasicStroke.JOIN_ROUND;
+    } else if (join == Paint.Join.BEVEL) {
+      return BasicStroke.JOIN_BEVEL;
+    }
+    return BasicStroke.JOIN_MITER;
+  }
+}
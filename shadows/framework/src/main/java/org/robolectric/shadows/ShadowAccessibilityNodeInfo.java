@@ -13,7 +13,6 @@ import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.Pair;
-import android.util.SparseArray;
 import android.view.View;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityNodeInfo.AccessibilityAction;
@@ -22,6 +21,7 @@ import android.view.accessibility.AccessibilityNodeInfo.CollectionItemInfo;
 import android.view.accessibility.AccessibilityNodeInfo.RangeInfo;
 import android.view.accessibility.AccessibilityWindowInfo;
 import com.google.common.collect.ImmutableList;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,16 +41,29 @@ import org.robolectric.util.ReflectionHelpers.ClassParameter;
  * Properties of {@link android.view.accessibility.AccessibilityNodeInfo} that are normally locked
  * may be changed using test APIs.
  *
- * Calls to {@code obtain()} and {@code recycle()} are tracked to help spot bugs.
+ * Calls to {@code obtain()} and {@code recycle()} are tracked to help spot bugs. Stack traces of
+ * calls to {@code obtain()} are only recorded if enabled with {@link
+ * #setObtainStackTraceSampleRate(int)} or the {@code
+ * robolectric.accessibility.obtainStackTraceSampleRate} system property.
  */
 @Implements(AccessibilityNodeInfo.class)
 public class ShadowAccessibilityNodeInfo {
-  // Map of obtained instances of the class along with stack traces of how they were obtained
-  private static final Map<StrictEqualityNodeWrapper, StackTraceElement[]> obtainedInstances =
+  private static final String OBTAIN_STACK_TRACE_SAMPLE_RATE_PROPERTY =
+      "robolectric.accessibility.obtainStackTraceSampleRate";
+
+  // Obtained instances that have not yet been recycled, keyed by the id they were obtained with.
+  // Instances are held weakly; a leaked instance that has been garbage collected is still reported.
+  private static final Map<Integer, WeakReference<AccessibilityNodeInfo>> obtainedInstances =
       new HashMap<>();
 
-  private static final SparseArray<StrictEqualityNodeWrapper> orderedInstances =
-      new SparseArray<>();
+  // Obtained instances that have been written to a parcel, held strongly until they are recycled
+  // so that they can still be read back from the parcel.
+  private static final Map<Integer, AccessibilityNodeInfo> parceledInstances = new HashMap<>();
+
+  // Stack traces of how sampled instances were obtained, keyed by obtained instance id
+  private static final Map<Integer, StackTraceElement[]> obtainStackTraces = new HashMap<>();
+
+  private static int obtainStackTraceSampleRate = getDefaultObtainStackTraceSampleRate();
 
   // Bitmasks for actions
   public static final int UNDEFINED_SELECTION_INDEX = -1;
@@ -60,7 +73,14 @@ public class ShadowAccessibilityNodeInfo {
 
     @Override
     public AccessibilityNodeInfo createFromParcel(Parcel source) {
-      return obtain(orderedInstances.get(source.readInt()).mInfo);
+      int id = source.readInt();
+      AccessibilityNodeInfo parceledInstance = parceledInstances.get(id);
+      if (parceledInstance == null) {
+        throw new IllegalStateException(
+            "no obtained AccessibilityNodeInfo was parceled with id " + id
+                + "; it may not have been obtained, or may have been recycled");
+      }
+      return obtain(parceledInstance);
     }
 
     @Override
@@ -184,6 +204,8 @@ public class ShadowAccessibilityNodeInfo {
   @RealObject
   private AccessibilityNodeInfo realAccessibilityNodeInfo;
 
+  private int obtainedInstanceId;
+
   @Implementation
   protected void __constructor__() {
     ReflectionHelpers.setStaticField(
@@ -199,9 +221,7 @@ public class ShadowAccessibilityNodeInfo {
     if (shadowInfo.mOriginNodeId == 0) {
       shadowInfo.mOriginNodeId = sAllocationCount;
     }
-    StrictEqualityNodeWrapper wrapper = new StrictEqualityNodeWrapper(obtainedInstance);
-    obtainedInstances.put(wrapper, Thread.currentThread().getStackTrace());
-    orderedInstances.put(sAllocationCount, wrapper);
+    trackObtainedInstance(obtainedInstance);
     return obtainedInstance;
   }
 
@@ -230,9 +250,7 @@ public class ShadowAccessibilityNodeInfo {
     if (shadowObtained.mOriginNodeId == 0) {
       shadowObtained.mOriginNodeId = sAllocationCount;
     }
-    StrictEqualityNodeWrapper wrapper = new StrictEqualityNodeWrapper(obtainedInstance);
-    obtainedInstances.put(wrapper, Thread.currentThread().getStackTrace());
-    orderedInstances.put(sAllocationCount, wrapper);
+    trackObtainedInstance(obtainedInstance);
     return obtainedInstance;
   }
 
@@ -247,24 +265,51 @@ public class ShadowAccessibilityNodeInfo {
     return node;
   }
 
+  private static void trackObtainedInstance(AccessibilityNodeInfo obtainedInstance) {
+    ShadowAccessibilityNodeInfo shadowObtained = Shadow.extract(obtainedInstance);
+    shadowObtained.obtainedInstanceId = sAllocationCount;
+    obtainedInstances.put(sAllocationCount, new WeakReference<>(obtainedInstance));
+    if (obtainStackTraceSampleRate > 0 && sAllocationCount % obtainStackTraceSampleRate == 0) {
+      obtainStackTraces.put(sAllocationCount, Thread.currentThread().getStackTrace());
+    }
+  }
+
+  private boolean isObtainedInstance() {
+    return obtainedInstanceId != 0 && obtainedInstances.containsKey(obtainedInstanceId);
+  }
+
   /**
    * Check for leaked objects that were {@code obtain}ed but never
    * {@code recycle}d.
    *
-   * @param printUnrecycledNodesToSystemErr - if true, stack traces of calls
-   *        to {@code obtain} that lack matching calls to {@code recycle} are
-   *        dumped to System.err.
+   * @param printUnrecycledNodesToSystemErr - if true, the leaked nodes are dumped to System.err,
+   *        along with stack traces of the calls to {@code obtain} if they were recorded.
    * @return {@code true} if there are unrecycled nodes
    */
   public static boolean areThereUnrecycledNodes(boolean printUnrecycledNodesToSystemErr) {
     if (printUnrecycledNodesToSystemErr) {
-      for (final StrictEqualityNodeWrapper wrapper : obtainedInstances.keySet()) {
-        final ShadowAccessibilityNodeInfo shadow = Shadow.extract(wrapper.mInfo);
+      for (Map.Entry<Integer, WeakReference<AccessibilityNodeInfo>> entry :
+          obtainedInstances.entrySet()) {
+        AccessibilityNodeInfo info = entry.getValue().get();
+        if (info == null) {
+          System.err.println("Leaked node was garbage collected.");
+        } else {
+          final ShadowAccessibilityNodeInfo shadow = Shadow.extract(info);
+          System.err.println(
+              String.format("Leaked contentDescription = %s.", shadow.getContentDescription()));
+        }
 
-        System.err.println(String.format(
-            "Leaked contentDescription = %s. Stack trace:", shadow.getContentDescription()));
-        for (final StackTraceElement stackTraceElement : obtainedInstances.get(wrapper)) {
-          System.err.println(stackTraceElement.toString());
+        StackTraceElement[] stackTrace = obtainStackTraces.get(entry.getKey());
+        if (stackTrace == null) {
+          System.err.println(
+              "Stack trace not recorded; set "
+                  + OBTAIN_STACK_TRACE_SAMPLE_RATE_PROPERTY
+                  + "=1 to record it.");
+        } else {
+          System.err.println("Stack trace:");
+          for (final StackTraceElement stackTraceElement : stackTrace) {
+            System.err.println(stackTraceElement.toString());
+          }
         }
       }
     }
@@ -272,6 +317,23 @@ public class ShadowAccessibilityNodeInfo {
     return (obtainedInstances.size() != 0);
   }
 
+  /**
+   * Sets how often stack traces of calls to {@code obtain()} are recorded for {@link
+   * #areThereUnrecycledNodes(boolean)}: {@code 1} records every call, {@code n} records every n-th
+   * call, and {@code 0} disables recording. Capturing a stack trace is expensive, so recording is
+   * disabled by default.
+   */
+  public static void setObtainStackTraceSampleRate(int sampleRate) {
+    if (sampleRate < 0) {
+      throw new IllegalArgumentException("sampleRate must not be negative: " + sampleRate);
+    }
+    obtainStackTraceSampleRate = sampleRate;
+  }
+
+  private static int getDefaultObtainStackTraceSampleRate() {
+    return Math.max(0, Integer.getInteger(OBTAIN_STACK_TRACE_SAMPLE_RATE_PROPERTY, 0));
+  }
+
   /**
    * Clear list of obtained instance objects. {@code areThereUnrecycledNodes}
    * will always return false if called immediately afterwards.
@@ -279,14 +341,14 @@ public class ShadowAccessibilityNodeInfo {
   @Resetter
   public static void resetObtainedInstances() {
     obtainedInstances.clear();
-    orderedInstances.clear();
+    parceledInstances.clear();
+    obtainStackTraces.clear();
+    obtainStackTraceSampleRate = getDefaultObtainStackTraceSampleRate();
   }
 
   @Implementation
   protected void recycle() {
-    final StrictEqualityNodeWrapper wrapper =
-        new StrictEqualityNodeWrapper(realAccessibilityNodeInfo);
-    if (!obtainedInstances.containsKey(wrapper)) {
+    if (!isObtainedInstance()) {
       throw new IllegalStateException();
     }
 
@@ -307,16 +369,9 @@ public class ShadowAccessibilityNodeInfo {
       }
     }
 
-    obtainedInstances.remove(wrapper);
-    int keyOfWrapper = -1;
-    for (int i = 0; i < orderedInstances.size(); i++) {
-      int key = orderedInstances.keyAt(i);
-      if (orderedInstances.get(key).equals(wrapper)) {
-        keyOfWrapper = key;
-        break;
-      }
-    }
-    orderedInstances.remove(keyOfWrapper);
+    obtainedInstances.remove(obtainedInstanceId);
+    parceledInstances.remove(obtainedInstanceId);
+    obtainStackTraces.remove(obtainedInstanceId);
   }
 
   @Implementation
@@ -1018,10 +1073,10 @@ public class ShadowAccessibilityNodeInfo {
   @Implementation
   @Override
   public int hashCode() {
-    // This is 0 for a reason. If you change it, you will break the obtained
-    // instances map in a manner that is remarkably difficult to debug.
+    // This is 0 for a reason. If you change it, you will break hash-based
+    // collections of nodes in a manner that is remarkably difficult to debug.
     // Having a dynamic hash code keeps this object from being located
-    // in the map if it was mutated after being obtained.
+    // in a map if it was mutated after being added.
     return 0;
   }
 
@@ -1157,36 +1212,6 @@ public class ShadowAccessibilityNodeInfo {
     return newInfo;
   }
 
-  /**
-   * Private class to keep different nodes referring to the same view straight
-   * in the mObtainedInstances map.
-   */
-  private static class StrictEqualityNodeWrapper {
-    public final AccessibilityNodeInfo mInfo;
-
-    public StrictEqualityNodeWrapper(AccessibilityNodeInfo info) {
-      mInfo = info;
-    }
-
-    @Override
-    @SuppressWarnings("ReferenceEquality")
-    public boolean equals(Object object) {
-      if (object == null) {
-        return false;
-      }
-      if (!(object instanceof StrictEqualityNodeWrapper)) {
-        return false;
-      }
-      final StrictEqualityNodeWrapper wrapper = (StrictEqualityNodeWrapper) object;
-      return mInfo == wrapper.mInfo;
-    }
-
-    @Override
-    public int hashCode() {
-      return mInfo.hashCode();
-    }
-  }
-
   /**
    * Shadow of AccessibilityAction.
    */
@@ -1253,15 +1278,12 @@ public class ShadowAccessibilityNodeInfo {
 
   @Implementation
   protected void writeToParcel(Parcel dest, int flags) {
-    StrictEqualityNodeWrapper wrapper = new StrictEqualityNodeWrapper(realAccessibilityNodeInfo);
-    int keyOfWrapper = -1;
-    for (int i = 0; i < orderedInstances.size(); i++) {
-      if (orderedInstances.valueAt(i).equals(wrapper)) {
-        keyOfWrapper = orderedInstances.keyAt(i);
-        break;
-      }
+    if (isObtainedInstance()) {
+      parceledInstances.put(obtainedInstanceId, realAccessibilityNodeInfo);
+      dest.writeInt(obtainedInstanceId);
+    } else {
+      dest.writeInt(-1);
     }
-    dest.writeInt(keyOfWrapper);
   }
 
   private static int getActionTypeMaskFromFramework() {
@@ -90,11 +90,11 @@ import com.google.common.base.Function;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
@@ -611,13 +611,11 @@ public class ShadowApplicationPackageManager extends ShadowPackageManager {
       return Collections.emptyList();
     } else {
       List<ResolveInfo> resolveInfoList = new ArrayList<>();
-      Map<ComponentName, List<IntentFilter>> filtersForPackage =
-          mapForPackage(filters, intent.getPackage());
+      Collection<ComponentName> candidates =
+          filterIndexFor(filters).getCandidates(intent.getAction(), intent.getPackage());
       components:
-      for (Map.Entry<ComponentName, List<IntentFilter>> componentEntry :
-          filtersForPackage.entrySet()) {
-        ComponentName componentName = componentEntry.getKey();
-        for (IntentFilter filter : componentEntry.getValue()) {
+      for (ComponentName componentName : candidates) {
+        for (IntentFilter filter : filters.get(componentName)) {
           int match = matchIntentFilter(intent, filter);
           if (match > 0) {
             PackageInfo packageInfo = packageInfos.get(componentName.getPackageName());
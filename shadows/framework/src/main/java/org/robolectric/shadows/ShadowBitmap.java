@@ -12,6 +12,10 @@ import android.graphics.RectF;
 import android.os.Build;
 import android.os.Parcel;
 import android.util.DisplayMetrics;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.FileDescriptor;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -58,6 +62,7 @@ public class ShadowBitmap {
   private boolean recycled = false;
   private boolean hasMipMap;
   private boolean isPremultiplied;
+  private BufferedImage bufferedImage;
 
   /**
    * Returns a textual representation of the appearance of the object.
@@ -708,6 +713,44 @@ public class ShadowBitmap {
     appendDescription(" for resource:" + description);
   }
 
+  /**
+   * Returns an image backed by this bitmap's pixels, for use by {@link Java2DRendering}. The image
+   * is reused until the pixel array or dimensions change. Returns null for empty bitmaps.
+   */
+  BufferedImage getBufferedImage() {
+    int width = getWidth();
+    int height = getHeight();
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    if (colors == null || colors.length != width * height) {
+      colors = new int[width * height];
+    }
+    if (bufferedImage == null
+        || bufferedImage.getWidth() != width
+        || bufferedImage.getHeight() != height
+        || ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData()
+            != colors) {
+      bufferedImage = Java2DRendering.wrap(colors, width, height);
+    }
+    return bufferedImage;
+  }
+
+  /** Replaces this bitmap's pixels with {@code image}, scaled to the bitmap's dimensions. */
+  void setPixelsFromImage(BufferedImage image) {
+    BufferedImage target = getBufferedImage();
+    if (target == null) {
+      return;
+    }
+    Graphics2D graphics = Java2DRendering.createGraphics(target);
+    try {
+      graphics.setComposite(AlphaComposite.Src);
+      graphics.drawImage(image, 0, 0, target.getWidth(), target.getHeight(), null);
+    } finally {
+      graphics.dispose();
+    }
+  }
+
   private void internalCheckPixelAccess(int x, int y) {
     if (x < 0) {
       throw new IllegalArgumentException("x must be >= 0");
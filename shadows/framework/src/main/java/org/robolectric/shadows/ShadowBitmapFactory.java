@@ -12,8 +12,11 @@ import android.graphics.Point;
 import android.graphics.Rect;
 import android.net.Uri;
 import android.util.TypedValue;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLConnection;
@@ -21,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -30,12 +34,20 @@ import org.robolectric.util.Join;
 import org.robolectric.util.NamedStream;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
+import org.robolectric.util.Util;
 
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(BitmapFactory.class)
 public class ShadowBitmapFactory {
   private static Map<String, Point> widthAndHeightMap = new HashMap<>();
 
+  /**
+   * Image sizes of decoded resources, keyed by resource id. Resource files don't change within a
+   * sandbox, so this is deliberately not cleared between tests.
+   */
+  private static final Map<Integer, ResourceImageSize> resourceImageSizes =
+      new ConcurrentHashMap<>();
+
   @Implementation
   protected static Bitmap decodeResourceStream(
       Resources res, TypedValue value, InputStream is, Rect pad, BitmapFactory.Options opts) {
@@ -62,11 +74,15 @@ public class ShadowBitmapFactory {
     final TypedValue value = new TypedValue();
     InputStream is = res.openRawResource(id, value);
 
-    Point imageSizeFromStream = getImageSizeFromStream(is);
+    DecodedImage decodedImage =
+        Java2DRendering.isEnabled()
+            ? decodePixels(readBytes(is))
+            : new DecodedImage(getResourceImageSize(id, value, is), null);
 
-    Bitmap bitmap = create("resource:" + res.getResourceName(id), options, imageSizeFromStream);
+    Bitmap bitmap = create("resource:" + res.getResourceName(id), options, decodedImage.size);
     ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
     shadowBitmap.createdFromResId = id;
+    decodedImage.copyPixelsTo(bitmap, options);
     return bitmap;
   }
 
@@ -77,9 +93,22 @@ public class ShadowBitmapFactory {
 
   @Implementation
   protected static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
-    Bitmap bitmap = create("file:" + pathName, options);
+    DecodedImage decodedImage = null;
+    if (Java2DRendering.isEnabled() && pathName != null && new File(pathName).isFile()) {
+      try (InputStream is = new FileInputStream(pathName)) {
+        decodedImage = decodePixels(readBytes(is));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    Bitmap bitmap =
+        create("file:" + pathName, options, decodedImage == null ? null : decodedImage.size);
     ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
     shadowBitmap.createdFromPath = pathName;
+    if (decodedImage != null) {
+      decodedImage.copyPixelsTo(bitmap, options);
+    }
     return bitmap;
   }
 
@@ -124,8 +153,20 @@ public class ShadowBitmapFactory {
     String name = (is instanceof NamedStream)
         ? is.toString().replace("stream for ", "")
         : null;
-    Point imageSize = (is instanceof NamedStream) ? null : getImageSizeFromStream(is);
+    DecodedImage decodedImage = null;
+    Point imageSize = null;
+    if (!(is instanceof NamedStream)) {
+      if (Java2DRendering.isEnabled() && is != null) {
+        decodedImage = decodePixels(readBytes(is));
+        imageSize = decodedImage.size;
+      } else {
+        imageSize = getImageSizeFromStream(is);
+      }
+    }
     Bitmap bitmap = create(name, opts, imageSize);
+    if (decodedImage != null) {
+      decodedImage.copyPixelsTo(bitmap, opts);
+    }
     ReflectionHelpers.callInstanceMethod(bitmap, "setNinePatchChunk",
             ClassParameter.from(byte[].class, ninePatchChunk));
     ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
@@ -159,10 +200,59 @@ public class ShadowBitmapFactory {
       desc += " bytes " + offset + ".." + length;
     }
 
+    if (Java2DRendering.isEnabled()) {
+      DecodedImage decodedImage = decodePixels(data, offset, length);
+      Bitmap bitmap = create(desc, opts, decodedImage.size);
+      decodedImage.copyPixelsTo(bitmap, opts);
+      return bitmap;
+    }
+
     Point imageSize = getImageSizeFromStream(new ByteArrayInputStream(data, offset, length));
     return create(desc, opts, imageSize);
   }
 
+  /**
+   * Returns the cached size for the resource if it was previously decoded from the same file,
+   * otherwise reads it from the stream.
+   */
+  private static Point getResourceImageSize(int id, TypedValue value, InputStream is) {
+    String file = value.string == null ? null : value.string.toString();
+    ResourceImageSize cached = resourceImageSizes.get(id);
+    if (cached != null && cached.matches(file)) {
+      try {
+        is.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      return cached.size;
+    }
+
+    Point size = getImageSizeFromStream(is);
+    resourceImageSizes.put(id, new ResourceImageSize(file, size));
+    return size;
+  }
+
+  private static DecodedImage decodePixels(byte[] data) {
+    return decodePixels(data, 0, data.length);
+  }
+
+  private static DecodedImage decodePixels(byte[] data, int offset, int length) {
+    BufferedImage image = ImageUtil.decodeImage(data, offset, length);
+    if (image == null) {
+      return new DecodedImage(
+          getImageSizeFromStream(new ByteArrayInputStream(data, offset, length)), null);
+    }
+    return new DecodedImage(new Point(image.getWidth(), image.getHeight()), image);
+  }
+
+  private static byte[] readBytes(InputStream is) {
+    try {
+      return Util.readBytes(is);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   static Bitmap create(String name) {
     return create(name, null);
   }
@@ -241,6 +331,40 @@ public class ShadowBitmapFactory {
     widthAndHeightMap.clear();
   }
 
+  /** The size of a decoded image, and its pixels if {@link Java2DRendering} is enabled. */
+  private static class DecodedImage {
+    private final Point size;
+    private final BufferedImage pixels;
+
+    DecodedImage(Point size, BufferedImage pixels) {
+      this.size = size;
+      this.pixels = pixels;
+    }
+
+    void copyPixelsTo(Bitmap bitmap, BitmapFactory.Options options) {
+      if (pixels == null || (options != null && options.inJustDecodeBounds)) {
+        return;
+      }
+      ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
+      shadowBitmap.setPixelsFromImage(pixels);
+    }
+  }
+
+  private static class ResourceImageSize {
+    private final String file;
+    private final Point size;
+
+    ResourceImageSize(String file, Point size) {
+      this.file = file;
+      this.size = size;
+    }
+
+    /** Resources may resolve to a different file when the configuration changes. */
+    boolean matches(String file) {
+      return this.file == null ? file == null : this.file.equals(file);
+    }
+  }
+
   private static Point selectWidthAndHeight(final String name, final Point widthAndHeight) {
     final Point widthAndHeightFromMap = widthAndHeightMap.get(name);
 
@@ -10,22 +10,41 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.util.Join;
 import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
 
 /**
  * Broken. This implementation is very specific to the application for which it was developed.
  * Todo: Reimplement. Consider using the same strategy of collecting a history of draw events
  * and providing methods for writing queries based on type, number, and order of events.
+ *
+ * <p>When {@link Java2DRendering} is enabled, draw calls are also rasterized into the target
+ * bitmap's pixels.
  */
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Canvas.class)
 public class ShadowCanvas {
+  @RealObject private Canvas realCanvas;
+
   private final List<RoundRectPaintHistoryEvent> roundRectPaintEvents = new ArrayList<>();
   private List<PathPaintHistoryEvent> pathPaintEvents = new ArrayList<>();
   private List<CirclePaintHistoryEvent> circlePaintEvents = new ArrayList<>();
@@ -43,6 +62,13 @@ public class ShadowCanvas {
   private int height;
   private int width;
 
+  // Rendering state; the transform is only maintained when Java2DRendering is enabled, but saves
+  // are always counted.
+  private AffineTransform transform = new AffineTransform();
+  private final Deque<AffineTransform> savedTransforms = new ArrayDeque<>();
+  private Graphics2D graphics;
+  private BufferedImage graphicsImage;
+
   /**
    * Returns a textual representation of the appearance of the object.
    *
@@ -72,55 +98,81 @@ public class ShadowCanvas {
   @Implementation
   protected void setBitmap(Bitmap bitmap) {
     targetBitmap = bitmap;
+    resetRenderingState();
   }
 
   @Implementation
   protected void drawText(String text, float x, float y, Paint paint) {
     drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text));
+    renderText(text, x, y, paint);
   }
 
   @Implementation
   protected void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
     drawnTextEventHistory.add(
         new TextHistoryEvent(x, y, paint, text.subSequence(start, end).toString()));
+    renderText(text.subSequence(start, end).toString(), x, y, paint);
   }
 
   @Implementation
   protected void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
     drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, new String(text, index, count)));
+    renderText(new String(text, index, count), x, y, paint);
   }
 
   @Implementation
   protected void drawText(String text, int start, int end, float x, float y, Paint paint) {
     drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text.substring(start, end)));
+    renderText(text.substring(start, end), x, y, paint);
   }
 
   @Implementation
   protected void translate(float x, float y) {
     this.translateX = x;
     this.translateY = y;
+    if (Java2DRendering.isEnabled()) {
+      transform.translate(x, y);
+    }
   }
 
   @Implementation
   protected void scale(float sx, float sy) {
     this.scaleX = sx;
     this.scaleY = sy;
+    if (Java2DRendering.isEnabled()) {
+      transform.scale(sx, sy);
+    }
   }
 
   @Implementation
   protected void scale(float sx, float sy, float px, float py) {
     this.scaleX = sx;
     this.scaleY = sy;
+    if (Java2DRendering.isEnabled()) {
+      transform.translate(px, py);
+      transform.scale(sx, sy);
+      transform.translate(-px, -py);
+    }
   }
 
   @Implementation
   protected void drawPaint(Paint paint) {
     drawnPaint = paint;
+    Graphics2D g = getGraphics();
+    if (g != null) {
+      Java2DRendering.applyPaint(g, paint);
+      fillBitmap(g);
+    }
   }
 
   @Implementation
   protected void drawColor(int color) {
     appendDescription("draw color " + color);
+    Graphics2D g = getGraphics();
+    if (g != null) {
+      g.setColor(new Color(color, true));
+      fillBitmap(g);
+    }
   }
 
   @Implementation
@@ -136,6 +188,12 @@ public class ShadowCanvas {
     if (scaleX != 1 && scaleY != 1) {
       appendDescription(" scaled by (" + scaleX + "," + scaleY + ")");
     }
+
+    Graphics2D g = getGraphics();
+    BufferedImage image = getBufferedImage(bitmap);
+    if (g != null && image != null) {
+      g.drawImage(image, AffineTransform.getTranslateInstance(left, top), null);
+    }
   }
 
   @Implementation
@@ -152,6 +210,10 @@ public class ShadowCanvas {
       descriptionBuilder.append( " taken from ").append(src.toString());
     }
     appendDescription(descriptionBuilder.toString());
+
+    if (dst != null) {
+      renderBitmap(bitmap, src, dst.left, dst.top, dst.right, dst.bottom);
+    }
   }
 
   @Implementation
@@ -168,6 +230,10 @@ public class ShadowCanvas {
       descriptionBuilder.append( " taken from ").append(src.toString());
     }
     appendDescription(descriptionBuilder.toString());
+
+    if (dst != null) {
+      renderBitmap(bitmap, src, dst.left, dst.top, dst.right, dst.bottom);
+    }
   }
 
   @Implementation
@@ -176,6 +242,17 @@ public class ShadowCanvas {
 
     ShadowMatrix shadowMatrix = Shadow.extract(matrix);
     appendDescription(" transformed by " + shadowMatrix.getDescription());
+
+    Graphics2D g = getGraphics();
+    BufferedImage image = getBufferedImage(bitmap);
+    if (g != null && image != null) {
+      float[] values = new float[9];
+      matrix.getValues(values);
+      g.drawImage(
+          image,
+          new AffineTransform(values[0], values[3], values[1], values[4], values[2], values[5]),
+          null);
+    }
   }
 
   @Implementation
@@ -185,22 +262,38 @@ public class ShadowCanvas {
     separateLines();
     ShadowPath shadowPath = Shadow.extract(path);
     appendDescription("Path " + shadowPath.getPoints().toString());
+
+    renderShape(shadowPath.getJavaShape(), paint);
   }
 
   @Implementation
   protected void drawCircle(float cx, float cy, float radius, Paint paint) {
     circlePaintEvents.add(new CirclePaintHistoryEvent(cx, cy, radius, paint));
+    renderShape(
+        new Ellipse2D.Float(cx - radius, cy - radius, radius * 2, radius * 2), paint);
   }
 
   @Implementation
   protected void drawArc(
       RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
     arcPaintEvents.add(new ArcPaintHistoryEvent(oval, startAngle, sweepAngle, useCenter, paint));
+    // Android angles run clockwise from the x axis; Java2D angles run counterclockwise.
+    renderShape(
+        new Arc2D.Float(
+            oval.left,
+            oval.top,
+            oval.width(),
+            oval.height(),
+            -startAngle,
+            -sweepAngle,
+            useCenter ? Arc2D.PIE : Arc2D.OPEN),
+        paint);
   }
 
   @Implementation
   protected void drawRect(float left, float top, float right, float bottom, Paint paint) {
     rectPaintEvents.add(new RectPaintHistoryEvent(left, top, right, bottom, paint));
+    renderShape(new Rectangle2D.Float(left, top, right - left, bottom - top), paint);
   }
 
   @Implementation
@@ -208,25 +301,156 @@ public class ShadowCanvas {
     roundRectPaintEvents.add(
         new RoundRectPaintHistoryEvent(
             rect.left, rect.top, rect.right, rect.bottom, rx, ry, paint));
+    renderShape(
+        new RoundRectangle2D.Float(
+            rect.left, rect.top, rect.width(), rect.height(), rx * 2, ry * 2),
+        paint);
   }
 
   @Implementation
   protected void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
     linePaintEvents.add(new LinePaintHistoryEvent(startX, startY, stopX, stopY, paint));
+    Graphics2D g = getGraphics();
+    if (g != null) {
+      Java2DRendering.applyPaint(g, paint);
+      g.draw(new Line2D.Float(startX, startY, stopX, stopY));
+    }
   }
 
   @Implementation
   protected void drawOval(RectF oval, Paint paint) {
     ovalPaintEvents.add(new OvalPaintHistoryEvent(oval, paint));
+    renderShape(new Ellipse2D.Float(oval.left, oval.top, oval.width(), oval.height()), paint);
   }
 
   @Implementation
   protected int save() {
-    return 1;
+    savedTransforms.push(new AffineTransform(transform));
+    return savedTransforms.size();
+  }
+
+  @Implementation
+  protected void restore() {
+    if (!savedTransforms.isEmpty()) {
+      transform = savedTransforms.pop();
+    }
   }
 
   @Implementation
-  protected void restore() {}
+  protected int getSaveCount() {
+    return savedTransforms.size() + 1;
+  }
+
+  @Implementation
+  protected void restoreToCount(int saveCount) {
+    while (savedTransforms.size() >= saveCount && !savedTransforms.isEmpty()) {
+      transform = savedTransforms.pop();
+    }
+    Shadow.directlyOn(
+        realCanvas, Canvas.class, "restoreToCount", ClassParameter.from(int.class, saveCount));
+  }
+
+  /**
+   * Returns a graphics context drawing into the target bitmap with the current transform applied,
+   * or null if rendering is disabled or there are no pixels to draw into. The context is reused
+   * across draw calls until the target bitmap's pixels are reallocated.
+   */
+  private Graphics2D getGraphics() {
+    if (!Java2DRendering.isEnabled()) {
+      return null;
+    }
+    BufferedImage image = getBufferedImage(targetBitmap);
+    if (image == null) {
+      return null;
+    }
+    if (graphics == null || graphicsImage != image) {
+      if (graphics != null) {
+        graphics.dispose();
+      }
+      graphics = Java2DRendering.createGraphics(image);
+      graphicsImage = image;
+    }
+    graphics.setTransform(transform);
+    return graphics;
+  }
+
+  private static BufferedImage getBufferedImage(Bitmap bitmap) {
+    if (bitmap == null) {
+      return null;
+    }
+    ShadowBitmap shadowBitmap = Shadow.extract(bitmap);
+    return shadowBitmap.getBufferedImage();
+  }
+
+  private void resetRenderingState() {
+    transform = new AffineTransform();
+    savedTransforms.clear();
+    if (graphics != null) {
+      graphics.dispose();
+      graphics = null;
+      graphicsImage = null;
+    }
+  }
+
+  private void renderShape(Shape shape, Paint paint) {
+    Graphics2D g = getGraphics();
+    if (g == null) {
+      return;
+    }
+    Java2DRendering.applyPaint(g, paint);
+    Paint.Style style = paint.getStyle();
+    if (style == null || style == Paint.Style.FILL || style == Paint.Style.FILL_AND_STROKE) {
+      g.fill(shape);
+    }
+    if (style == Paint.Style.STROKE || style == Paint.Style.FILL_AND_STROKE) {
+      g.draw(shape);
+    }
+  }
+
+  private void renderText(String text, float x, float y, Paint paint) {
+    Graphics2D g = getGraphics();
+    if (g == null) {
+      return;
+    }
+    Java2DRendering.applyPaint(g, paint);
+    g.setFont(Java2DRendering.getFont(paint));
+    Paint.Align align = paint.getTextAlign();
+    if (align == Paint.Align.CENTER || align == Paint.Align.RIGHT) {
+      float textWidth = g.getFontMetrics().stringWidth(text);
+      x -= align == Paint.Align.CENTER ? textWidth / 2 : textWidth;
+    }
+    g.drawString(text, x, y);
+  }
+
+  private void renderBitmap(
+      Bitmap bitmap, Rect src, float left, float top, float right, float bottom) {
+    Graphics2D g = getGraphics();
+    BufferedImage image = getBufferedImage(bitmap);
+    if (g == null || image == null) {
+      return;
+    }
+    int sx1 = src == null ? 0 : src.left;
+    int sy1 = src == null ? 0 : src.top;
+    int sx2 = src == null ? image.getWidth() : src.right;
+    int sy2 = src == null ? image.getHeight() : src.bottom;
+    g.drawImage(
+        image,
+        Math.round(left),
+        Math.round(top),
+        Math.round(right),
+        Math.round(bottom),
+        sx1,
+        sy1,
+        sx2,
+        sy2,
+        null);
+  }
+
+  /** Fills the whole bitmap with the current color, ignoring the canvas transform. */
+  private void fillBitmap(Graphics2D g) {
+    g.setTransform(new AffineTransform());
+    g.fillRect(0, 0, graphicsImage.getWidth(), graphicsImage.getHeight());
+  }
 
   private void describeBitmap(Bitmap bitmap, Paint paint) {
     separateLines();
@@ -29,13 +29,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
@@ -69,11 +73,12 @@ public class ShadowContentResolver {
   private ContentProviderResult[] contentProviderResults;
   private final List<UriPermission> uriPermissions = new ArrayList<>();
 
-  private final CopyOnWriteArrayList<ContentObserverEntry> contentObservers =
-      new CopyOnWriteArrayList<>();
+  private final ContentObserverIndex contentObservers = new ContentObserverIndex();
+  private final Map<String, Integer> notifyChangeCounts = new HashMap<>();
 
   private static final Map<String, Map<Account, Status>> syncableAccounts = new HashMap<>();
-  private static final Map<String, ContentProvider> providers = new HashMap<>();
+  // An empty Optional hides the manifest's provider for an authority; see registerProviderInternal.
+  private static final Map<String, Optional<ContentProvider>> providers = new ConcurrentHashMap<>();
   private static boolean masterSyncAutomatically;
 
   private static SyncAdapterType[] syncAdapterTypes;
@@ -89,30 +94,137 @@ public class ShadowContentResolver {
     public final Uri uri;
     public final boolean notifyForDescendents;
     public final ContentObserver observer;
+    private final long sequence;
+    private PathNode node;
 
-    private ContentObserverEntry(Uri uri, boolean notifyForDescendents, ContentObserver observer) {
+    private ContentObserverEntry(
+        Uri uri, boolean notifyForDescendents, ContentObserver observer, long sequence) {
       this.uri = uri;
       this.notifyForDescendents = notifyForDescendents;
       this.observer = observer;
+      this.sequence = sequence;
 
       if (uri == null || observer == null) {
         throw new NullPointerException();
       }
     }
+  }
 
-    public boolean matches(Uri test) {
-      if (!Objects.equals(uri.getScheme(), test.getScheme())) {
-        return false;
+  /** A node in the path trie of a {@link ContentObserverIndex}, one per path character. */
+  private static class PathNode {
+    private final PathNode parent;
+    private final char key;
+    private final Map<Character, PathNode> children = new HashMap<>();
+    private final List<ContentObserverEntry> exactEntries = new ArrayList<>();
+    private final List<ContentObserverEntry> descendantEntries = new ArrayList<>();
+
+    private PathNode(PathNode parent, char key) {
+      this.parent = parent;
+      this.key = key;
+    }
+
+    private List<ContentObserverEntry> entriesFor(ContentObserverEntry entry) {
+      return entry.notifyForDescendents ? descendantEntries : exactEntries;
+    }
+
+    private boolean isEmpty() {
+      return children.isEmpty() && exactEntries.isEmpty() && descendantEntries.isEmpty();
+    }
+  }
+
+  /**
+   * Content observers indexed by scheme and authority, then by a trie over the characters of the
+   * registered path.
+   *
+   * <p>The trie is per-character rather than per-segment so that an observer registered with
+   * {@code notifyForDescendents} keeps matching any path it is a string prefix of, as it always
+   * has. Matches are returned in registration order.
+   */
+  private static class ContentObserverIndex {
+    private final Map<List<String>, PathNode> roots = new HashMap<>();
+    private final Map<List<String>, List<ContentObserverEntry>> nullPathEntries = new HashMap<>();
+    private final Map<ContentObserver, List<ContentObserverEntry>> entriesByObserver =
+        new IdentityHashMap<>();
+    private long nextSequence;
+
+    synchronized void add(Uri uri, boolean notifyForDescendents, ContentObserver observer) {
+      ContentObserverEntry entry =
+          new ContentObserverEntry(uri, notifyForDescendents, observer, nextSequence++);
+      String path = uri.getPath();
+      if (path == null) {
+        nullPathEntries.computeIfAbsent(keyOf(uri), k -> new ArrayList<>()).add(entry);
+      } else {
+        PathNode node = roots.computeIfAbsent(keyOf(uri), k -> new PathNode(null, '\0'));
+        for (int i = 0; i < path.length(); i++) {
+          PathNode parent = node;
+          node = node.children.computeIfAbsent(path.charAt(i), c -> new PathNode(parent, c));
+        }
+        node.entriesFor(entry).add(entry);
+        entry.node = node;
       }
-      if (!Objects.equals(uri.getAuthority(), test.getAuthority())) {
-        return false;
+      entriesByObserver.computeIfAbsent(observer, o -> new ArrayList<>()).add(entry);
+    }
+
+    synchronized void remove(ContentObserver observer) {
+      List<ContentObserverEntry> entries = entriesByObserver.remove(observer);
+      if (entries == null) {
+        return;
+      }
+      for (ContentObserverEntry entry : entries) {
+        if (entry.node == null) {
+          List<String> key = keyOf(entry.uri);
+          List<ContentObserverEntry> nullEntries = nullPathEntries.get(key);
+          nullEntries.remove(entry);
+          if (nullEntries.isEmpty()) {
+            nullPathEntries.remove(key);
+          }
+        } else {
+          entry.node.entriesFor(entry).remove(entry);
+          prune(entry.node, keyOf(entry.uri));
+        }
       }
+    }
 
-      String uriPath = uri.getPath();
-      String testPath = test.getPath();
+    /** Removes {@code node} and its ancestors from the trie for as long as they are empty. */
+    private void prune(PathNode node, List<String> rootKey) {
+      while (node.isEmpty()) {
+        if (node.parent == null) {
+          roots.remove(rootKey);
+          return;
+        }
+        node.parent.children.remove(node.key);
+        node = node.parent;
+      }
+    }
 
-      return Objects.equals(uriPath, testPath)
-          || (notifyForDescendents && testPath != null && testPath.startsWith(uriPath));
+    synchronized List<ContentObserverEntry> match(Uri test) {
+      List<ContentObserverEntry> matches = new ArrayList<>();
+      String path = test.getPath();
+      if (path == null) {
+        List<ContentObserverEntry> nullEntries = nullPathEntries.get(keyOf(test));
+        if (nullEntries != null) {
+          matches.addAll(nullEntries);
+        }
+        return matches;
+      }
+
+      PathNode node = roots.get(keyOf(test));
+      for (int i = 0; node != null; i++) {
+        matches.addAll(node.descendantEntries);
+        if (i == path.length()) {
+          matches.addAll(node.exactEntries);
+          break;
+        }
+        node = node.children.get(path.charAt(i));
+      }
+      if (matches.size() > 1) {
+        matches.sort(Comparator.comparingLong(entry -> entry.sequence));
+      }
+      return matches;
+    }
+
+    private static List<String> keyOf(Uri uri) {
+      return Arrays.asList(uri.getScheme(), uri.getAuthority());
     }
   }
 
@@ -425,9 +537,12 @@ public class ShadowContentResolver {
   @Implementation
   protected void notifyChange(Uri uri, ContentObserver observer, boolean syncToNetwork) {
     notifiedUris.add(new NotifiedUri(uri, observer, syncToNetwork));
+    synchronized (notifyChangeCounts) {
+      notifyChangeCounts.merge(uri == null ? null : uri.getAuthority(), 1, Integer::sum);
+    }
 
-    for (ContentObserverEntry entry : contentObservers) {
-      if (entry.matches(uri) && entry.observer != observer) {
+    for (ContentObserverEntry entry : contentObservers.match(uri)) {
+      if (entry.observer != observer) {
         entry.observer.dispatchChange(false, uri);
       }
     }
@@ -647,15 +762,25 @@ public class ShadowContentResolver {
     return getProvider(uri.getAuthority());
   }
 
-  private static synchronized ContentProvider getProvider(String authority) {
-    if (!providers.containsKey(authority)) {
-      ProviderInfo providerInfo =
-          RuntimeEnvironment.application.getPackageManager().resolveContentProvider(authority, 0);
-      if (providerInfo != null) {
-        providers.put(providerInfo.authority, createAndInitialize(providerInfo));
+  private static ContentProvider getProvider(String authority) {
+    if (authority == null) {
+      return null;
+    }
+    Optional<ContentProvider> provider = providers.get(authority);
+    if (provider != null) {
+      return provider.orElse(null);
+    }
+    synchronized (ShadowContentResolver.class) {
+      if (!providers.containsKey(authority)) {
+        ProviderInfo providerInfo =
+            RuntimeEnvironment.application.getPackageManager().resolveContentProvider(authority, 0);
+        if (providerInfo != null && providerInfo.authority != null) {
+          providers.put(providerInfo.authority, Optional.of(createAndInitialize(providerInfo)));
+        }
       }
+      provider = providers.get(authority);
+      return provider == null ? null : provider.orElse(null);
     }
-    return providers.get(authority);
   }
 
   /**
@@ -663,10 +788,15 @@ public class ShadowContentResolver {
    *
    * Instead, use ```java ProviderInfo info = new ProviderInfo(); info.authority = authority;
    * Robolectric.buildContentProvider(ContentProvider.class).create(info); ```
+   *
+   * <p>Registering a null provider hides any provider the manifest declares for the authority.
    */
   public static synchronized void registerProviderInternal(
       String authority, ContentProvider provider) {
-    providers.put(authority, provider);
+    if (authority == null) {
+      return;
+    }
+    providers.put(authority, Optional.ofNullable(provider));
   }
 
   public static Status getStatus(Account account, String authority) {
@@ -832,7 +962,7 @@ public class ShadowContentResolver {
     if (registerContentProviderExceptions.containsKey(uri)) {
       throw registerContentProviderExceptions.get(uri);
     }
-    contentObservers.add(new ContentObserverEntry(uri, notifyForDescendents, observer));
+    contentObservers.add(uri, notifyForDescendents, observer);
   }
 
   @Implementation(minSdk = JELLY_BEAN_MR1)
@@ -843,13 +973,7 @@ public class ShadowContentResolver {
 
   @Implementation
   protected void unregisterContentObserver(ContentObserver observer) {
-    synchronized (contentObservers) {
-      for (ContentObserverEntry entry : contentObservers) {
-        if (entry.observer == observer) {
-          contentObservers.remove(entry);
-        }
-      }
-    }
+    contentObservers.remove(observer);
   }
 
   @Implementation
@@ -872,14 +996,23 @@ public class ShadowContentResolver {
    */
   public Collection<ContentObserver> getContentObservers(Uri uri) {
     ArrayList<ContentObserver> observers = new ArrayList<>(1);
-    for (ContentObserverEntry entry : contentObservers) {
-      if (entry.matches(uri)) {
-        observers.add(entry.observer);
-      }
+    for (ContentObserverEntry entry : contentObservers.match(uri)) {
+      observers.add(entry.observer);
     }
     return observers;
   }
 
+  /**
+   * Returns the number of times {@link ContentResolver#notifyChange} has been called for URIs with
+   * the given authority.
+   */
+  public int getNotifyChangeCount(String authority) {
+    synchronized (notifyChangeCounts) {
+      Integer count = notifyChangeCounts.get(authority);
+      return count == null ? 0 : count;
+    }
+  }
+
   private static ContentProvider createAndInitialize(ProviderInfo providerInfo) {
     try {
       ContentProvider provider =
@@ -33,6 +33,14 @@ public class ShadowContextWrapper {
     getShadowInstrumentation().clearBroadcastIntents();
   }
 
+  /**
+   * Returns the number of times a broadcast with the given action was delivered to a registered
+   * receiver since the broadcast intents were last cleared.
+   */
+  public int getBroadcastDispatchCount(String action) {
+    return getShadowInstrumentation().getBroadcastDispatchCount(action);
+  }
+
   /**
    * Consumes the most recent {@code Intent} started by {@link
    * ContextWrapper#startActivity(android.content.Intent)} and returns it.
@@ -50,9 +50,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import javax.annotation.concurrent.GuardedBy;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -81,8 +82,8 @@ public class ShadowInstrumentation {
   private List<ServiceConnection> unboundServiceConnections =
       Collections.synchronizedList(new ArrayList<>());
 
-  @GuardedBy("itself")
-  private final List<Wrapper> registeredReceivers = new ArrayList<>();
+  private final BroadcastReceiverRegistry registeredReceivers = new BroadcastReceiverRegistry();
+  private final Map<String, AtomicInteger> broadcastDispatchCounts = new ConcurrentHashMap<>();
   // map of pid+uid to granted permissions
   private final Map<Pair<Integer, Integer>, Set<String>> grantedPermissionsMap = new HashMap<>();
   private boolean unbindServiceShouldThrowIllegalArgument = false;
@@ -245,24 +246,22 @@ public class ShadowInstrumentation {
   }
 
   void assertNoBroadcastListenersOfActionRegistered(ContextWrapper context, String action) {
-    synchronized (registeredReceivers) {
-      for (Wrapper registeredReceiver : registeredReceivers) {
-        if (registeredReceiver.context == context.getBaseContext()) {
-          Iterator<String> actions = registeredReceiver.intentFilter.actionsIterator();
-          while (actions.hasNext()) {
-            if (actions.next().equals(action)) {
-              RuntimeException e =
-                  new IllegalStateException(
-                      "Unexpected BroadcastReceiver on "
-                          + context
-                          + " with action "
-                          + action
-                          + " "
-                          + registeredReceiver.broadcastReceiver
-                          + " that was originally registered here:");
-              e.setStackTrace(registeredReceiver.exception.getStackTrace());
-              throw e;
-            }
+    for (Wrapper registeredReceiver : registeredReceivers.getAll()) {
+      if (registeredReceiver.context == context.getBaseContext()) {
+        Iterator<String> actions = registeredReceiver.intentFilter.actionsIterator();
+        while (actions.hasNext()) {
+          if (actions.next().equals(action)) {
+            RuntimeException e =
+                new IllegalStateException(
+                    "Unexpected BroadcastReceiver on "
+                        + context
+                        + " with action "
+                        + action
+                        + " "
+                        + registeredReceiver.broadcastReceiver
+                        + " that was originally registered here:");
+            e.setStackTrace(registeredReceiver.exception.getStackTrace());
+            throw e;
           }
         }
       }
@@ -284,18 +283,16 @@ public class ShadowInstrumentation {
     }
 
     List<Wrapper> result = new ArrayList<>();
-
-    List<Wrapper> copy = new ArrayList<>();
-    synchronized (registeredReceivers) {
-      copy.addAll(registeredReceivers);
-    }
-
-    for (Wrapper wrapper : copy) {
+    for (Wrapper wrapper : registeredReceivers.getCandidates(intent)) {
       if (broadcastReceiverMatchesIntent(context, wrapper, intent, receiverPermission)) {
         result.add(wrapper);
       }
     }
-    System.err.format("Intent = %s; Matching wrappers: %s\n", intent, result);
+    if (!result.isEmpty() && intent.getAction() != null) {
+      broadcastDispatchCounts
+          .computeIfAbsent(intent.getAction(), action -> new AtomicInteger())
+          .addAndGet(result.size());
+    }
     return result;
   }
 
@@ -504,6 +501,16 @@ public class ShadowInstrumentation {
   void clearBroadcastIntents() {
     broadcastIntents.clear();
     broadcastIntentsForUser.clear();
+    broadcastDispatchCounts.clear();
+  }
+
+  /**
+   * Returns the number of times a broadcast with the given action has been delivered to a
+   * registered receiver since the last call to {@link #clearBroadcastIntents()}.
+   */
+  int getBroadcastDispatchCount(String action) {
+    AtomicInteger count = broadcastDispatchCounts.get(action);
+    return count == null ? 0 : count.get();
   }
 
   Intent getNextStartedActivity() {
@@ -755,10 +762,7 @@ public class ShadowInstrumentation {
       Handler scheduler,
       Context context) {
     if (receiver != null) {
-      synchronized (registeredReceivers) {
-        registeredReceivers.add(
-            new Wrapper(receiver, filter, context, broadcastPermission, scheduler));
-      }
+      registeredReceivers.add(new Wrapper(receiver, filter, context, broadcastPermission, scheduler));
     }
     return processStickyIntents(filter, receiver, context);
   }
@@ -766,36 +770,64 @@ public class ShadowInstrumentation {
   private Intent processStickyIntents(
       IntentFilter filter, BroadcastReceiver receiver, Context context) {
     Intent result = null;
-    for (Intent stickyIntent : stickyIntents.values()) {
-      if (filter.matchAction(stickyIntent.getAction())) {
-        if (result == null) {
-          result = stickyIntent;
-        }
-        if (receiver != null) {
-          receiver.setPendingResult(ShadowBroadcastPendingResult.createSticky(stickyIntent));
-          receiver.onReceive(context, stickyIntent);
-          receiver.setPendingResult(null);
-        } else if (result != null) {
-          break;
-        }
+    for (Intent stickyIntent : getMatchingStickyIntents(filter)) {
+      if (result == null) {
+        result = stickyIntent;
+      }
+      if (receiver != null) {
+        receiver.setPendingResult(ShadowBroadcastPendingResult.createSticky(stickyIntent));
+        receiver.onReceive(context, stickyIntent);
+        receiver.setPendingResult(null);
+      } else if (result != null) {
+        break;
       }
     }
     return result;
   }
 
-  void unregisterReceiver(BroadcastReceiver broadcastReceiver) {
-    boolean found = false;
-
-    synchronized (registeredReceivers) {
-      Iterator<Wrapper> iterator = registeredReceivers.iterator();
-      while (iterator.hasNext()) {
-        Wrapper wrapper = iterator.next();
-        if (wrapper.broadcastReceiver == broadcastReceiver) {
-          iterator.remove();
-          found = true;
+  /**
+   * Returns the sticky intents whose action matches {@code filter}, in the order they were first
+   * sent. Sticky intents are keyed by action, so only the filter's actions need to be looked up.
+   */
+  private List<Intent> getMatchingStickyIntents(IntentFilter filter) {
+    if (stickyIntents.isEmpty()) {
+      return Collections.emptyList();
+    }
+    int actionCount = filter.countActions();
+    if (actionCount == 1) {
+      Intent stickyIntent = stickyIntents.get(filter.getAction(0));
+      return stickyIntent == null
+          ? Collections.emptyList()
+          : Collections.singletonList(stickyIntent);
+    }
+    List<Intent> matches = new ArrayList<>();
+    if (actionCount < stickyIntents.size()) {
+      Set<String> matchingActions = new HashSet<>();
+      for (int i = 0; i < actionCount; i++) {
+        if (stickyIntents.containsKey(filter.getAction(i))) {
+          matchingActions.add(filter.getAction(i));
+        }
+      }
+      if (matchingActions.isEmpty()) {
+        return matches;
+      }
+      for (Map.Entry<String, Intent> entry : stickyIntents.entrySet()) {
+        if (matchingActions.contains(entry.getKey())) {
+          matches.add(entry.getValue());
+        }
+      }
+    } else {
+      for (Intent stickyIntent : stickyIntents.values()) {
+        if (filter.matchAction(stickyIntent.getAction())) {
+          matches.add(stickyIntent);
         }
       }
     }
+    return matches;
+  }
+
+  void unregisterReceiver(BroadcastReceiver broadcastReceiver) {
+    boolean found = registeredReceivers.remove(broadcastReceiver);
 
     if (!found) {
       throw new IllegalArgumentException("Receiver not registered: " + broadcastReceiver);
@@ -803,19 +835,15 @@ public class ShadowInstrumentation {
   }
 
   void clearRegisteredReceivers() {
-    synchronized (registeredReceivers) {
-      registeredReceivers.clear();
-    }
+    registeredReceivers.clear();
   }
 
   /** @deprecated use PackageManager.queryBroadcastReceivers instead */
   @Deprecated
   boolean hasReceiverForIntent(Intent intent) {
-    synchronized (registeredReceivers) {
-      for (Wrapper wrapper : registeredReceivers) {
-        if (wrapper.intentFilter.matchAction(intent.getAction())) {
-          return true;
-        }
+    for (Wrapper wrapper : registeredReceivers.getAll()) {
+      if (wrapper.intentFilter.matchAction(intent.getAction())) {
+        return true;
       }
     }
     return false;
@@ -826,11 +854,9 @@ public class ShadowInstrumentation {
   List<BroadcastReceiver> getReceiversForIntent(Intent intent) {
     ArrayList<BroadcastReceiver> broadcastReceivers = new ArrayList<>();
 
-    synchronized (registeredReceivers) {
-      for (Wrapper wrapper : registeredReceivers) {
-        if (wrapper.intentFilter.matchAction(intent.getAction())) {
-          broadcastReceivers.add(wrapper.getBroadcastReceiver());
-        }
+    for (Wrapper wrapper : registeredReceivers.getAll()) {
+      if (wrapper.intentFilter.matchAction(intent.getAction())) {
+        broadcastReceivers.add(wrapper.getBroadcastReceiver());
       }
     }
     return broadcastReceivers;
@@ -838,12 +864,7 @@ public class ShadowInstrumentation {
 
   /** @return copy of the list of {@link Wrapper}s for registered receivers */
   ImmutableList<Wrapper> getRegisteredReceivers() {
-    ImmutableList<Wrapper> copy;
-    synchronized (registeredReceivers) {
-      copy = ImmutableList.copyOf(registeredReceivers);
-    }
-
-    return copy;
+    return registeredReceivers.getAll();
   }
 
   int checkPermission(String permission, int pid, int uid) {
@@ -6,26 +6,55 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
+import org.robolectric.util.AsyncStreamWriter;
 
 @Implements(Log.class)
 public class ShadowLog {
   public static PrintStream stream;
 
+  /**
+   * How log entries are retained for {@link #getLogs()} and {@link #getLogsForTag(String)}. Entries
+   * are written to {@link #stream} regardless of the capture mode.
+   */
+  public enum CaptureMode {
+    /** Log entries are not retained. */
+    OFF,
+    /** Only the most recent entries of each tag are retained; see {@link #setCaptureMode}. */
+    RING_BUFFER,
+    /** All log entries are retained. This is the default. */
+    FULL
+  }
+
   private static final int extraLogLength = "l/: \n".length();
-  private static final Map<String, Queue<LogItem>> logsByTag = Collections.synchronizedMap(new
-      HashMap<String, Queue<LogItem>>());
+  private static final int DEFAULT_RING_BUFFER_CAPACITY = 1000;
+
+  /** Stands in for the null tag, which the concurrent maps below can't hold. */
+  private static final Object NULL_TAG = new Object();
+
+  private static final Map<Object, TagLog> logsByTag = new ConcurrentHashMap<>();
   private static final Queue<LogItem> logs = new ConcurrentLinkedQueue<>();
-  private static final Map<String, Integer> tagToLevel = Collections.synchronizedMap(new
-      HashMap<String, Integer>());
+  private static final Map<Object, Integer> tagToLevel = new ConcurrentHashMap<>();
+  private static final AtomicLong nextSequence = new AtomicLong();
+
+  private static volatile CaptureMode captureMode;
+  private static volatile int ringBufferCapacity;
+  private static volatile boolean asyncStreamWriting;
+
+  static {
+    resetCaptureMode();
+    resetAsyncStreamWriting();
+  }
 
   /**
    * Whether calling {@link Log#wtf} will throw {@link TerribleFailure}. This is analogous to
@@ -116,12 +145,59 @@ public class ShadowLog {
     timeSupplier = supplier;
   }
 
+  /**
+   * Sets how log entries are retained for the current test. Existing entries are discarded.
+   *
+   * <p>The default mode can be set with the {@code robolectric.logging.capture} system property,
+   * whose value is {@code off}, {@code ring} or {@code full}. The ring buffer capacity defaults to
+   * the {@code robolectric.logging.captureSize} system property, or 1000 entries per tag.
+   */
+  public static void setCaptureMode(CaptureMode mode) {
+    setCaptureMode(mode, ringBufferCapacity);
+  }
+
+  /**
+   * Sets how log entries are retained for the current test, keeping at most {@code
+   * entriesPerTag} of the most recent entries for each tag in {@link CaptureMode#RING_BUFFER}
+   * mode. Existing entries are discarded.
+   */
+  public static void setCaptureMode(CaptureMode mode, int entriesPerTag) {
+    if (entriesPerTag <= 0) {
+      throw new IllegalArgumentException("entriesPerTag must be positive: " + entriesPerTag);
+    }
+    captureMode = mode;
+    ringBufferCapacity = entriesPerTag;
+    logs.clear();
+    logsByTag.clear();
+  }
+
+  public static CaptureMode getCaptureMode() {
+    return captureMode;
+  }
+
+  /**
+   * Sets whether entries are written to {@link #stream} for the current test by a background
+   * thread, in batches, rather than by the logging thread. Pending entries are flushed when the
+   * test finishes, or by calling {@link #flushStream()}. The default is set with the {@code
+   * robolectric.logging.async} system property.
+   */
+  public static void setAsyncStreamWriting(boolean async) {
+    if (!async) {
+      flushStream();
+    }
+    asyncStreamWriting = async;
+  }
+
+  /** Waits until all entries logged so far have been written to {@link #stream}. */
+  public static void flushStream() {
+    AsyncStreamWriter.flush();
+  }
+
   @Implementation
   protected static boolean isLoggable(String tag, int level) {
-    synchronized (tagToLevel) {
-      if (tagToLevel.containsKey(tag)) {
-        return level >= tagToLevel.get(tag);
-      }
+    Integer tagLevel = tagToLevel.get(tagKey(tag));
+    if (tagLevel != null) {
+      return level >= tagLevel;
     }
     return stream != null || level >= Log.INFO;
   }
@@ -140,37 +216,52 @@ public class ShadowLog {
    * @param level A log level, from {@link android.util.Log}
    */
   public static void setLoggable(String tag, int level) {
-    tagToLevel.put(tag, level);
+    tagToLevel.put(tagKey(tag), level);
   }
 
   private static int addLog(int level, String tag, String msg, Throwable throwable) {
+    PrintStream stream = ShadowLog.stream;
+    CaptureMode captureMode = ShadowLog.captureMode;
+    if (stream == null && captureMode == CaptureMode.OFF) {
+      return 0;
+    }
+
     String timeString = null;
     if (timeSupplier != null) {
       timeString = timeSupplier.get();
     }
+    LogItem item = new LogItem(timeString, level, tag, msg, throwable);
 
     if (stream != null) {
-      logToStream(stream, timeString, level, tag, msg, throwable);
+      if (asyncStreamWriting) {
+        AsyncStreamWriter.enqueue(stream, ps -> logToStream(ps, item));
+      } else {
+        logToStream(stream, item);
+      }
     }
 
-    LogItem item = new LogItem(timeString, level, tag, msg, throwable);
-    Queue<LogItem> itemList;
-
-    synchronized (logsByTag) {
-      if (!logsByTag.containsKey(tag)) {
-        itemList = new ConcurrentLinkedQueue<>();
-        logsByTag.put(tag, itemList);
+    if (captureMode != CaptureMode.OFF) {
+      item.sequence = nextSequence.getAndIncrement();
+      Object key = tagKey(tag);
+      TagLog tagLog = logsByTag.get(key);
+      if (tagLog == null) {
+        tagLog = logsByTag.computeIfAbsent(key, k -> new TagLog());
+      }
+      if (captureMode == CaptureMode.FULL) {
+        tagLog.add(item);
+        logs.add(item);
       } else {
-        itemList = logsByTag.get(tag);
+        tagLog.add(item, ringBufferCapacity);
       }
     }
 
-    itemList.add(item);
-    logs.add(item);
-
     return 0;
   }
 
+  private static Object tagKey(String tag) {
+    return tag == null ? NULL_TAG : tag;
+  }
+
   protected static char levelToChar(int level) {
     final char c;
     switch (level) {
@@ -185,19 +276,18 @@ public class ShadowLog {
     return c;
   }
 
-  private static void logToStream(
-      PrintStream ps, String timeString, int level, String tag, String msg, Throwable throwable) {
-
+  private static void logToStream(PrintStream ps, LogItem item) {
     String outputString;
-    if (timeString != null && timeString.length() > 0) {
-      outputString = timeString + " " + levelToChar(level) + "/" + tag + ": " + msg;
+    if (item.timeString != null && item.timeString.length() > 0) {
+      outputString =
+          item.timeString + " " + levelToChar(item.type) + "/" + item.tag + ": " + item.msg;
     } else {
-      outputString = levelToChar(level) + "/" + tag + ": " + msg;
+      outputString = levelToChar(item.type) + "/" + item.tag + ": " + item.msg;
     }
 
     ps.println(outputString);
-    if (throwable != null) {
-      throwable.printStackTrace(ps);
+    if (item.throwable != null) {
+      item.throwable.printStackTrace(ps);
     }
   }
 
@@ -206,7 +296,15 @@ public class ShadowLog {
    * @return List of log items
    */
   public static List<LogItem> getLogs() {
-    return new ArrayList<>(logs);
+    if (captureMode != CaptureMode.RING_BUFFER) {
+      return new ArrayList<>(logs);
+    }
+    List<LogItem> items = new ArrayList<>();
+    for (TagLog tagLog : logsByTag.values()) {
+      items.addAll(tagLog.snapshot());
+    }
+    items.sort(Comparator.comparingLong(item -> item.sequence));
+    return items;
   }
 
   /**
@@ -216,8 +314,8 @@ public class ShadowLog {
    * @return The list of log items for the tag or an empty list if no logs for that tag exist.
    */
   public static List<LogItem> getLogsForTag(String tag) {
-    Queue<LogItem> logs = logsByTag.get(tag);
-    return logs == null ? Collections.emptyList() : new ArrayList<>(logs);
+    TagLog tagLog = logsByTag.get(tagKey(tag));
+    return tagLog == null ? Collections.emptyList() : tagLog.snapshot();
   }
 
   /** Clear all accumulated logs. */
@@ -227,12 +325,33 @@ public class ShadowLog {
 
   @Resetter
   public static void reset() {
+    flushStream();
+    resetCaptureMode();
+    resetAsyncStreamWriting();
     logs.clear();
     logsByTag.clear();
     tagToLevel.clear();
     wtfIsFatal = false;
   }
 
+  private static void resetCaptureMode() {
+    String mode = System.getProperty("robolectric.logging.capture");
+    if ("off".equalsIgnoreCase(mode)) {
+      captureMode = CaptureMode.OFF;
+    } else if ("ring".equalsIgnoreCase(mode)) {
+      captureMode = CaptureMode.RING_BUFFER;
+    } else {
+      captureMode = CaptureMode.FULL;
+    }
+    ringBufferCapacity =
+        Math.max(
+            1, Integer.getInteger("robolectric.logging.captureSize", DEFAULT_RING_BUFFER_CAPACITY));
+  }
+
+  private static void resetAsyncStreamWriting() {
+    asyncStreamWriting = Boolean.getBoolean("robolectric.logging.async");
+  }
+
   @SuppressWarnings("CatchAndPrintStackTrace")
   public static void setupLogging() {
     String logging = System.getProperty("robolectric.logging");
@@ -269,6 +388,9 @@ public class ShadowLog {
     public final String msg;
     public final Throwable throwable;
 
+    /** The order in which this item was logged. */
+    long sequence;
+
     public LogItem(int type, String tag, String msg, Throwable throwable) {
       this.timeString = null;
       this.type = type;
@@ -323,6 +445,32 @@ public class ShadowLog {
     }
   }
 
+  /**
+   * The retained log entries of a single tag. Entries are added without locking, except in {@link
+   * CaptureMode#RING_BUFFER} mode, where the oldest entry has to be dropped along with it.
+   */
+  private static final class TagLog {
+    private final Queue<LogItem> items = new ConcurrentLinkedQueue<>();
+    private int size;
+
+    void add(LogItem item) {
+      items.add(item);
+    }
+
+    synchronized void add(LogItem item, int capacity) {
+      if (size >= capacity) {
+        items.poll();
+      } else {
+        size++;
+      }
+      items.add(item);
+    }
+
+    List<LogItem> snapshot() {
+      return new ArrayList<>(items);
+    }
+  }
+
   /**
    * Failure thrown when wtf_is_fatal is true and Log.wtf is called. This is a parallel
    * implementation of framework's hidden API {@link android.util.Log#TerribleFailure}, to allow
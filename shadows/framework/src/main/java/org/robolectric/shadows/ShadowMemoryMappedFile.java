@@ -5,24 +5,27 @@ import static org.robolectric.RuntimeEnvironment.getApiLevel;
 
 import android.system.ErrnoException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import libcore.io.BufferIterator;
 import libcore.io.MemoryMappedFile;
-import libcore.io.Streams;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.SharedResourceBuffers;
 
 /**
  * This is used by Android to load and inferFromValue time zone information. Robolectric emulates
  * this functionality by proxying to a time zone database file packaged into the android-all jar.
+ *
+ * <p>The database is loaded once per JVM into a read-only buffer shared by all sandboxes using the
+ * same android-all jar; see {@link SharedResourceBuffers}.
  */
 @Implements(value = MemoryMappedFile.class, isInAndroidSdk = false)
 public class ShadowMemoryMappedFile {
-  protected byte[] bytes;
+  protected ByteBuffer buffer;
   private static final String TZ_DATA_1 = "/misc/zoneinfo/tzdata";
   private static final String TZ_DATA_2 = "/usr/share/zoneinfo/tzdata";
   private static final String TZ_DATA_3 = "/misc/zoneinfo/current/tzdata";
@@ -30,15 +33,16 @@ public class ShadowMemoryMappedFile {
   @Implementation
   public static MemoryMappedFile mmapRO(String path) throws Throwable {
     if (path.endsWith(TZ_DATA_1) || path.endsWith(TZ_DATA_2) || path.endsWith(TZ_DATA_3)) {
-      InputStream is = MemoryMappedFile.class.getResourceAsStream(TZ_DATA_2);
-      if (is == null) {
+      URL resource = MemoryMappedFile.class.getResource(TZ_DATA_2);
+      if (resource == null) {
         throw (Throwable)
             exceptionClass().getConstructor(String.class, int.class).newInstance("open", -1);
       }
       try {
+        ByteBuffer buffer = SharedResourceBuffers.getReadOnlyBuffer(resource);
         MemoryMappedFile memoryMappedFile = new MemoryMappedFile(0L, 0L);
         ShadowMemoryMappedFile shadowMemoryMappedFile = Shadow.extract(memoryMappedFile);
-        shadowMemoryMappedFile.bytes = Streams.readFully(is);
+        shadowMemoryMappedFile.buffer = buffer;
         return memoryMappedFile;
       } catch (IOException e) {
         throw (Throwable)
@@ -65,7 +69,7 @@ public class ShadowMemoryMappedFile {
 
   @Implementation
   public synchronized void close() throws Exception {
-    bytes = null;
+    buffer = null;
   }
 
   @Implementation
@@ -79,20 +83,26 @@ public class ShadowMemoryMappedFile {
   }
 
   protected BufferIterator getHeapBufferIterator(ByteOrder endianness) {
-    return new RoboBufferIterator(bytes, endianness);
+    return new RoboBufferIterator(buffer, endianness);
   }
 
   @Implementation
   @SuppressWarnings("robolectric.ShadowReturnTypeMismatch")
   public int size() {
-    return bytes.length;
+    return buffer.capacity();
   }
 
+  /** Reads directly from a shared buffer, through an independent position and byte order. */
   protected static class RoboBufferIterator extends BufferIterator {
     protected final ByteBuffer buffer;
 
     public RoboBufferIterator(byte[] buffer, ByteOrder order) {
-      this.buffer = ByteBuffer.wrap(buffer);
+      this(ByteBuffer.wrap(buffer), order);
+    }
+
+    public RoboBufferIterator(ByteBuffer buffer, ByteOrder order) {
+      this.buffer = buffer.duplicate().order(order);
+      ((Buffer) this.buffer).rewind();
     }
 
     @Override
@@ -107,13 +117,12 @@ public class ShadowMemoryMappedFile {
 
     @Override
     public int pos() {
-      return 0;
+      return buffer.position();
     }
 
     @Override
     public void readByteArray(byte[] dst, int dstOffset, int byteCount) {
-      System.arraycopy(buffer.array(), buffer.position(), dst, dstOffset, byteCount);
-      skip(byteCount);
+      buffer.get(dst, dstOffset, byteCount);
     }
 
     @Override
@@ -128,9 +137,8 @@ public class ShadowMemoryMappedFile {
 
     @Override
     public void readIntArray(int[] dst, int dstOffset, int intCount) {
-      for (int i = 0; i < intCount; i++) {
-        dst[dstOffset + i] = buffer.getInt();
-      }
+      buffer.asIntBuffer().get(dst, dstOffset, intCount);
+      skip(intCount * 4);
     }
 
     @Override
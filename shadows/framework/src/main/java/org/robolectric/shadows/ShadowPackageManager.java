@@ -121,6 +121,13 @@ public class ShadowPackageManager {
   static final SortedMap<ComponentName, List<IntentFilter>> providerFilters = new TreeMap<>();
   static final SortedMap<ComponentName, List<IntentFilter>> receiverFilters = new TreeMap<>();
 
+  // Action indexes over the filter maps above, used to resolve implicit intents. Every change to
+  // a filter map must be reflected in its index.
+  static final IntentFilterIndex activityFilterIndex = new IntentFilterIndex(activityFilters);
+  static final IntentFilterIndex serviceFilterIndex = new IntentFilterIndex(serviceFilters);
+  static final IntentFilterIndex providerFilterIndex = new IntentFilterIndex(providerFilters);
+  static final IntentFilterIndex receiverFilterIndex = new IntentFilterIndex(receiverFilters);
+
   private static Map<String, PackageInfo> packageArchiveInfo = new HashMap<>();
   static final Map<String, PackageStats> packageStatsMap = new HashMap<>();
   static final Map<String, String> packageInstallerMap = new HashMap<>();
@@ -390,8 +397,9 @@ public class ShadowPackageManager {
     componentsSetter.accept(packageInfo, components);
     components[components.length - 1] = newComponent;
 
-    filtersMap.put(
-        new ComponentName(newComponent.packageName, newComponent.name), new ArrayList<>());
+    ComponentName componentName = new ComponentName(newComponent.packageName, newComponent.name);
+    filtersMap.put(componentName, new ArrayList<>());
+    filterIndexFor(filtersMap).reindex(componentName);
     return newComponent;
   }
 
@@ -401,6 +409,7 @@ public class ShadowPackageManager {
       SortedMap<ComponentName, List<IntentFilter>> filtersMap,
       Function<PackageInfo, C[]> componentArrayInPackage,
       BiConsumer<PackageInfo, C[]> componentsSetter) {
+    filterIndexFor(filtersMap).unindex(componentName);
     filtersMap.remove(componentName);
     String packageName = componentName.getPackageName();
     PackageInfo packageInfo = packageInfos.get(packageName);
@@ -1064,6 +1073,10 @@ public class ShadowPackageManager {
   public void deletePackage(String packageName) {
     deletedPackages.add(packageName);
     packageInfos.remove(packageName);
+    activityFilterIndex.unindexPackage(packageName);
+    serviceFilterIndex.unindexPackage(packageName);
+    providerFilterIndex.unindexPackage(packageName);
+    receiverFilterIndex.unindexPackage(packageName);
     mapForPackage(activityFilters, packageName).clear();
     mapForPackage(serviceFilters, packageName).clear();
     mapForPackage(providerFilters, packageName).clear();
@@ -1182,6 +1195,7 @@ public class ShadowPackageManager {
     if (components == null) {
       return;
     }
+    IntentFilterIndex filterIndex = filterIndexFor(componentMap);
     for (Component<?> component : components) {
       ComponentName componentName = component.getComponentName();
       List<IntentFilter> registeredFilters = componentMap.get(componentName);
@@ -1192,9 +1206,24 @@ public class ShadowPackageManager {
       for (IntentInfo intentInfo : component.intents) {
         registeredFilters.add(new IntentFilter(intentInfo));
       }
+      filterIndex.reindex(componentName);
     }
   }
 
+  /** Returns the action index maintained for one of the component filter maps. */
+  static IntentFilterIndex filterIndexFor(Map<ComponentName, List<IntentFilter>> filtersMap) {
+    if (filtersMap == activityFilters) {
+      return activityFilterIndex;
+    } else if (filtersMap == serviceFilters) {
+      return serviceFilterIndex;
+    } else if (filtersMap == providerFilters) {
+      return providerFilterIndex;
+    } else if (filtersMap == receiverFilters) {
+      return receiverFilterIndex;
+    }
+    throw new IllegalArgumentException("Not a component filter map");
+  }
+
   public static class IntentComparator implements Comparator<Intent> {
 
     @Override
@@ -1349,7 +1378,8 @@ public class ShadowPackageManager {
   }
 
   /**
-   * Add intent filter for given activity.
+   * Add intent filter for given activity. The filter is copied, as the framework does when it
+   * parcels filters, so changing it afterwards doesn't affect intent resolution.
    *
    * @throws NameNotFoundException if component with given name doesn't exist.
    */
@@ -1359,7 +1389,8 @@ public class ShadowPackageManager {
   }
 
   /**
-   * Add intent filter for given service.
+   * Add intent filter for given service. The filter is copied, as the framework does when it
+   * parcels filters, so changing it afterwards doesn't affect intent resolution.
    *
    * @throws NameNotFoundException if component with given name doesn't exist.
    */
@@ -1369,7 +1400,8 @@ public class ShadowPackageManager {
   }
 
   /**
-   * Add intent filter for given receiver.
+   * Add intent filter for given receiver. The filter is copied, as the framework does when it
+   * parcels filters, so changing it afterwards doesn't affect intent resolution.
    *
    * @throws NameNotFoundException if component with given name doesn't exist.
    */
@@ -1379,7 +1411,8 @@ public class ShadowPackageManager {
   }
 
   /**
-   * Add intent filter for given provider.
+   * Add intent filter for given provider. The filter is copied, as the framework does when it
+   * parcels filters, so changing it afterwards doesn't affect intent resolution.
    *
    * @throws NameNotFoundException if component with given name doesn't exist.
    */
@@ -1438,7 +1471,7 @@ public class ShadowPackageManager {
     // being of two comopnent types (like activity and service at the same time).
     List<IntentFilter> filters = filterMap.get(componentName);
     if (filters != null) {
-      filters.add(filter);
+      filterIndexFor(filterMap).addFilter(componentName, new IntentFilter(filter));
       return;
     }
     throw new NameNotFoundException(componentName + " doesn't exist");
@@ -1450,6 +1483,7 @@ public class ShadowPackageManager {
     List<IntentFilter> filters = filterMap.get(componentName);
     if (filters != null) {
       filters.clear();
+      filterIndexFor(filterMap).unindex(componentName);
       return;
     }
     throw new NameNotFoundException(componentName + " doesn't exist");
@@ -1460,7 +1494,12 @@ public class ShadowPackageManager {
       throws NameNotFoundException {
     List<IntentFilter> filters = filterMap.get(componentName);
     if (filters != null) {
-      return new ArrayList<>(filters);
+      // copies, so that changing them doesn't bypass the action index
+      List<IntentFilter> copies = new ArrayList<>(filters.size());
+      for (IntentFilter filter : filters) {
+        copies.add(new IntentFilter(filter));
+      }
+      return copies;
     }
     throw new NameNotFoundException(componentName + " doesn't exist");
   }
@@ -1627,6 +1666,10 @@ public class ShadowPackageManager {
     serviceFilters.clear();
     providerFilters.clear();
     receiverFilters.clear();
+    activityFilterIndex.clear();
+    serviceFilterIndex.clear();
+    providerFilterIndex.clear();
+    receiverFilterIndex.clear();
     packageSettings.clear();
     safeMode = false;
   }
@@ -208,8 +208,10 @@ public final class ShadowPausedLooper extends ShadowLooper {
     return shadowQueue().getLastScheduledTaskTime();
   }
 
+  // Not synchronized: quitting a paused looper waits for the looper's thread, and waiting while
+  // holding a monitor would pin a virtual main thread to its carrier thread.
   @Resetter
-  public static synchronized void resetLoopers() {
+  public static void resetLoopers() {
     if (looperMode() != LooperMode.Mode.PAUSED) {
       // ignore if not realistic looper
       return;
@@ -61,6 +61,7 @@ public class ShadowView {
   private final HashSet<View.OnAttachStateChangeListener> onAttachStateChangeListeners =
       new HashSet<>();
   private boolean wasInvalidated;
+  private int changeCount;
   private View.OnTouchListener onTouchListener;
   protected AttributeSet attributeSet;
   public Point scrollToCoordinates = new Point();
@@ -216,6 +217,7 @@ public class ShadowView {
   @Implementation
   protected void requestLayout() {
     didRequestLayout = true;
+    changeCount++;
     directly().requestLayout();
   }
 
@@ -236,9 +238,17 @@ public class ShadowView {
   @Implementation
   protected void invalidate() {
     wasInvalidated = true;
+    changeCount++;
     directly().invalidate();
   }
 
+  @Implementation(minSdk = KITKAT)
+  protected void notifyViewAccessibilityStateChangedIfNeeded(int changeType) {
+    changeCount++;
+    directlyOn(realView, View.class, "notifyViewAccessibilityStateChangedIfNeeded",
+        ClassParameter.from(int.class, changeType));
+  }
+
   @Implementation
   protected boolean onTouchEvent(MotionEvent event) {
     lastTouchEvent = event;
@@ -336,6 +346,15 @@ public class ShadowView {
     wasInvalidated = false;
   }
 
+  /**
+   * Returns the number of times this view has been invalidated, had a layout requested, or had its
+   * accessibility state change. Unlike {@link #wasInvalidated()}, this is never cleared, so
+   * comparing two values tells whether the view changed in between.
+   */
+  public int getChangeCount() {
+    return changeCount;
+  }
+
   /**
    * Utility method for clicking on views exposing testing scenarios that are not possible when using the actual app.
    *
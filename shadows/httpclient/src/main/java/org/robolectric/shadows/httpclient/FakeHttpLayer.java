@@ -24,12 +24,13 @@ public class FakeHttpLayer {
   private final List<HttpResponseGenerator> pendingHttpResponses = new ArrayList<>();
   private final List<HttpRequestInfo> httpRequestInfos = new ArrayList<>();
   private final List<HttpResponse> httpResponses = new ArrayList<>();
-  private final List<HttpEntityStub.ResponseRule> httpResponseRules = new ArrayList<>();
+  private final ResponseRules httpResponseRules = new ResponseRules();
   private HttpResponse defaultHttpResponse;
   private boolean interceptHttpRequests = true;
   private boolean logHttpRequests = false;
   private List<byte[]> httpResposeContent = new ArrayList<>();
   private boolean interceptResponseContent;
+  private int maxRecordedHttpRequests = Integer.MAX_VALUE;
 
   public HttpRequestInfo getLastSentHttpRequestInfo() {
     List<HttpRequestInfo> requestInfos = getSentHttpRequestInfos();
@@ -83,7 +84,7 @@ public class FakeHttpLayer {
   }
 
   public void addHttpResponseRule(HttpEntityStub.ResponseRule responseRule) {
-    httpResponseRules.add(0, responseRule);
+    httpResponseRules.add(responseRule);
   }
 
   public void setDefaultHttpResponse(HttpResponse defaultHttpResponse) {
@@ -99,10 +100,9 @@ public class FakeHttpLayer {
       return pendingHttpResponses.remove(0).getResponse(httpRequest);
     }
 
-    for (HttpEntityStub.ResponseRule httpResponseRule : httpResponseRules) {
-      if (httpResponseRule.matches(httpRequest)) {
-        return httpResponseRule.getResponse();
-      }
+    HttpEntityStub.ResponseRule httpResponseRule = httpResponseRules.findMatch(httpRequest);
+    if (httpResponseRule != null) {
+      return httpResponseRule.getResponse();
     }
 
     System.err.println("Unexpected HTTP call " + httpRequest.getRequestLine());
@@ -158,7 +158,7 @@ public class FakeHttpLayer {
    * @param requestInfo Request info object to add.
    */
   public void addRequestInfo(HttpRequestInfo requestInfo) {
-    httpRequestInfos.add(requestInfo);
+    record(httpRequestInfos, requestInfo);
   }
 
   public boolean hasResponseRules() {
@@ -222,11 +222,43 @@ public class FakeHttpLayer {
    * @param response The final response received by the server
    */
   public void addHttpResponse(HttpResponse response) {
-    this.httpResponses.add(response);
+    record(httpResponses, response);
   }
 
   public void addHttpResponseContent(byte[] content) {
-    this.httpResposeContent.add(content);
+    record(httpResposeContent, content);
+  }
+
+  /**
+   * Limits the sent requests, responses and intercepted response bodies kept for inspection to the
+   * most recent {@code maxRecorded} of each. Zero disables recording altogether, which also means
+   * that {@link #hasRequestMatchingRule(RequestMatcher)} and {@link #getLastSentHttpRequestInfo()}
+   * will not see any requests. Recording is unbounded by default.
+   *
+   * @param maxRecorded the number of most recent entries to keep
+   */
+  public void setMaxRecordedHttpRequests(int maxRecorded) {
+    if (maxRecorded < 0) {
+      throw new IllegalArgumentException("maxRecorded must not be negative: " + maxRecorded);
+    }
+    this.maxRecordedHttpRequests = maxRecorded;
+    trim(httpRequestInfos);
+    trim(httpResponses);
+    trim(httpResposeContent);
+  }
+
+  private <T> void record(List<T> recorded, T item) {
+    if (maxRecordedHttpRequests > 0) {
+      recorded.add(item);
+      trim(recorded);
+    }
+  }
+
+  private void trim(List<?> recorded) {
+    int excess = recorded.size() - maxRecordedHttpRequests;
+    if (excess > 0) {
+      recorded.subList(0, excess).clear();
+    }
   }
 
   public List<byte[]> getHttpResposeContentList() {
@@ -272,6 +304,83 @@ public class FakeHttpLayer {
     return interceptResponseContent;
   }
 
+  /**
+   * The response rules, most recently added first. Rules whose matcher only accepts a single exact
+   * URI are indexed by that URI, so that finding the rule for a request only has to evaluate those
+   * rules and the ones that could match any URI.
+   */
+  private static class ResponseRules {
+    private final Map<String, List<IndexedRule>> rulesByUri = new HashMap<>();
+    private final List<IndexedRule> unindexedRules = new ArrayList<>();
+    private long nextSequence;
+
+    void add(HttpEntityStub.ResponseRule rule) {
+      IndexedRule indexedRule = new IndexedRule(nextSequence++, rule);
+      String uri = getExactUri(rule);
+      if (uri == null) {
+        unindexedRules.add(indexedRule);
+      } else {
+        List<IndexedRule> forUri = rulesByUri.get(uri);
+        if (forUri == null) {
+          forUri = new ArrayList<>();
+          rulesByUri.put(uri, forUri);
+        }
+        forUri.add(indexedRule);
+      }
+    }
+
+    boolean isEmpty() {
+      return rulesByUri.isEmpty() && unindexedRules.isEmpty();
+    }
+
+    void clear() {
+      rulesByUri.clear();
+      unindexedRules.clear();
+    }
+
+    /** Returns the most recently added rule that matches {@code request}, or null. */
+    HttpEntityStub.ResponseRule findMatch(HttpRequest request) {
+      List<IndexedRule> forUri = rulesByUri.get(request.getRequestLine().getUri());
+      int i = forUri == null ? -1 : forUri.size() - 1;
+      int j = unindexedRules.size() - 1;
+      while (i >= 0 || j >= 0) {
+        IndexedRule candidate;
+        if (j < 0 || (i >= 0 && forUri.get(i).sequence > unindexedRules.get(j).sequence)) {
+          candidate = forUri.get(i--);
+        } else {
+          candidate = unindexedRules.get(j--);
+        }
+        if (candidate.rule.matches(request)) {
+          return candidate.rule;
+        }
+      }
+      return null;
+    }
+
+    private static String getExactUri(HttpEntityStub.ResponseRule rule) {
+      if (!(rule instanceof RequestMatcherResponseRule)) {
+        return null;
+      }
+      RequestMatcher requestMatcher = ((RequestMatcherResponseRule) rule).requestMatcher;
+      if (requestMatcher instanceof DefaultRequestMatcher) {
+        return ((DefaultRequestMatcher) requestMatcher).uri;
+      } else if (requestMatcher instanceof UriRequestMatcher) {
+        return ((UriRequestMatcher) requestMatcher).uri;
+      }
+      return null;
+    }
+
+    private static class IndexedRule {
+      private final long sequence;
+      private final HttpEntityStub.ResponseRule rule;
+
+      IndexedRule(long sequence, HttpEntityStub.ResponseRule rule) {
+        this.sequence = sequence;
+        this.rule = rule;
+      }
+    }
+  }
+
   public static class RequestMatcherResponseRule implements HttpEntityStub.ResponseRule {
     private RequestMatcher requestMatcher;
     private HttpResponse responseToGive;
@@ -320,8 +429,8 @@ public class FakeHttpLayer {
   }
 
   public static class DefaultRequestMatcher implements RequestMatcher {
-    private String method;
-    private String uri;
+    private final String method;
+    private final String uri;
 
     public DefaultRequestMatcher(String method, String uri) {
       this.method = method;
@@ -336,7 +445,7 @@ public class FakeHttpLayer {
   }
 
   public static class UriRequestMatcher implements RequestMatcher {
-    private String uri;
+    private final String uri;
 
     public UriRequestMatcher(String uri) {
       this.uri = uri;
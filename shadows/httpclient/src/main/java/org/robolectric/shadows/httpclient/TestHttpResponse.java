@@ -2,10 +2,14 @@ package org.robolectric.shadows.httpclient;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -22,7 +26,7 @@ import org.apache.http.params.HttpParams;
 public class TestHttpResponse extends HttpResponseStub {
 
   private int statusCode;
-  private byte[] responseBody;
+  private ByteBuffer responseBody;
   private TestStatusLine statusLine = new TestStatusLine();
   private TestHttpEntity httpEntity = new TestHttpEntity();
   private int openEntityContentStreamCount = 0;
@@ -31,12 +35,12 @@ public class TestHttpResponse extends HttpResponseStub {
 
   public TestHttpResponse() {
     this.statusCode = 200;
-    this.responseBody = new byte[0];
+    this.responseBody = ByteBuffer.allocate(0);
   }
 
   public TestHttpResponse(int statusCode, String responseBody) {
     this.statusCode = statusCode;
-    this.responseBody = responseBody.getBytes(UTF_8);
+    this.responseBody = ByteBuffer.wrap(responseBody.getBytes(UTF_8));
   }
 
   public TestHttpResponse(int statusCode, String responseBody, Header... headers) {
@@ -44,13 +48,38 @@ public class TestHttpResponse extends HttpResponseStub {
   }
 
   public TestHttpResponse(int statusCode, byte[] responseBody, Header... headers) {
+    this(statusCode, ByteBuffer.wrap(responseBody.clone()), headers);
+  }
+
+  /**
+   * Creates a response whose body is streamed from the remaining bytes of {@code responseBody}
+   * each time the entity's content is read. The buffer is not copied, so large bodies can be
+   * served from a direct or memory-mapped buffer without being held on the heap.
+   */
+  public TestHttpResponse(int statusCode, ByteBuffer responseBody, Header... headers) {
     this.statusCode = statusCode;
-    this.responseBody = responseBody.clone();
+    this.responseBody = responseBody.slice().asReadOnlyBuffer();
     this.headers = headers;
   }
 
+  /**
+   * Creates a response whose body is the content of {@code responseBody}. The file is memory-mapped
+   * rather than read into memory, and must not be modified while the response is in use.
+   */
+  public TestHttpResponse(int statusCode, File responseBody, Header... headers)
+      throws IOException {
+    this(statusCode, map(responseBody), headers);
+  }
+
   protected void setResponseBody(String responseBody) {
-    this.responseBody = responseBody.getBytes(UTF_8);
+    this.responseBody = ByteBuffer.wrap(responseBody.getBytes(UTF_8));
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        FileChannel channel = randomAccessFile.getChannel()) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
   }
 
   @Override public StatusLine getStatusLine() {
@@ -186,10 +215,10 @@ public class TestHttpResponse extends HttpResponseStub {
 
   public class TestHttpEntity extends HttpEntityStub {
 
-    private ByteArrayInputStream inputStream;
+    private InputStream inputStream;
 
     @Override public long getContentLength() {
-      return responseBody.length;
+      return responseBody.remaining();
     }
 
     @Override public Header getContentType() {
@@ -210,7 +239,7 @@ public class TestHttpResponse extends HttpResponseStub {
 
     @Override public InputStream getContent() throws IOException, IllegalStateException {
       openEntityContentStreamCount++;
-      inputStream = new ByteArrayInputStream(responseBody) {
+      inputStream = new ByteBufferInputStream(responseBody.duplicate()) {
         @Override
         public void close() throws IOException {
           openEntityContentStreamCount--;
@@ -221,13 +250,67 @@ public class TestHttpResponse extends HttpResponseStub {
     }
 
     @Override public void writeTo(OutputStream outputStream) throws IOException {
-      outputStream.write(responseBody);
+      ByteBuffer body = responseBody.duplicate();
+      byte[] chunk = new byte[Math.min(body.remaining(), 8192)];
+      while (body.hasRemaining()) {
+        int count = Math.min(body.remaining(), chunk.length);
+        body.get(chunk, 0, count);
+        outputStream.write(chunk, 0, count);
+      }
     }
 
     @Override public void consumeContent() throws IOException {
     }
   }
 
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+    private int mark;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.mark = buffer.position();
+    }
+
+    @Override public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      ((Buffer) buffer).position(buffer.position() + count);
+      return count;
+    }
+
+    @Override public int available() {
+      return buffer.remaining();
+    }
+
+    @Override public boolean markSupported() {
+      return true;
+    }
+
+    @Override public synchronized void mark(int readLimit) {
+      mark = buffer.position();
+    }
+
+    @Override public synchronized void reset() {
+      ((Buffer) buffer).position(mark);
+    }
+  }
+
   public class TestStatusLine extends StatusLineStub {
     @Override public ProtocolVersion getProtocolVersion() {
       return new HttpVersion(1, 0);
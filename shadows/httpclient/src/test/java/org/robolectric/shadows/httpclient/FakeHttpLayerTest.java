@@ -2,6 +2,8 @@ package org.robolectric.shadows.httpclient;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
@@ -79,4 +81,63 @@ public class FakeHttpLayerTest {
     assertThat(requestMatcherBuilder.matches(noMatch)).isFalse();
     assertThat(requestMatcherBuilder.matches(match)).isTrue();
   }
+
+  @Test
+  public void emulateRequest_shouldUseMostRecentlyAddedMatchingRule() throws Exception {
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.addHttpResponseRule("http://example.com/a", new TestHttpResponse(200, "uri"));
+    fakeHttpLayer.addHttpResponseRule(
+        new FakeHttpLayer.UriRegexMatcher("GET", ".*"), new TestHttpResponse(201, "regex"));
+    fakeHttpLayer.addHttpResponseRule(
+        "GET", "http://example.com/a", new TestHttpResponse(202, "get"));
+    for (int i = 0; i < 1000; i++) {
+      fakeHttpLayer.addHttpResponseRule(
+          "http://example.com/other" + i, new TestHttpResponse(500, "other"));
+    }
+
+    assertThat(statusCodeFor(fakeHttpLayer, new HttpGet("http://example.com/a"))).isEqualTo(202);
+    assertThat(statusCodeFor(fakeHttpLayer, new HttpPost("http://example.com/a"))).isEqualTo(200);
+    assertThat(statusCodeFor(fakeHttpLayer, new HttpGet("http://example.com/b"))).isEqualTo(201);
+    assertThat(statusCodeFor(fakeHttpLayer, new HttpGet("http://example.com/other7")))
+        .isEqualTo(500);
+
+    fakeHttpLayer.clearHttpResponseRules();
+
+    assertThat(fakeHttpLayer.hasResponseRules()).isFalse();
+  }
+
+  @Test
+  public void setMaxRecordedHttpRequests_shouldOnlyKeepTheMostRecentRequests() throws Exception {
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.setDefaultHttpResponse(200, "OK");
+    fakeHttpLayer.setMaxRecordedHttpRequests(2);
+
+    for (int i = 0; i < 5; i++) {
+      fakeHttpLayer.emulateRequest(null, new HttpGet("http://example.com/" + i), null, null);
+    }
+
+    assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(2);
+    assertThat(fakeHttpLayer.getSentHttpRequestInfo(0).getHttpRequest().getRequestLine().getUri())
+        .isEqualTo("http://example.com/3");
+    assertThat(fakeHttpLayer.getHttpResponses()).hasSize(2);
+  }
+
+  @Test
+  public void setMaxRecordedHttpRequests_zeroShouldDisableRecording() throws Exception {
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.setDefaultHttpResponse(200, "OK");
+    fakeHttpLayer.setMaxRecordedHttpRequests(0);
+
+    HttpResponse response =
+        fakeHttpLayer.emulateRequest(null, new HttpGet("http://example.com/"), null, null);
+
+    assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+    assertThat(fakeHttpLayer.hasRequestInfos()).isFalse();
+    assertThat(fakeHttpLayer.getLastHttpResponse()).isNull();
+  }
+
+  private static int statusCodeFor(FakeHttpLayer fakeHttpLayer, HttpRequest request)
+      throws Exception {
+    return fakeHttpLayer.emulateRequest(null, request, null, null).getStatusLine().getStatusCode();
+  }
 }
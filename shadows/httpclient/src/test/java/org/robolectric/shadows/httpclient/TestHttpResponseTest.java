@@ -1,14 +1,25 @@
 package org.robolectric.shadows.httpclient;
 
 import static com.google.common.truth.Truth.assertThat;
-
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
 import org.apache.http.HttpResponse;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class TestHttpResponseTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Test
   public void shouldSupportGetFirstHeader() throws Exception {
@@ -122,4 +133,32 @@ public class TestHttpResponseTest {
     assertThat(response.getHeaders("foo")[1].getValue()).isEqualTo("baz");
   }
 
+  @Test
+  public void shouldStreamBodyFromFile() throws Exception {
+    File file = temporaryFolder.newFile("body.txt");
+    Files.write(file.toPath(), "file body".getBytes(UTF_8));
+    TestHttpResponse response = new TestHttpResponse(200, file);
+
+    assertThat(response.getEntity().getContentLength()).isEqualTo(9);
+    assertThat(EntityUtils.toString(response.getEntity())).isEqualTo("file body");
+    // The body can be read again, and the content stream is closed after reading.
+    assertThat(EntityUtils.toString(response.getEntity())).isEqualTo("file body");
+    assertThat(response.entityContentStreamsHaveBeenClosed()).isTrue();
+  }
+
+  @Test
+  public void shouldWriteBodyFromDirectBuffer() throws Exception {
+    byte[] body = new byte[100_000];
+    new Random(0).nextBytes(body);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+    buffer.put(body);
+    ((Buffer) buffer).flip();
+    TestHttpResponse response = new TestHttpResponse(200, buffer);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    response.getEntity().writeTo(outputStream);
+
+    assertThat(outputStream.toByteArray()).isEqualTo(body);
+    assertThat(EntityUtils.toByteArray(response.getEntity())).isEqualTo(body);
+  }
 }
@@ -0,0 +1,112 @@
+package org.robolectric.util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes to {@link PrintStream}s on a single daemon thread shared by every sandbox in the JVM,
+ * taking all pending writes at once and flushing each stream once per batch.
+ *
+ * <p>The thread is started by the first write and runs until the JVM exits, when pending writes
+ * are flushed by a shutdown hook.
+ */
+public final class AsyncStreamWriter {
+  private static final int MAX_BATCH_SIZE = 1024;
+
+  private static volatile AsyncStreamWriter instance;
+
+  private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<>();
+  private final AtomicLong enqueued = new AtomicLong();
+  private final Thread thread = new Thread(this::run, "AsyncStreamWriter");
+  private long written;
+
+  private AsyncStreamWriter() {
+    thread.setDaemon(true);
+    // don't keep the class loader of whichever sandbox happened to write first
+    thread.setContextClassLoader(AsyncStreamWriter.class.getClassLoader());
+    thread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flushPending, "AsyncStreamWriter flush"));
+  }
+
+  /** Queues {@code write} to be called with {@code stream} on the writer thread. */
+  public static void enqueue(PrintStream stream, Consumer<PrintStream> write) {
+    AsyncStreamWriter writer = instance;
+    if (writer == null) {
+      synchronized (AsyncStreamWriter.class) {
+        writer = instance;
+        if (writer == null) {
+          instance = writer = new AsyncStreamWriter();
+        }
+      }
+    }
+    writer.enqueued.incrementAndGet();
+    writer.pending.add(new PendingWrite(stream, write));
+  }
+
+  /** Blocks until every write queued before this call has been done. */
+  public static void flush() {
+    AsyncStreamWriter writer = instance;
+    if (writer != null) {
+      writer.flushPending();
+    }
+  }
+
+  private synchronized void flushPending() {
+    long target = enqueued.get();
+    boolean interrupted = false;
+    while (written < target && thread.isAlive()) {
+      try {
+        wait(100);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    List<PendingWrite> batch = new ArrayList<>();
+    while (true) {
+      try {
+        batch.add(pending.take());
+      } catch (InterruptedException e) {
+        continue;
+      }
+      pending.drainTo(batch, MAX_BATCH_SIZE - 1);
+      PrintStream lastStream = null;
+      for (PendingWrite write : batch) {
+        if (lastStream != null && lastStream != write.stream) {
+          lastStream.flush();
+        }
+        try {
+          write.write.accept(write.stream);
+        } catch (RuntimeException e) {
+          Logger.error("failed to write to stream", e);
+        }
+        lastStream = write.stream;
+      }
+      lastStream.flush();
+      synchronized (this) {
+        written += batch.size();
+        notifyAll();
+      }
+      batch.clear();
+    }
+  }
+
+  private static final class PendingWrite {
+    private final PrintStream stream;
+    private final Consumer<PrintStream> write;
+
+    PendingWrite(PrintStream stream, Consumer<PrintStream> write) {
+      this.stream = stream;
+      this.write = write;
+    }
+  }
+}
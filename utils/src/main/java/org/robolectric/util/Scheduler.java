@@ -5,8 +5,10 @@ import static org.robolectric.util.Scheduler.IdleState.PAUSED;
 import static org.robolectric.util.Scheduler.IdleState.UNPAUSED;
 
 import java.time.Duration;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -52,15 +54,21 @@ public class Scheduler {
 
   private static final long START_TIME = 100;
   private volatile long currentTime = START_TIME;
-  /**
-   * PriorityQueue doesn't maintain ordering based on insertion; track that ourselves to preserve
-   * FIFO order for posted runnables with the same scheduled time.
-   */
-  private long nextTimeDisambiguator = 0;
 
   private boolean isExecutingRunnable = false;
   private final Thread associatedThread = Thread.currentThread();
-  private final PriorityQueue<ScheduledRunnable> runnables = new PriorityQueue<>();
+  /**
+   * Queued runnables, bucketed by scheduled time. Each bucket is kept in FIFO order so that
+   * runnables with the same scheduled time run in the order they were posted.
+   */
+  private final TreeMap<Long, TimeSlot> timeSlots = new TreeMap<>();
+  /**
+   * The queued entries of each runnable, so that {@link #remove(Runnable)} can cancel them without
+   * scanning the queue. Cancelled entries are discarded when they reach the head of their bucket.
+   */
+  private final Map<Runnable, ArrayDeque<ScheduledRunnable>> queuedRunnables =
+      new IdentityHashMap<>();
+  private int queuedCount;
   private volatile IdleState idleState = UNPAUSED;
 
   /**
@@ -158,7 +166,7 @@ public class Scheduler {
   public synchronized void postDelayed(Runnable runnable, long delay, TimeUnit unit) {
     long delayMillis = unit.toMillis(delay);
     if ((idleState != CONSTANT_IDLE && (isPaused() || delayMillis > 0)) || Thread.currentThread() != associatedThread) {
-      runnables.add(new ScheduledRunnable(runnable, currentTime + delayMillis));
+      enqueue(new ScheduledRunnable(runnable, currentTime + delayMillis), false);
     } else {
       runOrQueueRunnable(runnable, currentTime + delayMillis);
     }
@@ -171,13 +179,7 @@ public class Scheduler {
    */
   public synchronized void postAtFrontOfQueue(Runnable runnable) {
     if (isPaused() || Thread.currentThread() != associatedThread) {
-      final long timeDisambiguator;
-      if (runnables.isEmpty()) {
-        timeDisambiguator = nextTimeDisambiguator++;
-      } else {
-        timeDisambiguator = runnables.peek().timeDisambiguator - 1;
-      }
-      runnables.add(new ScheduledRunnable(runnable, 0, timeDisambiguator));
+      enqueue(new ScheduledRunnable(runnable, 0), true);
     } else {
       runOrQueueRunnable(runnable, currentTime);
     }
@@ -189,11 +191,17 @@ public class Scheduler {
    * @param runnable  Runnable to remove.
    */
   public synchronized void remove(Runnable runnable) {
-    Iterator<ScheduledRunnable> iterator = runnables.iterator();
-    while (iterator.hasNext()) {
-      if (iterator.next().runnable == runnable) {
-        iterator.remove();
+    ArrayDeque<ScheduledRunnable> scheduledRunnables = queuedRunnables.remove(runnable);
+    if (scheduledRunnables == null) {
+      return;
+    }
+    for (ScheduledRunnable scheduled : scheduledRunnables) {
+      scheduled.cancelled = true;
+      TimeSlot timeSlot = timeSlots.get(scheduled.scheduledTime);
+      if (--timeSlot.liveCount == 0) {
+        timeSlots.remove(scheduled.scheduledTime);
       }
+      queuedCount--;
     }
   }
 
@@ -205,10 +213,8 @@ public class Scheduler {
    */
   public synchronized boolean advanceToLastPostedRunnable() {
     long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
+    if (!timeSlots.isEmpty() && currentMaxTime < timeSlots.lastKey()) {
+      currentMaxTime = timeSlots.lastKey();
     }
     return advanceTo(currentMaxTime);
   }
@@ -219,7 +225,7 @@ public class Scheduler {
    * @return  True if a runnable was executed.
    */
   public synchronized boolean advanceToNextPostedRunnable() {
-    return !runnables.isEmpty() && advanceTo(runnables.peek().scheduledTime);
+    return !timeSlots.isEmpty() && advanceTo(timeSlots.firstKey());
   }
 
   /**
@@ -251,7 +257,7 @@ public class Scheduler {
    * @return  True if a runnable was executed.
    */
   public synchronized boolean advanceTo(long endTime) {
-    if (endTime < currentTime || runnables.isEmpty()) {
+    if (endTime < currentTime || timeSlots.isEmpty()) {
       currentTime = endTime;
       return false;
     }
@@ -271,7 +277,7 @@ public class Scheduler {
    * @return  True if a runnable was executed.
    */
   public synchronized boolean runOneTask() {
-    ScheduledRunnable postedRunnable = runnables.poll();
+    ScheduledRunnable postedRunnable = poll();
     if (postedRunnable != null) {
       if (postedRunnable.scheduledTime > currentTime) {
         currentTime = postedRunnable.scheduledTime;
@@ -295,7 +301,9 @@ public class Scheduler {
    * Reset the internal state of the Scheduler.
    */
   public synchronized void reset() {
-    runnables.clear();
+    timeSlots.clear();
+    queuedRunnables.clear();
+    queuedCount = 0;
     idleState = UNPAUSED;
     currentTime = START_TIME;
     isExecutingRunnable = false;
@@ -307,27 +315,20 @@ public class Scheduler {
    * @return  Number of enqueues runnables.
    */
   public synchronized int size() {
-    return runnables.size();
+    return queuedCount;
   }
 
   @SuppressWarnings("AndroidJdkLibsChecker")
   public synchronized Duration getNextScheduledTaskTime() {
-    return runnables.isEmpty() ? Duration.ZERO : Duration.ofMillis(runnables.peek().scheduledTime);
+    return timeSlots.isEmpty() ? Duration.ZERO : Duration.ofMillis(timeSlots.firstKey());
   }
 
   @SuppressWarnings("AndroidJdkLibsChecker")
   public synchronized Duration getLastScheduledTaskTime() {
-    if (runnables.isEmpty()) {
+    if (timeSlots.isEmpty()) {
       return Duration.ZERO;
     }
-    long currentMaxTime = currentTime;
-    for (ScheduledRunnable scheduled : runnables) {
-      if (currentMaxTime < scheduled.scheduledTime) {
-        currentMaxTime = scheduled.scheduledTime;
-      }
-
-    }
-    return Duration.ofMillis(currentMaxTime);
+    return Duration.ofMillis(Math.max(currentTime, timeSlots.lastKey()));
   }
 
   /**
@@ -346,12 +347,56 @@ public class Scheduler {
   }
 
   private boolean nextTaskIsScheduledBefore(long endingTime) {
-    return !runnables.isEmpty() && runnables.peek().scheduledTime <= endingTime;
+    return !timeSlots.isEmpty() && timeSlots.firstKey() <= endingTime;
+  }
+
+  private void enqueue(ScheduledRunnable scheduled, boolean atFront) {
+    TimeSlot timeSlot = timeSlots.get(scheduled.scheduledTime);
+    if (timeSlot == null) {
+      timeSlot = new TimeSlot();
+      timeSlots.put(scheduled.scheduledTime, timeSlot);
+    }
+    if (atFront) {
+      timeSlot.runnables.addFirst(scheduled);
+    } else {
+      timeSlot.runnables.addLast(scheduled);
+    }
+    timeSlot.liveCount++;
+    ArrayDeque<ScheduledRunnable> scheduledRunnables = queuedRunnables.get(scheduled.runnable);
+    if (scheduledRunnables == null) {
+      scheduledRunnables = new ArrayDeque<>(1);
+      queuedRunnables.put(scheduled.runnable, scheduledRunnables);
+    }
+    scheduledRunnables.addLast(scheduled);
+    queuedCount++;
+  }
+
+  /** Removes and returns the runnable that is due to run first, or null if there is none. */
+  private ScheduledRunnable poll() {
+    Map.Entry<Long, TimeSlot> first = timeSlots.firstEntry();
+    if (first == null) {
+      return null;
+    }
+    TimeSlot timeSlot = first.getValue();
+    ScheduledRunnable scheduled = timeSlot.runnables.pollFirst();
+    while (scheduled.cancelled) {
+      scheduled = timeSlot.runnables.pollFirst();
+    }
+    if (--timeSlot.liveCount == 0) {
+      timeSlots.remove(first.getKey());
+    }
+    ArrayDeque<ScheduledRunnable> scheduledRunnables = queuedRunnables.get(scheduled.runnable);
+    scheduledRunnables.removeFirstOccurrence(scheduled);
+    if (scheduledRunnables.isEmpty()) {
+      queuedRunnables.remove(scheduled.runnable);
+    }
+    queuedCount--;
+    return scheduled;
   }
 
   private void runOrQueueRunnable(Runnable runnable, long scheduledTime) {
     if (isExecutingRunnable) {
-      runnables.add(new ScheduledRunnable(runnable, scheduledTime));
+      enqueue(new ScheduledRunnable(runnable, scheduledTime), false);
       return;
     }
     isExecutingRunnable = true;
@@ -377,28 +422,21 @@ public class Scheduler {
     }
   }
 
-  private class ScheduledRunnable implements Comparable<ScheduledRunnable> {
+  /** The runnables scheduled for one point in time, in the order they should run. */
+  private static class TimeSlot {
+    private final ArrayDeque<ScheduledRunnable> runnables = new ArrayDeque<>();
+    /** The number of entries in {@link #runnables} that have not been cancelled. */
+    private int liveCount;
+  }
+
+  private class ScheduledRunnable {
     private final Runnable runnable;
     private final long scheduledTime;
-    private final long timeDisambiguator;
+    private boolean cancelled;
 
     private ScheduledRunnable(Runnable runnable, long scheduledTime) {
-      this(runnable, scheduledTime, nextTimeDisambiguator++);
-    }
-
-    private ScheduledRunnable(Runnable runnable, long scheduledTime, long timeDisambiguator) {
       this.runnable = runnable;
       this.scheduledTime = scheduledTime;
-      this.timeDisambiguator = timeDisambiguator;
-    }
-
-    @Override
-    public int compareTo(ScheduledRunnable runnable) {
-      int timeCompare = Long.compare(scheduledTime, runnable.scheduledTime);
-      if (timeCompare == 0) {
-        return Long.compare(timeDisambiguator, runnable.timeDisambiguator);
-      }
-      return timeCompare;
     }
 
     public void run() {
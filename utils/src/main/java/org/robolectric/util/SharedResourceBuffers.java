@@ -0,0 +1,70 @@
+package org.robolectric.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-only contents of resources, such as the time zone database, that are loaded once and
+ * shared by every sandbox in the JVM.
+ *
+ * <p>Resources on the file system are memory-mapped; resources in jars are read once into a direct
+ * buffer.
+ */
+@SuppressWarnings({"NewApi", "AndroidJdkLibsChecker"})
+public class SharedResourceBuffers {
+  private static final ConcurrentMap<String, ByteBuffer> buffers = new ConcurrentHashMap<>();
+
+  private SharedResourceBuffers() {}
+
+  /**
+   * Returns a read-only buffer, positioned at zero, over the contents of {@code resource}. Each call
+   * returns an independent view, so callers may change its position, limit and byte order.
+   */
+  public static ByteBuffer getReadOnlyBuffer(URL resource) throws IOException {
+    String key = resource.toExternalForm();
+    ByteBuffer buffer = buffers.get(key);
+    if (buffer == null) {
+      synchronized (buffers) {
+        buffer = buffers.get(key);
+        if (buffer == null) {
+          buffer = load(resource).asReadOnlyBuffer();
+          buffers.put(key, buffer);
+        }
+      }
+    }
+    return buffer.duplicate();
+  }
+
+  private static ByteBuffer load(URL resource) throws IOException {
+    if ("file".equals(resource.getProtocol())) {
+      Path path;
+      try {
+        path = Paths.get(resource.toURI());
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+    }
+
+    byte[] bytes;
+    try (InputStream in = resource.openStream()) {
+      bytes = Util.readBytes(in);
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    ((Buffer) buffer).flip();
+    return buffer;
+  }
+}
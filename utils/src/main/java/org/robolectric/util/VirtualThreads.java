@@ -0,0 +1,83 @@
+package org.robolectric.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads on JDKs that support them (Java 21 and later), for use as sandbox main
+ * threads.
+ *
+ * <p>Virtual threads are only used if the system property {@code robolectric.virtualThreads} is
+ * set to {@code true}. On older JDKs the property is ignored and platform threads are used.
+ */
+public class VirtualThreads {
+  private static final String VIRTUAL_THREADS_ENABLED = "robolectric.virtualThreads";
+
+  private static final Method ofVirtual;
+  private static final Method builderName;
+  private static final Method builderFactory;
+
+  static {
+    Method ofVirtualMethod = null;
+    Method nameMethod = null;
+    Method factoryMethod = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+      nameMethod = builderClass.getMethod("name", String.class);
+      factoryMethod = builderClass.getMethod("factory");
+      // throws on JDKs where virtual threads are a preview feature that isn't enabled
+      ofVirtualMethod.invoke(null);
+    } catch (ClassNotFoundException
+        | NoSuchMethodException
+        | IllegalAccessException
+        | InvocationTargetException e) {
+      // virtual threads aren't available on this JDK
+      ofVirtualMethod = null;
+      nameMethod = null;
+      factoryMethod = null;
+    }
+    ofVirtual = ofVirtualMethod;
+    builderName = nameMethod;
+    builderFactory = factoryMethod;
+  }
+
+  private VirtualThreads() {}
+
+  /** Returns true if the running JDK supports virtual threads. */
+  public static boolean isSupported() {
+    return ofVirtual != null;
+  }
+
+  /** Returns true if virtual threads were requested and the running JDK supports them. */
+  public static boolean isEnabled() {
+    if (!Boolean.getBoolean(VIRTUAL_THREADS_ENABLED)) {
+      return false;
+    }
+    if (!isSupported()) {
+      Logger.info(
+          "%s is set, but virtual threads require Java 21 or later; using platform threads",
+          VIRTUAL_THREADS_ENABLED);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns a factory of virtual threads with the given name.
+   *
+   * @throws UnsupportedOperationException if the running JDK does not support virtual threads
+   */
+  public static ThreadFactory newThreadFactory(String name) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+    }
+    try {
+      Object builder = builderName.invoke(ofVirtual.invoke(null), name);
+      return (ThreadFactory) builderFactory.invoke(builder);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("unable to create virtual thread factory", e);
+    }
+  }
+}
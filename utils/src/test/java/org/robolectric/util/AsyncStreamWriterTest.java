@@ -0,0 +1,65 @@
+package org.robolectric.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AsyncStreamWriterTest {
+
+  @Test
+  public void shouldWriteToEachStreamInOrderWhenFlushed() throws Exception {
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    PrintStream firstStream = new PrintStream(first, false, "UTF-8");
+    PrintStream secondStream = new PrintStream(second, false, "UTF-8");
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      String line = "line " + i;
+      AsyncStreamWriter.enqueue(firstStream, ps -> ps.print(line));
+      AsyncStreamWriter.enqueue(secondStream, ps -> ps.print(line));
+      expected.append(line);
+    }
+
+    AsyncStreamWriter.flush();
+
+    assertThat(new String(first.toByteArray(), UTF_8)).isEqualTo(expected.toString());
+    assertThat(new String(second.toByteArray(), UTF_8)).isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void shouldKeepWritingAfterAFailedWrite() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream stream = new PrintStream(out, false, "UTF-8");
+
+    AsyncStreamWriter.enqueue(
+        stream,
+        ps -> {
+          throw new IllegalStateException("expected");
+        });
+    AsyncStreamWriter.enqueue(stream, ps -> ps.print("after"));
+    AsyncStreamWriter.flush();
+
+    assertThat(new String(out.toByteArray(), UTF_8)).isEqualTo("after");
+  }
+
+  @Test
+  public void shouldShareOneThread() throws Exception {
+    AsyncStreamWriter.enqueue(System.out, ps -> {});
+    AsyncStreamWriter.enqueue(System.err, ps -> {});
+    AsyncStreamWriter.flush();
+
+    int writerThreads = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("AsyncStreamWriter")) {
+        writerThreads++;
+      }
+    }
+    assertThat(writerThreads).isEqualTo(1);
+  }
+}
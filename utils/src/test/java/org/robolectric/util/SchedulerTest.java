@@ -508,6 +508,45 @@ public class SchedulerTest {
     assertThat(actualOrder).isEqualTo(ImmutableList.copyOf(Iterables.concat(orderCheck.values())));
   }
 
+  /** Tests for quadratic behavior when posting and removing many delayed runnables. */
+  @Test(timeout = 1000)
+  public void schedulerWithManyRemovedRunnables() {
+    List<Runnable> runnables = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      final String event = "runnable " + i;
+      Runnable runnable = new AddToTranscript(event);
+      runnables.add(runnable);
+      scheduler.postDelayed(runnable, i % 100);
+    }
+    for (int i = 0; i < runnables.size(); i++) {
+      if (i % 100 != 99) {
+        scheduler.remove(runnables.get(i));
+      }
+    }
+
+    assertThat(scheduler.size()).isEqualTo(500);
+    assertThat(scheduler.getLastScheduledTaskTime().toMillis()).isEqualTo(startTime + 99);
+    assertThat(scheduler.getNextScheduledTaskTime().toMillis()).isEqualTo(startTime + 99);
+
+    scheduler.advanceToLastPostedRunnable();
+
+    assertThat(transcript).hasSize(500);
+    assertThat(transcript.get(0)).isEqualTo("runnable 99");
+    assertThat(transcript.get(1)).isEqualTo("runnable 199");
+  }
+
+  @Test
+  public void getLastScheduledTaskTime_shouldReflectRemovedRunnables() {
+    Runnable last = new AddToTranscript("last");
+    scheduler.postDelayed(new AddToTranscript("first"), 100);
+    scheduler.postDelayed(last, 200);
+    assertThat(scheduler.getLastScheduledTaskTime().toMillis()).isEqualTo(startTime + 200);
+
+    scheduler.remove(last);
+
+    assertThat(scheduler.getLastScheduledTaskTime().toMillis()).isEqualTo(startTime + 100);
+  }
+
   @Test(timeout=1000)
   public void schedulerAllowsConcurrentTimeRead_whileLockIsHeld() throws InterruptedException {
     final AtomicLong l = new AtomicLong();
@@ -0,0 +1,77 @@
+package org.robolectric.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SharedResourceBuffersTest {
+  private final TempDirectory tempDirectory = new TempDirectory("shared_resource_buffers");
+
+  @Test
+  public void fileResource_shouldBeMappedReadOnly() throws IOException {
+    Path file = tempDirectory.createFile("data", "file contents");
+
+    ByteBuffer buffer = SharedResourceBuffers.getReadOnlyBuffer(file.toUri().toURL());
+
+    assertThat(buffer.isReadOnly()).isTrue();
+    assertThat(contents(buffer)).isEqualTo("file contents");
+    try {
+      buffer.put(0, (byte) 1);
+      throw new AssertionError("expected ReadOnlyBufferException");
+    } catch (ReadOnlyBufferException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void jarResource_shouldBeLoadedIntoDirectBuffer() throws IOException {
+    Path jar = tempDirectory.create("jar").resolve("resources.jar");
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out)) {
+      jarOut.putNextEntry(new JarEntry("data"));
+      jarOut.write("jar contents".getBytes(UTF_8));
+      jarOut.closeEntry();
+    }
+    URL resource = new URL("jar:" + jar.toUri() + "!/data");
+
+    ByteBuffer buffer = SharedResourceBuffers.getReadOnlyBuffer(resource);
+
+    assertThat(buffer.isReadOnly()).isTrue();
+    assertThat(buffer.isDirect()).isTrue();
+    assertThat(contents(buffer)).isEqualTo("jar contents");
+  }
+
+  @Test
+  public void eachCall_shouldReturnIndependentView() throws IOException {
+    Path file = tempDirectory.createFile("data", "\u0001\u0002\u0003\u0004");
+    URL resource = file.toUri().toURL();
+
+    ByteBuffer first = SharedResourceBuffers.getReadOnlyBuffer(resource);
+    first.order(ByteOrder.LITTLE_ENDIAN).getShort();
+    ByteBuffer second = SharedResourceBuffers.getReadOnlyBuffer(resource);
+
+    assertThat(second.position()).isEqualTo(0);
+    assertThat(second.order()).isEqualTo(ByteOrder.BIG_ENDIAN);
+    assertThat(second.getInt()).isEqualTo(0x01020304);
+  }
+
+  private static String contents(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -0,0 +1,42 @@
+package org.robolectric.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class VirtualThreadsTest {
+
+  @Test
+  public void isEnabled_shouldBeFalseByDefault() {
+    assertThat(VirtualThreads.isEnabled()).isFalse();
+  }
+
+  @Test
+  public void newThreadFactory_shouldCreateNamedVirtualThreads() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      try {
+        VirtualThreads.newThreadFactory("virtual");
+        fail("expected UnsupportedOperationException");
+      } catch (UnsupportedOperationException expected) {
+        // expected
+      }
+      return;
+    }
+
+    ThreadFactory factory = VirtualThreads.newThreadFactory("virtual");
+    AtomicReference<String> ranOn = new AtomicReference<>();
+    Thread thread = factory.newThread(() -> ranOn.set(Thread.currentThread().getName()));
+    thread.start();
+    thread.join();
+
+    assertThat(thread.getName()).isEqualTo("virtual");
+    assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+    assertThat(ranOn.get()).isEqualTo("virtual");
+  }
+}